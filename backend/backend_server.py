@@ -6,7 +6,9 @@ This server handles requests from the Depot agent and provides an API endpoint
 
 from flask import Flask, request, jsonify
 from flask_cors import CORS
+import gzip
 import json
+import threading
 import time
 import uuid
 
@@ -17,29 +19,46 @@ class CVRPBackendServer:
     def __init__(self):
         self.requests = {}
         self.solutions = {}
+        # Signalled whenever a request is added, to wake up long-polling solvers
+        self.pending_condition = threading.Condition()
         
     def add_request(self, request_data):
         """Add a new CVRP request"""
         request_id = str(uuid.uuid4())
-        self.requests[request_id] = {
-            'data': request_data,
-            'status': 'pending',
-            'timestamp': time.time()
-        }
+        with self.pending_condition:
+            self.requests[request_id] = {
+                'data': request_data,
+                'status': 'pending',
+                'timestamp': time.time()
+            }
+            self.pending_condition.notify_all()
         print(f"Added new CVRP request: {request_id}")
         return request_id
     
-    def get_pending_request(self):
-        """Get the oldest pending request"""
-        for req_id, req_data in self.requests.items():
-            if req_data['status'] == 'pending':
-                # Create a copy to avoid mutating original
-                req_data_copy = req_data.copy()
-                req_data_copy['status'] = 'processing'
-                req_data['status'] = 'processing'
-                print(f"Returning pending request: {req_id}")
-                return req_id, req_data['data']
-        return None, None
+    def get_pending_request(self, wait_seconds=0):
+        """Get the oldest pending request, waiting up to wait_seconds for one to arrive"""
+        pending = self.get_pending_requests(1, wait_seconds)
+        return pending[0] if pending else (None, None)
+    
+    def get_pending_requests(self, max_count, wait_seconds=0):
+        """Get up to max_count oldest pending requests, waiting up to wait_seconds for the first"""
+        deadline = time.time() + wait_seconds
+        with self.pending_condition:
+            while True:
+                pending = []
+                for req_id, req_data in self.requests.items():
+                    if req_data['status'] == 'pending':
+                        req_data['status'] = 'processing'
+                        print(f"Returning pending request: {req_id}")
+                        pending.append((req_id, req_data['data']))
+                        if len(pending) >= max_count:
+                            break
+                if pending:
+                    return pending
+                remaining = deadline - time.time()
+                if remaining <= 0:
+                    return []
+                self.pending_condition.wait(remaining)
     
     def add_solution(self, request_id, solution_data):
         """Add a solution for a request"""
@@ -62,21 +81,73 @@ class CVRPBackendServer:
 # Global server instance
 server = CVRPBackendServer()
 
+# Upper bound for the long-poll wait requested by a client
+MAX_LONG_POLL_SECONDS = 60
+
+# Upper bound for the number of requests returned by one batched poll
+MAX_POLL_BATCH = 32
+
+# Responses of at least this many bytes are gzip-compressed for clients accepting gzip
+GZIP_MIN_BYTES = 1024
+
+def read_json_body():
+    """JSON body of the current request; gzip-compressed bodies are decompressed first"""
+    if request.headers.get('Content-Encoding', '').lower() == 'gzip':
+        return json.loads(gzip.decompress(request.get_data()).decode('utf-8'))
+    return request.get_json()
+
+@app.after_request
+def compress_response(response):
+    """gzip large responses when the client accepts it"""
+    if (response.status_code == 200
+            and not response.direct_passthrough
+            and 'Content-Encoding' not in response.headers
+            and 'gzip' in request.headers.get('Accept-Encoding', '').lower()
+            and len(response.get_data()) >= GZIP_MIN_BYTES):
+        response.set_data(gzip.compress(response.get_data()))
+        response.headers['Content-Encoding'] = 'gzip'
+        response.headers['Vary'] = 'Accept-Encoding'
+    return response
+
 @app.route('/api/solve-cvrp', methods=['GET'])
 def poll_request():
     """Poll endpoint for getting pending CVRP requests"""
     action = request.args.get('action', 'poll')
     
     if action == 'poll':
+        # Long-poll: with wait=N the call blocks up to N seconds until a request is pending
+        try:
+            wait_seconds = min(max(float(request.args.get('wait', 0)), 0), MAX_LONG_POLL_SECONDS)
+        except ValueError:
+            return jsonify({'error': 'wait must be a number of seconds'}), 400
+        
+        # Batched poll: with max=K up to K pending requests are returned as {'requests': [...]}
+        max_count = request.args.get('max')
+        if max_count is not None:
+            try:
+                max_count = min(max(int(max_count), 1), MAX_POLL_BATCH)
+            except ValueError:
+                return jsonify({'error': 'max must be an integer'}), 400
+            pending = server.get_pending_requests(max_count, wait_seconds)
+            if pending:
+                response = jsonify({
+                    'requests': [{'request_id': req_id, 'data': req_data} for req_id, req_data in pending]
+                }), 200
+            else:
+                response = '', 204  # No Content - no pending requests
+            return response[0], response[1], {'X-Long-Poll-Wait': str(wait_seconds)}
+        
         # Return pending request if available
-        req_id, req_data = server.get_pending_request()
+        req_id, req_data = server.get_pending_request(wait_seconds)
         if req_id and req_data:
-            return jsonify({
+            response = jsonify({
                 'request_id': req_id,
                 'data': req_data
             }), 200
         else:
-            return '', 204  # No Content - no pending requests
+            response = '', 204  # No Content - no pending requests
+        # Tells the client that the wait was honoured (it can poll again without sleeping)
+        return response[0], response[1], {'X-Long-Poll-Wait': str(wait_seconds)}
     else:
         return jsonify({'error': 'Invalid action'}), 400
 
@@ -89,7 +160,7 @@ def submit_solution():
     if action == 'response':
         # This is a solution from the Depot agent
         try:
-            solution_data = request.get_json()
+            solution_data = read_json_body()
             if not solution_data:
                 return jsonify({'error': 'No JSON data provided'}), 400
                 
@@ -139,6 +210,12 @@ def submit_solution():
                     return jsonify({'error': f'Customer {i} must have: id, demand, x, y'}), 400
                 # timeWindow is optional
             
+            # priority (int, higher first) and deadlineMs (ms) are optional scheduling hints
+            if 'priority' in cvrp_data and not isinstance(cvrp_data['priority'], int):
+                return jsonify({'error': 'priority must be an integer'}), 400
+            if 'deadlineMs' in cvrp_data and not isinstance(cvrp_data['deadlineMs'], (int, float)):
+                return jsonify({'error': 'deadlineMs must be a number'}), 400
+            
             print(f"Received CVRP request from frontend: {len(cvrp_data['customers'])} customers, {len(cvrp_data['vehicles'])} vehicles")
             request_id = server.add_request(cvrp_data)
             
@@ -179,11 +256,12 @@ def get_solution_status(request_id):
 def start_backend_server(host='localhost', port=8000, debug=False):
     print(f"Starting CVRP Backend Server on {host}:{port}")
     print("Available endpoints:")
-    print("  GET  /api/solve-cvrp?action=poll     - Poll for pending requests")
+    print("  GET  /api/solve-cvrp?action=poll     - Poll for pending requests (&wait=N to long-poll, &max=K to batch)")
     print("  POST /api/solve-cvrp?action=response - Submit solution")
     print("  POST /api/solve-cvrp                  - Submit new CVRP request")
     print("  GET  /api/solution/<request_id>      - Check solution status")
-    app.run(host=host, port=port, debug=debug, use_reloader=False)
+    # Threaded so long-polling solvers do not block request submission
+    app.run(host=host, port=port, debug=debug, use_reloader=False, threaded=True)
 
 if __name__ == '__main__':
     start_backend_server(debug=True)
@@ -1,5 +1,6 @@
 package project.Agent;
 
+import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.TickerBehaviour;
@@ -11,10 +12,14 @@ import jade.domain.FIPAException;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import project.General.CustomerInfo;
+import project.General.RouteMessages;
+import project.Solver.ContractNetBidder;
 import project.Utils.AgentLogger;
+import project.Utils.Log;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Objects;
 
 /**
  * Delivery Agent (DA) for CVRP
@@ -22,6 +27,10 @@ import java.util.ArrayList;
  * - Responds to MRA queries with vehicle information
  * - Accepts route assignments from MRA
  * - Executes routes and returns to depot
+ * - In fleet mode stays resident across requests and is rebound to each request
+ *   by a "da-binding" message from the MRA
+ * - In Contract-Net assignment mode bids marginal insertion costs for announced
+ *   customers against its own tentative route ("route-bidding" messages)
  */
 public class DeliveryAgent extends Agent {
     private String vehicleName;
@@ -38,6 +47,10 @@ public class DeliveryAgent extends Agent {
     private String assignedRouteId;
     private List<CustomerInfo> currentRoute;
     
+    // Contract-Net bidding: tentative route of the auction in progress
+    private ContractNetBidder bidder;
+    private String auctionConversationId;
+    
     // Movement state
     private int currentCustomerIndex;  // Index of customer currently moving to (-1 means returning to depot)
     private double targetX;            // Target X coordinate
@@ -50,13 +63,23 @@ public class DeliveryAgent extends Agent {
     // Logger for conversations
     private AgentLogger logger;
     
+    // Local name of the MRA to notify once registered (null if not provided)
+    private String mraName;
+    
     @Override
     protected void setup() {
         Object[] args = getArguments();
+        String logFolder = null;  // Request-scoped log folder (optional 5th argument)
         if (args != null && args.length >= 3) {
             this.vehicleName = (String) args[0];
             this.capacity = (Integer) args[1];
             this.maxDistance = (Double) args[2];
+            if (args.length >= 4 && args[3] instanceof String) {
+                this.mraName = (String) args[3];
+            }
+            if (args.length >= 5 && args[4] instanceof String) {
+                logFolder = (String) args[4];
+            }
         } else {
             this.vehicleName = getLocalName();
             this.capacity = 50; // Default capacity
@@ -75,14 +98,15 @@ public class DeliveryAgent extends Agent {
         this.isMoving = false;
         this.currentMovementBehaviour = null;
         
-        System.out.println("Delivery Agent (DA) " + vehicleName + " started:");
-        System.out.println("  Capacity: " + capacity + " items");
-        System.out.println("  Max Distance: " + maxDistance);
-        System.out.println("  Initial position: (" + currentX + ", " + currentY + ")");
-        System.out.println("  Depot: (" + depotX + ", " + depotY + ")");
+        Log.debug(() -> "Delivery Agent (DA) " + vehicleName + " started:\n" +
+                        "  Capacity: " + capacity + " items\n" +
+                        "  Max Distance: " + maxDistance + "\n" +
+                        "  Initial position: (" + currentX + ", " + currentY + ")\n" +
+                        "  Depot: (" + depotX + ", " + depotY + ")");
         
         // Initialize logger
-        logger = new AgentLogger("DA-" + vehicleName);
+        logger = logFolder != null ? new AgentLogger("DA-" + vehicleName, logFolder)
+                                   : new AgentLogger("DA-" + vehicleName);
         logger.setAgentAID(this);
         logger.logEvent("Agent started");
         logger.log("Capacity: " + capacity + ", Max Distance: " + maxDistance);
@@ -98,8 +122,35 @@ public class DeliveryAgent extends Agent {
         // Add behavior to handle route assignments from MRA
         addBehaviour(new RouteAssignmentHandler());
         
+        // Add behavior to bid for customers (Contract-Net assignment mode)
+        addBehaviour(new BiddingHandler());
+        
+        // Add behavior to handle (re)binding to a request (fleet mode)
+        addBehaviour(new BindingHandler());
+        
         // Add behavior to return to depot when free
         addBehaviour(new ReturnToDepotBehaviour(this, 5000));  // Check every 5 seconds
+        
+        // Tell the MRA this DA is registered and ready to be queried
+        announceReady();
+    }
+    
+    /**
+     * Sends a DA_READY notification to the MRA so it can start querying vehicles as soon as
+     * every DA has registered, instead of waiting a fixed delay
+     */
+    private void announceReady() {
+        if (mraName == null) {
+            return;
+        }
+        ACLMessage ready = new ACLMessage(ACLMessage.INFORM);
+        ready.addReceiver(new AID(mraName, AID.ISLOCALNAME));
+        ready.setOntology("da-ready");
+        ready.setContent("DA_READY|NAME:" + vehicleName);
+        logger.logSent(ready);
+        send(ready);
+        Log.debug(() -> "DA " + vehicleName + ": Announced readiness to MRA " + mraName);
+        logger.logEvent("Announced readiness to MRA " + mraName);
     }
     
     /**
@@ -108,13 +159,18 @@ public class DeliveryAgent extends Agent {
     private class VehicleInfoQueryHandler extends CyclicBehaviour {
         @Override
         public void action() {
+            // Match on content so route assignments (also FIPA-Request REQUESTs) are left
+            // for RouteAssignmentHandler instead of being consumed here
             MessageTemplate template = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
-                MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST)
+                MessageTemplate.and(
+                    MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                    MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST)
+                ),
+                MessageTemplate.MatchContent("QUERY_VEHICLE_INFO")
             );
             
             ACLMessage msg = receive(template);
-            if (msg != null && "QUERY_VEHICLE_INFO".equals(msg.getContent())) {
+            if (msg != null) {
                 logger.logReceived(msg);
                 
                 // Log conversation start for vehicle info query
@@ -128,8 +184,13 @@ public class DeliveryAgent extends Agent {
                 reply.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
                 reply.setConversationId(msg.getConversationId());
                 
-                reply.setContent("CAPACITY:" + capacity + "|MAX_DISTANCE:" + maxDistance +
-                               "|NAME:" + vehicleName + "|X:" + currentX + "|Y:" + currentY);
+                RouteMessages.VehicleInfoMessage info = new RouteMessages.VehicleInfoMessage();
+                info.name = vehicleName;
+                info.capacity = capacity;
+                info.maxDistance = maxDistance;
+                info.x = currentX;
+                info.y = currentY;
+                RouteMessages.write(reply, info);
                 
                 logger.logConversationEnd(msg.getConversationId(), 
                     "Vehicle info responded - Capacity: " + capacity + 
@@ -138,9 +199,9 @@ public class DeliveryAgent extends Agent {
                 logger.logSent(reply);
                 send(reply);
                 
-                System.out.println("DA " + vehicleName + ": Responded to vehicle info query - " +
-                                 "Capacity: " + capacity + 
-                                 ", MaxDistance: " + maxDistance);
+                Log.debug(() -> "DA " + vehicleName + ": Responded to vehicle info query - " +
+                                "Capacity: " + capacity + 
+                                ", MaxDistance: " + maxDistance);
                 logger.logEvent("Responded to vehicle info query from MRA");
             } else {
                 block();
@@ -148,6 +209,177 @@ public class DeliveryAgent extends Agent {
         }
     }
     
+    /**
+     * Binding Handler (fleet mode)
+     * Rebinds this resident DA to a new request: takes over the request's capacity and
+     * maximum distance, abandons any previous route and starts a log in the request's log folder
+     */
+    private class BindingHandler extends CyclicBehaviour {
+        @Override
+        public void action() {
+            MessageTemplate template = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                MessageTemplate.MatchOntology("da-binding")
+            );
+            
+            ACLMessage bind = receive(template);
+            if (bind == null) {
+                block();
+                return;
+            }
+            
+            String requestId = null;
+            String logFolder = null;
+            String content = bind.getContent() != null ? bind.getContent() : "";
+            try {
+                for (String part : content.split("\\|")) {
+                    if (part.startsWith("REQUEST:")) {
+                        requestId = part.substring("REQUEST:".length());
+                    } else if (part.startsWith("CAPACITY:")) {
+                        capacity = Integer.parseInt(part.substring("CAPACITY:".length()).trim());
+                    } else if (part.startsWith("MAX_DISTANCE:")) {
+                        maxDistance = Double.parseDouble(part.substring("MAX_DISTANCE:".length()).trim());
+                    } else if (part.startsWith("LOG_FOLDER:")) {
+                        logFolder = part.substring("LOG_FOLDER:".length());
+                    }
+                }
+            } catch (NumberFormatException e) {
+                Log.error("DA " + vehicleName + ": Error parsing bind request: " + e.getMessage());
+                logger.log("ERROR: Failed to parse bind request: " + e.getMessage());
+            }
+            
+            // Abandon the previous request's route (if still driving) and start over at the depot
+            if (currentMovementBehaviour != null) {
+                removeBehaviour(currentMovementBehaviour);
+                currentMovementBehaviour = null;
+            }
+            isMoving = false;
+            assignedRouteId = null;
+            currentRoute = null;
+            currentCustomerIndex = -1;
+            currentX = depotX;
+            currentY = depotY;
+            bidder = null;
+            auctionConversationId = null;
+            
+            // Continue logging in the new request's log folder
+            logger.logEvent("Rebinding to request " + requestId);
+            logger.close();
+            logger = logFolder != null ? new AgentLogger("DA-" + vehicleName, logFolder)
+                                       : new AgentLogger("DA-" + vehicleName);
+            logger.setAgentAID(DeliveryAgent.this);
+            logger.logReceived(bind);
+            logger.logEvent("Bound to request " + requestId + ": capacity=" + capacity +
+                          ", maxDistance=" + maxDistance);
+            
+            ACLMessage reply = bind.createReply();
+            reply.setPerformative(ACLMessage.INFORM);
+            reply.setContent("DA_BOUND|NAME:" + vehicleName + "|REQUEST:" + requestId);
+            logger.logSent(reply);
+            send(reply);
+            
+            String boundRequestId = requestId;
+            Log.debug(() -> "DA " + vehicleName + ": Bound to request " + boundRequestId +
+                            " (capacity: " + capacity + ", maxDistance: " + maxDistance + ")");
+        }
+    }
+    
+    /**
+     * Bidding Handler (Contract-Net assignment mode)
+     * Answers each call for proposals with the marginal insertion cost of every announced
+     * customer that fits this vehicle's tentative route (PROPOSE), or REFUSE if none fits or
+     * the vehicle is already driving a route; inserts awarded customers (ACCEPT_PROPOSAL) and
+     * reports the tentative route back. The tentative route starts empty for every auction
+     * (conversation). Bids are computed here, on this agent's own thread, in parallel with
+     * the other DAs.
+     */
+    private class BiddingHandler extends CyclicBehaviour {
+        @Override
+        public void action() {
+            ACLMessage msg = receive(MessageTemplate.MatchOntology("route-bidding"));
+            if (msg == null) {
+                block();
+                return;
+            }
+            logger.logReceived(msg);
+            
+            try {
+                switch (msg.getPerformative()) {
+                    case ACLMessage.CFP:
+                        handleCallForProposals(msg);
+                        break;
+                    case ACLMessage.ACCEPT_PROPOSAL:
+                        handleAward(msg);
+                        break;
+                    case ACLMessage.REJECT_PROPOSAL:
+                        break;  // Nothing won this round
+                    default:
+                        logger.log("WARNING: Unexpected " + ACLMessage.getPerformative(msg.getPerformative()) +
+                                   " in route bidding");
+                }
+            } catch (IllegalArgumentException e) {
+                Log.warn("DA " + vehicleName + ": WARNING - Received bidding message with invalid content: " + e.getMessage());
+                logger.log("WARNING: Received bidding message with invalid content: " + e.getMessage());
+                ACLMessage reply = msg.createReply();
+                reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                reply.setContent(e.getMessage());
+                send(reply);
+            }
+        }
+        
+        private void handleCallForProposals(ACLMessage cfp) {
+            RouteMessages.CustomerBatch batch = RouteMessages.readCustomerBatch(cfp);
+            ACLMessage reply = cfp.createReply();
+            if (assignedRouteId != null) {
+                reply.setPerformative(ACLMessage.REFUSE);
+                reply.setContent("BUSY|ROUTE:" + assignedRouteId);
+                logger.logSent(reply);
+                send(reply);
+                return;
+            }
+            if (bidder == null || !Objects.equals(cfp.getConversationId(), auctionConversationId)) {
+                bidder = new ContractNetBidder(capacity, maxDistance);
+                auctionConversationId = cfp.getConversationId();
+                logger.logConversationStart(auctionConversationId, "Route bidding from " +
+                    (cfp.getSender() != null ? cfp.getSender().getLocalName() : "unknown"));
+            }
+            
+            RouteMessages.Bids bids = bidder.bid(batch);
+            if (bids.size() == 0) {
+                reply.setPerformative(ACLMessage.REFUSE);
+                reply.setContent("NO_FEASIBLE_CUSTOMER|ROUND:" + batch.round);
+            } else {
+                reply.setPerformative(ACLMessage.PROPOSE);
+                RouteMessages.write(reply, bids);
+            }
+            logger.logSent(reply);
+            send(reply);
+            Log.debug(() -> "DA " + vehicleName + ": Round " + batch.round + " - bid on " + bids.size() +
+                            "/" + batch.size() + " customers");
+        }
+        
+        private void handleAward(ACLMessage accept) {
+            RouteMessages.Award award = RouteMessages.readAward(accept);
+            ACLMessage reply = accept.createReply();
+            reply.setPerformative(ACLMessage.INFORM);
+            RouteMessages.AwardResult result;
+            if (bidder != null && Objects.equals(accept.getConversationId(), auctionConversationId)) {
+                result = bidder.award(award);
+            } else {
+                // Award of an auction this agent no longer bids in: nothing inserted
+                result = new RouteMessages.AwardResult();
+                result.round = award.round;
+                result.failed = award.customerIds;
+            }
+            RouteMessages.write(reply, result);
+            logger.logSent(reply);
+            send(reply);
+            logger.logEvent("Round " + award.round + ": awarded " + award.customerIds.length + " customers, " +
+                          result.failed.length + " did not fit - tentative route " + result.route.length +
+                          " customers, load " + result.load + "/" + capacity);
+        }
+    }
+    
     /**
      * Route Assignment Handler
      * Handles route assignments from MRA
@@ -165,44 +397,37 @@ public class DeliveryAgent extends Agent {
             if (routeAssignment != null) {
                 // Log the received route assignment message immediately
                 String senderName = (routeAssignment.getSender() != null) ? routeAssignment.getSender().getLocalName() : "unknown";
-                System.out.println("\n=== DA " + vehicleName + ": Received Route Assignment Message ===");
-                System.out.println("DA " + vehicleName + ": Message Details:");
-                System.out.println("  From: " + senderName);
-                System.out.println("  Performative: REQUEST");
-                System.out.println("  Protocol: " + (routeAssignment.getProtocol() != null ? routeAssignment.getProtocol() : "N/A"));
-                System.out.println("  Ontology: " + (routeAssignment.getOntology() != null ? routeAssignment.getOntology() : "N/A"));
-                System.out.println("  Conversation ID: " + (routeAssignment.getConversationId() != null ? routeAssignment.getConversationId() : "N/A"));
-                System.out.println("  Content Length: " + (routeAssignment.getContent() != null ? routeAssignment.getContent().length() : 0) + " characters");
+                Log.debug(() -> "\n=== DA " + vehicleName + ": Received Route Assignment Message ===\n" +
+                                "DA " + vehicleName + ": Message Details:\n" +
+                                "  From: " + senderName + "\n" +
+                                "  Performative: REQUEST\n" +
+                                "  Protocol: " + (routeAssignment.getProtocol() != null ? routeAssignment.getProtocol() : "N/A") + "\n" +
+                                "  Ontology: " + (routeAssignment.getOntology() != null ? routeAssignment.getOntology() : "N/A") + "\n" +
+                                "  Conversation ID: " + (routeAssignment.getConversationId() != null ? routeAssignment.getConversationId() : "N/A") + "\n" +
+                                "  Language: " + (routeAssignment.getLanguage() != null ? routeAssignment.getLanguage() : "N/A") + "\n" +
+                                "  Content Length: " + RouteMessages.contentLength(routeAssignment) +
+                                (RouteMessages.LANGUAGE_BINARY.equals(routeAssignment.getLanguage()) ? " bytes" : " characters"));
                 
                 // Log the received message to file
                 logger.logReceived(routeAssignment);
                 
+                RouteMessages.RouteAssignment route;
+                try {
+                    route = RouteMessages.readRouteAssignment(routeAssignment);
+                } catch (IllegalArgumentException e) {
+                    Log.warn("DA " + vehicleName + ": WARNING - Received route assignment with invalid content: " + e.getMessage());
+                    logger.log("WARNING: Received route assignment with invalid content: " + e.getMessage());
+                    return;
+                }
+                
                 // Log conversation start for route assignment
                 if (routeAssignment.getConversationId() != null) {
-                    // Extract route ID for logging
-                    String routeId = "unknown";
-                    try {
-                        String content = routeAssignment.getContent();
-                        if (content != null && content.startsWith("ROUTE_ASSIGNMENT:")) {
-                            String routeData = content.substring("ROUTE_ASSIGNMENT:".length());
-                            String[] parts = routeData.split("\\|");
-                            for (String part : parts) {
-                                if (part.startsWith("ROUTE:")) {
-                                    routeId = part.substring("ROUTE:".length());
-                                    break;
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        // Ignore parsing errors
-                    }
-                    System.out.println("DA " + vehicleName + ": Starting conversation: Route assignment for route " + routeId);
                     logger.logConversationStart(routeAssignment.getConversationId(), 
-                        "Route assignment for route " + routeId + " from " + senderName);
+                        "Route assignment for route " + (route.routeId != null ? route.routeId : "unknown") + " from " + senderName);
                 }
                 
                 // Handle the route assignment
-                handleRouteAssignment(routeAssignment);
+                handleRouteAssignment(routeAssignment, route);
                 return;
             }
             
@@ -213,99 +438,56 @@ public class DeliveryAgent extends Agent {
          * Handles route assignment from MRA.
          * DA validates the assignment and starts executing if feasible.
          */
-        private void handleRouteAssignment(ACLMessage routeAssignment) {
-            String content = routeAssignment.getContent();
+        private void handleRouteAssignment(ACLMessage routeAssignment, RouteMessages.RouteAssignment route) {
             String senderName = (routeAssignment.getSender() != null) ? routeAssignment.getSender().getLocalName() : "unknown";
             
-            System.out.println("\n=== DA " + vehicleName + ": Received Route Assignment ===");
-            System.out.println("DA " + vehicleName + ": Route Assignment Details:");
-            System.out.println("  From: " + senderName);
-            System.out.println("  Conversation ID: " + (routeAssignment.getConversationId() != null ? routeAssignment.getConversationId() : "N/A"));
-            System.out.println("  Protocol: " + (routeAssignment.getProtocol() != null ? routeAssignment.getProtocol() : "N/A"));
-            System.out.println("  Ontology: " + (routeAssignment.getOntology() != null ? routeAssignment.getOntology() : "N/A"));
             logger.logEvent("Received route assignment message from MRA: " + senderName);
-            
-            if (content == null || !content.startsWith("ROUTE_ASSIGNMENT:")) {
-                System.err.println("DA " + vehicleName + ": WARNING - Received route assignment with invalid content");
-                logger.log("WARNING: Received route assignment with invalid content");
-                return;
-            }
 
-            String routeData = content.substring("ROUTE_ASSIGNMENT:".length());
-            String[] parts = routeData.split("\\|");
+            String routeId = route.routeId;
+            String assignedVehicleName = route.vehicleName;
+            int routeDemand = route.demand;
+            double routeDistance = route.distance;
 
-            String routeId = null;
-            Integer assignedVehicleId = null;
-            String assignedVehicleName = null;
-            int routeDemand = 0;
-            double routeDistance = 0.0;
-            List<String> customerIds = new ArrayList<>();
-            String depotXStr = null;
-            String depotYStr = null;
+            // Start (and return) at the MRA's depot
+            depotX = route.depotX;
+            depotY = route.depotY;
+            currentX = depotX;
+            currentY = depotY;
 
-            try {
-                for (String part : parts) {
-                    if (part.startsWith("ROUTE:")) {
-                        routeId = part.substring("ROUTE:".length());
-                    } else if (part.startsWith("VEHICLE_ID:")) {
-                        assignedVehicleId = Integer.parseInt(part.substring("VEHICLE_ID:".length()));
-                    } else if (part.startsWith("VEHICLE_NAME:")) {
-                        assignedVehicleName = part.substring("VEHICLE_NAME:".length());
-                    } else if (part.startsWith("DEMAND:")) {
-                        routeDemand = Integer.parseInt(part.substring("DEMAND:".length()));
-                    } else if (part.startsWith("DISTANCE:")) {
-                        routeDistance = Double.parseDouble(part.substring("DISTANCE:".length()));
-                    } else if (part.startsWith("CUSTOMERS:")) {
-                        String customersStr = part.substring("CUSTOMERS:".length());
-                        if (!customersStr.isEmpty()) {
-                            String[] ids = customersStr.split(",");
-                            for (String id : ids) {
-                                customerIds.add(id.trim());
-                            }
-                        }
-                    } else if (part.startsWith("DEPOT_X:")) {
-                        depotXStr = part.substring("DEPOT_X:".length());
-                        depotX = Double.parseDouble(depotXStr);
-                        // Update current position to depot position when depot is received
-                        currentX = depotX;
-                    } else if (part.startsWith("DEPOT_Y:")) {
-                        depotYStr = part.substring("DEPOT_Y:".length());
-                        depotY = Double.parseDouble(depotYStr);
-                        // Update current position to depot position when depot is received
-                        currentY = depotY;
+            // Log parsed route assignment details
+            if (Log.isDebugEnabled()) {
+                StringBuilder out = new StringBuilder(512);
+                out.append("DA ").append(vehicleName).append(": Parsed Route Assignment:\n");
+                out.append("  Route ID: ").append(routeId != null ? routeId : "N/A").append('\n');
+                out.append("  Vehicle ID: ").append(route.vehicleId).append('\n');
+                out.append("  Assigned Vehicle Name: ").append(assignedVehicleName != null ? assignedVehicleName : "N/A").append('\n');
+                out.append("  This Vehicle Name: ").append(vehicleName).append('\n');
+                out.append("  Route Demand: ").append(routeDemand).append(" items\n");
+                out.append("  Route Distance: ").append(String.format("%.2f", routeDistance)).append('\n');
+                out.append("  Number of Customers: ").append(route.size()).append('\n');
+                out.append("  Depot: (").append(String.format("%.2f", depotX)).append(", ")
+                   .append(String.format("%.2f", depotY)).append(")\n");
+                if (route.size() > 0 && Log.isTraceEnabled()) {
+                    out.append("  Customer IDs: ");
+                    for (int i = 0; i < route.size(); i++) {
+                        if (i > 0) out.append(", ");
+                        out.append(route.customerIds[i]);
                     }
+                    out.append('\n');
                 }
-            } catch (Exception e) {
-                System.err.println("DA " + vehicleName + ": Error parsing route assignment: " + e.getMessage());
-                e.printStackTrace();
-                logger.log("ERROR: Failed to parse route assignment: " + e.getMessage());
-                return;
+                out.append("================================================");
+                Log.debug(out.toString());
             }
 
-            // Log parsed route assignment details
-            System.out.println("DA " + vehicleName + ": Parsed Route Assignment:");
-            System.out.println("  Route ID: " + (routeId != null ? routeId : "N/A"));
-            System.out.println("  Vehicle ID: " + (assignedVehicleId != null ? assignedVehicleId.toString() : "N/A"));
-            System.out.println("  Assigned Vehicle Name: " + (assignedVehicleName != null ? assignedVehicleName : "N/A"));
-            System.out.println("  This Vehicle Name: " + vehicleName);
-            System.out.println("  Route Demand: " + routeDemand + " items");
-            System.out.println("  Route Distance: " + String.format("%.2f", routeDistance));
-            System.out.println("  Number of Customers: " + customerIds.size());
-            System.out.println("  Depot: (" + (depotXStr != null ? depotXStr : "N/A") + ", " + (depotYStr != null ? depotYStr : "N/A") + ")");
-            if (!customerIds.isEmpty()) {
-                System.out.println("  Customer IDs: " + String.join(", ", customerIds));
-            }
-            System.out.println("================================================");
-
             if (routeId == null) {
-                System.err.println("DA " + vehicleName + ": Invalid route assignment - missing route ID");
+                Log.error("DA " + vehicleName + ": Invalid route assignment - missing route ID");
                 logger.log("ERROR: Invalid route assignment - missing route ID");
                 return;
             }
 
             if (assignedVehicleName != null && !assignedVehicleName.equals(vehicleName)) {
-                System.out.println("DA " + vehicleName + ": Route " + routeId +
-                                 " assigned to " + assignedVehicleName + ". Ignoring.");
+                Log.warn("DA " + vehicleName + ": Route " + routeId +
+                         " assigned to " + assignedVehicleName + ". Ignoring.");
                 logger.logEvent("Ignoring route " + routeId + " - assigned to " + assignedVehicleName + 
                               " (this vehicle: " + vehicleName + ")");
                 
@@ -315,18 +497,20 @@ public class DeliveryAgent extends Agent {
                 return;
             }
 
-            System.out.println("DA " + vehicleName + ": Evaluating route " + routeId +
-                             " (vehicleId: " + (assignedVehicleId != null ? assignedVehicleId : "unknown") +
-                             ", demand: " + routeDemand + ", distance: " + String.format("%.2f", routeDistance) + ")");
-            System.out.println("DA " + vehicleName + ": Vehicle Capacity: " + capacity + 
-                             ", Max Distance: " + maxDistance);
+            if (Log.isDebugEnabled()) {
+                Log.debug("DA " + vehicleName + ": Evaluating route " + routeId +
+                          " (vehicleId: " + route.vehicleId +
+                          ", demand: " + routeDemand + ", distance: " + String.format("%.2f", routeDistance) + ")\n" +
+                          "DA " + vehicleName + ": Vehicle Capacity: " + capacity + 
+                          ", Max Distance: " + maxDistance);
+            }
             logger.logEvent("Evaluating route " + routeId + ": demand=" + routeDemand +
                           ", distance=" + String.format("%.2f", routeDistance) +
                           ", capacity=" + capacity + ", maxDistance=" + maxDistance);
 
             if (assignedRouteId != null || currentRoute != null) {
-                System.out.println("DA " + vehicleName + ": Cannot start route " + routeId +
-                                 " - already assigned to route " + assignedRouteId);
+                Log.warn("DA " + vehicleName + ": Cannot start route " + routeId +
+                         " - already assigned to route " + assignedRouteId);
                 logger.logEvent("Route " + routeId + " ignored - vehicle already has route assignment: " + assignedRouteId);
                 
                 // Send reject response
@@ -336,8 +520,8 @@ public class DeliveryAgent extends Agent {
             }
 
             if (routeDemand > capacity) {
-                System.out.println("DA " + vehicleName + ": Route " + routeId +
-                                 " demand " + routeDemand + " exceeds capacity " + capacity);
+                Log.warn("DA " + vehicleName + ": Route " + routeId +
+                         " demand " + routeDemand + " exceeds capacity " + capacity);
                 logger.logEvent("Route " + routeId + " rejected locally - demand " + routeDemand +
                               " exceeds capacity " + capacity);
                 
@@ -348,9 +532,9 @@ public class DeliveryAgent extends Agent {
             }
 
             if (routeDistance > maxDistance) {
-                System.out.println("DA " + vehicleName + ": Route " + routeId +
-                                 " distance " + String.format("%.2f", routeDistance) +
-                                 " exceeds max distance " + maxDistance);
+                Log.warn("DA " + vehicleName + ": Route " + routeId +
+                         " distance " + String.format("%.2f", routeDistance) +
+                         " exceeds max distance " + maxDistance);
                 logger.logEvent("Route " + routeId + " rejected locally - distance " +
                               String.format("%.2f", routeDistance) + " exceeds max distance " + maxDistance);
                 
@@ -360,31 +544,40 @@ public class DeliveryAgent extends Agent {
                 return;
             }
 
+            if (route.size() == 0) {
+                Log.error("DA " + vehicleName + ": ERROR - No customers found in route data");
+                logger.log("ERROR: No customers found in route data for route " + routeId);
+                sendRejectResponse(routeAssignment, routeId, "NO_CUSTOMERS", "Route has no customers");
+                return;
+            }
+
             // Route is valid and accepted
-            System.out.println("DA " + vehicleName + ": ✓ Route " + routeId + " ACCEPTED");
-            System.out.println("DA " + vehicleName + ": Validation Results:");
-            System.out.println("  Capacity: " + capacity + " >= Demand: " + routeDemand + " ✓");
-            System.out.println("  Max Distance: " + maxDistance + " >= Route Distance: " + 
-                             String.format("%.2f", routeDistance) + " ✓");
-            System.out.println("  Customers: " + customerIds.size());
+            if (Log.isDebugEnabled()) {
+                Log.debug("DA " + vehicleName + ": ✓ Route " + routeId + " ACCEPTED\n" +
+                          "DA " + vehicleName + ": Validation Results:\n" +
+                          "  Capacity: " + capacity + " >= Demand: " + routeDemand + " ✓\n" +
+                          "  Max Distance: " + maxDistance + " >= Route Distance: " + 
+                          String.format("%.2f", routeDistance) + " ✓\n" +
+                          "  Customers: " + route.size());
+            }
             logger.logEvent("ACCEPTED route " + routeId + ": capacity=" + capacity + " (demand=" + routeDemand +
                           "), maxDistance=" + maxDistance + " (route distance=" + String.format("%.2f", routeDistance) + ")");
 
             // Prepare acceptance response to MRA
-            String responseContent = "ROUTE_ACCEPTED:" + routeId + "|VEHICLE:" + vehicleName + 
-                                   "|STATUS:ACCEPTED|DEMAND:" + routeDemand + 
-                                   "|DISTANCE:" + String.format("%.2f", routeDistance) +
-                                   "|CUSTOMERS:" + customerIds.size();
-            
-            System.out.println("DA " + vehicleName + ": Preparing acceptance response to MRA");
-            System.out.println("DA " + vehicleName + ": Response Content: " + responseContent);
+            RouteMessages.RouteResponse accepted = new RouteMessages.RouteResponse();
+            accepted.accepted = true;
+            accepted.routeId = routeId;
+            accepted.vehicleName = vehicleName;
+            accepted.demand = routeDemand;
+            accepted.distance = routeDistance;
+            accepted.customers = route.size();
             
             // Send response back to MRA (FIPA-Request protocol requires a response)
             ACLMessage response = routeAssignment.createReply();
             response.setPerformative(ACLMessage.INFORM);
             response.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
             response.setConversationId(routeAssignment.getConversationId());
-            response.setContent(responseContent);
+            RouteMessages.write(response, accepted);
             
             // Log the response before sending
             logger.logEvent("Sending route acceptance response to MRA: Route " + routeId + 
@@ -394,7 +587,7 @@ public class DeliveryAgent extends Agent {
             // Send the response
             send(response);
             
-            System.out.println("DA " + vehicleName + ": ✓ Route acceptance response sent to MRA for route " + routeId);
+            Log.debug(() -> "DA " + vehicleName + ": ✓ Route acceptance response sent to MRA: " + RouteMessages.describe(response));
             logger.logEvent("Route acceptance response sent successfully to MRA for route " + routeId);
             
             // Log conversation end
@@ -403,7 +596,7 @@ public class DeliveryAgent extends Agent {
                     "Route " + routeId + " ACCEPTED and delivery started");
             }
 
-            parseRouteAndStartMovement(routeId, routeData);
+            startMovement(route);
         }
         
         /**
@@ -411,20 +604,18 @@ public class DeliveryAgent extends Agent {
          */
         private void sendRejectResponse(ACLMessage routeAssignment, String routeId, String reason, String details) {
             // Prepare rejection response
-            String responseContent = "ROUTE_REJECTED:" + routeId + "|VEHICLE:" + vehicleName + 
-                                   "|STATUS:REJECTED|REASON:" + reason + "|DETAILS:" + details;
-            
-            System.out.println("DA " + vehicleName + ": Preparing rejection response to MRA");
-            System.out.println("DA " + vehicleName + ": Rejection Reason: " + reason);
-            System.out.println("DA " + vehicleName + ": Rejection Details: " + details);
-            System.out.println("DA " + vehicleName + ": Response Content: " + responseContent);
+            RouteMessages.RouteResponse rejected = new RouteMessages.RouteResponse();
+            rejected.routeId = routeId;
+            rejected.vehicleName = vehicleName;
+            rejected.reason = reason;
+            rejected.details = details;
             
             // Create response message
             ACLMessage response = routeAssignment.createReply();
             response.setPerformative(ACLMessage.REFUSE);
             response.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
             response.setConversationId(routeAssignment.getConversationId());
-            response.setContent(responseContent);
+            RouteMessages.write(response, rejected);
             
             // Log the response before sending
             logger.logEvent("Sending route rejection response to MRA: Route " + routeId + 
@@ -434,7 +625,7 @@ public class DeliveryAgent extends Agent {
             // Send the response
             send(response);
             
-            System.out.println("DA " + vehicleName + ": ✓ Route rejection response sent to MRA for route " + routeId);
+            Log.info("DA " + vehicleName + ": Route " + routeId + " rejected - " + reason + ": " + details);
             logger.logEvent("Route rejection response sent successfully to MRA for route " + routeId + ": " + reason);
             
             // Log conversation end
@@ -446,89 +637,30 @@ public class DeliveryAgent extends Agent {
     }
     
     /**
-     * Parses route data and starts movement behavior
-     * Called when DA accepts a route assignment
+     * Builds the customer list of an accepted route and starts movement behavior
      */
-    private void parseRouteAndStartMovement(String routeId, String routeData) {
-        System.out.println("DA " + vehicleName + ": Parsing route data for route " + routeId);
-        logger.logEvent("Parsing route data for route " + routeId);
+    private void startMovement(RouteMessages.RouteAssignment route) {
+        String routeId = route.routeId;
         
         // Update assignment
         assignedRouteId = routeId;
         
-        System.out.println("DA " + vehicleName + ": Starting delivery for route " + routeId);
         logger.logEvent("Starting delivery for route " + routeId);
         
-        // Parse route data to extract customer information
-        String[] parts = routeData.split("\\|");
-        
-        List<String> customerNumericIds = new ArrayList<>();
-        List<String> customerAgentIds = new ArrayList<>();
-        List<CustomerInfo> customers = new ArrayList<>();
-        
-        try {
-            for (String part : parts) {
-                if (part.startsWith("CUSTOMERS:")) {
-                    String customerIdsStr = part.substring("CUSTOMERS:".length());
-                    if (!customerIdsStr.isEmpty()) {
-                        String[] ids = customerIdsStr.split(",");
-                        for (String id : ids) {
-                            customerNumericIds.add(id.trim());
-                        }
-                    }
-                } else if (part.startsWith("CUSTOMER_IDS:")) {
-                    String customerAgentIdsStr = part.substring("CUSTOMER_IDS:".length());
-                    if (!customerAgentIdsStr.isEmpty()) {
-                        String[] ids = customerAgentIdsStr.split(",");
-                        for (String id : ids) {
-                            customerAgentIds.add(id.trim());
-                        }
-                    }
-                } else if (part.startsWith("COORDS:")) {
-                    String coordsString = part.substring("COORDS:".length());
-                    if (!coordsString.isEmpty()) {
-                        String[] coordPairs = coordsString.split(";");
-                        int numCustomers = Math.max(customerNumericIds.size(), customerAgentIds.size());
-                        for (int i = 0; i < coordPairs.length && i < numCustomers; i++) {
-                            String[] coords = coordPairs[i].split(",");
-                            if (coords.length == 2) {
-                                double x = Double.parseDouble(coords[0]);
-                                double y = Double.parseDouble(coords[1]);
-                                
-                                String numericId = i < customerNumericIds.size() ? customerNumericIds.get(i) : String.valueOf(i + 1);
-                                String agentId = i < customerAgentIds.size() ? customerAgentIds.get(i) : "customer-" + numericId;
-                                
-                                int customerIdNum = Integer.parseInt(numericId);
-                                CustomerInfo customer = new CustomerInfo(customerIdNum, x, y, 0);
-                                customer.name = agentId;
-                                customers.add(customer);
-                            }
-                        }
-                    }
-                }
-            }
-            } catch (Exception e) {
-                System.err.println("DA " + vehicleName + ": Error parsing route data: " + e.getMessage());
-                e.printStackTrace();
-                logger.log("ERROR: Failed to parse route data: " + e.getMessage());
-                assignedRouteId = null;
-                return;
-            }
-        
-            if (customers.isEmpty()) {
-                System.err.println("DA " + vehicleName + ": ERROR - No customers found in route data");
-                logger.log("ERROR: No customers found in route data for route " + routeId);
-                assignedRouteId = null;
-                return;
+        List<CustomerInfo> customers = new ArrayList<>(route.size());
+        for (int i = 0; i < route.size(); i++) {
+            CustomerInfo customer = new CustomerInfo(route.customerIds[i], route.x[i], route.y[i], 0);
+            if (route.customerNames[i] != null) {
+                customer.name = route.customerNames[i];
             }
+            customers.add(customer);
+        }
         
         // Store route
         currentRoute = customers;
         currentCustomerIndex = 0;
         isMoving = true;
         
-        System.out.println("DA " + vehicleName + ": Route " + routeId + " parsed successfully");
-        System.out.println("DA " + vehicleName + ": Route contains " + currentRoute.size() + " customers");
         logger.logEvent("Route " + routeId + " parsed: " + currentRoute.size() + " customers");
         
         // Set target to first customer
@@ -537,9 +669,9 @@ public class DeliveryAgent extends Agent {
             targetX = firstCustomer.x;
             targetY = firstCustomer.y;
             double distanceToFirst = Math.hypot(currentX - targetX, currentY - targetY);
-            System.out.println("DA " + vehicleName + ": Starting route with " + currentRoute.size() + 
-                             " customers. Moving to customer " + firstCustomer.name + " at (" + 
-                             targetX + ", " + targetY + ")");
+            Log.debug(() -> "DA " + vehicleName + ": Starting route " + routeId + " with " + customers.size() + 
+                            " customers. Moving to customer " + firstCustomer.name + " at (" + 
+                            firstCustomer.x + ", " + firstCustomer.y + ")");
             logger.logEvent("Starting route: " + currentRoute.size() + " customers. Moving to " + 
                           firstCustomer.name + " at (" + targetX + ", " + targetY + 
                           "). Distance: " + String.format("%.2f", distanceToFirst));
@@ -547,7 +679,6 @@ public class DeliveryAgent extends Agent {
         
         // Stop any existing movement behavior
         if (currentMovementBehaviour != null) {
-            System.out.println("DA " + vehicleName + ": Stopping existing MovementBehaviour");
             logger.logEvent("Stopping existing MovementBehaviour");
             removeBehaviour(currentMovementBehaviour);
             currentMovementBehaviour = null;
@@ -556,7 +687,6 @@ public class DeliveryAgent extends Agent {
         // Start movement behavior (updates position every second)
         currentMovementBehaviour = new MovementBehaviour(this, 1000);  // Update every 1 second
         addBehaviour(currentMovementBehaviour);
-        System.out.println("DA " + vehicleName + ": MovementBehaviour started for route " + routeId);
         logger.logEvent("MovementBehaviour started for route " + routeId);
     }
     
@@ -576,7 +706,7 @@ public class DeliveryAgent extends Agent {
             }
             
             if (currentRoute == null) {
-                System.out.println("DA " + vehicleName + ": ERROR - MovementBehaviour - currentRoute is null!");
+                Log.error("DA " + vehicleName + ": ERROR - MovementBehaviour - currentRoute is null!");
                 logger.log("ERROR: MovementBehaviour - currentRoute is null");
                 return;
             }
@@ -615,9 +745,8 @@ public class DeliveryAgent extends Agent {
                 // Arrived at customer
                 currentX = targetX;
                 currentY = targetY;
-                System.out.println("\n=== DA " + vehicleName + ": ARRIVED at Customer ===");
-                System.out.println("DA " + vehicleName + ": Customer: " + customer.name + 
-                                 " (ID: " + customer.id + ")");
+                Log.trace(() -> "DA " + vehicleName + ": ARRIVED at customer " + customer.name + 
+                                " (ID: " + customer.id + ")");
                 logger.logEvent("ARRIVED at customer " + customer.name + " (ID: " + customer.id + 
                               ") at (" + currentX + ", " + currentY + ")");
                 
@@ -625,7 +754,7 @@ public class DeliveryAgent extends Agent {
                 currentCustomerIndex++;
                 if (currentCustomerIndex >= currentRoute.size()) {
                     // All customers visited, return to depot
-                    System.out.println("\n=== DA " + vehicleName + ": All Customers Visited ===");
+                    Log.debug(() -> "DA " + vehicleName + ": All customers visited, returning to depot");
                     logger.logEvent("All " + currentRoute.size() + " customers visited. Returning to depot.");
                     currentCustomerIndex = -2;  // Special value to indicate returning to depot
                     targetX = depotX;
@@ -668,9 +797,7 @@ public class DeliveryAgent extends Agent {
                 currentRoute = null;
                 currentCustomerIndex = -1;
                 
-                System.out.println("\n=== DA " + vehicleName + ": RETURNED TO DEPOT ===");
-                System.out.println("DA " + vehicleName + ": Route " + completedRouteId + " completed");
-                System.out.println("DA " + vehicleName + ": Ready for next route assignment");
+                Log.info("DA " + vehicleName + ": Route " + completedRouteId + " completed, returned to depot");
                 logger.logEvent("RETURNED to depot. Route " + completedRouteId + " completed. Ready for next assignment");
                 
                 // Stop movement behavior and remove it
@@ -730,10 +857,10 @@ public class DeliveryAgent extends Agent {
             dfd.addServices(sd);
             
             DFService.register(this, dfd);
-            System.out.println("DA " + vehicleName + ": Registered with DF as 'da-service'");
+            Log.debug(() -> "DA " + vehicleName + ": Registered with DF as 'da-service'");
             logger.logEvent("DF Registration successful");
         } catch (FIPAException fe) {
-            System.err.println("DA " + vehicleName + ": Failed to register with DF: " + fe.getMessage());
+            Log.error("DA " + vehicleName + ": Failed to register with DF: " + fe.getMessage());
         }
     }
     
@@ -742,13 +869,13 @@ public class DeliveryAgent extends Agent {
         logger.logEvent("Agent terminating");
         try {
             DFService.deregister(this);
-            System.out.println("DA " + vehicleName + ": Deregistered from DF");
+            Log.debug(() -> "DA " + vehicleName + ": Deregistered from DF");
             logger.logEvent("Deregistered from DF");
         } catch (FIPAException fe) {
-            System.err.println("DA " + vehicleName + ": Error deregistering from DF: " + fe.getMessage());
+            Log.error("DA " + vehicleName + ": Error deregistering from DF: " + fe.getMessage());
             logger.log("ERROR: Failed to deregister from DF: " + fe.getMessage());
         }
-        System.out.println("Delivery Agent " + vehicleName + " terminating.");
+        Log.debug(() -> "Delivery Agent " + vehicleName + " terminating.");
         logger.close();
     }
 }
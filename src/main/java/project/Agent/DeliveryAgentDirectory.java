@@ -0,0 +1,218 @@
+package project.Agent;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.domain.DFService;
+import jade.domain.FIPAException;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.lang.acl.ACLMessage;
+import project.Utils.AgentLogger;
+import project.Utils.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MRA's local copy of the DF's "da-service" registrations, so finding the DAs of a request
+ * and the DA of each route costs no DF round trip.
+ *
+ * The MRA subscribes once to the DF ({@link #subscribe()}); the DF answers with the current
+ * registrations and then notifies every registration and deregistration, which arrive through
+ * the agent's {@link MessageDispatcher} (this class is the handler of the subscription's
+ * conversation) and update a name-to-AID map. A DA's DA_READY announcement also adds it
+ * ({@link #add(AID)}), since a DA announces only after registering and the announcement may
+ * overtake the DF's notification. A blocking DF search is made only to seed the map before the
+ * first notification or when a name is still unknown.
+ *
+ * DF searches, notifications and lookups are counted (see {@link #getStatistics()}).
+ * All methods run on the agent thread.
+ */
+public class DeliveryAgentDirectory implements MessageDispatcher.Handler {
+    public static final String SERVICE_TYPE = "da-service";
+
+    private final Agent agent;
+    private final AgentLogger logger;
+    private final Map<String, AID> byName = new LinkedHashMap<>();
+
+    private ACLMessage subscription;
+    private boolean live;  // The DF has sent its first notification
+
+    private long searches;
+    private long notifications;
+    private long lookups;
+    private long misses;
+
+    public DeliveryAgentDirectory(Agent agent, AgentLogger logger) {
+        this.agent = agent;
+        this.logger = logger;
+    }
+
+    private static DFAgentDescription template() {
+        DFAgentDescription dfd = new DFAgentDescription();
+        ServiceDescription sd = new ServiceDescription();
+        sd.setType(SERVICE_TYPE);
+        dfd.addServices(sd);
+        return dfd;
+    }
+
+    /**
+     * Subscribes to "da-service" registrations at the default DF
+     *
+     * @return conversation ID of the DF's notifications (route it to this handler)
+     */
+    public String subscribe() {
+        subscription = DFService.createSubscriptionMessage(agent, agent.getDefaultDF(), template(), null);
+        String conversationId = "df-subscription-" + agent.getLocalName() + "-" + System.currentTimeMillis();
+        subscription.setConversationId(conversationId);
+        agent.send(subscription);
+        logger.logEvent("Subscribed to DF notifications for '" + SERVICE_TYPE + "'");
+        return conversationId;
+    }
+
+    /**
+     * Ends the DF subscription (on agent takedown)
+     */
+    public void cancel() {
+        if (subscription != null) {
+            agent.send(DFService.createCancelMessage(agent, agent.getDefaultDF(), subscription));
+            subscription = null;
+            live = false;
+        }
+    }
+
+    /**
+     * Handles a DF notification: a description with services is a (re)registration, one
+     * without services a deregistration
+     */
+    @Override
+    public void handle(ACLMessage msg) {
+        if (msg.getPerformative() != ACLMessage.INFORM) {
+            if (msg.getPerformative() == ACLMessage.REFUSE || msg.getPerformative() == ACLMessage.FAILURE) {
+                Log.warn("MRA: DF subscription " + ACLMessage.getPerformative(msg.getPerformative()) +
+                         " - falling back to DF searches");
+                logger.log("WARNING: DF subscription answered with " +
+                           ACLMessage.getPerformative(msg.getPerformative()) + ": " + msg.getContent());
+                subscription = null;
+                live = false;
+            }
+            return;
+        }
+        DFAgentDescription[] descriptions;
+        try {
+            descriptions = DFService.decodeNotification(msg.getContent());
+        } catch (FIPAException e) {
+            Log.error("MRA: Cannot decode DF notification: " + e.getMessage());
+            logger.log("ERROR: Cannot decode DF notification: " + e.getMessage());
+            return;
+        }
+        notifications++;
+        live = true;
+        int added = 0;
+        int removed = 0;
+        for (DFAgentDescription description : descriptions) {
+            AID aid = description.getName();
+            if (aid == null) {
+                continue;
+            }
+            Iterator<?> services = description.getAllServices();
+            if (services != null && services.hasNext()) {
+                byName.put(aid.getLocalName(), aid);
+                added++;
+            } else if (byName.remove(aid.getLocalName()) != null) {
+                removed++;
+            }
+        }
+        int addedCount = added;
+        int removedCount = removed;
+        Log.debug(() -> "MRA: DF notification: +" + addedCount + " / -" + removedCount +
+                        " Delivery Agents (" + byName.size() + " known)");
+        logger.log("DF notification: +" + added + " / -" + removed + " Delivery Agents (" + byName.size() + " known)");
+    }
+
+    /**
+     * Records a DA known to be registered (it announced itself after registering)
+     */
+    public void add(AID aid) {
+        byName.put(aid.getLocalName(), aid);
+    }
+
+    /**
+     * All known DAs; searches the DF first if no notification has arrived yet
+     */
+    public List<AID> getAll() {
+        if (!live) {
+            return refresh();
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    /**
+     * Replaces the known DAs with a DF search result (one blocking DF round trip)
+     */
+    public List<AID> refresh() {
+        List<AID> daAIDs = new ArrayList<>();
+        try {
+            searches++;
+            DFAgentDescription[] results = DFService.search(agent, template());
+            byName.clear();
+            for (DFAgentDescription result : results) {
+                byName.put(result.getName().getLocalName(), result.getName());
+                daAIDs.add(result.getName());
+            }
+            Log.debug(() -> "MRA: Found " + daAIDs.size() + " Delivery Agents via DF");
+            logger.log("DF Search: Found " + daAIDs.size() + " Delivery Agents via '" + SERVICE_TYPE + "'");
+        } catch (FIPAException fe) {
+            Log.error("MRA: Error searching DF for Delivery Agents: " + fe.getMessage());
+        }
+        return daAIDs;
+    }
+
+    /**
+     * Finds the DA of a vehicle: exact local name, else a name of the form "vehicleName-..."
+     * (vehicle names without request suffix); searches the DF once if neither is known
+     */
+    public AID find(String vehicleName) {
+        lookups++;
+        AID aid = match(vehicleName);
+        if (aid == null) {
+            misses++;
+            refresh();
+            aid = match(vehicleName);
+        }
+        return aid;
+    }
+
+    private AID match(String vehicleName) {
+        AID aid = byName.get(vehicleName);
+        if (aid != null) {
+            return aid;
+        }
+        String prefix = vehicleName + "-";
+        for (Map.Entry<String, AID> entry : byName.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    public long getSearchCount() {
+        return searches;
+    }
+
+    /**
+     * One-line summary: known DAs, subscription state, DF searches, notifications and lookups
+     */
+    public String getStatistics() {
+        return "known=" + byName.size() + ", subscribed=" + live + ", dfSearches=" + searches +
+               ", dfNotifications=" + notifications + ", lookups=" + lookups + ", lookupMisses=" + misses;
+    }
+}
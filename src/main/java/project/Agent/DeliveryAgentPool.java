@@ -0,0 +1,175 @@
+package project.Agent;
+
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
+import project.Utils.JsonConfigReader;
+import project.Utils.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resident Delivery Agents for fleet mode, keyed by vehicle name.
+ * A DA is created the first time a request uses its vehicle name and is then reused by
+ * every later request (the MRA rebinds it by message), so requests no longer pay for
+ * agent creation, DF registration and teardown.
+ * 
+ * Requests lease their DAs for the time they are in flight. When a concurrent request
+ * needs a vehicle name whose DA is already leased, another instance is created for it
+ * ("Truck", "Truck#2", ...), so two requests never drive the same DA. Agent names are
+ * checked against every name in use (case-insensitively, as JADE compares them), so a
+ * vehicle actually named "Truck#2", "mra" or "df" still gets a name of its own.
+ */
+public class DeliveryAgentPool {
+    private final AgentContainer container;
+    private final Map<String, AgentController> agents = new LinkedHashMap<>();
+    private final Map<String, List<String>> instancesByVehicle = new HashMap<>();
+    private final Set<String> leased = new HashSet<>();
+    private final Set<String> takenNames = new HashSet<>();  // Lower case: pooled and reserved names
+
+    // Separator of generated instance names
+    static final String INSTANCE_SEPARATOR = "#";
+
+    /**
+     * @param reservedNames names of other agents in the container (e.g. the resident MRA)
+     */
+    public DeliveryAgentPool(AgentContainer container, String... reservedNames) {
+        this.container = container;
+        takenNames.add("ams");
+        takenNames.add("df");
+        for (String name : reservedNames) {
+            takenNames.add(name.toLowerCase());
+        }
+    }
+
+    /**
+     * Leases an idle resident DA for every vehicle of a request, creating DAs as needed.
+     * If a DA cannot be created, the DAs already leased by this call are released again.
+     *
+     * @return DA names in the order of the given vehicles
+     */
+    public synchronized List<String> lease(List<JsonConfigReader.VehicleConfig> vehicles) throws StaleProxyException {
+        List<String> daNames = new ArrayList<>();
+        try {
+            leaseInto(vehicles, daNames);
+        } catch (StaleProxyException | RuntimeException e) {
+            leased.removeAll(daNames);
+            throw e;
+        }
+        return daNames;
+    }
+
+    private void leaseInto(List<JsonConfigReader.VehicleConfig> vehicles, List<String> daNames) throws StaleProxyException {
+        for (JsonConfigReader.VehicleConfig vehicleConfig : vehicles) {
+            List<String> instances = instancesByVehicle.computeIfAbsent(vehicleConfig.name, k -> new ArrayList<>());
+            String daName = null;
+            for (String instance : instances) {
+                if (!leased.contains(instance)) {
+                    daName = instance;
+                    break;
+                }
+            }
+            if (daName == null) {
+                daName = newAgentName(vehicleConfig.name, instances.size() + 1);
+                // Capacity and max distance are only initial values; each bind message overrides them
+                Object[] daArgs = new Object[]{
+                    daName,
+                    vehicleConfig.capacity,
+                    vehicleConfig.maxDistance
+                };
+                AgentController daController = container.createNewAgent(
+                    daName,
+                    "project.Agent.DeliveryAgent",
+                    daArgs
+                );
+                takenNames.add(daName.toLowerCase());
+                try {
+                    daController.start();
+                } catch (StaleProxyException e) {
+                    try {
+                        daController.kill();
+                    } catch (StaleProxyException ignored) {
+                        // Already gone
+                    }
+                    throw e;
+                }
+                agents.put(daName, daController);
+                instances.add(daName);
+                Log.info("  ✓ Resident DA '" + daName + "' started");
+            }
+            leased.add(daName);
+            daNames.add(daName);
+        }
+    }
+
+    /**
+     * The vehicle name itself if it is free, otherwise the first free "name#n" from n onwards
+     */
+    private String newAgentName(String vehicleName, int n) {
+        String name = vehicleName;
+        while (takenNames.contains(name.toLowerCase())) {
+            name = vehicleName + INSTANCE_SEPARATOR + n++;
+        }
+        return name;
+    }
+
+    /**
+     * Returns DAs leased by a finished request to the pool
+     */
+    public synchronized void release(List<String> daNames) {
+        leased.removeAll(daNames);
+    }
+
+    /**
+     * Terminates DAs that cannot go back to the pool because the MRA may still be using them
+     * for their request; later requests get new DAs instead
+     */
+    public synchronized void retire(List<String> daNames) {
+        for (String daName : daNames) {
+            leased.remove(daName);
+            for (List<String> instances : instancesByVehicle.values()) {
+                instances.remove(daName);
+            }
+            // The name stays taken: the terminated agent may not be gone from the platform yet
+            AgentController controller = agents.remove(daName);
+            if (controller == null) {
+                continue;
+            }
+            try {
+                controller.kill();
+                Log.warn("  ✗ Resident DA '" + daName + "' retired");
+            } catch (StaleProxyException e) {
+                Log.error("  ✗ Failed to terminate DA " + daName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return agents.size();
+    }
+
+    /**
+     * Terminates all resident DAs
+     */
+    public synchronized void shutdown() {
+        for (Map.Entry<String, AgentController> entry : agents.entrySet()) {
+            try {
+                entry.getValue().kill();
+            } catch (StaleProxyException e) {
+                Log.error("  ✗ Failed to terminate DA " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        for (String name : agents.keySet()) {
+            takenNames.remove(name.toLowerCase());
+        }
+        agents.clear();
+        instancesByVehicle.clear();
+        leased.clear();
+    }
+}
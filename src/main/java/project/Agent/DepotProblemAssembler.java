@@ -1,10 +1,17 @@
 package project.Agent;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import project.General.CustomerRequest;
+import project.General.CustomerInfo;
+import project.General.ProblemInstance;
+import project.General.RouteInfo;
 import project.General.VehicleInfo;
 import project.General.SolutionResult;
+import project.Solver.CapacityShortfallSelector;
+import project.Solver.CustomerAggregator;
 import project.Solver.VRPSolver;
 import project.Utils.AgentLogger;
 
@@ -12,30 +19,157 @@ import project.Utils.AgentLogger;
  * Helper class responsible for assembling VRP problem data and invoking the solver.
  * The MRA delegates problem preparation to this class to keep responsibilities
  * separated and to simplify swapping the underlying solver in the future.
+ *
+ * Before the model is built, a pre-solve reduction pass removes customers that no
+ * vehicle can ever serve. They are reported as unserved with a reason code and never
+ * reach the solver, which keeps the routing model small.
+ *
+ * For heavy capacity-shortfall CVRP instances, only a knapsack-preselected customer
+ * subset is routed; left-out customers are then offered to a swap-in/swap-out repair
+ * (see {@link CapacityShortfallSelector}).
+ *
+ * Optionally, customers within a configurable epsilon of each other are merged into
+ * super-nodes (see {@link CustomerAggregator}); the solver only sees one node per location
+ * and the super-nodes are expanded back into individual customer stops in the result. A
+ * group is bounded by the smallest vehicle that can reach it and by the fleet's capacity
+ * slack, so forcing it onto one vehicle never costs deliverable items; expanded routes get
+ * their real distances and are trimmed back to the vehicle's maximum distance if needed.
  */
 public class DepotProblemAssembler {
 
+    // Reason codes reported for customers pruned before solving
+    public static final String REASON_DEMAND_EXCEEDS_CAPACITY = "DEMAND_EXCEEDS_CAPACITY";
+    public static final String REASON_OUT_OF_RANGE = "OUT_OF_RANGE";
+    public static final String REASON_NO_SUITABLE_VEHICLE = "NO_SUITABLE_VEHICLE";
+    public static final String REASON_TIME_WINDOW_UNREACHABLE = "TIME_WINDOW_UNREACHABLE";
+
+    // Default co-location epsilon: negative, i.e. aggregation is off unless configured
+    public static final double DEFAULT_AGGREGATION_EPSILON = -1.0;
+
     private final VRPSolver solver;
     private final AgentLogger logger;
+    private final double aggregationEpsilon;  // Negative disables co-located aggregation
 
     public DepotProblemAssembler(VRPSolver solver, AgentLogger logger) {
+        this(solver, logger, DEFAULT_AGGREGATION_EPSILON);
+    }
+
+    public DepotProblemAssembler(VRPSolver solver, AgentLogger logger, double aggregationEpsilon) {
         this.solver = solver;
         this.logger = logger;
+        this.aggregationEpsilon = aggregationEpsilon;
     }
 
     /**
-     * Builds the VRP problem from the provided requests and vehicles, then calls the solver.
+     * Builds the VRP problem from the provided problem instance and vehicles, then calls the solver.
+     * Customer IDs in the returned routes and unserved list are node indices of the
+     * problem instance (customer i is node i + 1), independent of any pruning.
      *
-     * @param depotX depot X coordinate
-     * @param depotY depot Y coordinate
-     * @param requests current batch of customer requests
+     * @param problem node-indexed problem (depot at node 0)
      * @param vehicles available vehicles gathered from the fleet
      * @return solver result (may contain zero routes if solver fails)
      */
-    public SolutionResult assembleAndSolve(double depotX, double depotY,
-                                           List<CustomerRequest> requests,
-                                           List<VehicleInfo> vehicles) {
-        int numCustomers = requests.size();
+    public SolutionResult assembleAndSolve(ProblemInstance problem, List<VehicleInfo> vehicles) {
+        long startTime = System.currentTimeMillis();
+        double depotX = problem.getDepotX();
+        double depotY = problem.getDepotY();
+
+        // Pre-solve reduction: drop customers no vehicle can ever serve
+        List<Integer> keptNodes = new ArrayList<>();
+        List<CustomerInfo> pruned = pruneUnservableCustomers(problem, vehicles, keptNodes);
+        int prunedDemand = 0;
+        for (CustomerInfo customer : pruned) {
+            prunedDemand += customer.demand;
+        }
+
+        if (keptNodes.isEmpty()) {
+            // Nothing left to route - answer immediately without building a model
+            SolutionResult result = new SolutionResult();
+            result.unservedCustomers.addAll(pruned);
+            result.itemsTotal = prunedDemand;
+            result.solveTimeMs = System.currentTimeMillis() - startTime;
+            if (logger != null) {
+                logger.logEvent("All " + problem.customerCount + " customers pruned before solving - solver not called");
+            }
+            return result;
+        }
+
+        int numVehicles = vehicles.size();
+        int[] vehicleCapacities = new int[numVehicles];
+        double[] vehicleMaxDistances = new double[numVehicles];
+        for (int i = 0; i < numVehicles; i++) {
+            VehicleInfo vehicle = vehicles.get(i);
+            vehicleCapacities[i] = vehicle.capacity;
+            vehicleMaxDistances[i] = vehicle.maxDistance;
+            if (logger != null) {
+                logger.logEvent("Vehicle " + (i + 1) + " (" + vehicle.name + "): Capacity=" +
+                        vehicle.capacity + ", MaxDistance=" + vehicle.maxDistance);
+            }
+        }
+
+        boolean hasTimeWindows = problem.hasTimeWindows();
+
+        // Node-indexed view of the original problem (0 = depot, customer i = node i + 1),
+        // used as is from the problem instance
+        double[] nodeX = problem.x;
+        double[] nodeY = problem.y;
+        int[] nodeDemand = problem.demand;
+        long[][] nodeWindows = null;
+        if (hasTimeWindows) {
+            nodeWindows = new long[problem.customerCount + 1][];
+            for (int node = 1; node <= problem.customerCount; node++) {
+                nodeWindows[node] = problem.getTimeWindow(node);
+            }
+        }
+
+        // Capacity-shortfall preselection (CVRP only): route a knapsack-chosen subset,
+        // then repair with the customers that were left out
+        CapacityShortfallSelector shortfallSelector = null;
+        List<CustomerInfo> deferred = new ArrayList<>();
+        if (!hasTimeWindows) {
+            shortfallSelector = new CapacityShortfallSelector(nodeX, nodeY, nodeDemand,
+                                                              vehicleCapacities, vehicleMaxDistances);
+            if (shortfallSelector.isHeavyShortfall(keptNodes)) {
+                List<Integer> selected = shortfallSelector.select(keptNodes);
+                Set<Integer> selectedSet = new HashSet<>(selected);
+                for (int node : keptNodes) {
+                    if (!selectedSet.contains(node)) {
+                        deferred.add(new CustomerInfo(node, 0, 0, nodeDemand[node]));
+                    }
+                }
+                if (logger != null) {
+                    logger.logEvent("Capacity shortfall preselection: routing " + selected.size() + "/" +
+                                   keptNodes.size() + " customers, " + deferred.size() + " deferred to repair");
+                }
+                keptNodes = selected;
+            } else {
+                shortfallSelector = null;
+            }
+        }
+
+        // Co-located customer aggregation (opt-in): each model node is a group of original nodes.
+        // Travel inside a group is not timed, so with time windows only identical coordinates merge.
+        List<int[]> groups;
+        boolean aggregated = false;
+        if (aggregationEpsilon >= 0) {
+            double epsilon = hasTimeWindows ? 0.0 : aggregationEpsilon;
+            int[] demandBound = groupDemandBounds(keptNodes, nodeX, nodeY, nodeDemand, depotX, depotY,
+                                                  vehicleCapacities, vehicleMaxDistances);
+            groups = new CustomerAggregator(epsilon, demandBound)
+                .aggregate(keptNodes, nodeX, nodeY, nodeDemand, nodeWindows);
+            aggregated = groups.size() < keptNodes.size();
+            if (logger != null && aggregated) {
+                logger.logEvent("Co-located aggregation (epsilon=" + epsilon + "): " +
+                               keptNodes.size() + " customers merged into " + groups.size() + " nodes");
+            }
+        } else {
+            groups = new ArrayList<>(keptNodes.size());
+            for (int node : keptNodes) {
+                groups.add(new int[]{node});
+            }
+        }
+
+        int numCustomers = groups.size();
         int numNodes = numCustomers + 1; // +1 for the depot node
 
         double[] x = new double[numNodes];
@@ -47,13 +181,15 @@ public class DepotProblemAssembler {
         y[0] = depotY;
         demand[0] = 0;
 
-        // Customers
+        // Customers (super-nodes are placed at their first member and carry the combined demand)
         for (int i = 0; i < numCustomers; i++) {
-            CustomerRequest req = requests.get(i);
+            int[] members = groups.get(i);
             int idx = i + 1;
-            x[idx] = req.x;
-            y[idx] = req.y;
-            demand[idx] = req.quantity;
+            x[idx] = nodeX[members[0]];
+            y[idx] = nodeY[members[0]];
+            for (int member : members) {
+                demand[idx] += nodeDemand[member];
+            }
         }
 
         // Distance matrix (Euclidean distance, rounded)
@@ -66,46 +202,28 @@ public class DepotProblemAssembler {
             }
         }
 
-        int numVehicles = vehicles.size();
-        int[] vehicleCapacities = new int[numVehicles];
-        double[] vehicleMaxDistances = new double[numVehicles];
-        for (int i = 0; i < numVehicles; i++) {
-            VehicleInfo vehicle = vehicles.get(i);
-            vehicleCapacities[i] = vehicle.capacity;
-            vehicleMaxDistances[i] = vehicle.maxDistance;
-            if (logger != null) {
-                logger.logEvent("Vehicle " + (i + 1) + " (" + vehicle.name + "): Capacity=" +
-                        vehicle.capacity + ", MaxDistance=" + vehicle.maxDistance);
-            }
-        }
-
         // Extract time windows if available
         long[][] timeWindows = null;
-        boolean hasTimeWindows = false;
-        for (CustomerRequest req : requests) {
-            if (req.timeWindow != null && req.timeWindow.length >= 2) {
-                hasTimeWindows = true;
-                break;
-            }
-        }
-        
+
         if (hasTimeWindows) {
             timeWindows = new long[numNodes][];
             // Depot time window: [0, large_value] - vehicles can start anytime
             timeWindows[0] = new long[]{0, Long.MAX_VALUE / 2}; // Use large but safe value
-            
-            // Customer time windows
+
+            // Customer time windows (intersection of member windows for super-nodes)
             for (int i = 0; i < numCustomers; i++) {
-                CustomerRequest req = requests.get(i);
-                int idx = i + 1;
-                if (req.timeWindow != null && req.timeWindow.length >= 2) {
-                    timeWindows[idx] = new long[]{req.timeWindow[0], req.timeWindow[1]};
+                long[] window = null;
+                for (int member : groups.get(i)) {
+                    window = CustomerAggregator.intersect(window, nodeWindows[member]);
+                }
+                if (window != null) {
+                    timeWindows[i + 1] = window;
                 } else {
                     // No time window for this customer - use very wide window
-                    timeWindows[idx] = new long[]{0, Long.MAX_VALUE / 2};
+                    timeWindows[i + 1] = new long[]{0, Long.MAX_VALUE / 2};
                 }
             }
-            
+
             if (logger != null) {
                 logger.logEvent("Time windows detected: TWVRP mode enabled");
             }
@@ -116,7 +234,7 @@ public class DepotProblemAssembler {
                            (hasTimeWindows ? " (with time windows)" : ""));
         }
 
-        return solver.solve(
+        SolutionResult result = solver.solve(
             numNodes,
             numCustomers,
             numVehicles,
@@ -126,7 +244,224 @@ public class DepotProblemAssembler {
             distance,
             timeWindows
         );
+
+        if (result == null) {
+            return null;
+        }
+
+        // Expand super-nodes and translate model node indices back to original node indices
+        for (RouteInfo route : result.routes) {
+            route.customers = expandGroups(route.customers, groups, nodeDemand);
+        }
+        result.unservedCustomers = expandGroups(result.unservedCustomers, groups, nodeDemand);
+        if (aggregated) {
+            remeasureRoutes(result, nodeX, nodeY, nodeDemand, vehicleMaxDistances);
+        }
+
+        for (CustomerInfo customer : deferred) {
+            result.unservedCustomers.add(customer);
+            result.itemsTotal += customer.demand;
+        }
+        if (shortfallSelector != null) {
+            int gained = shortfallSelector.repair(result);
+            if (logger != null) {
+                logger.logEvent("Capacity shortfall repair: +" + gained + " items, " +
+                               result.itemsDelivered + "/" + result.itemsTotal + " delivered");
+            }
+        }
+
+        result.unservedCustomers.addAll(pruned);
+        result.itemsTotal += prunedDemand;
+        return result;
+    }
+
+    /**
+     * Pre-solve reduction pass. A customer is kept only if at least one vehicle can carry
+     * its demand and reach it with a round trip within its maximum distance, and (for
+     * TWVRP) the customer's time window can still be met when driving straight from the depot.
+     * Uses the same rounding as the solver's distance and time callbacks, so nothing
+     * the solver could serve is ever pruned.
+     *
+     * @param keptNodes output list receiving the node indices (customer index + 1) that stay in the model
+     * @return pruned customers (ID = original node index) with their reason codes
+     */
+    private List<CustomerInfo> pruneUnservableCustomers(ProblemInstance problem,
+                                                        List<VehicleInfo> vehicles,
+                                                        List<Integer> keptNodes) {
+        List<CustomerInfo> pruned = new ArrayList<>();
+        double depotX = problem.getDepotX();
+        double depotY = problem.getDepotY();
+
+        for (int node = 1; node <= problem.customerCount; node++) {
+            int demand = problem.demand[node];
+            long depotDistance = Math.round(Math.hypot(problem.x[node] - depotX, problem.y[node] - depotY));
+
+            boolean capacityOk = false;
+            boolean rangeOk = false;
+            boolean vehicleOk = false;
+            for (VehicleInfo vehicle : vehicles) {
+                boolean fits = demand <= vehicle.capacity;
+                boolean reaches = 2 * depotDistance <= Math.round(vehicle.maxDistance);
+                capacityOk |= fits;
+                rangeOk |= reaches;
+                vehicleOk |= fits && reaches;
+            }
+
+            String reason = null;
+            if (!capacityOk) {
+                reason = REASON_DEMAND_EXCEEDS_CAPACITY;
+            } else if (!rangeOk) {
+                reason = REASON_OUT_OF_RANGE;
+            } else if (!vehicleOk) {
+                reason = REASON_NO_SUITABLE_VEHICLE;
+            } else if (problem.hasTimeWindow(node)) {
+                long earliestArrival = Math.round(depotDistance / VRPSolver.TRAVEL_SPEED);
+                if (problem.windowEnd[node] < problem.windowStart[node] || earliestArrival > problem.windowEnd[node]) {
+                    reason = REASON_TIME_WINDOW_UNREACHABLE;
+                }
+            }
+
+            if (reason == null) {
+                keptNodes.add(node);
+                continue;
+            }
+
+            CustomerInfo customer = problem.toCustomerInfo(node);
+            customer.unservedReason = reason;
+            pruned.add(customer);
+            if (logger != null) {
+                logger.logEvent("Pruned customer " + problem.customerIds[node] + " before solving: " + reason +
+                               " (demand=" + demand + ", depot distance=" + depotDistance + ")");
+            }
+        }
+
+        if (logger != null && !pruned.isEmpty()) {
+            logger.logEvent("Pre-solve reduction: pruned " + pruned.size() + "/" + problem.customerCount +
+                           " customers, " + keptNodes.size() + " remain in the model");
+        }
+        return pruned;
+    }
+
+    /**
+     * Largest combined demand of a co-located group containing each kept node (node-indexed).
+     * The group must fit the smallest vehicle that can reach the node with a round trip, so
+     * no reachable vehicle is too small for it. It is also capped by the fleet's capacity
+     * slack: with groups of at most b items, any assignment that puts each group on a vehicle
+     * with room left can place everything as long as the sum over vehicles of
+     * max(0, capacity - b + 1) covers the total demand, so merging never lowers the items
+     * that fit. On capacity-shortfall instances this leaves only single-item groups.
+     */
+    private static int[] groupDemandBounds(List<Integer> keptNodes, double[] nodeX, double[] nodeY,
+                                           int[] nodeDemand, double depotX, double depotY,
+                                           int[] vehicleCapacities, double[] vehicleMaxDistances) {
+        long totalDemand = 0;
+        int maxCapacity = 0;
+        for (int node : keptNodes) {
+            totalDemand += nodeDemand[node];
+        }
+        for (int capacity : vehicleCapacities) {
+            maxCapacity = Math.max(maxCapacity, capacity);
+        }
+
+        // Largest b in [1, maxCapacity] whose slack still covers the demand (slack falls as b grows)
+        int low = 1;
+        int high = Math.max(1, maxCapacity);
+        while (low < high) {
+            int mid = low + (high - low + 1) / 2;
+            long slack = 0;
+            for (int capacity : vehicleCapacities) {
+                slack += Math.max(0, capacity - mid + 1);
+            }
+            if (slack >= totalDemand) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int packingBound = low;
+
+        int[] bound = new int[nodeDemand.length];
+        for (int node : keptNodes) {
+            long depotDistance = Math.round(Math.hypot(nodeX[node] - depotX, nodeY[node] - depotY));
+            int smallest = Integer.MAX_VALUE;
+            for (int v = 0; v < vehicleCapacities.length; v++) {
+                if (2 * depotDistance <= Math.round(vehicleMaxDistances[v])) {
+                    smallest = Math.min(smallest, vehicleCapacities[v]);
+                }
+            }
+            bound[node] = Math.min(smallest, packingBound);
+        }
+        return bound;
+    }
+
+    /**
+     * Recomputes route distances with the real member locations after expansion (travel
+     * inside a group is zero in the model once epsilon is positive). Routes that now exceed
+     * their vehicle's maximum distance drop the stop whose removal saves most until they fit;
+     * dropped customers are reported unserved. Result totals are updated.
+     */
+    private static void remeasureRoutes(SolutionResult result, double[] nodeX, double[] nodeY,
+                                        int[] nodeDemand, double[] vehicleMaxDistances) {
+        result.itemsDelivered = 0;
+        result.totalDistance = 0.0;
+        for (RouteInfo route : result.routes) {
+            List<CustomerInfo> stops = route.customers;
+            long limit = Math.round(vehicleMaxDistances[route.vehicleId - 1]);
+            long distance = routeDistance(stops, nodeX, nodeY);
+            while (distance > limit && !stops.isEmpty()) {
+                int worst = 0;
+                long worstSaving = Long.MIN_VALUE;
+                for (int pos = 0; pos < stops.size(); pos++) {
+                    int prev = pos == 0 ? 0 : stops.get(pos - 1).id;
+                    int node = stops.get(pos).id;
+                    int next = pos == stops.size() - 1 ? 0 : stops.get(pos + 1).id;
+                    long saving = leg(prev, node, nodeX, nodeY) + leg(node, next, nodeX, nodeY)
+                        - leg(prev, next, nodeX, nodeY);
+                    if (saving > worstSaving) {
+                        worstSaving = saving;
+                        worst = pos;
+                    }
+                }
+                result.unservedCustomers.add(stops.remove(worst));
+                distance -= worstSaving;
+            }
+            route.totalDemand = 0;
+            for (CustomerInfo customer : stops) {
+                route.totalDemand += nodeDemand[customer.id];
+            }
+            route.totalDistance = distance;
+            result.itemsDelivered += route.totalDemand;
+            result.totalDistance += distance;
+        }
+        result.routes.removeIf(route -> route.customers.isEmpty());
     }
-}
 
+    private static long routeDistance(List<CustomerInfo> stops, double[] nodeX, double[] nodeY) {
+        long total = 0;
+        int prev = 0;
+        for (CustomerInfo customer : stops) {
+            total += leg(prev, customer.id, nodeX, nodeY);
+            prev = customer.id;
+        }
+        return total + leg(prev, 0, nodeX, nodeY);
+    }
 
+    private static long leg(int from, int to, double[] nodeX, double[] nodeY) {
+        return Math.round(Math.hypot(nodeX[from] - nodeX[to], nodeY[from] - nodeY[to]));
+    }
+
+    /**
+     * Replaces model-node customers by one customer per member of the corresponding
+     * group, keeping route order. IDs become original node indices.
+     */
+    private static List<CustomerInfo> expandGroups(List<CustomerInfo> modelCustomers,
+                                                   List<int[]> groups, int[] nodeDemand) {
+        List<CustomerInfo> expanded = new ArrayList<>(modelCustomers.size());
+        for (CustomerInfo customer : modelCustomers) {
+            for (int member : groups.get(customer.id - 1)) {
+                expanded.add(new CustomerInfo(member, customer.x, customer.y, nodeDemand[member]));
+            }
+        }
+        return expanded;
+    }
+}
@@ -3,579 +3,1178 @@ package project.Agent;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.WakerBehaviour;
-import jade.core.behaviours.TickerBehaviour;
 import jade.core.AID;
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
 import jade.domain.FIPANames;
 import jade.domain.DFService;
 import jade.domain.FIPAException;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.wrapper.AgentController;
 import project.General.*;
+import project.Solver.ContractNetPlanner;
 import project.Solver.VRPSolver;
-import project.Solver.ORToolsSolver;
+import project.Solver.SolverTier;
+import project.Solver.SolverExecutor;
 import project.Utils.AgentLogger;
 import project.Utils.JsonConfigReader;
 import project.Utils.JsonResultLogger;
-import project.Utils.BackendClient;
+import project.Utils.Log;
+import project.Utils.SolutionJsonWriter;
 
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Master Routing Agent (MRA) for CVRP
  * - Has its own location (depot)
- * - Reads problem from config (customers with id, demand, coordinates)
- * - Queries Delivery Agents (DAs) for vehicle information
- * - Solves routes using Google OR-Tools
+ * - Reads the problem from a {@link ProblemInstance} (customers with id, demand, coordinates)
+ * - Takes the vehicles from the request and solves while the Delivery Agents (DAs) start;
+ *   with -Dcvrp.fleet.liveVehicleInfo=true it queries the DAs for their vehicle information
+ * - Solves routes using Google OR-Tools, or with -Dcvrp.assignment.mode=contract-net auctions
+ *   the customers to the DAs, which bid their insertion costs (CVRP without time windows)
  * - Assigns routes to DAs
  * - Outputs results as JSON
+ *
+ * Started with (problem, requestId[, latch, holder]) it serves that one request with DAs created
+ * for it. Started without arguments it runs in fleet mode: it stays resident, receives
+ * {@link RoutingRequest}s via O2A and binds the resident DAs to each request by message.
+ * Per-request data lives in {@link RequestState}.
+ *
+ * Solving runs on the shared {@link SolverExecutor}; the outcome comes back to the agent
+ * thread via O2A, so the MRA keeps handling messages while a search is running.
+ *
+ * Incoming messages are read by one {@link MessageDispatcher}: replies are routed by the
+ * conversation they answer, announcements by ontology, and unexpected messages are dropped.
+ * Registered DAs are tracked by a DF subscription ({@link DeliveryAgentDirectory}) instead of
+ * a DF search per request and per route.
  */
 public class MasterRoutingAgent extends Agent {
-    // Depot location
-    private double depotX;
-    private double depotY;
+    // Logger for agent-level events (request conversations are logged to RequestState.logger)
+    private AgentLogger logger;
     
-    // Problem data (from config)
-    private List<CustomerInfo> customers;
+    // Fleet mode: a resident MRA receives requests via O2A and binds resident DAs by message
+    private boolean fleetMode;
     
-    // Vehicle management
-    private Map<String, VehicleInfo> registeredVehicles;
-    private int expectedVehicleCount;  // Number of vehicles expected to respond
-    private int receivedVehicleCount;  // Number of vehicles that have responded
-    private boolean allVehiclesReceived;  // Flag to indicate all vehicles have responded
+    // Requests in progress, indexed by every conversation ID they started
+    private final Map<String, RequestState> conversations = new HashMap<>();
     
-    // Solver interface
-    private VRPSolver solver;
-    private DepotProblemAssembler problemAssembler;
+    // Fleet mode: requests in progress by request ID (target of RequestCancellations from Main)
+    private final Map<String, RequestState> requests = new HashMap<>();
     
-    // Logger for conversations
-    private AgentLogger logger;
+    // Request passed as start-up arguments (per-request mode); target of DA_READY announcements
+    private RequestState setupRequest;
+    
+    // Single mailbox reader: routes replies by conversation ID, announcements by ontology
+    private MessageDispatcher dispatcher;
+    private MessageDispatcher.Route readyRoute;
+    private MessageDispatcher.Route vehicleInfoRoute;
+    private MessageDispatcher.Route routeResponseRoute;
+    private MessageDispatcher.Route biddingRoute;
+    
+    // Registered DAs, kept up to date by DF notifications
+    private DeliveryAgentDirectory deliveryAgents;
     
-    // Configuration data
-    private JsonConfigReader.CVRPConfig config;
-    private String configName;
+    // Step deadlines of the event-driven pipeline (each step starts as soon as the previous one completes)
+    private static final long READY_TIMEOUT_MS = Long.getLong("cvrp.pipeline.readyTimeoutMs", 5000);
+    private static final long VEHICLE_INFO_TIMEOUT_MS = Long.getLong("cvrp.pipeline.vehicleInfoTimeoutMs", 10000);
+    private static final long ROUTE_ACK_TIMEOUT_MS = Long.getLong("cvrp.pipeline.routeAckTimeoutMs", 8000);
+    private static final long SOLVE_TIMEOUT_MS = Long.getLong("cvrp.pipeline.solveTimeoutMs", 45000);
     
-    // Backend mode support
-    private CountDownLatch solutionLatch;
-    private Object solutionHolder; // Will be cast to Main.SolutionHolder
+    // Slack on top of the summed step deadlines for work that outlasts them (model building,
+    // stopping a cancelled search, encoding and submitting the solution)
+    private static final long REQUEST_DEADLINE_MARGIN_MS = 5000;
+    
+    // Live vehicle info: ask the DAs for their vehicle data instead of taking it from the request
+    // (for fleets whose DA state may differ from the request)
+    private static final boolean LIVE_VEHICLE_INFO =
+        Boolean.parseBoolean(System.getProperty("cvrp.fleet.liveVehicleInfo", "false"));
+    
+    // Assignment mode: "central" (OR-Tools solve) or "contract-net" (customers auctioned in
+    // batches to the DAs, which bid their marginal insertion cost, then a central improvement pass)
+    private static final boolean CONTRACT_NET =
+        "contract-net".equalsIgnoreCase(System.getProperty("cvrp.assignment.mode", "central").trim());
+    private static final int CNET_BATCH_SIZE = Integer.getInteger("cvrp.cnet.batchSize", ContractNetPlanner.DEFAULT_BATCH_SIZE);
+    private static final long CNET_ROUND_TIMEOUT_MS = Long.getLong("cvrp.cnet.roundTimeoutMs", 2000);
+    private static final long CNET_IMPROVE_MS = Long.getLong("cvrp.cnet.improveMs", 1000);
+    
+    /**
+     * Longest time a request can spend in the pipeline: the readiness, vehicle info (live vehicle
+     * info only), solve or auction plus improvement, and route acknowledgement deadlines, plus a
+     * margin. Main waits this long for completion before giving up on a request.
+     */
+    public static long requestDeadlineMs() {
+        long solve = CONTRACT_NET ? SOLVE_TIMEOUT_MS + CNET_IMPROVE_MS : SOLVE_TIMEOUT_MS;
+        return READY_TIMEOUT_MS + (LIVE_VEHICLE_INFO ? VEHICLE_INFO_TIMEOUT_MS : 0) + solve +
+               ROUTE_ACK_TIMEOUT_MS + REQUEST_DEADLINE_MARGIN_MS;
+    }
     
     @Override
     protected void setup() {
         Object[] args = getArguments();
-        if (args != null && args.length >= 2) {
-            this.config = (JsonConfigReader.CVRPConfig) args[0];
-            this.configName = (String) args[1];
-            
-            // Check if backend mode (has solutionLatch and solutionHolder)
-            if (args.length >= 4 && args[2] instanceof CountDownLatch) {
-                this.solutionLatch = (CountDownLatch) args[2];
-                this.solutionHolder = args[3];
-            }
-        } else {
-            System.err.println("ERROR: MRA requires config and configName as arguments");
+        fleetMode = (args == null || args.length == 0);
+        if (!fleetMode && args.length < 2) {
+            Log.error("ERROR: MRA requires problem and configName as arguments (or none for fleet mode)");
             doDelete();
             return;
         }
         
-        System.out.println("Master Routing Agent (MRA) " + getAID().getName() + " is ready.");
+        Log.info("Master Routing Agent (MRA) " + getAID().getName() + " is ready.");
         
-        // Initialize logger
-        logger = new AgentLogger("MRA");
+        // Initialize logger (a per-request MRA logs straight into its request's log folder)
+        String requestLogFolder = (!fleetMode && args.length >= 5 && args[4] instanceof String) ? (String) args[4] : null;
+        logger = requestLogFolder != null ? new AgentLogger("MRA", requestLogFolder) : new AgentLogger("MRA");
         logger.setAgentAID(this);
         logger.logEvent("Agent started");
         
-        // DEBUG: Print request details from frontend/backend
-        System.out.println("\n=== MRA: DEBUG - Request Details from Frontend/Backend ===");
-        System.out.println("Request ID/Config Name: " + configName);
-        System.out.println("\nDepot:");
-        System.out.println("  Name: " + config.depot.name);
-        System.out.println("  Location: (" + config.depot.x + ", " + config.depot.y + ")");
-        System.out.println("\nVehicles (" + config.vehicles.size() + "):");
-        for (int i = 0; i < config.vehicles.size(); i++) {
-            JsonConfigReader.VehicleConfig v = config.vehicles.get(i);
-            System.out.println("  Vehicle " + (i + 1) + ":");
-            System.out.println("    Name: " + v.name);
-            System.out.println("    Capacity: " + v.capacity + " items");
-            System.out.println("    Max Distance: " + v.maxDistance);
-        }
-        System.out.println("\nCustomers (" + config.customers.size() + "):");
-        int totalDemand = 0;
-        for (int i = 0; i < config.customers.size(); i++) {
-            JsonConfigReader.CustomerConfig c = config.customers.get(i);
-            totalDemand += c.demand;
-            System.out.println("  Customer " + (i + 1) + ":");
-            System.out.println("    ID: " + c.id);
-            System.out.println("    Location: (" + c.x + ", " + c.y + ")");
-            System.out.println("    Demand: " + c.demand + " items");
-            if (c.timeWindow != null && c.timeWindow.length >= 2) {
-                System.out.println("    Time Window: [" + c.timeWindow[0] + ", " + c.timeWindow[1] + "]");
-            } else {
-                System.out.println("    Time Window: None");
+        // Register with DF for automatic discovery
+        registerWithDF();
+        logger.logEvent("Registered with DF as 'mra-service'");
+        
+        // One behaviour drains the mailbox: bind, vehicle info and route assignment replies are
+        // routed by the conversation they answer, DA_READY announcements by ontology
+        dispatcher = new MessageDispatcher(this, new UnhandledMessageHandler());
+        
+        // Query DAs as soon as every expected DA has announced DA_READY (or DA_BOUND in fleet mode)
+        readyRoute = dispatcher.route("ready", new DeliveryAgentReadyHandler());
+        dispatcher.onOntology("da-ready", readyRoute);
+        dispatcher.onOntology("da-binding", readyRoute);
+        
+        // Vehicle info responses (routed by their query's conversation ID)
+        vehicleInfoRoute = dispatcher.route("vehicle-info", new VehicleInfoResponseHandler());
+        
+        // Route assignment responses from DAs (replies keep the "route-assignment" ontology)
+        routeResponseRoute = dispatcher.route("route-assignment", new RouteAssignmentResponseHandler());
+        dispatcher.onOntology("route-assignment", routeResponseRoute);
+        
+        // Contract-Net bids and award results (routed by the auction's conversation ID)
+        biddingRoute = dispatcher.route("route-bidding", new BiddingResponseHandler());
+        
+        // DF notifications of DA (de)registrations (routed by the subscription's conversation ID)
+        deliveryAgents = new DeliveryAgentDirectory(this, logger);
+        if (!fleetMode) {
+            dispatcher.onConversation(deliveryAgents.subscribe(), dispatcher.route("df", deliveryAgents));
+        }
+        addBehaviour(dispatcher);
+        
+        // O2A inbox: solve outcomes from the solver executor (and requests from Main in fleet mode)
+        setEnabledO2ACommunication(true, 0);
+        addBehaviour(new O2AInboxBehaviour());
+        
+        if (fleetMode) {
+            Log.info("MRA: Fleet mode - waiting for requests");
+            logger.logEvent("Fleet mode: waiting for requests via O2A");
+            return;
+        }
+        
+        CountDownLatch solutionLatch = null;
+        Object solutionHolder = null;
+        // Check if backend mode (has solutionLatch and solutionHolder)
+        if (args.length >= 4 && args[2] instanceof CountDownLatch) {
+            solutionLatch = (CountDownLatch) args[2];
+            solutionHolder = args[3];
+        }
+        RoutingRequest request = new RoutingRequest((ProblemInstance) args[0], (String) args[1],
+                                                    solutionLatch, solutionHolder, null, null);
+        // Solver tier chosen by the request scheduler (optional 6th argument)
+        if (args.length >= 6 && args[5] instanceof SolverTier) {
+            request.solverTier = (SolverTier) args[5];
+        }
+        // Solution destination (optional 7th argument, default: backend)
+        if (args.length >= 7 && args[6] instanceof SolutionSink) {
+            request.solutionSink = (SolutionSink) args[6];
+        }
+        setupRequest = startRequest(request);
+    }
+    
+    /**
+     * Outcome of a solve, posted by the solver thread to the agent via O2A
+     */
+    private static class SolveOutcome {
+        final RequestState state;
+        final SolutionResult result;  // null if the solver failed
+        
+        SolveOutcome(RequestState state, SolutionResult result) {
+            this.state = state;
+            this.result = result;
+        }
+    }
+    
+    /**
+     * Picks up objects posted via O2A: requests and cancellations handed over by Main (fleet
+     * mode) and outcomes of solves that ran on the solver executor
+     */
+    private class O2AInboxBehaviour extends CyclicBehaviour {
+        @Override
+        public void action() {
+            Object o2aObject = getO2AObject();
+            if (o2aObject == null) {
+                block();
+                return;
+            }
+            if (o2aObject instanceof RoutingRequest) {
+                RoutingRequest request = (RoutingRequest) o2aObject;
+                Log.info("\n=== MRA: Request " + request.requestId + " received ===");
+                logger.logEvent("Request received: " + request.requestId);
+                startRequest(request);
+            } else if (o2aObject instanceof RequestCancellation) {
+                RequestCancellation cancellation = (RequestCancellation) o2aObject;
+                RequestState state = requests.get(cancellation.requestId);
+                if (state != null) {
+                    cancelRequest(state, cancellation.reason);
+                }
+                cancellation.acknowledge();
+            } else if (o2aObject instanceof SolveOutcome) {
+                SolveOutcome outcome = (SolveOutcome) o2aObject;
+                onSolved(outcome.state, outcome.result);
             }
         }
-        int totalCapacity = config.vehicles.stream().mapToInt(v -> v.capacity).sum();
-        System.out.println("\nSummary:");
-        System.out.println("  Total Demand: " + totalDemand + " items");
-        System.out.println("  Total Capacity: " + totalCapacity + " items");
-        if (totalDemand > totalCapacity) {
-            System.out.println("  ⚠ WARNING: Total demand exceeds total capacity (capacity shortfall)");
+    }
+    
+    /**
+     * Creates the state of a new request and starts its pipeline: in fleet mode the resident
+     * DAs leased for it (deliveryAgentNames, one per config vehicle) are bound to it first,
+     * otherwise the request's own DAs announce themselves
+     */
+    private RequestState startRequest(RoutingRequest request) {
+        String configName = request.requestId;
+        String logFolder = request.logFolder;
+        AgentLogger requestLogger = logger;
+        if (fleetMode) {
+            // Each request logs into its own log folder, so concurrent requests never interleave
+            requestLogger = logFolder != null ? new AgentLogger("MRA", logFolder) : new AgentLogger("MRA");
+            requestLogger.setAgentAID(this);
+            requestLogger.logEvent("Request " + configName + " started");
         }
-        System.out.println("========================================================\n");
         
-        // Initialize depot location from config
-        depotX = config.depot.x;
-        depotY = config.depot.y;
+        // Solver per request (two-phase lexicographic mode enabled with -Dcvrp.solver.twoPhase=true);
+        // a DEGRADED tier request gets a short single-phase search instead
+        VRPSolver solver = request.solverTier.createSolver();
+        if (request.solverTier != SolverTier.STANDARD) {
+            Log.info("MRA: Request " + configName + " uses solver tier " + request.solverTier);
+            requestLogger.logEvent("Solver tier: " + request.solverTier);
+        }
+        // Co-located customers within -Dcvrp.aggregation.epsilon are solved as one node (off by default)
+        DepotProblemAssembler problemAssembler = new DepotProblemAssembler(solver, requestLogger,
+            Double.parseDouble(System.getProperty("cvrp.aggregation.epsilon",
+                String.valueOf(DepotProblemAssembler.DEFAULT_AGGREGATION_EPSILON))));
         
-        // Initialize customers from config
-        customers = new ArrayList<>();
-        for (JsonConfigReader.CustomerConfig customerConfig : config.customers) {
-            CustomerInfo customer = new CustomerInfo(
-                Integer.parseInt(customerConfig.id.replaceAll("[^0-9]", "")), // Extract numeric ID
-                customerConfig.x,
-                customerConfig.y,
-                customerConfig.demand,
-                customerConfig.id
-            );
-            customers.add(customer);
+        RequestState state = new RequestState(configName, request.problem, fleetMode, requestLogger,
+                                              solver, problemAssembler, request.solutionLatch, request.solutionHolder);
+        state.deliveryAgentNames = request.deliveryAgentNames;
+        state.logFolder = logFolder;
+        state.solutionSink = request.solutionSink;
+        if (fleetMode) {
+            requests.put(configName, state);
         }
         
-        // Initialize collections
-        registeredVehicles = new HashMap<>();
-        expectedVehicleCount = 0;
-        receivedVehicleCount = 0;
-        allVehiclesReceived = false;
+        // Request details: vehicles at DEBUG, the per-customer dump only at TRACE
+        ProblemInstance problem = state.problem;
+        Log.debug(() -> describeRequest(state));
+        Log.trace(() -> describeCustomers(problem));
+        int totalDemand = problem.getTotalDemand();
+        int totalCapacity = state.problem.vehicles.stream().mapToInt(v -> v.capacity).sum();
+        Log.info("MRA: Problem loaded - " + state.problem.customerCount + " customers, " +
+                 state.problem.vehicles.size() + " vehicles, demand " + totalDemand + "/" + totalCapacity +
+                 " capacity, depot at (" + state.depotX + ", " + state.depotY + ")");
+        if (totalDemand > totalCapacity) {
+            Log.warn("MRA: WARNING - Total demand exceeds total capacity (capacity shortfall) for request " +
+                     state.configName);
+        }
+        state.logger.logEvent("Depot at (" + state.depotX + ", " + state.depotY + ")");
+        state.logger.logEvent("Problem loaded: " + state.problem.customerCount + " customers");
         
-        // Initialize solver
-        solver = new ORToolsSolver();
-        problemAssembler = new DepotProblemAssembler(solver, logger);
+        if (fleetMode) {
+            bindDeliveryAgents(state);
+        }
         
-        System.out.println("MRA: Depot located at (" + depotX + ", " + depotY + ")");
-        System.out.println("MRA: Problem loaded - " + customers.size() + " customers");
-        logger.logEvent("Depot at (" + depotX + ", " + depotY + ")");
-        logger.logEvent("Problem loaded: " + customers.size() + " customers");
+        state.contractNet = CONTRACT_NET && !problem.hasTimeWindows();
+        if (CONTRACT_NET && !state.contractNet) {
+            Log.info("MRA: Contract-Net mode does not handle time windows - solving request " +
+                     state.configName + " centrally");
+            state.logger.logEvent("Time windows present - central solve instead of Contract-Net");
+        }
         
-        // Register with DF for automatic discovery
-        registerWithDF();
-        logger.logEvent("Registered with DF as 'mra-service'");
+        // The request carries the fleet: solve right away, while the DAs start (or bind);
+        // a Contract-Net auction needs the DAs up, so it starts once they are ready
+        if (!LIVE_VEHICLE_INFO) {
+            registerRequestVehicles(state);
+            if (!state.contractNet) {
+                startSolve(state);
+            }
+        }
         
-        // Wait a bit for DAs to register, then query them and solve
-        addBehaviour(new WakerBehaviour(this, 3000) {
+        // Readiness deadline: continue with whatever DAs are available by then
+        addBehaviour(new WakerBehaviour(this, READY_TIMEOUT_MS) {
             @Override
             protected void onWake() {
-                queryVehiclesAndSolve();
+                if (!state.deliveryAgentsReady && !state.finished) {
+                    Log.info("MRA: Readiness deadline reached (" + state.readyDeliveryAgents.size() + "/" +
+                             state.problem.vehicles.size() + " DAs ready). Continuing...");
+                    state.logger.logEvent("Readiness deadline reached: " + state.readyDeliveryAgents.size() + "/" +
+                                  state.problem.vehicles.size() + " DAs ready");
+                    onDeliveryAgentsReady(state);
+                }
             }
         });
-        
-        // Add behavior to handle vehicle info responses
-        addBehaviour(new VehicleInfoResponseHandler());
-        
-        // Add behavior to handle route assignment responses from DAs
-        addBehaviour(new RouteAssignmentResponseHandler());
+        return state;
+    }
+    
+    /**
+     * Depot and vehicles of a request (DEBUG output)
+     */
+    private static String describeRequest(RequestState state) {
+        StringBuilder out = new StringBuilder(256 + 96 * state.problem.vehicles.size());
+        out.append("\n=== MRA: DEBUG - Request Details from Frontend/Backend ===\n");
+        out.append("Request ID/Config Name: ").append(state.configName).append('\n');
+        out.append("\nDepot:\n");
+        out.append("  Name: ").append(state.problem.depotName).append('\n');
+        out.append("  Location: (").append(state.depotX).append(", ").append(state.depotY).append(")\n");
+        out.append("\nVehicles (").append(state.problem.vehicles.size()).append("):\n");
+        for (int i = 0; i < state.problem.vehicles.size(); i++) {
+            JsonConfigReader.VehicleConfig v = state.problem.vehicles.get(i);
+            out.append("  Vehicle ").append(i + 1).append(":\n");
+            out.append("    Name: ").append(v.name).append('\n');
+            out.append("    Capacity: ").append(v.capacity).append(" items\n");
+            out.append("    Max Distance: ").append(v.maxDistance).append('\n');
+        }
+        out.append("========================================================");
+        return out.toString();
+    }
+    
+    /**
+     * Every customer of a request (TRACE output)
+     */
+    private static String describeCustomers(ProblemInstance problem) {
+        StringBuilder out = new StringBuilder(64 + 128 * problem.customerCount);
+        out.append("Customers (").append(problem.customerCount).append("):");
+        for (int node = 1; node <= problem.customerCount; node++) {
+            out.append("\n  Customer ").append(node).append(":");
+            out.append("\n    ID: ").append(problem.customerIds[node]);
+            out.append("\n    Location: (").append(problem.x[node]).append(", ").append(problem.y[node]).append(")");
+            out.append("\n    Demand: ").append(problem.demand[node]).append(" items");
+            if (problem.hasTimeWindow(node)) {
+                out.append("\n    Time Window: [").append(problem.windowStart[node]).append(", ")
+                   .append(problem.windowEnd[node]).append("]");
+            } else {
+                out.append("\n    Time Window: None");
+            }
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Name of the DA serving the request's i-th vehicle: the resident DA leased for it (fleet
+     * mode, named after the vehicle without a lease) or the request's own "vehicle-requestId" DA
+     */
+    private static String deliveryAgentName(RequestState state, int vehicleIndex) {
+        JsonConfigReader.VehicleConfig vehicle = state.problem.vehicles.get(vehicleIndex);
+        if (state.fleetMode) {
+            return (state.deliveryAgentNames != null && vehicleIndex < state.deliveryAgentNames.size())
+                ? state.deliveryAgentNames.get(vehicleIndex) : vehicle.name;
+        }
+        return vehicle.name + "-" + state.configName;
+    }
+    
+    /**
+     * Registers the request's vehicles as the request gives them: its DAs are started (or bound)
+     * with exactly these capacities and maximum distances, so they are not queried. Registered
+     * in request order, so route vehicle indices follow problem.vehicles.
+     */
+    private void registerRequestVehicles(RequestState state) {
+        state.vehiclesFromRequest = true;
+        for (int i = 0; i < state.problem.vehicles.size(); i++) {
+            JsonConfigReader.VehicleConfig vehicle = state.problem.vehicles.get(i);
+            String daName = deliveryAgentName(state, i);
+            state.registeredVehicles.put(daName, new VehicleInfo(daName, vehicle.capacity, vehicle.maxDistance));
+        }
+        state.expectedVehicleCount = state.registeredVehicles.size();
+        state.receivedVehicleCount = state.registeredVehicles.size();
+        state.allVehiclesReceived = true;
+        Log.debug(() -> "MRA: Registered " + state.registeredVehicles.size() + " vehicles from the request " +
+                        "(no vehicle info query)");
+        state.logger.logEvent("Registered " + state.registeredVehicles.size() + " vehicles from the request: " +
+                              state.registeredVehicles.keySet());
     }
     
     /**
-     * Queries all Delivery Agents for their vehicle information, then solves and assigns routes
+     * Binds the resident DA leased for every vehicle in the request (fleet mode). Each DA takes
+     * over the request's capacity, maximum distance and log folder, resets its route and
+     * replies DA_BOUND.
      */
-    private void queryVehiclesAndSolve() {
-        System.out.println("\n=== MRA: Querying Delivery Agents ===");
-        logger.logEvent("Querying Delivery Agents for vehicle information");
+    private void bindDeliveryAgents(RequestState state) {
+        for (int i = 0; i < state.problem.vehicles.size(); i++) {
+            JsonConfigReader.VehicleConfig vehicle = state.problem.vehicles.get(i);
+            String daName = deliveryAgentName(state, i);
+            ACLMessage bind = new ACLMessage(ACLMessage.REQUEST);
+            bind.addReceiver(new AID(daName, AID.ISLOCALNAME));
+            bind.setOntology("da-binding");
+            String conversationId = "bind-" + state.configName + "-" + daName;
+            bind.setConversationId(conversationId);
+            String content = "BIND|REQUEST:" + state.configName + "|CAPACITY:" + vehicle.capacity +
+                             "|MAX_DISTANCE:" + vehicle.maxDistance;
+            if (state.logFolder != null) {
+                content += "|LOG_FOLDER:" + state.logFolder;
+            }
+            bind.setContent(content);
+            registerConversation(state, conversationId, readyRoute);
+            
+            state.logger.logConversationStart(conversationId, "Bind DA " + daName + " (vehicle " + vehicle.name +
+                                              ") to request " + state.configName);
+            state.logger.logSent(bind);
+            send(bind);
+            Log.debug(() -> "MRA: Sent bind request to DA " + daName + " for vehicle " + vehicle.name);
+        }
+    }
+    
+    /**
+     * Maps a conversation started for a request back to that request, and its replies to a handler
+     */
+    private void registerConversation(RequestState state, String conversationId, MessageDispatcher.Route route) {
+        conversations.put(conversationId, state);
+        state.conversationIds.add(conversationId);
+        dispatcher.onConversation(conversationId, route);
+    }
+    
+    /**
+     * Messages no handler is registered for (e.g. replies to a finished request's conversations):
+     * logged and dropped instead of staying in the mailbox
+     */
+    private class UnhandledMessageHandler implements MessageDispatcher.Handler {
+        @Override
+        public void handle(ACLMessage msg) {
+            Log.debug(() -> "MRA: Dropping unhandled " + ACLMessage.getPerformative(msg.getPerformative()) +
+                            " from " + (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown") +
+                            " (conversation: " + msg.getConversationId() + ", ontology: " + msg.getOntology() + ")");
+            loggerOf(msg).logReceived(msg);
+        }
+    }
+    
+    /**
+     * Log of the request a message belongs to, or the agent's log
+     */
+    private AgentLogger loggerOf(ACLMessage msg) {
+        RequestState state = requestOf(msg);
+        return state != null ? state.logger : logger;
+    }
+    
+    /**
+     * Finds the request a received message belongs to (null if unknown or already finished)
+     */
+    private RequestState requestOf(ACLMessage msg) {
+        String conversationId = msg.getConversationId();
+        return conversationId != null ? conversations.get(conversationId) : null;
+    }
+    
+    /**
+     * Handles DA_READY announcements (per-request mode) and DA_BOUND replies (fleet mode) and
+     * continues the request once all expected DAs (one per configured vehicle) are ready
+     */
+    private class DeliveryAgentReadyHandler implements MessageDispatcher.Handler {
+        @Override
+        public void handle(ACLMessage msg) {
+            if (!"da-ready".equals(msg.getOntology()) && msg.getPerformative() != ACLMessage.INFORM) {
+                Log.warn("MRA: Unexpected " + ACLMessage.getPerformative(msg.getPerformative()) + " to bind request from " +
+                         (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown"));
+                loggerOf(msg).logReceived(msg);
+                return;
+            }
+            RequestState state = "da-ready".equals(msg.getOntology()) ? setupRequest : requestOf(msg);
+            if (state == null) {
+                Log.debug(() -> "MRA: Ignoring readiness message without active request from " +
+                                (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown"));
+                logger.logReceived(msg);
+                return;
+            }
+            state.logger.logReceived(msg);
+            if (msg.getConversationId() != null && "da-binding".equals(msg.getOntology())) {
+                state.logger.logConversationEnd(msg.getConversationId(), "DA bound: " + msg.getContent());
+            }
+            String senderName = msg.getSender() != null ? msg.getSender().getLocalName() : "unknown";
+            if (msg.getSender() != null && "da-ready".equals(msg.getOntology())) {
+                // Registered with the DF before announcing; the DF's notification may still be on its way
+                deliveryAgents.add(msg.getSender());
+            }
+            state.readyDeliveryAgents.add(senderName);
+            Log.debug(() -> "MRA: DA " + senderName + " ready (" + state.readyDeliveryAgents.size() + "/" +
+                            state.problem.vehicles.size() + ")");
+            state.logger.logEvent("DA ready: " + senderName + " (" + state.readyDeliveryAgents.size() + "/" +
+                          state.problem.vehicles.size() + ")");
+            
+            if (!state.deliveryAgentsReady && state.readyDeliveryAgents.size() >= state.problem.vehicles.size()) {
+                onDeliveryAgentsReady(state);
+            }
+        }
+    }
+    
+    /**
+     * All DAs of a request are ready (or the readiness deadline passed): query their vehicle
+     * info (live vehicle info), start the Contract-Net auction, or assign the routes if the
+     * solve has already finished
+     */
+    private void onDeliveryAgentsReady(RequestState state) {
+        if (state.finished) {
+            return;
+        }
+        state.deliveryAgentsReady = true;
+        state.readyTime = System.currentTimeMillis();
+        if (!state.vehiclesFromRequest) {
+            queryVehiclesAndSolve(state);
+        } else if (state.contractNet) {
+            startSolve(state);
+        } else if (state.solvedResult != null) {
+            SolutionResult result = state.solvedResult;
+            state.solvedResult = null;
+            dispatchRoutes(state, result, state.solveVehicles);
+        }
+    }
+    
+    /**
+     * Queries all Delivery Agents for their vehicle information (live vehicle info), then
+     * solves and assigns routes
+     */
+    private void queryVehiclesAndSolve(RequestState state) {
+        Log.debug("\n=== MRA: Querying Delivery Agents ===");
+        state.logger.logEvent("Querying Delivery Agents for vehicle information");
         
-        // Find DAs via DF
-        List<AID> daAIDs = findDeliveryAgentsViaDF();
+        List<AID> daAIDs;
+        if (state.fleetMode) {
+            // Only the DAs bound to this request (DF lists the whole resident fleet)
+            daAIDs = new ArrayList<>();
+            for (String daName : state.readyDeliveryAgents) {
+                daAIDs.add(new AID(daName, AID.ISLOCALNAME));
+            }
+        } else {
+            // Registered DAs (kept by DF notifications); with concurrent requests these include
+            // other requests' DAs, which are told apart by their "-<requestId>" name suffix
+            List<AID> registered = deliveryAgents.getAll();
+            daAIDs = requestDeliveryAgents(registered, state.configName);
+            if (daAIDs.size() < state.problem.vehicles.size()) {
+                // Some DAs did not announce readiness (deadline): ask the DF directly
+                registered = deliveryAgents.refresh();
+                daAIDs = requestDeliveryAgents(registered, state.configName);
+            }
+            if (daAIDs.isEmpty()) {
+                // DAs started without a request suffix (standalone runs)
+                daAIDs = registered;
+            }
+        }
         if (daAIDs.isEmpty()) {
-            System.err.println("MRA: ERROR - No Delivery Agents found via DF");
-            logger.logEvent("ERROR: No Delivery Agents found via DF");
+            Log.error("MRA: ERROR - No Delivery Agents found");
+            state.logger.logEvent("ERROR: No Delivery Agents found");
+            signalCompletion(state, "No Delivery Agents available - nothing to solve");
             return;
         }
         
-        System.out.println("MRA: Found " + daAIDs.size() + " Delivery Agents via DF");
-        logger.logEvent("Found " + daAIDs.size() + " Delivery Agents via DF");
+        int foundCount = daAIDs.size();
+        Log.debug(() -> "MRA: Found " + foundCount + " Delivery Agents");
+        state.logger.logEvent("Found " + daAIDs.size() + " Delivery Agents");
         
         // Set expected vehicle count
-        expectedVehicleCount = daAIDs.size();
-        receivedVehicleCount = 0;
-        allVehiclesReceived = false;
+        state.expectedVehicleCount = daAIDs.size();
+        state.receivedVehicleCount = 0;
+        state.allVehiclesReceived = false;
         
-        System.out.println("MRA: Expecting " + expectedVehicleCount + " vehicle information responses");
-        logger.logEvent("Expecting " + expectedVehicleCount + " vehicle information responses");
+        Log.debug(() -> "MRA: Expecting " + state.expectedVehicleCount + " vehicle information responses");
+        state.logger.logEvent("Expecting " + state.expectedVehicleCount + " vehicle information responses");
         
-        // Query each DA for vehicle information using FIPA-Request
+        // One FIPA-Request to all DAs; every reply answers the same conversation
+        ACLMessage query = new ACLMessage(ACLMessage.REQUEST);
         for (AID daAID : daAIDs) {
-            String daName = daAID.getLocalName();
-            try {
-                System.out.println("MRA: Querying DA: " + daName);
-                logger.logEvent("Querying DA: " + daName);
-                
-                ACLMessage query = new ACLMessage(ACLMessage.REQUEST);
-                query.addReceiver(daAID);
-                query.setContent("QUERY_VEHICLE_INFO");
-                query.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
-                String queryConversationId = "vehicle-info-query-" + daName + "-" + System.currentTimeMillis();
-                query.setConversationId(queryConversationId);
-                
-                logger.logConversationStart(queryConversationId, 
-                    "Vehicle info query to DA " + daName);
-                
-                logger.logSent(query);
-                send(query);
-                
-                System.out.println("MRA: Sent vehicle info query to " + daName);
-                
-            } catch (Exception e) {
-                System.err.println("MRA: Error querying DA " + daName + ": " + e.getMessage());
-                logger.log("ERROR: Failed to query DA " + daName + ": " + e.getMessage());
+            query.addReceiver(daAID);
+        }
+        query.setContent("QUERY_VEHICLE_INFO");
+        query.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
+        String queryConversationId = "vehicle-info-query-" + state.configName + "-" + System.currentTimeMillis();
+        query.setConversationId(queryConversationId);
+        state.vehicleQueryConversationId = queryConversationId;
+        registerConversation(state, queryConversationId, vehicleInfoRoute);
+        
+        state.logger.logConversationStart(queryConversationId,
+            "Vehicle info query to " + daAIDs.size() + " DAs");
+        state.logger.logSent(query);
+        send(query);
+        Log.debug(() -> "MRA: Sent vehicle info query to " + foundCount + " DAs");
+        
+        // Solving starts as soon as the last reply arrives (see VehicleInfoResponseHandler);
+        // this deadline proceeds with whatever vehicles have responded by then
+        addBehaviour(new WakerBehaviour(this, VEHICLE_INFO_TIMEOUT_MS) {
+            @Override
+            protected void onWake() {
+                if (!state.solveStarted) {
+                    Log.warn("MRA: Timeout reached (" + (VEHICLE_INFO_TIMEOUT_MS / 1000.0) + 
+                             " seconds). Received " + state.receivedVehicleCount + "/" + state.expectedVehicleCount + 
+                             " vehicle responses. Proceeding to solve...");
+                    state.logger.logEvent("Timeout reached. Received " + state.receivedVehicleCount + "/" + state.expectedVehicleCount + 
+                                  " vehicle responses. Proceeding to solve");
+                    startSolve(state);
+                }
+            }
+        });
+    }
+    
+    /**
+     * DAs of a request, told apart from other requests' DAs by their "-<requestId>" suffix
+     */
+    private static List<AID> requestDeliveryAgents(List<AID> registered, String configName) {
+        List<AID> daAIDs = new ArrayList<>();
+        for (AID daAID : registered) {
+            if (daAID.getLocalName().endsWith("-" + configName)) {
+                daAIDs.add(daAID);
+            }
+        }
+        return daAIDs;
+    }
+    
+    /**
+     * Starts solving once (triggered by the last vehicle reply, the vehicle info deadline or,
+     * with vehicles from the request, the start of the request or DA readiness)
+     */
+    private void startSolve(RequestState state) {
+        if (state.solveStarted || state.finished) {
+            return;
+        }
+        state.solveStarted = true;
+        state.vehicleInfoTime = System.currentTimeMillis();
+        if (state.vehicleQueryConversationId != null) {
+            state.logger.logConversationEnd(state.vehicleQueryConversationId, "Vehicle info received from " +
+                state.receivedVehicleCount + "/" + state.expectedVehicleCount + " vehicles");
+        }
+        if (state.contractNet) {
+            startAuction(state);
+        } else {
+            solveAndAssignRoutes(state);
+        }
+    }
+    
+    /**
+     * Starts the Contract-Net auction of a request: every round announces a batch of customers
+     * to the DAs (CFP), collects their bids (PROPOSE / REFUSE), awards each customer
+     * (ACCEPT_PROPOSAL / REJECT_PROPOSAL) and waits for the DAs' tentative routes (INFORM).
+     * The DAs price their bids on their own threads in parallel; the MRA only awards. Once all
+     * customers are placed, the central improvement pass runs on the solver executor and its
+     * result continues like a solve outcome (see {@link #onSolved}).
+     */
+    private void startAuction(RequestState state) {
+        List<VehicleInfo> vehicles = new ArrayList<>(state.registeredVehicles.values());
+        if (vehicles.isEmpty()) {
+            Log.error("MRA: ERROR - No vehicles registered");
+            state.logger.logEvent("ERROR: No vehicles registered");
+            signalCompletion(state, "No vehicles registered - nothing to solve");
+            return;
+        }
+        state.solveVehicles = vehicles;
+        state.auction = new ContractNetPlanner(state.problem, vehicles, CNET_BATCH_SIZE);
+        state.bidders = new AID[vehicles.size()];
+        state.proposals = new ACLMessage[vehicles.size()];
+        state.awaitingAwardResult = new boolean[vehicles.size()];
+        for (int i = 0; i < vehicles.size(); i++) {
+            AID daAID = findDAByName(state, vehicles.get(i).name);
+            if (daAID == null) {
+                Log.warn("MRA: No DA found for vehicle " + vehicles.get(i).name + " - it does not bid");
+                state.logger.log("WARNING: No DA found for vehicle " + vehicles.get(i).name + " - excluded from auction");
+                state.auction.withdraw(i);
+                continue;
             }
+            state.bidders[i] = daAID;
+            state.bidderIndex.put(daAID.getLocalName(), i);
+        }
+        if (state.bidderIndex.isEmpty()) {
+            Log.error("MRA: ERROR - No Delivery Agents found");
+            state.logger.logEvent("ERROR: No Delivery Agents found");
+            signalCompletion(state, "No Delivery Agents available - nothing to solve");
+            return;
         }
         
-        // Wait for all vehicles to respond (with timeout)
-        // Check every 500ms if all vehicles have responded
-        addBehaviour(new WaitForVehiclesBehaviour(this, 500, 10000)); // Check every 500ms, timeout after 10 seconds
+        state.auctionConversationId = "route-bidding-" + state.configName + "-" + System.currentTimeMillis();
+        registerConversation(state, state.auctionConversationId, biddingRoute);
+        Log.info("MRA: Contract-Net auction of " + state.problem.customerCount + " customers to " +
+                 state.bidderIndex.size() + " DAs (batch " + CNET_BATCH_SIZE + ")");
+        state.logger.logConversationStart(state.auctionConversationId, "Contract-Net auction of " +
+            state.problem.customerCount + " customers to " + state.bidderIndex.size() + " DAs");
+        nextAuctionRound(state);
+        
+        // Auction deadline: place nothing more and improve what has been awarded
+        addBehaviour(new WakerBehaviour(this, SOLVE_TIMEOUT_MS) {
+            @Override
+            protected void onWake() {
+                if (!state.auctionClosed) {
+                    Log.warn("MRA: Auction deadline reached after " + state.auction.getRound() +
+                             " rounds - closing with the customers awarded so far");
+                    state.logger.logEvent("Auction deadline reached after " + state.auction.getRound() + " rounds");
+                    state.auction.abandonPending();
+                    closeAuction(state);
+                }
+            }
+        });
     }
     
     /**
-     * Handles vehicle information responses from DAs
+     * Announces the next batch to every DA still bidding, or closes the auction when all
+     * customers are placed
      */
-    private class VehicleInfoResponseHandler extends CyclicBehaviour {
+    private void nextAuctionRound(RequestState state) {
+        if (state.auctionClosed || state.finished) {
+            return;
+        }
+        if (state.auction.isDone()) {
+            closeAuction(state);
+            return;
+        }
+        RouteMessages.CustomerBatch batch = state.auction.nextBatch();
+        ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+        state.pendingBids = 0;
+        for (int i = 0; i < state.bidders.length; i++) {
+            state.proposals[i] = null;
+            if (state.bidders[i] != null && !state.auction.isWithdrawn(i)) {
+                cfp.addReceiver(state.bidders[i]);
+                state.pendingBids++;
+            }
+        }
+        if (state.pendingBids == 0) {
+            state.auction.abandonPending();
+            closeAuction(state);
+            return;
+        }
+        cfp.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
+        cfp.setOntology("route-bidding");
+        cfp.setConversationId(state.auctionConversationId);
+        cfp.setReplyWith("round-" + batch.round);
+        RouteMessages.write(cfp, batch);
+        state.logger.logSent(cfp);
+        send(cfp);
+        Log.debug(() -> "MRA: Round " + batch.round + " - announced " + batch.size() + " customers");
+        addBehaviour(new AuctionRoundDeadline(state, batch.round));
+    }
+    
+    /**
+     * Round deadline: bids still missing are skipped (the award results then get a deadline of
+     * their own); DAs that have not reported their award are withdrawn from the auction and
+     * their awards go back into the queue
+     */
+    private class AuctionRoundDeadline extends WakerBehaviour {
+        private final RequestState state;
+        private final int round;
+        
+        AuctionRoundDeadline(RequestState state, int round) {
+            super(MasterRoutingAgent.this, CNET_ROUND_TIMEOUT_MS);
+            this.state = state;
+            this.round = round;
+        }
+        
         @Override
-        public void action() {
-            // Use a more specific template to match vehicle info responses
-            // Vehicle info responses have INFORM performative, FIPA_REQUEST protocol
-            // We'll filter out route assignment responses manually by checking conversation ID and content
-            MessageTemplate baseTemplate = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
-                MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST)
-            );
-            
-            // Process all pending vehicle info messages in one go
-            ACLMessage msg = null;
-            while ((msg = receive(baseTemplate)) != null) {
-                // Filter: Check if this is a route assignment response (skip it)
-                // Route assignment responses have conversation ID starting with "route-assignment-"
-                // or content starting with "ROUTE_ACCEPTED:" or "ROUTE_REJECTED:"
-                String conversationId = msg.getConversationId();
-                String content = msg.getContent();
-                
-                if (conversationId != null && conversationId.startsWith("route-assignment-")) {
-                    // This is a route assignment response, skip it (will be handled by RouteAssignmentResponseHandler)
-                    continue;
-                }
-                
-                if (content != null && 
-                    (content.startsWith("ROUTE_ACCEPTED:") || content.startsWith("ROUTE_REJECTED:"))) {
-                    // This is a route assignment response, skip it
-                    continue;
+        protected void onWake() {
+            if (state.auctionClosed || state.auction.getRound() != round) {
+                return;
+            }
+            if (state.pendingBids > 0) {
+                state.logger.logEvent("Round " + round + ": " + state.pendingBids + " bids missing at deadline");
+                state.pendingBids = 0;
+                awardRound(state);
+                if (!state.auctionClosed && state.auction.getRound() == round && state.pendingAwardResults > 0) {
+                    myAgent.addBehaviour(new AuctionRoundDeadline(state, round));
                 }
-                
-                // This should be a vehicle info response
-                logger.logReceived(msg);
-                if (content == null) {
-                    System.err.println("MRA: WARNING - Received vehicle info message with null content from " + 
-                                     (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown"));
-                    logger.log("WARNING: Received vehicle info message with null content");
-                    continue;
+            } else if (state.pendingAwardResults > 0) {
+                for (int i = 0; i < state.awaitingAwardResult.length; i++) {
+                    if (state.awaitingAwardResult[i]) {
+                        state.awaitingAwardResult[i] = false;
+                        state.auction.withdraw(i);
+                        Log.warn("MRA: DA " + state.bidders[i].getLocalName() + " did not report its award of round " +
+                                 round + " - withdrawn from the auction");
+                        state.logger.logEvent("DA " + state.bidders[i].getLocalName() +
+                                              " withdrawn: no award result for round " + round);
+                    }
                 }
-                
-                System.out.println("MRA: Processing vehicle info response from " + 
-                                 (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown") + 
-                                 ": " + content);
-                logger.log("Processing vehicle info response: " + content);
-                
-                String[] parts = content.split("\\|");
-                String name = null;
-                Integer capacity = null;
-                Double maxDistance = null;
-
-                for (String part : parts) {
-                    if (part.startsWith("NAME:")) {
-                        name = part.substring("NAME:".length()).trim();
-                    } else if (part.startsWith("CAPACITY:")) {
-                        try {
-                            capacity = Integer.parseInt(part.substring("CAPACITY:".length()).trim());
-                        } catch (NumberFormatException e) {
-                            System.err.println("MRA: ERROR - Failed to parse CAPACITY: " + part);
-                            logger.log("ERROR: Failed to parse CAPACITY: " + part);
+                state.pendingAwardResults = 0;
+                nextAuctionRound(state);
+            }
+        }
+    }
+    
+    /**
+     * Awards the round's customers and answers every proposal (accept with the awarded
+     * customers, or reject)
+     */
+    private void awardRound(RequestState state) {
+        int[][] awards = state.auction.award();
+        int round = state.auction.getRound();
+        state.pendingAwardResults = 0;
+        for (int i = 0; i < state.proposals.length; i++) {
+            ACLMessage proposal = state.proposals[i];
+            if (proposal == null) {
+                continue;  // No bids, so no awards either
+            }
+            ACLMessage reply = proposal.createReply();
+            if (awards[i] != null) {
+                reply.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
+                RouteMessages.Award award = new RouteMessages.Award();
+                award.round = round;
+                award.customerIds = awards[i];
+                RouteMessages.write(reply, award);
+                state.awaitingAwardResult[i] = true;
+                state.pendingAwardResults++;
+            } else {
+                reply.setPerformative(ACLMessage.REJECT_PROPOSAL);
+                reply.setContent("ROUND:" + round);
+            }
+            state.logger.logSent(reply);
+            send(reply);
+        }
+        if (state.pendingAwardResults == 0) {
+            nextAuctionRound(state);
+        }
+    }
+    
+    /**
+     * Handles the DAs' answers in an auction: bids, refusals and award results
+     */
+    private class BiddingResponseHandler implements MessageDispatcher.Handler {
+        @Override
+        public void handle(ACLMessage msg) {
+            RequestState state = requestOf(msg);
+            if (state == null || state.auction == null || state.auctionClosed) {
+                Log.debug(() -> "MRA: Ignoring late " + ACLMessage.getPerformative(msg.getPerformative()) +
+                                " in auction " + msg.getConversationId());
+                loggerOf(msg).logReceived(msg);
+                return;
+            }
+            state.logger.logReceived(msg);
+            Integer vehicle = msg.getSender() != null ? state.bidderIndex.get(msg.getSender().getLocalName()) : null;
+            if (vehicle == null) {
+                return;
+            }
+            int round = state.auction.getRound();
+            boolean currentRound = ("round-" + round).equals(msg.getInReplyTo());
+            try {
+                switch (msg.getPerformative()) {
+                    case ACLMessage.PROPOSE:
+                        if (currentRound && state.pendingBids > 0 && state.proposals[vehicle] == null) {
+                            state.auction.addBids(vehicle, RouteMessages.readBids(msg));
+                            state.proposals[vehicle] = msg;
+                            bidReceived(state);
                         }
-                    } else if (part.startsWith("MAX_DISTANCE:")) {
-                        try {
-                            maxDistance = Double.parseDouble(part.substring("MAX_DISTANCE:".length()).trim());
-                        } catch (NumberFormatException e) {
-                            System.err.println("MRA: ERROR - Failed to parse MAX_DISTANCE: " + part);
-                            logger.log("ERROR: Failed to parse MAX_DISTANCE: " + part);
+                        break;
+                    case ACLMessage.REFUSE:
+                    case ACLMessage.NOT_UNDERSTOOD:
+                    case ACLMessage.FAILURE:
+                        if (currentRound && state.pendingBids > 0) {
+                            bidReceived(state);
+                        } else if (state.awaitingAwardResult[vehicle]) {
+                            state.auction.withdraw(vehicle);
+                            awardResultReceived(state, vehicle);
                         }
-                    }
-                }
-
-                // Use sender name as fallback if NAME is not in content
-                // The sender's local name is the actual DA agent name (with request ID)
-                String senderName = (msg.getSender() != null) ? msg.getSender().getLocalName() : null;
-                
-                if (name == null || name.isEmpty()) {
-                    if (senderName != null) {
-                        name = senderName;
-                        System.out.println("MRA: Using sender name as vehicle name: " + name);
-                        logger.log("Using sender name as vehicle name: " + name);
-                    } else {
-                        System.err.println("MRA: ERROR - Cannot determine vehicle name from message");
-                        logger.log("ERROR: Cannot determine vehicle name from message");
-                        continue;
-                    }
-                } else {
-                    // Verify that the name in content matches the sender name (they should match)
-                    // If they don't match, use the sender name as it's the authoritative source
-                    if (senderName != null && !name.equals(senderName)) {
-                        System.out.println("MRA: WARNING - Name in content (" + name + ") doesn't match sender name (" + 
-                                         senderName + "). Using sender name as authoritative.");
-                        logger.log("WARNING: Name mismatch - content: " + name + ", sender: " + senderName + ". Using sender name.");
-                        name = senderName;
-                    }
+                        break;
+                    case ACLMessage.INFORM:
+                        RouteMessages.AwardResult result = RouteMessages.readAwardResult(msg);
+                        if (result.round == round && state.awaitingAwardResult[vehicle]) {
+                            state.auction.onAwardResult(vehicle, result);
+                            awardResultReceived(state, vehicle);
+                        }
+                        break;
+                    default:
+                        break;
                 }
-
-                if (msg.getConversationId() != null) {
-                    StringBuilder convSummary = new StringBuilder();
-                    convSummary.append("Vehicle info received - ").append(name);
-                    if (capacity != null) {
-                        convSummary.append(", Capacity=").append(capacity);
-                    }
-                    if (maxDistance != null) {
-                        convSummary.append(", MaxDistance=").append(maxDistance);
-                    }
-                    logger.logConversationEnd(msg.getConversationId(), convSummary.toString());
+            } catch (IllegalArgumentException e) {
+                Log.warn("MRA: WARNING - Invalid bidding message from " + msg.getSender().getLocalName() +
+                         ": " + e.getMessage());
+                state.logger.log("WARNING: Invalid bidding message: " + e.getMessage());
+            }
+        }
+        
+        private void bidReceived(RequestState state) {
+            if (--state.pendingBids == 0) {
+                awardRound(state);
+            }
+        }
+        
+        private void awardResultReceived(RequestState state, int vehicle) {
+            state.awaitingAwardResult[vehicle] = false;
+            if (--state.pendingAwardResults == 0) {
+                nextAuctionRound(state);
+            }
+        }
+    }
+    
+    /**
+     * Ends the auction and runs the central improvement pass on the solver executor; its result
+     * comes back via O2A like a solve outcome
+     */
+    private void closeAuction(RequestState state) {
+        if (state.auctionClosed || state.finished) {
+            return;
+        }
+        state.auctionClosed = true;
+        String statistics = state.auction.getStatistics();
+        Log.info("MRA: Contract-Net auction closed (" + statistics + ") - improving routes");
+        state.logger.logConversationEnd(state.auctionConversationId, "Auction closed: " + statistics);
+        ContractNetPlanner auction = state.auction;
+        try {
+            state.solveFuture = SolverExecutor.getShared().submit(() -> {
+                if (!state.solveClaimed.compareAndSet(false, true)) {
+                    return;  // Cancelled while queued
                 }
-
-                // Register or update vehicle
-                VehicleInfo vehicle = registeredVehicles.get(name);
-                boolean isNewVehicle = (vehicle == null);
-                
-                if (vehicle == null) {
-                    int initialCapacity = capacity != null ? capacity : 50;
-                    double initialMaxDistance = maxDistance != null ? maxDistance : 1000.0;
-                    vehicle = new VehicleInfo(name, initialCapacity, initialMaxDistance);
-                    registeredVehicles.put(name, vehicle);
-                    System.out.println("MRA: Registered vehicle " + name +
-                                     " (capacity: " + initialCapacity + ", maxDistance: " + initialMaxDistance + ")");
-                    logger.logEvent("Registered vehicle " + name +
-                                  ": capacity=" + initialCapacity + ", maxDistance=" + initialMaxDistance);
-                } else {
-                    // Update existing vehicle info
-                    if (capacity != null) {
-                        vehicle.capacity = capacity;
-                    }
-                    if (maxDistance != null) {
-                        vehicle.maxDistance = maxDistance;
-                    }
-                    if (capacity != null || maxDistance != null) {
-                        System.out.println("MRA: Updated vehicle " + name + " capacity/maxDistance");
-                        logger.logEvent("Updated vehicle " + name + ": capacity=" + vehicle.capacity +
-                                      ", maxDistance=" + vehicle.maxDistance);
-                    }
+                SolutionResult solved = null;
+                try {
+                    solved = auction.finish(CNET_IMPROVE_MS);
+                } catch (RuntimeException e) {
+                    Log.error("MRA: Route improvement failed for request " + state.configName + ": " + e.getMessage(), e);
                 }
-                
-                // Increment received count only for new vehicles (to avoid counting duplicates)
-                if (isNewVehicle) {
-                    receivedVehicleCount++;
-                    System.out.println("MRA: Received vehicle info " + receivedVehicleCount + "/" + expectedVehicleCount + 
-                                     " (Vehicle: " + name + ")");
-                    logger.logEvent("Received vehicle info " + receivedVehicleCount + "/" + expectedVehicleCount + 
-                                  " (Vehicle: " + name + ")");
-                    
-                    // Check if all vehicles have responded
-                    if (receivedVehicleCount >= expectedVehicleCount) {
-                        allVehiclesReceived = true;
-                        System.out.println("MRA: All " + expectedVehicleCount + " vehicles have responded");
-                        logger.logEvent("All " + expectedVehicleCount + " vehicles have responded");
-                    }
-                } else {
-                    System.out.println("MRA: Received duplicate/update for vehicle " + name + 
-                                     " (already registered, not counting)");
-                    logger.logEvent("Received duplicate/update for vehicle " + name);
+                try {
+                    putO2AObject(new SolveOutcome(state, solved), AgentController.ASYNC);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-            }
-            
-            // Block only if no messages were processed
-            block();
+            });
+        } catch (RejectedExecutionException e) {
+            Log.error("MRA: ERROR - Solver queue full, cannot improve routes of request " + state.configName);
+            state.logger.logEvent("ERROR: Solver queue full - request not solved");
+            signalCompletion(state, "Solver queue full - request not solved");
         }
     }
     
     /**
-     * Behavior that waits for all vehicles to respond before solving
-     * Checks periodically if all vehicles have responded, with a timeout
+     * Handles vehicle information responses from DAs
      */
-    private class WaitForVehiclesBehaviour extends TickerBehaviour {
-        private long startTime;
-        private long timeoutMs;
-        private long minWaitMs = 3000;  // Minimum wait time (3 seconds) even if all vehicles respond quickly
-        private boolean shouldStop = false;
-        
-        public WaitForVehiclesBehaviour(Agent a, long period, long timeoutMs) {
-            super(a, period);
-            this.startTime = System.currentTimeMillis();
-            this.timeoutMs = timeoutMs;
-        }
-        
+    private class VehicleInfoResponseHandler implements MessageDispatcher.Handler {
         @Override
-        protected void onTick() {
-            if (shouldStop) {
-                return;  // Behavior will be removed
+        public void handle(ACLMessage msg) {
+            String conversationId = msg.getConversationId();
+            
+            // Replies to a vehicle info query (routed here by its conversation ID)
+            RequestState state = requestOf(msg);
+            if (state == null) {
+                Log.debug(() -> "MRA: Ignoring vehicle info response for unknown or finished request: " +
+                                conversationId);
+                logger.logReceived(msg);
+                return;
             }
+            state.logger.logReceived(msg);
+            if (msg.getPerformative() != ACLMessage.INFORM) {
+                Log.warn("MRA: WARNING - Vehicle info query answered with " +
+                         ACLMessage.getPerformative(msg.getPerformative()) + " by " +
+                         (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown"));
+                state.logger.log("WARNING: Vehicle info query not answered with INFORM");
+                return;
+            }
+            RouteMessages.VehicleInfoMessage info;
+            try {
+                info = RouteMessages.readVehicleInfo(msg);
+            } catch (IllegalArgumentException e) {
+                Log.warn("MRA: WARNING - Received invalid vehicle info message from " + 
+                         (msg.getSender() != null ? msg.getSender().getLocalName() : "unknown") + ": " + e.getMessage());
+                state.logger.log("WARNING: Received invalid vehicle info message: " + e.getMessage());
+                return;
+            }
+            
+            ACLMessage response = msg;
+            Log.debug(() -> "MRA: Processing vehicle info response from " + 
+                            (response.getSender() != null ? response.getSender().getLocalName() : "unknown") + 
+                            ": " + RouteMessages.describe(response));
+            state.logger.log("Processing vehicle info response: " + RouteMessages.describe(msg));
             
-            long elapsedTime = System.currentTimeMillis() - startTime;
+            String name = info.name;
+            Integer capacity = info.capacity >= 0 ? info.capacity : null;
+            Double maxDistance = !Double.isNaN(info.maxDistance) ? info.maxDistance : null;
+
+            // Use sender name as fallback if NAME is not in content
+            // The sender's local name is the actual DA agent name (with request ID)
+            String senderName = (msg.getSender() != null) ? msg.getSender().getLocalName() : null;
             
-            // Check if all vehicles have responded
-            if (allVehiclesReceived) {
-                // Ensure minimum wait time has passed
-                if (elapsedTime >= minWaitMs) {
-                    System.out.println("MRA: All vehicles responded. Proceeding to solve after " + 
-                                     (elapsedTime / 1000.0) + " seconds");
-                    logger.logEvent("All vehicles responded. Proceeding to solve after " + 
-                                  (elapsedTime / 1000.0) + " seconds");
-                    shouldStop = true;
-                    myAgent.removeBehaviour(this);
-                    solveAndAssignRoutes();
+            if (name == null || name.isEmpty()) {
+                if (senderName != null) {
+                    name = senderName;
+                    Log.debug("MRA: Using sender name as vehicle name: " + name);
+                    state.logger.log("Using sender name as vehicle name: " + name);
                 } else {
-                    // Still waiting for minimum wait time
-                    long remainingMs = minWaitMs - elapsedTime;
-                    System.out.println("MRA: All vehicles responded, waiting " + 
-                                     (remainingMs / 1000.0) + " more seconds before solving...");
+                    Log.error("MRA: ERROR - Cannot determine vehicle name from message");
+                    state.logger.log("ERROR: Cannot determine vehicle name from message");
+                    return;
                 }
-            } else if (elapsedTime >= timeoutMs) {
-                // Timeout reached - proceed with whatever vehicles we have
-                System.out.println("MRA: Timeout reached (" + (timeoutMs / 1000.0) + 
-                                 " seconds). Received " + receivedVehicleCount + "/" + expectedVehicleCount + 
-                                 " vehicle responses. Proceeding to solve...");
-                logger.logEvent("Timeout reached. Received " + receivedVehicleCount + "/" + expectedVehicleCount + 
-                              " vehicle responses. Proceeding to solve");
-                shouldStop = true;
-                myAgent.removeBehaviour(this);
-                solveAndAssignRoutes();
             } else {
-                // Still waiting for vehicles (only log every few ticks to avoid spam)
-                if (getTickCount() % 2 == 0) {  // Log every 2 ticks (every 1 second)
-                    System.out.println("MRA: Waiting for vehicles... (" + receivedVehicleCount + "/" + 
-                                     expectedVehicleCount + " received, " + 
-                                     String.format("%.1f", (timeoutMs - elapsedTime) / 1000.0) + " seconds remaining)");
+                // Verify that the name in content matches the sender name (they should match)
+                // If they don't match, use the sender name as it's the authoritative source
+                if (senderName != null && !name.equals(senderName)) {
+                    Log.warn("MRA: WARNING - Name in content (" + name + ") doesn't match sender name (" + 
+                             senderName + "). Using sender name as authoritative.");
+                    state.logger.log("WARNING: Name mismatch - content: " + name + ", sender: " + senderName + ". Using sender name.");
+                    name = senderName;
                 }
             }
+
+            if (msg.getConversationId() != null) {
+                StringBuilder convSummary = new StringBuilder();
+                convSummary.append("Vehicle info received - ").append(name);
+                if (capacity != null) {
+                    convSummary.append(", Capacity=").append(capacity);
+                }
+                if (maxDistance != null) {
+                    convSummary.append(", MaxDistance=").append(maxDistance);
+                }
+                state.logger.log(convSummary.toString());
+            }
+
+            // Register or update vehicle
+            String vehicleName = name;
+            VehicleInfo vehicle = state.registeredVehicles.get(name);
+            boolean isNewVehicle = (vehicle == null);
+            
+            if (vehicle == null) {
+                int initialCapacity = capacity != null ? capacity : 50;
+                double initialMaxDistance = maxDistance != null ? maxDistance : 1000.0;
+                vehicle = new VehicleInfo(name, initialCapacity, initialMaxDistance);
+                state.registeredVehicles.put(name, vehicle);
+                Log.debug(() -> "MRA: Registered vehicle " + vehicleName +
+                                " (capacity: " + initialCapacity + ", maxDistance: " + initialMaxDistance + ")");
+                state.logger.logEvent("Registered vehicle " + name +
+                              ": capacity=" + initialCapacity + ", maxDistance=" + initialMaxDistance);
+            } else {
+                // Update existing vehicle info
+                if (capacity != null) {
+                    vehicle.capacity = capacity;
+                }
+                if (maxDistance != null) {
+                    vehicle.maxDistance = maxDistance;
+                }
+                if (capacity != null || maxDistance != null) {
+                    Log.debug(() -> "MRA: Updated vehicle " + vehicleName + " capacity/maxDistance");
+                    state.logger.logEvent("Updated vehicle " + name + ": capacity=" + vehicle.capacity +
+                                  ", maxDistance=" + vehicle.maxDistance);
+                }
+            }
+            
+            // Increment received count only for new vehicles (to avoid counting duplicates)
+            if (isNewVehicle) {
+                state.receivedVehicleCount++;
+                int receivedCount = state.receivedVehicleCount;
+                Log.debug(() -> "MRA: Received vehicle info " + receivedCount + "/" + state.expectedVehicleCount + 
+                                " (Vehicle: " + vehicleName + ")");
+                state.logger.logEvent("Received vehicle info " + state.receivedVehicleCount + "/" + state.expectedVehicleCount + 
+                              " (Vehicle: " + name + ")");
+                
+                // Check if all vehicles have responded
+                if (state.receivedVehicleCount >= state.expectedVehicleCount) {
+                    state.allVehiclesReceived = true;
+                    long elapsedTime = System.currentTimeMillis() - state.readyTime;
+                    Log.info("MRA: All " + state.expectedVehicleCount + " vehicles have responded. " +
+                             "Proceeding to solve after " + (elapsedTime / 1000.0) + " seconds");
+                    state.logger.logEvent("All " + state.expectedVehicleCount + " vehicles have responded. " +
+                                  "Proceeding to solve after " + (elapsedTime / 1000.0) + " seconds");
+                    startSolve(state);
+                }
+            } else {
+                Log.debug(() -> "MRA: Received duplicate/update for vehicle " + vehicleName + 
+                                " (already registered, not counting)");
+                state.logger.logEvent("Received duplicate/update for vehicle " + name);
+            }
         }
     }
     
     /**
      * Handles route assignment responses from DAs
      */
-    private class RouteAssignmentResponseHandler extends CyclicBehaviour {
+    private class RouteAssignmentResponseHandler implements MessageDispatcher.Handler {
         @Override
-        public void action() {
-            // Check for both INFORM (accept) and REFUSE (reject) messages
-            MessageTemplate informTemplate = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
-                MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST)
-            );
+        public void handle(ACLMessage msg) {
+            // Accepted (INFORM) or rejected (REFUSE) assignments; anything else is only logged
+            RouteMessages.RouteResponse response;
+            try {
+                response = RouteMessages.readRouteResponse(msg);
+            } catch (IllegalArgumentException e) {
+                Log.warn("MRA: WARNING - Invalid route assignment response in conversation " +
+                         msg.getConversationId() + ": " + e.getMessage());
+                response = null;
+            }
+            if (response == null) {
+                Log.debug(() -> "MRA: Ignoring " + ACLMessage.getPerformative(msg.getPerformative()) +
+                                " in route assignment conversation " + msg.getConversationId());
+                loggerOf(msg).logReceived(msg);
+                return;
+            }
             
-            MessageTemplate refuseTemplate = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.REFUSE),
-                MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST)
-            );
+            RequestState state = requestOf(msg);
+            if (state == null) {
+                Log.debug(() -> "MRA: Ignoring route assignment response for unknown or finished request: " +
+                                msg.getConversationId());
+                logger.logReceived(msg);
+                return;
+            }
             
-            MessageTemplate template = MessageTemplate.or(informTemplate, refuseTemplate);
-            ACLMessage msg = receive(template);
+            // Log the received response message
+            state.logger.logReceived(msg);
             
-            if (msg != null && msg.getContent() != null) {
-                boolean isAccepted = msg.getContent().startsWith("ROUTE_ACCEPTED:");
-                boolean isRejected = msg.getContent().startsWith("ROUTE_REJECTED:");
-                
-                if (isAccepted || isRejected) {
-                    // Log the received response message
-                    logger.logReceived(msg);
-                    
-                    String content = msg.getContent();
-                    String senderName = (msg.getSender() != null) ? msg.getSender().getLocalName() : "unknown";
-                    
-                    System.out.println("\n=== MRA: Received Route Assignment Response ===");
-                    System.out.println("MRA: Response from DA: " + senderName);
-                    System.out.println("MRA: Conversation ID: " + (msg.getConversationId() != null ? msg.getConversationId() : "N/A"));
-                    System.out.println("MRA: Response Content: " + content);
-                    
-                    String[] parts = content != null ? content.split("\\|") : new String[0];
-                    String routeId = null;
-                    String vehicleName = null;
-                    String status = null;
-                    String reason = null;
-                    String details = null;
-                    String demand = null;
-                    String distance = null;
-                    
-                    for (String part : parts) {
-                        if (part.startsWith("ROUTE_ACCEPTED:") || part.startsWith("ROUTE_REJECTED:")) {
-                            routeId = part.substring(part.indexOf(":") + 1);
-                        } else if (part.startsWith("VEHICLE:")) {
-                            vehicleName = part.substring("VEHICLE:".length());
-                        } else if (part.startsWith("STATUS:")) {
-                            status = part.substring("STATUS:".length());
-                        } else if (part.startsWith("REASON:")) {
-                            reason = part.substring("REASON:".length());
-                        } else if (part.startsWith("DETAILS:")) {
-                            details = part.substring("DETAILS:".length());
-                        } else if (part.startsWith("DEMAND:")) {
-                            demand = part.substring("DEMAND:".length());
-                        } else if (part.startsWith("DISTANCE:")) {
-                            distance = part.substring("DISTANCE:".length());
-                        }
-                    }
-                    
-                    System.out.println("MRA: Parsed Response:");
-                    System.out.println("  Route ID: " + (routeId != null ? routeId : "N/A"));
-                    System.out.println("  Vehicle: " + (vehicleName != null ? vehicleName : "N/A"));
-                    System.out.println("  Status: " + (status != null ? status : "N/A"));
-                    if (reason != null) {
-                        System.out.println("  Reason: " + reason);
-                    }
-                    if (details != null) {
-                        System.out.println("  Details: " + details);
-                    }
-                    if (demand != null) {
-                        System.out.println("  Demand: " + demand + " items");
-                    }
-                    if (distance != null) {
-                        System.out.println("  Distance: " + distance);
-                    }
-                    System.out.println("==============================================\n");
-                    
-                    if (msg.getConversationId() != null) {
-                        StringBuilder convSummary = new StringBuilder();
-                        convSummary.append("Route assignment response - Route ").append(routeId != null ? routeId : "unknown");
-                        if (vehicleName != null) {
-                            convSummary.append(", Vehicle: ").append(vehicleName);
-                        }
-                        if (status != null) {
-                            convSummary.append(", Status: ").append(status);
-                        }
-                        if (reason != null) {
-                            convSummary.append(", Reason: ").append(reason);
-                        }
-                        logger.logConversationEnd(msg.getConversationId(), convSummary.toString());
-                    }
-                    
-                    if (isAccepted && routeId != null && vehicleName != null && "ACCEPTED".equals(status)) {
-                        System.out.println("MRA: ✓ Route " + routeId + " ACCEPTED by vehicle " + vehicleName);
-                        logger.logEvent("Route " + routeId + " ACCEPTED by vehicle " + vehicleName + 
-                                      " (demand: " + (demand != null ? demand : "N/A") + 
-                                      ", distance: " + (distance != null ? distance : "N/A") + ")");
-                    } else if (isRejected && routeId != null && vehicleName != null) {
-                        System.out.println("MRA: ✗ Route " + routeId + " REJECTED by vehicle " + vehicleName + 
-                                         (reason != null ? " - Reason: " + reason : ""));
-                        logger.logEvent("Route " + routeId + " REJECTED by vehicle " + vehicleName + 
-                                      (reason != null ? " - Reason: " + reason : "") +
-                                      (details != null ? " - Details: " + details : ""));
-                    } else {
-                        System.out.println("MRA: Route assignment response received from " + senderName);
-                        logger.logEvent("Route assignment response received from " + senderName + ": " + content);
-                    }
-                } else {
-                    block();
+            String senderName = (msg.getSender() != null) ? msg.getSender().getLocalName() : "unknown";
+            
+            String routeId = response.routeId;
+            String vehicleName = response.vehicleName;
+            String status = response.getStatus();
+            String reason = response.reason;
+            String details = response.details;
+            String demand = response.accepted ? String.valueOf(response.demand) : null;
+            String distance = response.accepted ? String.format("%.2f", response.distance) : null;
+            
+            if (Log.isDebugEnabled()) {
+                StringBuilder out = new StringBuilder(512);
+                out.append("\n=== MRA: Received Route Assignment Response ===\n");
+                out.append("MRA: Response from DA: ").append(senderName).append('\n');
+                out.append("MRA: Conversation ID: ")
+                   .append(msg.getConversationId() != null ? msg.getConversationId() : "N/A").append('\n');
+                out.append("MRA: Response Content: ").append(RouteMessages.describe(msg)).append('\n');
+                out.append("MRA: Parsed Response:\n");
+                out.append("  Route ID: ").append(routeId != null ? routeId : "N/A").append('\n');
+                out.append("  Vehicle: ").append(vehicleName != null ? vehicleName : "N/A").append('\n');
+                out.append("  Status: ").append(status != null ? status : "N/A").append('\n');
+                if (reason != null) {
+                    out.append("  Reason: ").append(reason).append('\n');
+                }
+                if (details != null) {
+                    out.append("  Details: ").append(details).append('\n');
+                }
+                if (demand != null) {
+                    out.append("  Demand: ").append(demand).append(" items\n");
+                }
+                if (distance != null) {
+                    out.append("  Distance: ").append(distance).append('\n');
+                }
+                out.append("==============================================\n");
+                Log.debug(out.toString());
+            }
+            
+            if (msg.getConversationId() != null) {
+                StringBuilder convSummary = new StringBuilder();
+                convSummary.append("Route assignment response - Route ").append(routeId != null ? routeId : "unknown");
+                if (vehicleName != null) {
+                    convSummary.append(", Vehicle: ").append(vehicleName);
+                }
+                if (status != null) {
+                    convSummary.append(", Status: ").append(status);
                 }
+                if (reason != null) {
+                    convSummary.append(", Reason: ").append(reason);
+                }
+                state.logger.logConversationEnd(msg.getConversationId(), convSummary.toString());
+            }
+            
+            if (response.accepted && routeId != null && vehicleName != null) {
+                Log.debug("MRA: ✓ Route " + routeId + " ACCEPTED by vehicle " + vehicleName);
+                state.logger.logEvent("Route " + routeId + " ACCEPTED by vehicle " + vehicleName + 
+                              " (demand: " + (demand != null ? demand : "N/A") + 
+                              ", distance: " + (distance != null ? distance : "N/A") + ")");
+            } else if (!response.accepted && routeId != null && vehicleName != null) {
+                Log.info("MRA: ✗ Route " + routeId + " REJECTED by vehicle " + vehicleName + 
+                         (reason != null ? " - Reason: " + reason : ""));
+                state.logger.logEvent("Route " + routeId + " REJECTED by vehicle " + vehicleName + 
+                              (reason != null ? " - Reason: " + reason : "") +
+                              (details != null ? " - Details: " + details : ""));
             } else {
-                block();
+                Log.debug("MRA: Route assignment response received from " + senderName);
+                state.logger.logEvent("Route assignment response received from " + senderName + ": " + RouteMessages.describe(msg));
+            }
+            
+            // Finish as soon as every assigned route has been acknowledged
+            state.pendingRouteAcks--;
+            if (state.pendingRouteAcks <= 0) {
+                signalCompletion(state, "All route assignment responses received");
             }
         }
     }
@@ -583,94 +1182,142 @@ public class MasterRoutingAgent extends Agent {
     /**
      * Solves the CVRP problem and assigns routes to DAs
      */
-    private void solveAndAssignRoutes() {
-        System.out.println("\n=== MRA: Solving CVRP Problem ===");
-        logger.logEvent("Solving CVRP problem");
+    private void solveAndAssignRoutes(RequestState state) {
+        Log.debug("\n=== MRA: Solving CVRP Problem ===");
+        state.logger.logEvent("Solving CVRP problem");
         
         // Collect all registered vehicles
-        List<VehicleInfo> availableVehicles = new ArrayList<>(registeredVehicles.values());
+        List<VehicleInfo> availableVehicles = new ArrayList<>(state.registeredVehicles.values());
         
         if (availableVehicles.isEmpty()) {
-            System.err.println("MRA: ERROR - No vehicles registered");
-            logger.logEvent("ERROR: No vehicles registered");
+            Log.error("MRA: ERROR - No vehicles registered");
+            state.logger.logEvent("ERROR: No vehicles registered");
+            signalCompletion(state, "No vehicles registered - nothing to solve");
             return;
         }
         
-        System.out.println("MRA: Using " + availableVehicles.size() + " available vehicles");
-        logger.logEvent("Using " + availableVehicles.size() + " available vehicles");
-        
-        // Convert customers to CustomerRequest format for problem assembler
-        List<CustomerRequest> customerRequests = new ArrayList<>();
-        for (int i = 0; i < customers.size(); i++) {
-            CustomerInfo customer = customers.get(i);
-            CustomerRequest req;
-            
-            // Check if config has time window for this customer
-            if (i < config.customers.size() && config.customers.get(i).timeWindow != null) {
-                req = new CustomerRequest(
-                    customer.name,
-                    customer.name,
-                    customer.x,
-                    customer.y,
-                    "package", // Item name (not used in CVRP)
-                    customer.demand,
-                    config.customers.get(i).timeWindow
-                );
-            } else {
-                req = new CustomerRequest(
-                    customer.name,
-                    customer.name,
-                    customer.x,
-                    customer.y,
-                    "package", // Item name (not used in CVRP)
-                    customer.demand
-                );
-            }
-            customerRequests.add(req);
-        }
+        state.logger.logEvent("Using " + availableVehicles.size() + " available vehicles");
         
         // Solve
-        System.out.println("MRA: Calling VRP solver with " + availableVehicles.size() + 
-                         " vehicles and " + customers.size() + " customers");
-        logger.logEvent("Calling VRP solver: " + availableVehicles.size() + 
-                      " vehicles, " + customers.size() + " customers");
+        Log.info("MRA: Calling VRP solver with " + availableVehicles.size() + 
+                 " vehicles and " + state.problem.customerCount + " customers");
+        state.logger.logEvent("Calling VRP solver: " + availableVehicles.size() + 
+                      " vehicles, " + state.problem.customerCount + " customers");
+        
+        // Run the search on the solver executor; the outcome comes back via O2A (see onSolved)
+        state.solveVehicles = availableVehicles;
+        try {
+            state.solveFuture = SolverExecutor.getShared().submit(() -> {
+                if (!state.solveClaimed.compareAndSet(false, true)) {
+                    return;  // Cancelled while queued
+                }
+                SolutionResult solved = null;
+                try {
+                    solved = state.problemAssembler.assembleAndSolve(state.problem, availableVehicles);
+                } catch (RuntimeException e) {
+                    Log.error("MRA: Solver failed for request " + state.configName + ": " + e.getMessage(), e);
+                }
+                try {
+                    putO2AObject(new SolveOutcome(state, solved), AgentController.ASYNC);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.error("MRA: ERROR - Solver queue full, cannot solve request " + state.configName);
+            state.logger.logEvent("ERROR: Solver queue full - request not solved");
+            signalCompletion(state, "Solver queue full - request not solved");
+            return;
+        }
+        Log.debug(() -> "MRA: Solve queued on solver executor (active: " + SolverExecutor.getShared().getActiveCount() +
+                        ", queued: " + SolverExecutor.getShared().getQueuedCount() + ")");
+        state.logger.logEvent("Solve submitted to solver executor");
         
-        SolutionResult result = problemAssembler.assembleAndSolve(
-            depotX,
-            depotY,
-            customerRequests,
-            availableVehicles
-        );
+        // Solve deadline: cancel the search and continue with its best solution so far
+        addBehaviour(new WakerBehaviour(this, SOLVE_TIMEOUT_MS) {
+            @Override
+            protected void onWake() {
+                cancelSolve(state, "Solve deadline reached");
+            }
+        });
+    }
+    
+    /**
+     * Cancels the request's solve: a queued solve is dropped, a running search stops at its
+     * next limit check and its outcome is processed as usual. Future.cancel cannot tell the two
+     * apart (it also succeeds on a running task), so the solve task and this method race to
+     * claim the solve.
+     */
+    private void cancelSolve(RequestState state, String reason) {
+        if (state.solveFuture == null || state.solvedTime > 0) {
+            return;
+        }
+        Log.warn("MRA: " + reason + " - cancelling solve for request " + state.configName);
+        state.logger.logEvent(reason + " - cancelling solve");
+        state.solver.cancel();
+        if (state.solveClaimed.compareAndSet(false, true)) {
+            // Never started, so no outcome will arrive
+            state.solveFuture.cancel(false);
+            state.solvedTime = System.currentTimeMillis();
+            signalCompletion(state, reason + " before the solve started");
+        }
+    }
+    
+    /**
+     * Abandons a request Main stopped waiting for: its solve is cancelled, its auction closed
+     * and its completion signalled (which drops its conversations), so nothing more is sent to
+     * its DAs and its solution is never submitted
+     */
+    private void cancelRequest(RequestState state, String reason) {
+        if (state.finished) {
+            return;
+        }
+        cancelSolve(state, reason);
+        state.auctionClosed = true;
+        signalCompletion(state, reason + " - request cancelled");
+    }
+    
+    /**
+     * Continues a request once its solve has finished: reports the solution, submits it to
+     * the backend and assigns the routes to the DAs
+     */
+    private void onSolved(RequestState state, SolutionResult result) {
+        List<VehicleInfo> availableVehicles = state.solveVehicles;
+        state.solvedTime = System.currentTimeMillis();
+        if (state.finished) {
+            Log.debug(() -> "MRA: Dropping solve outcome of finished request " + state.configName);
+            state.logger.logEvent("Solve outcome dropped - request already finished");
+            return;
+        }
         
         if (result == null) {
-            System.err.println("MRA: ERROR - Solver returned null result");
-            logger.logEvent("ERROR: Solver returned null result");
+            Log.error("MRA: ERROR - Solver returned null result");
+            state.logger.logEvent("ERROR: Solver returned null result");
+            signalCompletion(state, "Solver returned no result");
             return;
         }
         
-        // Update unserved customers with proper coordinates and names
+        // Update unserved customers with proper coordinates and names (IDs are node indices)
         for (CustomerInfo unserved : result.unservedCustomers) {
-            for (CustomerInfo originalCustomer : customers) {
-                if (originalCustomer.id == unserved.id) {
-                    unserved.x = originalCustomer.x;
-                    unserved.y = originalCustomer.y;
-                    unserved.name = originalCustomer.name;
-                    break;
-                }
+            if (unserved.id >= 1 && unserved.id <= state.problem.customerCount) {
+                unserved.x = state.problem.x[unserved.id];
+                unserved.y = state.problem.y[unserved.id];
+                unserved.name = state.problem.customerIds[unserved.id];
             }
         }
         
-        System.out.println("\n=== MRA: VRP Solution Summary ===");
         if (result.routes.isEmpty()) {
-            System.out.println("MRA: No solution found - no routes generated");
-            System.out.println("MRA: All customers are unserved: " + result.unservedCustomers.size());
-            logger.logEvent("No solution found - all " + result.unservedCustomers.size() + " customers unserved");
+            Log.info("\n=== MRA: VRP Solution Summary ===\n" +
+                     "MRA: No solution found - no routes generated\n" +
+                     "MRA: All customers are unserved: " + result.unservedCustomers.size());
+            state.logger.logEvent("No solution found - all " + result.unservedCustomers.size() + " customers unserved");
         } else {
-            System.out.println("MRA: Solution found with " + result.routes.size() + " routes");
-            System.out.println("MRA: Items delivered: " + result.itemsDelivered + "/" + result.itemsTotal);
-            System.out.println("MRA: Total distance: " + String.format("%.2f", result.totalDistance));
-            System.out.println("MRA: Unserved customers: " + result.unservedCustomers.size());
-            logger.logEvent("VRP solution found: " + result.routes.size() + " routes, " + 
+            Log.info("\n=== MRA: VRP Solution Summary ===\n" +
+                     "MRA: Solution found with " + result.routes.size() + " routes\n" +
+                     "MRA: Items delivered: " + result.itemsDelivered + "/" + result.itemsTotal + "\n" +
+                     "MRA: Total distance: " + String.format("%.2f", result.totalDistance) + "\n" +
+                     "MRA: Unserved customers: " + result.unservedCustomers.size());
+            state.logger.logEvent("VRP solution found: " + result.routes.size() + " routes, " + 
                            result.itemsDelivered + "/" + result.itemsTotal + " items delivered, " +
                            "total distance: " + String.format("%.2f", result.totalDistance) +
                            ", unserved: " + result.unservedCustomers.size());
@@ -682,8 +1329,8 @@ public class MasterRoutingAgent extends Agent {
             int vehicleIndex = route.vehicleId - 1;
             if (vehicleIndex >= 0 && vehicleIndex < availableVehicles.size()) {
                 // Get the original vehicle name from config (not the registered name which may have suffix)
-                if (vehicleIndex < config.vehicles.size()) {
-                    route.vehicleName = config.vehicles.get(vehicleIndex).name;
+                if (vehicleIndex < state.problem.vehicles.size()) {
+                    route.vehicleName = state.problem.vehicles.get(vehicleIndex).name;
                 } else {
                     // Fallback to registered vehicle name if config doesn't have it
                     VehicleInfo targetVehicle = availableVehicles.get(vehicleIndex);
@@ -709,95 +1356,156 @@ public class MasterRoutingAgent extends Agent {
             }
         }
         
+        // Encode the solution once: the same bytes go to the result archive and to the solution sink
+        byte[] encodedSolution = SolutionJsonWriter.encode(state.configName, result, state.configName);
+        
         // Always log result as JSON, even if no routes (will show empty routes array and all unserved customers)
-        JsonResultLogger.logResult(result, configName);
+        JsonResultLogger.logResult(result, state.configName, encodedSolution);
         
         // If in backend mode, submit solution first, then assign routes, then signal completion
-        if (solutionLatch != null && solutionHolder != null) {
+        if (state.solutionLatch != null && state.solutionHolder != null) {
             try {
                 // Use reflection to set solution in holder
-                java.lang.reflect.Field solutionField = solutionHolder.getClass().getDeclaredField("solution");
+                java.lang.reflect.Field solutionField = state.solutionHolder.getClass().getDeclaredField("solution");
                 solutionField.setAccessible(true);
-                solutionField.set(solutionHolder, result);
+                solutionField.set(state.solutionHolder, result);
                 
                 // Submit to backend
-                System.out.println("MRA: Submitting solution to backend...");
-                logger.logEvent("Submitting solution to backend");
-                boolean success = BackendClient.submitSolution(configName, result, configName);
+                Log.debug("MRA: Submitting solution to backend...");
+                state.logger.logEvent("Submitting solution to backend");
+                boolean success = state.solutionSink.submit(state.configName, result, encodedSolution);
                 if (success) {
-                    System.out.println("MRA: Solution submitted to backend successfully");
-                    logger.logEvent("Solution submitted to backend successfully");
+                    Log.info("MRA: Solution submitted to backend successfully");
+                    state.logger.logEvent("Solution submitted to backend successfully");
                 } else {
-                    System.err.println("MRA: Failed to submit solution to backend");
-                    logger.logEvent("Failed to submit solution to backend");
+                    Log.error("MRA: Failed to submit solution to backend");
+                    state.logger.logEvent("Failed to submit solution to backend");
                 }
             } catch (Exception e) {
-                System.err.println("MRA: Error submitting to backend: " + e.getMessage());
-                logger.log("ERROR: Failed to submit solution to backend: " + e.getMessage());
-                e.printStackTrace();
+                state.logger.log("ERROR: Failed to submit solution to backend: " + e.getMessage());
+                Log.error("MRA: Error submitting to backend: " + e.getMessage(), e);
             }
-            
+        }
+        
+        // A solve started from the request's fleet can finish before the DAs are up
+        if (!state.deliveryAgentsReady && !result.routes.isEmpty()) {
+            state.solvedResult = result;
+            Log.debug(() -> "MRA: Solved before all DAs are ready (" + state.readyDeliveryAgents.size() + "/" +
+                            state.problem.vehicles.size() + ") - routes are assigned once they are");
+            state.logger.logEvent("Solved before all DAs are ready - waiting to assign routes");
+            return;
+        }
+        dispatchRoutes(state, result, availableVehicles);
+    }
+    
+    /**
+     * Assigns the solution's routes to the DAs; in backend mode completion is signalled once
+     * every assignment has been answered (or the acknowledgement deadline passes)
+     */
+    private void dispatchRoutes(RequestState state, SolutionResult result, List<VehicleInfo> availableVehicles) {
+        if (state.solutionLatch != null && state.solutionHolder != null) {
             // After submitting to backend, assign routes to vehicles so they can deliver
             // This allows vehicles to execute deliveries and log all delivery events
             // We assign routes BEFORE signaling completion to ensure agents are still alive
             if (!result.routes.isEmpty()) {
-                System.out.println("MRA: Assigning routes to vehicles for delivery execution...");
-                logger.logEvent("Assigning routes to vehicles for delivery execution");
-                assignRoutes(result, availableVehicles);
-                
-                // Use WakerBehaviour to wait for route assignment responses without blocking agent thread
-                // This allows RouteAssignmentResponseHandler to process responses during the wait
-                System.out.println("MRA: Waiting for route assignment responses (non-blocking)...");
-                logger.logEvent("Waiting for route assignment responses (non-blocking)");
-                
-                // Add a WakerBehaviour that will signal completion after a delay
-                // This doesn't block the agent thread, so RouteAssignmentResponseHandler can process messages
-                addBehaviour(new WakerBehaviour(this, 8000) { // Wait 8 seconds for responses
-                    @Override
-                    protected void onWake() {
-                        System.out.println("MRA: Route assignment wait period completed");
-                        logger.logEvent("Route assignment wait period completed");
-                        
-                        // Signal completion to Main AFTER routes have been assigned and wait period completed
-                        // This ensures agents are still alive to receive route assignments
-                        if (solutionLatch != null && solutionLatch.getCount() > 0) {
-                            solutionLatch.countDown();
-                            System.out.println("MRA: Signaled completion to Main (solution ready, routes assigned)");
-                            logger.logEvent("Signaled completion to Main");
-                        }
-                    }
-                });
-                
-                // Don't signal completion here - let the WakerBehaviour do it after the wait
-                // This allows RouteAssignmentResponseHandler to process responses during the wait
-                return; // Exit this method, let behaviors handle the rest
+                Log.debug("MRA: Assigning routes to vehicles for delivery execution...");
+                state.logger.logEvent("Assigning routes to vehicles for delivery execution");
+                state.pendingRouteAcks = assignRoutes(state, result, availableVehicles);
             } else {
-                System.out.println("MRA: No routes to assign - all customers unserved");
-                logger.logEvent("No routes to assign - all customers unserved");
+                Log.debug("MRA: No routes to assign - all customers unserved");
+                state.logger.logEvent("No routes to assign - all customers unserved");
+            }
+            
+            if (state.pendingRouteAcks <= 0) {
+                signalCompletion(state, "Solution ready, no route assignments to acknowledge");
+                return;
             }
             
-            // Signal completion to Main (only if no routes to assign)
-            // If routes were assigned, WakerBehaviour will signal completion after wait period
-            solutionLatch.countDown();
-            System.out.println("MRA: Signaled completion to Main (solution ready, no routes to assign)");
-            logger.logEvent("Signaled completion to Main");
+            // RouteAssignmentResponseHandler signals completion once the last ack arrives;
+            // this deadline covers DAs that never answer
+            Log.debug(() -> "MRA: Waiting for " + state.pendingRouteAcks + " route assignment responses (non-blocking)...");
+            state.logger.logEvent("Waiting for " + state.pendingRouteAcks + " route assignment responses (non-blocking)");
+            addBehaviour(new WakerBehaviour(this, ROUTE_ACK_TIMEOUT_MS) {
+                @Override
+                protected void onWake() {
+                    signalCompletion(state, "Route assignment deadline reached with " + state.pendingRouteAcks +
+                                     " responses outstanding");
+                }
+            });
         } else {
             // File mode: assign routes to DAs if there are routes
             if (!result.routes.isEmpty()) {
-                assignRoutes(result, availableVehicles);
+                state.pendingRouteAcks = assignRoutes(state, result, availableVehicles);
             } else {
-                System.out.println("MRA: No routes to assign - all customers unserved");
-                logger.logEvent("No routes to assign - all customers unserved");
+                Log.debug("MRA: No routes to assign - all customers unserved");
+                state.logger.logEvent("No routes to assign - all customers unserved");
+            }
+        }
+    }
+    
+    /**
+     * Signals completion to Main once (backend mode) and reports how long each pipeline step took
+     */
+    private void signalCompletion(RequestState state, String reason) {
+        if (state.solutionLatch == null || state.solutionLatch.getCount() == 0) {
+            return;
+        }
+        state.finished = true;
+        long now = System.currentTimeMillis();
+        String timing = state.contractNet
+            // The auction starts once the DAs are ready (they bid)
+            ? "Pipeline timing: DA readiness " + stepMs(state.setupTime, state.readyTime) +
+              ", auction + improvement " + stepMs(state.vehicleInfoTime, state.solvedTime) +
+              ", route acks " + stepMs(state.solvedTime, now) +
+              ", total " + (now - state.setupTime) + " ms"
+            : state.vehiclesFromRequest
+            // Solve and DA start-up overlap; routes go out once both are done
+            ? "Pipeline timing: DA readiness " + stepMs(state.setupTime, state.readyTime) +
+              ", vehicle info skipped" +
+              ", solve " + stepMs(state.vehicleInfoTime, state.solvedTime) + " (concurrent)" +
+              ", route acks " + stepMs(Math.max(state.readyTime, state.solvedTime), now) +
+              ", total " + (now - state.setupTime) + " ms"
+            : "Pipeline timing: DA readiness " + stepMs(state.setupTime, state.readyTime) +
+              ", vehicle info " + stepMs(state.readyTime, state.vehicleInfoTime) +
+              ", solve " + stepMs(state.vehicleInfoTime, state.solvedTime) +
+              ", route acks " + stepMs(state.solvedTime, now) +
+              ", total " + (now - state.setupTime) + " ms";
+        Log.info("MRA: " + reason + "\nMRA: " + timing);
+        Log.debug(() -> "MRA: Dispatcher " + dispatcher.getStatistics() + "\nMRA: DA directory " +
+                        deliveryAgents.getStatistics());
+        state.logger.logEvent(reason);
+        state.logger.logEvent(timing);
+        state.logger.logEvent("Dispatcher: " + dispatcher.getStatistics());
+        state.logger.logEvent("DA directory: " + deliveryAgents.getStatistics());
+        
+        state.solutionLatch.countDown();
+        Log.debug("MRA: Signaled completion to Main");
+        state.logger.logEvent("Signaled completion to Main");
+        
+        if (state.fleetMode) {
+            // The resident MRA keeps running; drop the request's conversations and close its log
+            requests.remove(state.configName, state);
+            for (String conversationId : state.conversationIds) {
+                conversations.remove(conversationId);
+                dispatcher.removeConversation(conversationId);
             }
+            state.logger.close();
         }
     }
     
+    private static String stepMs(long from, long to) {
+        return (from > 0 && to > 0) ? (to - from) + " ms" : "-";
+    }
+    
     /**
      * Assigns routes to Delivery Agents
+     *
+     * @return number of route assignment messages sent (each expects one response)
      */
-    private void assignRoutes(SolutionResult result, List<VehicleInfo> availableVehicles) {
-        System.out.println("\n=== MRA: Assigning Routes to Delivery Agents ===");
-        logger.logEvent("Starting route assignment to " + result.routes.size() + " routes");
+    private int assignRoutes(RequestState state, SolutionResult result, List<VehicleInfo> availableVehicles) {
+        Log.debug("\n=== MRA: Assigning Routes to Delivery Agents ===");
+        state.logger.logEvent("Starting route assignment to " + result.routes.size() + " routes");
+        int sent = 0;
 
         for (int i = 0; i < result.routes.size(); i++) {
             RouteInfo route = result.routes.get(i);
@@ -805,8 +1513,8 @@ public class MasterRoutingAgent extends Agent {
             int vehicleIndex = route.vehicleId - 1;
 
             if (vehicleIndex < 0 || vehicleIndex >= availableVehicles.size()) {
-                System.err.println("MRA: ERROR - Vehicle index " + vehicleIndex + " out of range for route " + routeId);
-                logger.log("ERROR: Route " + routeId + " vehicle index " + vehicleIndex + " out of range");
+                Log.error("MRA: ERROR - Vehicle index " + vehicleIndex + " out of range for route " + routeId);
+                state.logger.log("ERROR: Route " + routeId + " vehicle index " + vehicleIndex + " out of range");
                 continue;
             }
 
@@ -814,66 +1522,45 @@ public class MasterRoutingAgent extends Agent {
             String targetVehicleName = targetVehicle.name;
             route.vehicleName = targetVehicleName;
             
-            System.out.println("MRA: Assigning route " + routeId + " to vehicle index " + vehicleIndex + 
-                             " (registered name: " + targetVehicleName + ")");
-            logger.logEvent("Assigning route " + routeId + " to vehicle: " + targetVehicleName);
+            state.logger.logEvent("Assigning route " + routeId + " to vehicle: " + targetVehicleName);
 
             // Update customer details for the route
-            List<String> customerAgentIds = new ArrayList<>();
+            RouteMessages.RouteAssignment assignment = new RouteMessages.RouteAssignment();
+            assignment.routeId = routeId;
+            assignment.vehicleId = route.vehicleId;
+            assignment.vehicleName = targetVehicleName;
+            assignment.demand = route.totalDemand;
+            assignment.distance = route.totalDistance;
+            assignment.depotX = state.depotX;
+            assignment.depotY = state.depotY;
+            assignment.setCustomerCount(route.customers.size());
             for (int j = 0; j < route.customers.size(); j++) {
                 CustomerInfo customer = route.customers.get(j);
-                // Find matching customer from our list
-                for (CustomerInfo originalCustomer : customers) {
-                    if (originalCustomer.id == customer.id) {
-                        customer.x = originalCustomer.x;
-                        customer.y = originalCustomer.y;
-                        customer.name = originalCustomer.name;
-                        customerAgentIds.add(originalCustomer.name);
-                        break;
-                    }
+                // Route customer IDs are node indices of the problem instance
+                if (customer.id >= 1 && customer.id <= state.problem.customerCount) {
+                    customer.x = state.problem.x[customer.id];
+                    customer.y = state.problem.y[customer.id];
+                    customer.name = state.problem.customerIds[customer.id];
                 }
+                assignment.customerIds[j] = customer.id;
+                assignment.customerNames[j] = customer.name;
+                assignment.x[j] = customer.x;
+                assignment.y[j] = customer.y;
             }
 
-            StringBuilder routeContent = new StringBuilder();
-            routeContent.append("ROUTE:").append(routeId).append("|");
-            routeContent.append("VEHICLE_ID:").append(route.vehicleId).append("|");
-            routeContent.append("VEHICLE_NAME:").append(targetVehicleName).append("|");
-            routeContent.append("CUSTOMERS:");
-            for (int j = 0; j < route.customers.size(); j++) {
-                if (j > 0) routeContent.append(",");
-                routeContent.append(route.customers.get(j).id);
-            }
-            routeContent.append("|CUSTOMER_IDS:");
-            for (int j = 0; j < customerAgentIds.size(); j++) {
-                if (j > 0) routeContent.append(",");
-                routeContent.append(customerAgentIds.get(j));
-            }
-            routeContent.append("|COORDS:");
-            for (int j = 0; j < route.customers.size(); j++) {
-                if (j > 0) routeContent.append(";");
-                CustomerInfo customer = route.customers.get(j);
-                routeContent.append(String.format("%.2f", customer.x)).append(",").append(String.format("%.2f", customer.y));
-            }
-            routeContent.append("|DEMAND:").append(route.totalDemand);
-            routeContent.append("|DISTANCE:").append(String.format("%.2f", route.totalDistance));
-            routeContent.append("|DEPOT_X:").append(String.format("%.2f", depotX));
-            routeContent.append("|DEPOT_Y:").append(String.format("%.2f", depotY));
-
             // Find DA by vehicle name (should match exactly with DA local name)
-            AID daAID = findDAByName(targetVehicleName);
+            AID daAID = findDAByName(state, targetVehicleName);
             if (daAID == null) {
-                System.err.println("MRA: ERROR - Could not find DA for vehicle " + targetVehicleName);
-                logger.log("ERROR: Could not find DA for vehicle " + targetVehicleName);
-                System.err.println("MRA: Available vehicles in registeredVehicles: " + 
-                                 registeredVehicles.keySet().toString());
-                logger.log("Available vehicles in registeredVehicles: " + 
-                          registeredVehicles.keySet().toString());
+                Log.error("MRA: ERROR - Could not find DA for vehicle " + targetVehicleName + "\n" +
+                          "MRA: Available vehicles in registeredVehicles: " + state.registeredVehicles.keySet());
+                state.logger.log("ERROR: Could not find DA for vehicle " + targetVehicleName);
+                state.logger.log("Available vehicles in registeredVehicles: " + 
+                          state.registeredVehicles.keySet().toString());
                 continue;
             }
             
             String daName = daAID.getLocalName();
-            System.out.println("MRA: Found DA " + daName + " for vehicle " + targetVehicleName);
-            logger.logEvent("Found DA " + daName + " for vehicle " + targetVehicleName);
+            state.logger.logEvent("Found DA " + daName + " for vehicle " + targetVehicleName);
 
             // Create route assignment message
             ACLMessage routeAssignment = new ACLMessage(ACLMessage.REQUEST);
@@ -882,113 +1569,111 @@ public class MasterRoutingAgent extends Agent {
             routeAssignment.setOntology("route-assignment");
             String conversationId = "route-assignment-" + routeId + "-" + targetVehicleName + "-" + System.currentTimeMillis();
             routeAssignment.setConversationId(conversationId);
-            routeAssignment.setContent("ROUTE_ASSIGNMENT:" + routeContent);
+            registerConversation(state, conversationId, routeResponseRoute);
+            RouteMessages.write(routeAssignment, assignment);
 
-            // Log route assignment details before sending
-            System.out.println("\n=== MRA: Assigning Route " + routeId + " to DA ===");
-            System.out.println("MRA: Route Assignment Message Details:");
-            System.out.println("  Route ID: " + routeId);
-            System.out.println("  Vehicle: " + targetVehicleName);
-            System.out.println("  DA: " + daName);
-            System.out.println("  To: " + daAID.getName());
-            System.out.println("  Performative: REQUEST");
-            System.out.println("  Protocol: " + FIPANames.InteractionProtocol.FIPA_REQUEST);
-            System.out.println("  Ontology: route-assignment");
-            System.out.println("  Conversation ID: " + conversationId);
-            System.out.println("  Customers: " + route.customers.size());
-            System.out.println("  Total Demand: " + route.totalDemand + " items");
-            System.out.println("  Total Distance: " + String.format("%.2f", route.totalDistance));
-            
-            // List customer details
-            System.out.println("  Customer List:");
-            for (int j = 0; j < route.customers.size(); j++) {
-                CustomerInfo customer = route.customers.get(j);
-                System.out.println("    " + (j + 1) + ". Customer " + customer.name + 
-                                 " (ID: " + customer.id + ") at (" + 
-                                 String.format("%.2f", customer.x) + ", " + 
-                                 String.format("%.2f", customer.y) + 
-                                 "), demand: " + customer.demand);
+            // Route assignment details before sending (customer list only at TRACE)
+            if (Log.isDebugEnabled()) {
+                Log.debug(describeRouteAssignment(routeId, route, targetVehicleName, daAID, conversationId,
+                                                  RouteMessages.describe(routeAssignment),
+                                                  RouteMessages.contentLength(routeAssignment)));
             }
-            
-            // Log the message content (truncated if too long)
-            String fullContent = "ROUTE_ASSIGNMENT:" + routeContent;
-            if (fullContent.length() > 500) {
-                System.out.println("  Message Content (first 500 chars): " + fullContent.substring(0, 500) + "...");
-                System.out.println("  Message Content Length: " + fullContent.length() + " characters");
-            } else {
-                System.out.println("  Message Content: " + fullContent);
-            }
-            System.out.println("=====================================\n");
 
             // Log conversation start with detailed information
-            logger.logConversationStart(conversationId,
+            state.logger.logConversationStart(conversationId,
                 "Route " + routeId + " assignment to DA " + daName + 
                 " (vehicle: " + targetVehicleName + 
                 ", customers: " + route.customers.size() + 
                 ", demand: " + route.totalDemand + 
                 ", distance: " + String.format("%.2f", route.totalDistance) + ")");
             
-            logger.logEvent("Sending route assignment message: Route " + routeId + 
+            state.logger.logEvent("Sending route assignment message: Route " + routeId + 
                           " to DA " + daName + " (vehicle: " + targetVehicleName + ")");
             
             // Log the sent message with full details
-            logger.logSent(routeAssignment);
+            state.logger.logSent(routeAssignment);
             
             // Send the route assignment
             send(routeAssignment);
+            sent++;
 
-            System.out.println("MRA: ✓ Route assignment message sent to DA " + daName + 
-                             " for route " + routeId);
-            logger.logEvent("Route assignment message sent successfully to DA " + daName + 
+            Log.debug(() -> "MRA: ✓ Route assignment message sent to DA " + daName + " for route " + routeId);
+            state.logger.logEvent("Route assignment message sent successfully to DA " + daName + 
                           " for route " + routeId);
         }
 
-        System.out.println("MRA: Completed route assignment for " + result.routes.size() + " routes");
-        logger.logEvent("Completed route assignment for " + result.routes.size() + " routes");
+        Log.info("MRA: Completed route assignment for " + result.routes.size() + " routes");
+        state.logger.logEvent("Completed route assignment for " + result.routes.size() + " routes");
+        return sent;
     }
     
     /**
-     * Finds Delivery Agent by vehicle name
-     * Vehicle names should match exactly with DA local names (both include request ID)
+     * Route assignment message details (DEBUG output; the customer list is added at TRACE)
      */
-    private AID findDAByName(String vehicleName) {
-        try {
-            List<AID> daAIDs = findDeliveryAgentsViaDF();
-            System.out.println("MRA: Searching for DA with vehicle name: " + vehicleName);
-            System.out.println("MRA: Found " + daAIDs.size() + " DAs via DF:");
-            for (AID daAID : daAIDs) {
-                String daName = daAID.getLocalName();
-                System.out.println("MRA:   - DA: " + daName);
-                
-                // Exact match (most common case - both have request ID)
-                if (daName.equals(vehicleName)) {
-                    System.out.println("MRA: Found exact match: " + daName + " = " + vehicleName);
-                    logger.logEvent("Found DA by exact name match: " + daName);
-                    return daAID;
-                }
-                
-                // Check if vehicle name is a prefix of DA name (e.g., "DA1" in "DA1-request-id")
-                // This handles cases where vehicle name doesn't include request ID
-                if (daName.startsWith(vehicleName + "-")) {
-                    System.out.println("MRA: Found prefix match: " + daName + " starts with " + vehicleName);
-                    logger.logEvent("Found DA by prefix match: " + daName + " starts with " + vehicleName);
-                    return daAID;
-                }
+    private static String describeRouteAssignment(String routeId, RouteInfo route, String vehicleName, AID daAID,
+                                                  String conversationId, String fullContent, int contentLength) {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("\n=== MRA: Assigning Route ").append(routeId).append(" to DA ===\n");
+        out.append("MRA: Route Assignment Message Details:\n");
+        out.append("  Route ID: ").append(routeId).append('\n');
+        out.append("  Vehicle: ").append(vehicleName).append('\n');
+        out.append("  DA: ").append(daAID.getLocalName()).append('\n');
+        out.append("  To: ").append(daAID.getName()).append('\n');
+        out.append("  Performative: REQUEST\n");
+        out.append("  Protocol: ").append(FIPANames.InteractionProtocol.FIPA_REQUEST).append('\n');
+        out.append("  Ontology: route-assignment\n");
+        out.append("  Conversation ID: ").append(conversationId).append('\n');
+        out.append("  Customers: ").append(route.customers.size()).append('\n');
+        out.append("  Total Demand: ").append(route.totalDemand).append(" items\n");
+        out.append("  Total Distance: ").append(String.format("%.2f", route.totalDistance)).append('\n');
+        if (Log.isTraceEnabled()) {
+            out.append("  Customer List:\n");
+            for (int j = 0; j < route.customers.size(); j++) {
+                CustomerInfo customer = route.customers.get(j);
+                out.append("    ").append(j + 1).append(". Customer ").append(customer.name)
+                   .append(" (ID: ").append(customer.id).append(") at (")
+                   .append(String.format("%.2f", customer.x)).append(", ")
+                   .append(String.format("%.2f", customer.y)).append("), demand: ").append(customer.demand).append('\n');
             }
-            
-            System.err.println("MRA: ERROR - Could not find DA with vehicle name: " + vehicleName);
-            System.err.println("MRA: Available DAs: " + daAIDs.stream()
-                .map(AID::getLocalName)
-                .collect(java.util.stream.Collectors.joining(", ")));
-            logger.log("ERROR: Could not find DA with vehicle name: " + vehicleName);
-            logger.log("Available DAs: " + daAIDs.stream()
-                .map(AID::getLocalName)
-                .collect(java.util.stream.Collectors.joining(", ")));
-        } catch (Exception e) {
-            System.err.println("MRA: Error finding DA by name: " + e.getMessage());
-            e.printStackTrace();
-            logger.log("ERROR: Exception while finding DA by name: " + e.getMessage());
         }
+        // Message content (binary content is shown as JSON), truncated if too long
+        out.append("  Encoding: ").append(RouteMessages.ENCODING).append(", ").append(contentLength)
+           .append(RouteMessages.ENCODING == RouteMessages.Encoding.BINARY ? " bytes\n" : " characters\n");
+        if (fullContent.length() > 500) {
+            out.append("  Message Content (first 500 chars): ").append(fullContent, 0, 500).append("...\n");
+        } else {
+            out.append("  Message Content: ").append(fullContent).append('\n');
+        }
+        out.append("=====================================\n");
+        return out.toString();
+    }
+    
+    /**
+     * Finds Delivery Agent by vehicle name
+     * Vehicle names should match exactly with DA local names (both include request ID,
+     * or neither in fleet mode)
+     */
+    private AID findDAByName(RequestState state, String vehicleName) {
+        if (state.fleetMode) {
+            // Resident DAs are named after their vehicle
+            return new AID(vehicleName, AID.ISLOCALNAME);
+        }
+        // Known DAs (no DF round trip unless the name is not known yet)
+        AID daAID = deliveryAgents.find(vehicleName);
+        if (daAID != null) {
+            String daName = daAID.getLocalName();
+            Log.debug(() -> "MRA: Found DA " + daName + " for vehicle " + vehicleName);
+            state.logger.logEvent("Found DA by name: " + daName);
+            return daAID;
+        }
+        
+        String available = deliveryAgents.getAll().stream()
+            .map(AID::getLocalName)
+            .collect(java.util.stream.Collectors.joining(", "));
+        Log.error("MRA: ERROR - Could not find DA with vehicle name: " + vehicleName + "\n" +
+                  "MRA: Available DAs: " + available);
+        state.logger.log("ERROR: Could not find DA with vehicle name: " + vehicleName);
+        state.logger.log("Available DAs: " + available);
         return null;
     }
     
@@ -1007,48 +1692,39 @@ public class MasterRoutingAgent extends Agent {
             dfd.addServices(sd);
             
             DFService.register(this, dfd); 
-            System.out.println("MRA: Registered with DF as 'mra-service'");
+            Log.debug("MRA: Registered with DF as 'mra-service'");
             logger.logEvent("DF Registration successful");
         } catch (FIPAException fe) {
-            System.err.println("MRA: Failed to register with DF: " + fe.getMessage());
-        }
-    }
-    
-    /**
-     * Finds Delivery Agents via DF
-     */
-    private List<AID> findDeliveryAgentsViaDF() {
-        List<AID> daAIDs = new ArrayList<>();
-        try {
-            DFAgentDescription dfd = new DFAgentDescription();
-            ServiceDescription sd = new ServiceDescription();
-            sd.setType("da-service");
-            dfd.addServices(sd);
-            
-            DFAgentDescription[] results = DFService.search(this, dfd);
-            for (DFAgentDescription result : results) {
-                daAIDs.add(result.getName());
-            }
-            System.out.println("MRA: Found " + daAIDs.size() + " Delivery Agents via DF");
-            logger.log("DF Search: Found " + daAIDs.size() + " Delivery Agents via 'da-service'");
-        } catch (FIPAException fe) {
-            System.err.println("MRA: Error searching DF for Delivery Agents: " + fe.getMessage());
+            Log.error("MRA: Failed to register with DF: " + fe.getMessage());
         }
-        return daAIDs;
     }
     
     @Override
     protected void takeDown() {
         logger.logEvent("Agent terminating");
+        
+        // Stop searches that are still running for this agent
+        Set<RequestState> activeRequests = new HashSet<>(conversations.values());
+        if (setupRequest != null) {
+            activeRequests.add(setupRequest);
+        }
+        for (RequestState state : activeRequests) {
+            if (state.solveFuture != null && !state.solveFuture.isDone()) {
+                state.solver.cancel();
+                state.solveFuture.cancel(false);
+            }
+        }
+
+        deliveryAgents.cancel();
         try {
             DFService.deregister(this);
-            System.out.println("MRA: Deregistered from DF");
+            Log.debug("MRA: Deregistered from DF");
             logger.logEvent("Deregistered from DF");
         } catch (FIPAException fe) {
-            System.err.println("MRA: Error deregistering from DF: " + fe.getMessage());
+            Log.error("MRA: Error deregistering from DF: " + fe.getMessage());
             logger.log("ERROR: Failed to deregister from DF: " + fe.getMessage());
         }
-        System.out.println("Master Routing Agent " + getAID().getName() + " terminating.");
+        Log.info("Master Routing Agent " + getAID().getName() + " terminating.");
         logger.close();
     }
 }
@@ -0,0 +1,165 @@
+package project.Agent;
+
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single mailbox reader of an agent: drains the queue each time the behaviour runs and hands
+ * every message to the handler registered for its conversation ID, else for its ontology,
+ * else to the fallback handler, so no message is left in the queue or scanned by several
+ * templates.
+ *
+ * Lookups are two HashMap gets on the message's own strings; routes and their counters are
+ * allocated once at registration. Counts messages, drains, mailbox depth and time spent in
+ * each handler (see {@link #getStatistics()}).
+ *
+ * All methods run on the agent thread (behaviours and registration from its other behaviours).
+ */
+public class MessageDispatcher extends CyclicBehaviour {
+
+    /**
+     * Handles one dispatched message
+     */
+    public interface Handler {
+        void handle(ACLMessage msg);
+    }
+
+    /**
+     * A registered handler with its counters (one route can serve several keys)
+     */
+    public static class Route {
+        public final String name;
+        final Handler handler;
+        public long messages;
+        public long totalNanos;
+        public long maxNanos;
+
+        Route(String name, Handler handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+    }
+
+    private final Map<String, Route> byConversation = new HashMap<>();
+    private final Map<String, Route> byOntology = new HashMap<>();
+    private final List<Route> routes = new ArrayList<>();
+    private final Route fallback;
+
+    private long drains;
+    private long messages;
+    private int maxMailboxDepth;
+    private long mailboxDepthSum;
+
+    /**
+     * @param fallback handles messages that match no conversation or ontology
+     */
+    public MessageDispatcher(Agent agent, Handler fallback) {
+        super(agent);
+        this.fallback = route("unhandled", fallback);
+    }
+
+    /**
+     * Registers a handler; bind it to keys with {@link #onOntology} and {@link #onConversation}
+     */
+    public Route route(String name, Handler handler) {
+        Route route = new Route(name, handler);
+        routes.add(route);
+        return route;
+    }
+
+    public void onOntology(String ontology, Route route) {
+        byOntology.put(ontology, route);
+    }
+
+    public void onConversation(String conversationId, Route route) {
+        byConversation.put(conversationId, route);
+    }
+
+    public void removeConversation(String conversationId) {
+        byConversation.remove(conversationId);
+    }
+
+    @Override
+    public void action() {
+        int depth = myAgent.getCurQueueSize();
+        if (depth > 0) {
+            drains++;
+            mailboxDepthSum += depth;
+            if (depth > maxMailboxDepth) {
+                maxMailboxDepth = depth;
+            }
+        }
+        ACLMessage msg;
+        while ((msg = myAgent.receive()) != null) {
+            dispatch(msg);
+        }
+        block();
+    }
+
+    private void dispatch(ACLMessage msg) {
+        Route route = null;
+        String conversationId = msg.getConversationId();
+        if (conversationId != null) {
+            route = byConversation.get(conversationId);
+        }
+        if (route == null) {
+            String ontology = msg.getOntology();
+            if (ontology != null) {
+                route = byOntology.get(ontology);
+            }
+            if (route == null) {
+                route = fallback;
+            }
+        }
+        messages++;
+        long start = System.nanoTime();
+        try {
+            route.handler.handle(msg);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            route.messages++;
+            route.totalNanos += elapsed;
+            if (elapsed > route.maxNanos) {
+                route.maxNanos = elapsed;
+            }
+        }
+    }
+
+    public long getMessageCount() {
+        return messages;
+    }
+
+    public long getUnhandledCount() {
+        return fallback.messages;
+    }
+
+    public int getMaxMailboxDepth() {
+        return maxMailboxDepth;
+    }
+
+    /**
+     * One-line summary: messages, mailbox depth and per-handler count / mean / max latency
+     */
+    public String getStatistics() {
+        StringBuilder out = new StringBuilder(128 + 64 * routes.size());
+        out.append("messages=").append(messages)
+           .append(", drains=").append(drains)
+           .append(", meanMailboxDepth=").append(drains > 0 ? String.format("%.1f", (double) mailboxDepthSum / drains) : "0")
+           .append(", maxMailboxDepth=").append(maxMailboxDepth)
+           .append(", openConversations=").append(byConversation.size());
+        for (Route route : routes) {
+            if (route.messages > 0) {
+                out.append(", ").append(route.name).append('=').append(route.messages)
+                   .append(String.format(" (mean %.1f us, max %.1f us)",
+                       route.totalNanos / 1e3 / route.messages, route.maxNanos / 1e3));
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package project.Agent;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import project.General.ProblemInstance;
+import project.General.SolutionResult;
+import project.General.SolutionSink;
+import project.General.VehicleInfo;
+import project.Solver.ContractNetPlanner;
+import project.Solver.VRPSolver;
+import project.Utils.AgentLogger;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-request state of the Master Routing Agent.
+ * One MRA can work on several requests; every conversation it starts is mapped back
+ * to the RequestState it belongs to.
+ */
+class RequestState {
+    // Request identity and configuration
+    final String configName;
+    final ProblemInstance problem;  // Node-indexed problem data (customer i = node i + 1)
+    final boolean fleetMode;  // DAs are resident and bound to this request by message
+    List<String> deliveryAgentNames;  // Fleet mode: resident DAs leased for problem.vehicles (same order)
+    String logFolder;  // Request-scoped log folder (null = shared current folder)
+    SolutionSink solutionSink;  // Receives the solution (backend or embedded intake)
+
+    // Depot location
+    final double depotX;
+    final double depotY;
+
+    // Vehicle management (insertion order = route vehicle index when taken from the request)
+    final Map<String, VehicleInfo> registeredVehicles = new LinkedHashMap<>();
+    boolean vehiclesFromRequest;  // Registered from the request's fleet, without the vehicle info query
+    String vehicleQueryConversationId;  // Live vehicle info: the one multicast query
+    int expectedVehicleCount;  // Number of vehicles expected to respond
+    int receivedVehicleCount;  // Number of vehicles that have responded
+    boolean allVehiclesReceived;  // Flag to indicate all vehicles have responded
+
+    // Event-driven pipeline progress
+    final Set<String> readyDeliveryAgents = new HashSet<>();  // DAs that announced DA_READY / DA_BOUND
+    boolean deliveryAgentsReady;  // All DAs announced (or the readiness deadline passed)
+    boolean solveStarted;
+    SolutionResult solvedResult;  // Solution waiting for the DAs to become ready
+    int pendingRouteAcks;  // Route assignments still waiting for ROUTE_ACCEPTED/ROUTE_REJECTED
+    boolean finished;  // Completion signalled (or cancelled): late deadlines and solve outcomes are dropped
+
+    // Pipeline timestamps (ms) for latency measurement; 0 = step not reached
+    final long setupTime = System.currentTimeMillis();
+    long readyTime;
+    long vehicleInfoTime;
+    long solvedTime;
+
+    // Conversations started for this request (removed from the MRA's index when finished)
+    final Set<String> conversationIds = new HashSet<>();
+
+    // Per-request collaborators (one solver instance per request so solves can run in parallel)
+    final AgentLogger logger;
+    final VRPSolver solver;
+    final DepotProblemAssembler problemAssembler;
+
+    // Solve running on the solver executor
+    Future<?> solveFuture;
+    final AtomicBoolean solveClaimed = new AtomicBoolean();  // Taken by the solve task when it starts, or by cancelSolve first
+    List<VehicleInfo> solveVehicles;  // Vehicles the solve was started with (route index -> vehicle)
+
+    // Contract-Net assignment: customers auctioned to the DAs instead of the central solve
+    boolean contractNet;
+    ContractNetPlanner auction;
+    String auctionConversationId;
+    AID[] bidders;  // DA of each solve vehicle (null if not found)
+    final Map<String, Integer> bidderIndex = new HashMap<>();  // DA local name -> vehicle index
+    ACLMessage[] proposals;  // This round's PROPOSE per vehicle, answered with accept / reject
+    int pendingBids;  // CFP replies still expected this round
+    boolean[] awaitingAwardResult;
+    int pendingAwardResults;
+    boolean auctionClosed;
+
+    // Backend mode support
+    final CountDownLatch solutionLatch;
+    final Object solutionHolder;  // Will be cast to Main.SolutionHolder
+
+    RequestState(String configName, ProblemInstance problem, boolean fleetMode,
+                 AgentLogger logger, VRPSolver solver, DepotProblemAssembler problemAssembler,
+                 CountDownLatch solutionLatch, Object solutionHolder) {
+        this.configName = configName;
+        this.problem = problem;
+        this.fleetMode = fleetMode;
+        this.logger = logger;
+        this.solver = solver;
+        this.problemAssembler = problemAssembler;
+        this.solutionLatch = solutionLatch;
+        this.solutionHolder = solutionHolder;
+
+        depotX = problem.getDepotX();
+        depotY = problem.getDepotY();
+    }
+}
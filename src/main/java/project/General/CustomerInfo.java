@@ -9,6 +9,7 @@ public class CustomerInfo {
     public double y;
     public int demand;  // Number of items requested
     public String name;
+    public String unservedReason;  // Reason code when reported as unserved (null if served or dropped by solver)
 
     public CustomerInfo(int id, double x, double y, int demand) {
         this.id = id;
@@ -0,0 +1,128 @@
+package project.General;
+
+import project.Utils.JsonConfigReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar problem model shared by the intake, the MRA, the problem assembler and the solver.
+ *
+ * Customers are stored as primitive node-indexed arrays: index 0 is the depot, customer i
+ * (in request order) is node i + 1, the same convention the solver uses, so the arrays can be
+ * handed on without copying. Time windows are two parallel arrays; nodes without a window
+ * hold NO_WINDOW in both.
+ */
+public class ProblemInstance {
+    public static final long NO_WINDOW = Long.MIN_VALUE;
+
+    public String depotName;
+    public int customerCount;
+    public String[] customerIds;  // Node-indexed; entry 0 is the depot name
+    public double[] x;
+    public double[] y;
+    public int[] demand;
+    public long[] windowStart;
+    public long[] windowEnd;
+    public List<JsonConfigReader.VehicleConfig> vehicles = new ArrayList<>();
+
+    /**
+     * Creates an instance with room for the given number of customers
+     */
+    public ProblemInstance(int customerCount) {
+        this.customerCount = customerCount;
+        int nodes = customerCount + 1;
+        customerIds = new String[nodes];
+        x = new double[nodes];
+        y = new double[nodes];
+        demand = new int[nodes];
+        windowStart = new long[nodes];
+        windowEnd = new long[nodes];
+        Arrays.fill(windowStart, NO_WINDOW);
+        Arrays.fill(windowEnd, NO_WINDOW);
+    }
+
+    /**
+     * Creates an instance over existing node-indexed columns (entry 0 is the depot)
+     */
+    public ProblemInstance(String[] customerIds, double[] x, double[] y, int[] demand,
+                           long[] windowStart, long[] windowEnd) {
+        this.customerCount = x.length - 1;
+        this.depotName = customerIds[0];
+        this.customerIds = customerIds;
+        this.x = x;
+        this.y = y;
+        this.demand = demand;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+    }
+
+    /**
+     * Builds an instance from a file-based configuration
+     */
+    public static ProblemInstance fromConfig(JsonConfigReader.CVRPConfig config) {
+        ProblemInstance problem = new ProblemInstance(config.customers.size());
+        problem.depotName = config.depot.name;
+        problem.customerIds[0] = config.depot.name;
+        problem.x[0] = config.depot.x;
+        problem.y[0] = config.depot.y;
+        for (int i = 0; i < config.customers.size(); i++) {
+            JsonConfigReader.CustomerConfig customer = config.customers.get(i);
+            int node = i + 1;
+            problem.customerIds[node] = customer.id;
+            problem.x[node] = customer.x;
+            problem.y[node] = customer.y;
+            problem.demand[node] = customer.demand;
+            if (customer.timeWindow != null && customer.timeWindow.length >= 2) {
+                problem.windowStart[node] = customer.timeWindow[0];
+                problem.windowEnd[node] = customer.timeWindow[1];
+            }
+        }
+        problem.vehicles.addAll(config.vehicles);
+        return problem;
+    }
+
+    public double getDepotX() {
+        return x[0];
+    }
+
+    public double getDepotY() {
+        return y[0];
+    }
+
+    public boolean hasTimeWindow(int node) {
+        return windowStart[node] != NO_WINDOW;
+    }
+
+    public boolean hasTimeWindows() {
+        for (int node = 1; node <= customerCount; node++) {
+            if (windowStart[node] != NO_WINDOW) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Time window of a node as {start, end}, or null if it has none
+     */
+    public long[] getTimeWindow(int node) {
+        return hasTimeWindow(node) ? new long[]{windowStart[node], windowEnd[node]} : null;
+    }
+
+    public int getTotalDemand() {
+        int total = 0;
+        for (int node = 1; node <= customerCount; node++) {
+            total += demand[node];
+        }
+        return total;
+    }
+
+    /**
+     * Customer of a node as reported in results (ID = node index, name = request customer ID)
+     */
+    public CustomerInfo toCustomerInfo(int node) {
+        return new CustomerInfo(node, x[node], y[node], demand[node], customerIds[node]);
+    }
+}
@@ -0,0 +1,36 @@
+package project.General;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asks a resident MRA (fleet mode) through O2A to abandon a request Main stopped waiting for.
+ * The MRA stops the request's solve or auction, drops its conversations and signals its
+ * completion, then acknowledges; from then on it sends nothing more for the request.
+ */
+public class RequestCancellation {
+    public final String requestId;
+    public final String reason;
+    private final CountDownLatch acknowledged = new CountDownLatch(1);
+
+    public RequestCancellation(String requestId, String reason) {
+        this.requestId = requestId;
+        this.reason = reason;
+    }
+
+    /**
+     * Called by the MRA once the request is cancelled (or was already finished)
+     */
+    public void acknowledge() {
+        acknowledged.countDown();
+    }
+
+    /**
+     * Waits for the MRA to acknowledge the cancellation
+     *
+     * @return true if acknowledged within the timeout
+     */
+    public boolean awaitAcknowledgement(long timeout, TimeUnit unit) throws InterruptedException {
+        return acknowledged.await(timeout, unit);
+    }
+}
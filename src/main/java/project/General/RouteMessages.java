@@ -0,0 +1,1365 @@
+package project.General;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import jade.lang.acl.ACLMessage;
+import project.Utils.Log;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed contents of the messages exchanged by the MRA and the DAs: the vehicle info reply,
+ * the route assignment and the route response (accepted or rejected), with their encodings,
+ * and the Contract-Net bidding messages (customer batch, bids, award, award result).
+ *
+ * Encodings (-Dcvrp.acl.encoding, same for both agents):
+ *   binary - compact little-endian byte-sequence content, language "cvrp-binary" (default)
+ *   json   - JSON string content, language "cvrp-json", readable in logs and sniffers
+ *   text   - the original "KEY:value|..." string content (bidding messages, which have no
+ *            original format, are sent as JSON)
+ * Readers pick the decoder from the message's language, so any encoding is understood
+ * whatever the local setting. A binary message is an exactly sized byte array written in
+ * one pass; coordinates and distances keep full double precision.
+ *
+ * Decoders throw IllegalArgumentException for malformed content.
+ */
+public final class RouteMessages {
+
+    public enum Encoding { BINARY, JSON, TEXT }
+
+    public static final String LANGUAGE_BINARY = "cvrp-binary";
+    public static final String LANGUAGE_JSON = "cvrp-json";
+
+    public static final Encoding ENCODING = initialEncoding();
+
+    // Binary message types (first byte) and format version (second byte)
+    private static final byte TYPE_VEHICLE_INFO = 1;
+    private static final byte TYPE_ROUTE_ASSIGNMENT = 2;
+    private static final byte TYPE_ROUTE_RESPONSE = 3;
+    private static final byte TYPE_CUSTOMER_BATCH = 4;
+    private static final byte TYPE_BIDS = 5;
+    private static final byte TYPE_AWARD = 6;
+    private static final byte TYPE_AWARD_RESULT = 7;
+    private static final byte VERSION = 1;
+
+    private static final String ASSIGNMENT_PREFIX = "ROUTE_ASSIGNMENT:";
+    private static final String ACCEPTED_PREFIX = "ROUTE_ACCEPTED:";
+    private static final String REJECTED_PREFIX = "ROUTE_REJECTED:";
+
+    private RouteMessages() {
+    }
+
+    private static Encoding initialEncoding() {
+        String configured = System.getProperty("cvrp.acl.encoding", "binary");
+        try {
+            return Encoding.valueOf(configured.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Log.warn("RouteMessages: Unknown encoding '" + configured + "', using binary");
+            return Encoding.BINARY;
+        }
+    }
+
+    /**
+     * Reply of a DA to a vehicle info query
+     */
+    public static class VehicleInfoMessage {
+        public String name;
+        public int capacity = -1;              // -1 = not given
+        public double maxDistance = Double.NaN;  // NaN = not given
+        public double x;
+        public double y;
+    }
+
+    /**
+     * Route sent by the MRA to one DA; customers are parallel arrays in visiting order
+     */
+    public static class RouteAssignment {
+        public String routeId;
+        public int vehicleId;
+        public String vehicleName;
+        public int demand;
+        public double distance;
+        public double depotX;
+        public double depotY;
+        public int[] customerIds = new int[0];        // Node indices in the problem instance
+        public String[] customerNames = new String[0];
+        public double[] x = new double[0];
+        public double[] y = new double[0];
+
+        public int size() {
+            return customerIds.length;
+        }
+
+        public void setCustomerCount(int count) {
+            customerIds = new int[count];
+            customerNames = new String[count];
+            x = new double[count];
+            y = new double[count];
+        }
+    }
+
+    /**
+     * Answer of a DA to a route assignment; demand, distance and customers are set when
+     * accepted, reason and details when rejected
+     */
+    public static class RouteResponse {
+        public boolean accepted;
+        public String routeId;
+        public String vehicleName;
+        public int demand;
+        public double distance;
+        public int customers;
+        public String reason;
+        public String details;
+
+        public String getStatus() {
+            return accepted ? "ACCEPTED" : "REJECTED";
+        }
+    }
+
+
+    /**
+     * Contract-Net call for proposals: customers of one bidding round, with the depot
+     */
+    public static class CustomerBatch {
+        public int round;
+        public double depotX;
+        public double depotY;
+        public int[] customerIds = new int[0];  // Node indices in the problem instance
+        public double[] x = new double[0];
+        public double[] y = new double[0];
+        public int[] demand = new int[0];
+
+        public int size() {
+            return customerIds.length;
+        }
+
+        public void setCustomerCount(int count) {
+            customerIds = new int[count];
+            x = new double[count];
+            y = new double[count];
+            demand = new int[count];
+        }
+    }
+
+    /**
+     * A DA's proposal: marginal insertion cost of each batch customer it can take
+     */
+    public static class Bids {
+        public int round;
+        public int[] customerIds = new int[0];
+        public double[] costs = new double[0];
+
+        public int size() {
+            return customerIds.length;
+        }
+    }
+
+    /**
+     * Customers awarded to a DA in one round, to insert in the given order
+     */
+    public static class Award {
+        public int round;
+        public int[] customerIds = new int[0];
+    }
+
+    /**
+     * A DA's tentative route after inserting its award, and the awarded customers that no
+     * longer fit
+     */
+    public static class AwardResult {
+        public int round;
+        public int[] route = new int[0];
+        public int[] failed = new int[0];
+        public int load;
+        public double distance;
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    public static void write(ACLMessage msg, VehicleInfoMessage info) {
+        switch (ENCODING) {
+            case BINARY:
+                msg.setLanguage(LANGUAGE_BINARY);
+                msg.setByteSequenceContent(encodeBinary(info));
+                break;
+            case JSON:
+                msg.setLanguage(LANGUAGE_JSON);
+                msg.setContent(encodeJson(info));
+                break;
+            default:
+                msg.setContent(encodeText(info));
+        }
+    }
+
+    public static void write(ACLMessage msg, RouteAssignment route) {
+        switch (ENCODING) {
+            case BINARY:
+                msg.setLanguage(LANGUAGE_BINARY);
+                msg.setByteSequenceContent(encodeBinary(route));
+                break;
+            case JSON:
+                msg.setLanguage(LANGUAGE_JSON);
+                msg.setContent(encodeJson(route));
+                break;
+            default:
+                msg.setContent(encodeText(route));
+        }
+    }
+
+    public static void write(ACLMessage msg, RouteResponse response) {
+        switch (ENCODING) {
+            case BINARY:
+                msg.setLanguage(LANGUAGE_BINARY);
+                msg.setByteSequenceContent(encodeBinary(response));
+                break;
+            case JSON:
+                msg.setLanguage(LANGUAGE_JSON);
+                msg.setContent(encodeJson(response));
+                break;
+            default:
+                msg.setContent(encodeText(response));
+        }
+    }
+
+    public static void write(ACLMessage msg, CustomerBatch batch) {
+        if (ENCODING == Encoding.BINARY) {
+            msg.setLanguage(LANGUAGE_BINARY);
+            msg.setByteSequenceContent(encodeBinary(batch));
+        } else {
+            msg.setLanguage(LANGUAGE_JSON);
+            msg.setContent(encodeJson(batch));
+        }
+    }
+
+    public static void write(ACLMessage msg, Bids bids) {
+        if (ENCODING == Encoding.BINARY) {
+            msg.setLanguage(LANGUAGE_BINARY);
+            msg.setByteSequenceContent(encodeBinary(bids));
+        } else {
+            msg.setLanguage(LANGUAGE_JSON);
+            msg.setContent(encodeJson(bids));
+        }
+    }
+
+    public static void write(ACLMessage msg, Award award) {
+        if (ENCODING == Encoding.BINARY) {
+            msg.setLanguage(LANGUAGE_BINARY);
+            msg.setByteSequenceContent(encodeBinary(award));
+        } else {
+            msg.setLanguage(LANGUAGE_JSON);
+            msg.setContent(encodeJson(award));
+        }
+    }
+
+    public static void write(ACLMessage msg, AwardResult result) {
+        if (ENCODING == Encoding.BINARY) {
+            msg.setLanguage(LANGUAGE_BINARY);
+            msg.setByteSequenceContent(encodeBinary(result));
+        } else {
+            msg.setLanguage(LANGUAGE_JSON);
+            msg.setContent(encodeJson(result));
+        }
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    public static VehicleInfoMessage readVehicleInfo(ACLMessage msg) {
+        String language = msg.getLanguage();
+        if (LANGUAGE_BINARY.equals(language)) {
+            return decodeVehicleInfo(binaryContent(msg));
+        }
+        String content = requireContent(msg);
+        return LANGUAGE_JSON.equals(language) ? decodeJson(content, VehicleInfoMessage.class) : decodeVehicleInfoText(content);
+    }
+
+    public static RouteAssignment readRouteAssignment(ACLMessage msg) {
+        String language = msg.getLanguage();
+        if (LANGUAGE_BINARY.equals(language)) {
+            return decodeRouteAssignment(binaryContent(msg));
+        }
+        String content = requireContent(msg);
+        return LANGUAGE_JSON.equals(language) ? decodeJson(content, RouteAssignment.class) : decodeRouteAssignmentText(content);
+    }
+
+    /**
+     * @return the route response, or null if the message carries something else
+     *         (e.g. a NOT_UNDERSTOOD or FAILURE in the assignment conversation)
+     */
+    public static RouteResponse readRouteResponse(ACLMessage msg) {
+        String language = msg.getLanguage();
+        if (LANGUAGE_BINARY.equals(language)) {
+            byte[] content = msg.getByteSequenceContent();
+            if (content == null || content.length == 0 || content[0] != TYPE_ROUTE_RESPONSE) {
+                return null;
+            }
+            return decodeRouteResponse(content);
+        }
+        String content = msg.getContent();
+        if (content == null) {
+            return null;
+        }
+        if (LANGUAGE_JSON.equals(language)) {
+            Object decoded = decodeJson(content);
+            return decoded instanceof RouteResponse ? (RouteResponse) decoded : null;
+        }
+        if (!content.startsWith(ACCEPTED_PREFIX) && !content.startsWith(REJECTED_PREFIX)) {
+            return null;
+        }
+        return decodeRouteResponseText(content);
+    }
+
+    public static CustomerBatch readCustomerBatch(ACLMessage msg) {
+        if (LANGUAGE_BINARY.equals(msg.getLanguage())) {
+            return decodeCustomerBatch(binaryContent(msg));
+        }
+        return decodeJson(requireContent(msg), CustomerBatch.class);
+    }
+
+    public static Bids readBids(ACLMessage msg) {
+        if (LANGUAGE_BINARY.equals(msg.getLanguage())) {
+            return decodeBids(binaryContent(msg));
+        }
+        return decodeJson(requireContent(msg), Bids.class);
+    }
+
+    public static Award readAward(ACLMessage msg) {
+        if (LANGUAGE_BINARY.equals(msg.getLanguage())) {
+            return decodeAward(binaryContent(msg));
+        }
+        return decodeJson(requireContent(msg), Award.class);
+    }
+
+    public static AwardResult readAwardResult(ACLMessage msg) {
+        if (LANGUAGE_BINARY.equals(msg.getLanguage())) {
+            return decodeAwardResult(binaryContent(msg));
+        }
+        return decodeJson(requireContent(msg), AwardResult.class);
+    }
+
+    /**
+     * Content of a message for logs: binary contents are rendered as their JSON encoding,
+     * anything else is returned as is
+     */
+    public static String describe(ACLMessage msg) {
+        if (LANGUAGE_BINARY.equals(msg.getLanguage())) {
+            byte[] content = msg.getByteSequenceContent();
+            if (content == null || content.length == 0) {
+                return null;
+            }
+            try {
+                switch (content[0]) {
+                    case TYPE_VEHICLE_INFO:
+                        return encodeJson(decodeVehicleInfo(content));
+                    case TYPE_ROUTE_ASSIGNMENT:
+                        return encodeJson(decodeRouteAssignment(content));
+                    case TYPE_ROUTE_RESPONSE:
+                        return encodeJson(decodeRouteResponse(content));
+                    case TYPE_CUSTOMER_BATCH:
+                        return encodeJson(decodeCustomerBatch(content));
+                    case TYPE_BIDS:
+                        return encodeJson(decodeBids(content));
+                    case TYPE_AWARD:
+                        return encodeJson(decodeAward(content));
+                    case TYPE_AWARD_RESULT:
+                        return encodeJson(decodeAwardResult(content));
+                    default:
+                        return "(" + content.length + " bytes, unknown type " + content[0] + ")";
+                }
+            } catch (IllegalArgumentException e) {
+                return "(" + content.length + " bytes, malformed: " + e.getMessage() + ")";
+            }
+        }
+        return msg.getContent();
+    }
+
+    /**
+     * Size of the message content: bytes for binary content, characters otherwise
+     */
+    public static int contentLength(ACLMessage msg) {
+        if (LANGUAGE_BINARY.equals(msg.getLanguage())) {
+            byte[] content = msg.getByteSequenceContent();
+            return content != null ? content.length : 0;
+        }
+        String content = msg.getContent();
+        return content != null ? content.length() : 0;
+    }
+
+    private static <T> T decodeJson(String content, Class<T> type) {
+        Object decoded = decodeJson(content);
+        if (!type.isInstance(decoded)) {
+            throw new IllegalArgumentException("expected " + type.getSimpleName() + " JSON message");
+        }
+        return type.cast(decoded);
+    }
+
+    private static byte[] binaryContent(ACLMessage msg) {
+        byte[] content = msg.getByteSequenceContent();
+        if (content == null) {
+            throw new IllegalArgumentException("missing byte sequence content");
+        }
+        return content;
+    }
+
+    private static String requireContent(ACLMessage msg) {
+        String content = msg.getContent();
+        if (content == null) {
+            throw new IllegalArgumentException("missing content");
+        }
+        return content;
+    }
+
+    // ---------------------------------------------------------------- binary
+
+    public static byte[] encodeBinary(VehicleInfoMessage info) {
+        BinaryOut out = new BinaryOut(2 + sizeOf(info.name) + 4 + 3 * 8);
+        out.header(TYPE_VEHICLE_INFO);
+        out.string(info.name);
+        out.i32(info.capacity);
+        out.f64(info.maxDistance);
+        out.f64(info.x);
+        out.f64(info.y);
+        return out.buf;
+    }
+
+    public static byte[] encodeBinary(RouteAssignment route) {
+        int count = route.size();
+        int size = 2 + sizeOf(route.routeId) + 4 + sizeOf(route.vehicleName) + 4 + 3 * 8 + 4 + count * (4 + 16);
+        for (int i = 0; i < count; i++) {
+            size += sizeOf(route.customerNames[i]);
+        }
+        BinaryOut out = new BinaryOut(size);
+        out.header(TYPE_ROUTE_ASSIGNMENT);
+        out.string(route.routeId);
+        out.i32(route.vehicleId);
+        out.string(route.vehicleName);
+        out.i32(route.demand);
+        out.f64(route.distance);
+        out.f64(route.depotX);
+        out.f64(route.depotY);
+        out.i32(count);
+        for (int i = 0; i < count; i++) {
+            out.i32(route.customerIds[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            out.f64(route.x[i]);
+            out.f64(route.y[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            out.string(route.customerNames[i]);
+        }
+        return out.buf;
+    }
+
+    public static byte[] encodeBinary(RouteResponse response) {
+        BinaryOut out = new BinaryOut(3 + sizeOf(response.routeId) + sizeOf(response.vehicleName) + 4 + 8 + 4 +
+                                      sizeOf(response.reason) + sizeOf(response.details));
+        out.header(TYPE_ROUTE_RESPONSE);
+        out.buf[out.pos++] = (byte) (response.accepted ? 1 : 0);
+        out.string(response.routeId);
+        out.string(response.vehicleName);
+        out.i32(response.demand);
+        out.f64(response.distance);
+        out.i32(response.customers);
+        out.string(response.reason);
+        out.string(response.details);
+        return out.buf;
+    }
+
+    public static VehicleInfoMessage decodeVehicleInfo(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_VEHICLE_INFO);
+        VehicleInfoMessage info = new VehicleInfoMessage();
+        info.name = in.string();
+        info.capacity = in.i32();
+        info.maxDistance = in.f64();
+        info.x = in.f64();
+        info.y = in.f64();
+        return info;
+    }
+
+    public static RouteAssignment decodeRouteAssignment(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_ROUTE_ASSIGNMENT);
+        RouteAssignment route = new RouteAssignment();
+        route.routeId = in.string();
+        route.vehicleId = in.i32();
+        route.vehicleName = in.string();
+        route.demand = in.i32();
+        route.distance = in.f64();
+        route.depotX = in.f64();
+        route.depotY = in.f64();
+        int count = in.i32();
+        if (count < 0 || count > in.remaining() / 24) {
+            throw new IllegalArgumentException("invalid customer count " + count);
+        }
+        route.setCustomerCount(count);
+        for (int i = 0; i < count; i++) {
+            route.customerIds[i] = in.i32();
+        }
+        for (int i = 0; i < count; i++) {
+            route.x[i] = in.f64();
+            route.y[i] = in.f64();
+        }
+        for (int i = 0; i < count; i++) {
+            route.customerNames[i] = in.string();
+        }
+        return route;
+    }
+
+    public static RouteResponse decodeRouteResponse(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_ROUTE_RESPONSE);
+        RouteResponse response = new RouteResponse();
+        response.accepted = in.u8() != 0;
+        response.routeId = in.string();
+        response.vehicleName = in.string();
+        response.demand = in.i32();
+        response.distance = in.f64();
+        response.customers = in.i32();
+        response.reason = in.string();
+        response.details = in.string();
+        return response;
+    }
+
+    public static byte[] encodeBinary(CustomerBatch batch) {
+        int count = batch.size();
+        BinaryOut out = new BinaryOut(2 + 4 + 2 * 8 + 4 + count * (4 + 16 + 4));
+        out.header(TYPE_CUSTOMER_BATCH);
+        out.i32(batch.round);
+        out.f64(batch.depotX);
+        out.f64(batch.depotY);
+        out.i32(count);
+        for (int i = 0; i < count; i++) {
+            out.i32(batch.customerIds[i]);
+            out.f64(batch.x[i]);
+            out.f64(batch.y[i]);
+            out.i32(batch.demand[i]);
+        }
+        return out.buf;
+    }
+
+    public static byte[] encodeBinary(Bids bids) {
+        int count = bids.size();
+        BinaryOut out = new BinaryOut(2 + 4 + 4 + count * (4 + 8));
+        out.header(TYPE_BIDS);
+        out.i32(bids.round);
+        out.i32(count);
+        for (int i = 0; i < count; i++) {
+            out.i32(bids.customerIds[i]);
+            out.f64(bids.costs[i]);
+        }
+        return out.buf;
+    }
+
+    public static byte[] encodeBinary(Award award) {
+        BinaryOut out = new BinaryOut(2 + 4 + 4 + award.customerIds.length * 4);
+        out.header(TYPE_AWARD);
+        out.i32(award.round);
+        out.ints(award.customerIds);
+        return out.buf;
+    }
+
+    public static byte[] encodeBinary(AwardResult result) {
+        BinaryOut out = new BinaryOut(2 + 4 + 4 + result.route.length * 4 + 4 + result.failed.length * 4 + 4 + 8);
+        out.header(TYPE_AWARD_RESULT);
+        out.i32(result.round);
+        out.ints(result.route);
+        out.ints(result.failed);
+        out.i32(result.load);
+        out.f64(result.distance);
+        return out.buf;
+    }
+
+    public static CustomerBatch decodeCustomerBatch(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_CUSTOMER_BATCH);
+        CustomerBatch batch = new CustomerBatch();
+        batch.round = in.i32();
+        batch.depotX = in.f64();
+        batch.depotY = in.f64();
+        int count = in.count(24);
+        batch.setCustomerCount(count);
+        for (int i = 0; i < count; i++) {
+            batch.customerIds[i] = in.i32();
+            batch.x[i] = in.f64();
+            batch.y[i] = in.f64();
+            batch.demand[i] = in.i32();
+        }
+        return batch;
+    }
+
+    public static Bids decodeBids(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_BIDS);
+        Bids bids = new Bids();
+        bids.round = in.i32();
+        int count = in.count(12);
+        bids.customerIds = new int[count];
+        bids.costs = new double[count];
+        for (int i = 0; i < count; i++) {
+            bids.customerIds[i] = in.i32();
+            bids.costs[i] = in.f64();
+        }
+        return bids;
+    }
+
+    public static Award decodeAward(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_AWARD);
+        Award award = new Award();
+        award.round = in.i32();
+        award.customerIds = in.ints();
+        return award;
+    }
+
+    public static AwardResult decodeAwardResult(byte[] content) {
+        BinaryIn in = new BinaryIn(content, TYPE_AWARD_RESULT);
+        AwardResult result = new AwardResult();
+        result.round = in.i32();
+        result.route = in.ints();
+        result.failed = in.ints();
+        result.load = in.i32();
+        result.distance = in.f64();
+        return result;
+    }
+
+    /**
+     * Encoded size of a string: 4-byte length (-1 = null) and its UTF-8 bytes
+     */
+    private static int sizeOf(String s) {
+        if (s == null) {
+            return 4;
+        }
+        int size = 4;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Little-endian writer into an array allocated at the exact message size
+     */
+    private static final class BinaryOut {
+        final byte[] buf;
+        int pos;
+
+        BinaryOut(int size) {
+            buf = new byte[size];
+        }
+
+        void header(byte type) {
+            buf[pos++] = type;
+            buf[pos++] = VERSION;
+        }
+
+        void i32(int v) {
+            buf[pos++] = (byte) v;
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 24);
+        }
+
+        void f64(double d) {
+            long v = Double.doubleToRawLongBits(d);
+            i32((int) v);
+            i32((int) (v >>> 32));
+        }
+
+        void ints(int[] values) {
+            i32(values.length);
+            for (int v : values) {
+                i32(v);
+            }
+        }
+
+        void string(String s) {
+            if (s == null) {
+                i32(-1);
+                return;
+            }
+            int lengthAt = pos;
+            pos += 4;
+            for (int i = 0, n = s.length(); i < n; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate: '?' like String.getBytes
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            int length = pos - lengthAt - 4;
+            buf[lengthAt] = (byte) length;
+            buf[lengthAt + 1] = (byte) (length >>> 8);
+            buf[lengthAt + 2] = (byte) (length >>> 16);
+            buf[lengthAt + 3] = (byte) (length >>> 24);
+        }
+    }
+
+    /**
+     * Little-endian reader with bounds checks reported as IllegalArgumentException
+     */
+    private static final class BinaryIn {
+        final byte[] buf;
+        int pos;
+
+        BinaryIn(byte[] buf, byte type) {
+            this.buf = buf;
+            if (buf.length < 2 || buf[0] != type) {
+                throw new IllegalArgumentException("expected message type " + type +
+                    (buf.length > 0 ? ", got " + buf[0] : ", got empty content"));
+            }
+            if (buf[1] != VERSION) {
+                throw new IllegalArgumentException("unsupported format version " + buf[1]);
+            }
+            pos = 2;
+        }
+
+        int remaining() {
+            return buf.length - pos;
+        }
+
+        private void need(int bytes) {
+            if (bytes < 0 || pos + bytes > buf.length) {
+                throw new IllegalArgumentException("truncated content at byte " + pos);
+            }
+        }
+
+        int u8() {
+            need(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        int i32() {
+            need(4);
+            int v = (buf[pos] & 0xFF) | (buf[pos + 1] & 0xFF) << 8 | (buf[pos + 2] & 0xFF) << 16 | buf[pos + 3] << 24;
+            pos += 4;
+            return v;
+        }
+
+        double f64() {
+            long lo = i32() & 0xFFFFFFFFL;
+            long hi = i32();
+            return Double.longBitsToDouble(hi << 32 | lo);
+        }
+
+        /**
+         * Element count of an array whose elements take at least the given bytes each
+         */
+        int count(int elementBytes) {
+            int count = i32();
+            if (count < 0 || count > remaining() / elementBytes) {
+                throw new IllegalArgumentException("invalid element count " + count);
+            }
+            return count;
+        }
+
+        int[] ints() {
+            int[] values = new int[count(4)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i32();
+            }
+            return values;
+        }
+
+        String string() {
+            int length = i32();
+            if (length == -1) {
+                return null;
+            }
+            need(length);
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+
+    // ---------------------------------------------------------------- JSON
+
+    public static String encodeJson(VehicleInfoMessage info) {
+        StringWriter text = new StringWriter(128);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("vehicle-info");
+            out.name("name").value(info.name);
+            if (info.capacity >= 0) {
+                out.name("capacity").value(info.capacity);
+            }
+            if (!Double.isNaN(info.maxDistance)) {
+                out.name("maxDistance").value(info.maxDistance);
+            }
+            out.name("x").value(info.x);
+            out.name("y").value(info.y);
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    public static String encodeJson(RouteAssignment route) {
+        StringWriter text = new StringWriter(256 + route.size() * 64);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("route-assignment");
+            out.name("route").value(route.routeId);
+            out.name("vehicleId").value(route.vehicleId);
+            out.name("vehicleName").value(route.vehicleName);
+            out.name("demand").value(route.demand);
+            out.name("distance").value(route.distance);
+            out.name("depotX").value(route.depotX);
+            out.name("depotY").value(route.depotY);
+            out.name("customers").beginArray();
+            for (int i = 0; i < route.size(); i++) {
+                out.beginObject();
+                out.name("id").value(route.customerIds[i]);
+                out.name("name").value(route.customerNames[i]);
+                out.name("x").value(route.x[i]);
+                out.name("y").value(route.y[i]);
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    public static String encodeJson(RouteResponse response) {
+        StringWriter text = new StringWriter(192);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("route-response");
+            out.name("status").value(response.getStatus());
+            out.name("route").value(response.routeId);
+            out.name("vehicle").value(response.vehicleName);
+            if (response.accepted) {
+                out.name("demand").value(response.demand);
+                out.name("distance").value(response.distance);
+                out.name("customers").value(response.customers);
+            } else {
+                out.name("reason").value(response.reason);
+                out.name("details").value(response.details);
+            }
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    public static String encodeJson(CustomerBatch batch) {
+        StringWriter text = new StringWriter(96 + batch.size() * 64);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("customer-batch");
+            out.name("round").value(batch.round);
+            out.name("depotX").value(batch.depotX);
+            out.name("depotY").value(batch.depotY);
+            out.name("customers").beginArray();
+            for (int i = 0; i < batch.size(); i++) {
+                out.beginObject();
+                out.name("id").value(batch.customerIds[i]);
+                out.name("x").value(batch.x[i]);
+                out.name("y").value(batch.y[i]);
+                out.name("demand").value(batch.demand[i]);
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    public static String encodeJson(Bids bids) {
+        StringWriter text = new StringWriter(64 + bids.size() * 32);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("bids");
+            out.name("round").value(bids.round);
+            out.name("bids").beginArray();
+            for (int i = 0; i < bids.size(); i++) {
+                out.beginObject();
+                out.name("id").value(bids.customerIds[i]);
+                out.name("cost").value(bids.costs[i]);
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    public static String encodeJson(Award award) {
+        StringWriter text = new StringWriter(64 + award.customerIds.length * 8);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("award");
+            out.name("round").value(award.round);
+            writeIntsJson(out.name("customers"), award.customerIds);
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    public static String encodeJson(AwardResult result) {
+        StringWriter text = new StringWriter(96 + (result.route.length + result.failed.length) * 8);
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("type").value("award-result");
+            out.name("round").value(result.round);
+            writeIntsJson(out.name("route"), result.route);
+            writeIntsJson(out.name("failed"), result.failed);
+            out.name("load").value(result.load);
+            out.name("distance").value(result.distance);
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    private static void writeIntsJson(JsonWriter out, int[] values) throws IOException {
+        out.beginArray();
+        for (int v : values) {
+            out.value(v);
+        }
+        out.endArray();
+    }
+
+    /**
+     * Decodes any JSON message by its "type" key (which must come first, as written)
+     *
+     * @return the message object (e.g. a VehicleInfoMessage, RouteAssignment or RouteResponse),
+     *         or null for an unknown type
+     */
+    public static Object decodeJson(String content) {
+        try (JsonReader in = new JsonReader(new StringReader(content))) {
+            in.beginObject();
+            if (!in.hasNext() || !"type".equals(in.nextName())) {
+                throw new IllegalArgumentException("JSON message without leading type");
+            }
+            String type = in.nextString();
+            Object decoded;
+            switch (type) {
+                case "vehicle-info":
+                    decoded = readVehicleInfoJson(in);
+                    break;
+                case "route-assignment":
+                    decoded = readRouteAssignmentJson(in);
+                    break;
+                case "route-response":
+                    decoded = readRouteResponseJson(in);
+                    break;
+                case "customer-batch":
+                    decoded = readCustomerBatchJson(in);
+                    break;
+                case "bids":
+                    decoded = readBidsJson(in);
+                    break;
+                case "award":
+                    decoded = readAwardJson(in);
+                    break;
+                case "award-result":
+                    decoded = readAwardResultJson(in);
+                    break;
+                default:
+                    return null;
+            }
+            in.endObject();
+            return decoded;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("malformed JSON message: " + e.getMessage(), e);
+        }
+    }
+
+    private static VehicleInfoMessage readVehicleInfoJson(JsonReader in) throws IOException {
+        VehicleInfoMessage info = new VehicleInfoMessage();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name": info.name = nextStringOrNull(in); break;
+                case "capacity": info.capacity = in.nextInt(); break;
+                case "maxDistance": info.maxDistance = in.nextDouble(); break;
+                case "x": info.x = in.nextDouble(); break;
+                case "y": info.y = in.nextDouble(); break;
+                default: in.skipValue();
+            }
+        }
+        return info;
+    }
+
+    private static RouteAssignment readRouteAssignmentJson(JsonReader in) throws IOException {
+        RouteAssignment route = new RouteAssignment();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "route": route.routeId = nextStringOrNull(in); break;
+                case "vehicleId": route.vehicleId = in.nextInt(); break;
+                case "vehicleName": route.vehicleName = nextStringOrNull(in); break;
+                case "demand": route.demand = in.nextInt(); break;
+                case "distance": route.distance = in.nextDouble(); break;
+                case "depotX": route.depotX = in.nextDouble(); break;
+                case "depotY": route.depotY = in.nextDouble(); break;
+                case "customers": readCustomersJson(in, route); break;
+                default: in.skipValue();
+            }
+        }
+        return route;
+    }
+
+    private static void readCustomersJson(JsonReader in, RouteAssignment route) throws IOException {
+        List<CustomerInfo> customers = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            CustomerInfo customer = new CustomerInfo(0, 0, 0, 0, null);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": customer.id = in.nextInt(); break;
+                    case "name": customer.name = nextStringOrNull(in); break;
+                    case "x": customer.x = in.nextDouble(); break;
+                    case "y": customer.y = in.nextDouble(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            customers.add(customer);
+        }
+        in.endArray();
+        route.setCustomerCount(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            CustomerInfo customer = customers.get(i);
+            route.customerIds[i] = customer.id;
+            route.customerNames[i] = customer.name;
+            route.x[i] = customer.x;
+            route.y[i] = customer.y;
+        }
+    }
+
+    private static RouteResponse readRouteResponseJson(JsonReader in) throws IOException {
+        RouteResponse response = new RouteResponse();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "status": response.accepted = "ACCEPTED".equals(in.nextString()); break;
+                case "route": response.routeId = nextStringOrNull(in); break;
+                case "vehicle": response.vehicleName = nextStringOrNull(in); break;
+                case "demand": response.demand = in.nextInt(); break;
+                case "distance": response.distance = in.nextDouble(); break;
+                case "customers": response.customers = in.nextInt(); break;
+                case "reason": response.reason = nextStringOrNull(in); break;
+                case "details": response.details = nextStringOrNull(in); break;
+                default: in.skipValue();
+            }
+        }
+        return response;
+    }
+
+    private static CustomerBatch readCustomerBatchJson(JsonReader in) throws IOException {
+        CustomerBatch batch = new CustomerBatch();
+        List<double[]> customers = new ArrayList<>();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "round": batch.round = in.nextInt(); break;
+                case "depotX": batch.depotX = in.nextDouble(); break;
+                case "depotY": batch.depotY = in.nextDouble(); break;
+                case "customers":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        double[] customer = new double[4];  // id, x, y, demand
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "id": customer[0] = in.nextInt(); break;
+                                case "x": customer[1] = in.nextDouble(); break;
+                                case "y": customer[2] = in.nextDouble(); break;
+                                case "demand": customer[3] = in.nextInt(); break;
+                                default: in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        customers.add(customer);
+                    }
+                    in.endArray();
+                    break;
+                default: in.skipValue();
+            }
+        }
+        batch.setCustomerCount(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            double[] customer = customers.get(i);
+            batch.customerIds[i] = (int) customer[0];
+            batch.x[i] = customer[1];
+            batch.y[i] = customer[2];
+            batch.demand[i] = (int) customer[3];
+        }
+        return batch;
+    }
+
+    private static Bids readBidsJson(JsonReader in) throws IOException {
+        Bids bids = new Bids();
+        List<Integer> ids = new ArrayList<>();
+        List<Double> costs = new ArrayList<>();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "round": bids.round = in.nextInt(); break;
+                case "bids":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        int id = 0;
+                        double cost = 0;
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "id": id = in.nextInt(); break;
+                                case "cost": cost = in.nextDouble(); break;
+                                default: in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        ids.add(id);
+                        costs.add(cost);
+                    }
+                    in.endArray();
+                    break;
+                default: in.skipValue();
+            }
+        }
+        bids.customerIds = new int[ids.size()];
+        bids.costs = new double[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            bids.customerIds[i] = ids.get(i);
+            bids.costs[i] = costs.get(i);
+        }
+        return bids;
+    }
+
+    private static Award readAwardJson(JsonReader in) throws IOException {
+        Award award = new Award();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "round": award.round = in.nextInt(); break;
+                case "customers": award.customerIds = readIntsJson(in); break;
+                default: in.skipValue();
+            }
+        }
+        return award;
+    }
+
+    private static AwardResult readAwardResultJson(JsonReader in) throws IOException {
+        AwardResult result = new AwardResult();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "round": result.round = in.nextInt(); break;
+                case "route": result.route = readIntsJson(in); break;
+                case "failed": result.failed = readIntsJson(in); break;
+                case "load": result.load = in.nextInt(); break;
+                case "distance": result.distance = in.nextDouble(); break;
+                default: in.skipValue();
+            }
+        }
+        return result;
+    }
+
+    private static int[] readIntsJson(JsonReader in) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(in.nextInt());
+        }
+        in.endArray();
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    // ---------------------------------------------------------------- text (original format)
+
+    public static String encodeText(VehicleInfoMessage info) {
+        return "CAPACITY:" + info.capacity + "|MAX_DISTANCE:" + info.maxDistance +
+               "|NAME:" + info.name + "|X:" + info.x + "|Y:" + info.y;
+    }
+
+    public static String encodeText(RouteAssignment route) {
+        StringBuilder out = new StringBuilder(128 + route.size() * 32);
+        out.append(ASSIGNMENT_PREFIX);
+        out.append("ROUTE:").append(route.routeId).append('|');
+        out.append("VEHICLE_ID:").append(route.vehicleId).append('|');
+        out.append("VEHICLE_NAME:").append(route.vehicleName).append('|');
+        out.append("CUSTOMERS:");
+        for (int i = 0; i < route.size(); i++) {
+            if (i > 0) out.append(',');
+            out.append(route.customerIds[i]);
+        }
+        out.append("|CUSTOMER_IDS:");
+        for (int i = 0; i < route.size(); i++) {
+            if (i > 0) out.append(',');
+            out.append(route.customerNames[i]);
+        }
+        out.append("|COORDS:");
+        for (int i = 0; i < route.size(); i++) {
+            if (i > 0) out.append(';');
+            out.append(String.format("%.2f", route.x[i])).append(',').append(String.format("%.2f", route.y[i]));
+        }
+        out.append("|DEMAND:").append(route.demand);
+        out.append("|DISTANCE:").append(String.format("%.2f", route.distance));
+        out.append("|DEPOT_X:").append(String.format("%.2f", route.depotX));
+        out.append("|DEPOT_Y:").append(String.format("%.2f", route.depotY));
+        return out.toString();
+    }
+
+    public static String encodeText(RouteResponse response) {
+        if (response.accepted) {
+            return ACCEPTED_PREFIX + response.routeId + "|VEHICLE:" + response.vehicleName +
+                   "|STATUS:ACCEPTED|DEMAND:" + response.demand +
+                   "|DISTANCE:" + String.format("%.2f", response.distance) +
+                   "|CUSTOMERS:" + response.customers;
+        }
+        return REJECTED_PREFIX + response.routeId + "|VEHICLE:" + response.vehicleName +
+               "|STATUS:REJECTED|REASON:" + response.reason + "|DETAILS:" + response.details;
+    }
+
+    public static VehicleInfoMessage decodeVehicleInfoText(String content) {
+        VehicleInfoMessage info = new VehicleInfoMessage();
+        try {
+            for (String part : content.split("\\|")) {
+                if (part.startsWith("NAME:")) {
+                    info.name = part.substring("NAME:".length()).trim();
+                } else if (part.startsWith("CAPACITY:")) {
+                    info.capacity = Integer.parseInt(part.substring("CAPACITY:".length()).trim());
+                } else if (part.startsWith("MAX_DISTANCE:")) {
+                    info.maxDistance = Double.parseDouble(part.substring("MAX_DISTANCE:".length()).trim());
+                } else if (part.startsWith("X:")) {
+                    info.x = Double.parseDouble(part.substring("X:".length()).trim());
+                } else if (part.startsWith("Y:")) {
+                    info.y = Double.parseDouble(part.substring("Y:".length()).trim());
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed vehicle info: " + e.getMessage(), e);
+        }
+        return info;
+    }
+
+    public static RouteAssignment decodeRouteAssignmentText(String content) {
+        if (!content.startsWith(ASSIGNMENT_PREFIX)) {
+            throw new IllegalArgumentException("not a route assignment");
+        }
+        RouteAssignment route = new RouteAssignment();
+        String[] ids = new String[0];
+        String[] names = new String[0];
+        String[] coords = new String[0];
+        try {
+            for (String part : content.substring(ASSIGNMENT_PREFIX.length()).split("\\|")) {
+                if (part.startsWith("ROUTE:")) {
+                    route.routeId = part.substring("ROUTE:".length());
+                } else if (part.startsWith("VEHICLE_ID:")) {
+                    route.vehicleId = Integer.parseInt(part.substring("VEHICLE_ID:".length()));
+                } else if (part.startsWith("VEHICLE_NAME:")) {
+                    route.vehicleName = part.substring("VEHICLE_NAME:".length());
+                } else if (part.startsWith("DEMAND:")) {
+                    route.demand = Integer.parseInt(part.substring("DEMAND:".length()));
+                } else if (part.startsWith("DISTANCE:")) {
+                    route.distance = Double.parseDouble(part.substring("DISTANCE:".length()));
+                } else if (part.startsWith("CUSTOMERS:")) {
+                    String value = part.substring("CUSTOMERS:".length());
+                    ids = value.isEmpty() ? ids : value.split(",");
+                } else if (part.startsWith("CUSTOMER_IDS:")) {
+                    String value = part.substring("CUSTOMER_IDS:".length());
+                    names = value.isEmpty() ? names : value.split(",");
+                } else if (part.startsWith("COORDS:")) {
+                    String value = part.substring("COORDS:".length());
+                    coords = value.isEmpty() ? coords : value.split(";");
+                } else if (part.startsWith("DEPOT_X:")) {
+                    route.depotX = Double.parseDouble(part.substring("DEPOT_X:".length()));
+                } else if (part.startsWith("DEPOT_Y:")) {
+                    route.depotY = Double.parseDouble(part.substring("DEPOT_Y:".length()));
+                }
+            }
+            // Customers are the entries that have coordinates
+            int count = Math.min(coords.length, Math.max(ids.length, names.length));
+            route.setCustomerCount(count);
+            for (int i = 0; i < count; i++) {
+                String[] xy = coords[i].split(",");
+                if (xy.length != 2) {
+                    throw new IllegalArgumentException("malformed coordinates '" + coords[i] + "'");
+                }
+                route.customerIds[i] = i < ids.length ? Integer.parseInt(ids[i].trim()) : i + 1;
+                route.customerNames[i] = i < names.length ? names[i].trim() : "customer-" + route.customerIds[i];
+                route.x[i] = Double.parseDouble(xy[0]);
+                route.y[i] = Double.parseDouble(xy[1]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed route assignment: " + e.getMessage(), e);
+        }
+        return route;
+    }
+
+    public static RouteResponse decodeRouteResponseText(String content) {
+        RouteResponse response = new RouteResponse();
+        response.accepted = content.startsWith(ACCEPTED_PREFIX);
+        try {
+            for (String part : content.split("\\|")) {
+                if (part.startsWith(ACCEPTED_PREFIX) || part.startsWith(REJECTED_PREFIX)) {
+                    response.routeId = part.substring(part.indexOf(':') + 1);
+                } else if (part.startsWith("VEHICLE:")) {
+                    response.vehicleName = part.substring("VEHICLE:".length());
+                } else if (part.startsWith("REASON:")) {
+                    response.reason = part.substring("REASON:".length());
+                } else if (part.startsWith("DETAILS:")) {
+                    response.details = part.substring("DETAILS:".length());
+                } else if (part.startsWith("DEMAND:")) {
+                    response.demand = Integer.parseInt(part.substring("DEMAND:".length()));
+                } else if (part.startsWith("DISTANCE:")) {
+                    response.distance = Double.parseDouble(part.substring("DISTANCE:".length()));
+                } else if (part.startsWith("CUSTOMERS:")) {
+                    response.customers = Integer.parseInt(part.substring("CUSTOMERS:".length()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed route response: " + e.getMessage(), e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,40 @@
+package project.General;
+
+import project.Solver.SolverTier;
+import project.Utils.BackendClient;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A routing request handed to a resident MRA (fleet mode) through O2A.
+ * The MRA signals solutionLatch once the request is finished and stores the
+ * result in solutionHolder's "solution" field.
+ *
+ * deliveryAgentNames holds the resident DA leased for each vehicle of problem.vehicles
+ * (same order); logFolder is the request-scoped log folder all agents log into;
+ * solverTier is the solver configuration chosen by the request scheduler;
+ * solutionSink receives the solution (the Python backend unless the request came in
+ * through the embedded intake server).
+ */
+public class RoutingRequest {
+    public ProblemInstance problem;
+    public String requestId;
+    public CountDownLatch solutionLatch;
+    public Object solutionHolder;  // Main.SolutionHolder
+    public List<String> deliveryAgentNames;
+    public String logFolder;
+    public SolverTier solverTier = SolverTier.STANDARD;
+    public SolutionSink solutionSink = BackendClient.BACKEND_SINK;
+
+    public RoutingRequest(ProblemInstance problem, String requestId,
+                          CountDownLatch solutionLatch, Object solutionHolder,
+                          List<String> deliveryAgentNames, String logFolder) {
+        this.problem = problem;
+        this.requestId = requestId;
+        this.solutionLatch = solutionLatch;
+        this.solutionHolder = solutionHolder;
+        this.deliveryAgentNames = deliveryAgentNames;
+        this.logFolder = logFolder;
+    }
+}
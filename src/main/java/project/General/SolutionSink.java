@@ -0,0 +1,46 @@
+package project.General;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Destination of a request's solution: the Python backend for polled requests, or the
+ * embedded intake server for requests it accepted directly.
+ */
+public interface SolutionSink {
+    /**
+     * Delivers the solution of a request
+     *
+     * @return true if the solution was accepted
+     */
+    boolean submit(String requestId, SolutionResult solution);
+
+    /**
+     * Delivers a solution that has already been encoded for this request
+     * (SolutionJsonWriter.encode(requestId, solution, requestId)), so sinks that send JSON can
+     * reuse the bytes instead of encoding the solution again
+     *
+     * @return true if the solution was accepted
+     */
+    default boolean submit(String requestId, SolutionResult solution, byte[] encodedJson) {
+        return submit(requestId, solution);
+    }
+
+    /**
+     * Wraps the sink of one request so it delivers at most one solution: Main's failure
+     * answer and the MRA's late solution can race, and only the first one is sent
+     */
+    static SolutionSink once(SolutionSink sink) {
+        AtomicBoolean submitted = new AtomicBoolean();
+        return new SolutionSink() {
+            @Override
+            public boolean submit(String requestId, SolutionResult solution) {
+                return submitted.compareAndSet(false, true) && sink.submit(requestId, solution);
+            }
+
+            @Override
+            public boolean submit(String requestId, SolutionResult solution, byte[] encodedJson) {
+                return submitted.compareAndSet(false, true) && sink.submit(requestId, solution, encodedJson);
+            }
+        };
+    }
+}
@@ -5,14 +5,29 @@ import jade.core.ProfileImpl;
 import jade.core.Runtime;
 import jade.wrapper.AgentContainer;
 import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
 import project.Utils.JsonConfigReader;
-import project.Utils.JsonConfigReader.CVRPConfig;
 import project.Utils.BackendClient;
 import project.Utils.BackendClient.BackendRequest;
 import project.Utils.AgentLogger;
+import project.Utils.EmbeddedIntakeServer;
+import project.Utils.Log;
+import project.Utils.LogRetention;
+import project.Utils.RequestScheduler;
+import project.Utils.RequestScheduler.ScheduledRequest;
+import project.Agent.DeliveryAgentPool;
+import project.Agent.MasterRoutingAgent;
+import project.General.ProblemInstance;
+import project.General.RequestCancellation;
+import project.General.RoutingRequest;
 import project.General.SolutionResult;
+import project.General.SolutionSink;
+import project.Solver.SolverTier;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,11 +36,45 @@ import java.util.concurrent.TimeUnit;
  * processes them using JADE agents, and submits solutions back to the backend.
  * 
  * This system only operates in backend API mode - no local file processing.
+ * 
+ * By default agents are resident (fleet mode): one MRA and one DA per vehicle name are
+ * created once and reused by every request. Run with -Dcvrp.fleetMode=false to create
+ * and kill a fresh MRA and DAs per request instead.
+ * 
+ * Up to -Dcvrp.concurrency requests (default: number of cores) are processed at the same
+ * time. Each request logs into its own folder, and in fleet mode leases its own DA
+ * instances, so concurrent requests never share a logger or a vehicle agent.
+ * 
+ * Polled requests wait in a {@link RequestScheduler} (priority, then earliest deadline) until
+ * a worker is free; under load they are dispatched with a cheaper solver tier.
+ * With -Dcvrp.intake.port=PORT requests can also be submitted straight to this process
+ * (see {@link EmbeddedIntakeServer}).
+ * 
+ * Old log folders and results are compressed and pruned in the background by {@link LogRetention}.
+ * 
+ * Console output is leveled (see {@link Log}): -Dcvrp.log.profile=production keeps only the
+ * per-request summaries and metrics.
  */
 public class Main {
     private static volatile boolean running = true;
     private static AgentContainer mainContainer;
     
+    // Fleet mode: resident MRA and pooled DAs shared by all requests
+    private static final boolean FLEET_MODE = Boolean.parseBoolean(System.getProperty("cvrp.fleetMode", "true"));
+    private static final String FLEET_MRA_NAME = "mra";
+    private static AgentController fleetMra;
+    private static DeliveryAgentPool deliveryAgentPool;
+    
+    // How long a timed-out request's DAs wait for the MRA to acknowledge its cancellation
+    private static final long CANCEL_ACK_TIMEOUT_MS = 10000;
+    
+    // Concurrent request processing: one worker per request in flight
+    private static final int MAX_CONCURRENT_REQUESTS = Math.max(1,
+        Integer.getInteger("cvrp.concurrency", java.lang.Runtime.getRuntime().availableProcessors()));
+    private static final RequestScheduler requestScheduler = RequestScheduler.forWorkers(MAX_CONCURRENT_REQUESTS);
+    private static ExecutorService requestWorkers;
+    private static EmbeddedIntakeServer intakeServer;
+    
     public static void main(String[] args) {
         runBackendMode();
     }
@@ -34,12 +83,14 @@ public class Main {
      * Runs in backend polling mode - continuously polls backend for requests
      */
     private static void runBackendMode() {
-        System.out.println("===============================================");
-        System.out.println("  CVRP MULTI-AGENT SYSTEM - BACKEND MODE");
-        System.out.println("===============================================\n");
-        System.out.println("Connecting to backend at: " + BackendClient.BACKEND_URL);
-        System.out.println("Polling interval: " + BackendClient.getPollInterval() + " ms");
-        System.out.println("Press Ctrl+C to stop\n");
+        Log.info("===============================================\n" +
+                 "  CVRP MULTI-AGENT SYSTEM - BACKEND MODE\n" +
+                 "===============================================\n\n" +
+                 "Connecting to backend at: " + BackendClient.BACKEND_URL + "\n" +
+                 "Intake: long-poll (fallback polling interval: " + BackendClient.getPollInterval() + " ms)\n" +
+                 "Concurrent requests: " + MAX_CONCURRENT_REQUESTS + "\n" +
+                 "Log level: " + Log.getLevel() + "\n" +
+                 "Press Ctrl+C to stop\n");
         
         // Initialize JADE runtime
         Runtime rt = Runtime.instance();
@@ -50,41 +101,95 @@ public class Main {
         
         mainContainer = rt.createMainContainer(p);
         
+        if (FLEET_MODE) {
+            try {
+                // Resident MRA without arguments runs in fleet mode and takes requests via O2A
+                fleetMra = mainContainer.createNewAgent(FLEET_MRA_NAME, "project.Agent.MasterRoutingAgent", new Object[0]);
+                fleetMra.start();
+                deliveryAgentPool = new DeliveryAgentPool(mainContainer, FLEET_MRA_NAME);
+                Log.info("✓ Fleet mode: resident Master Routing Agent started");
+            } catch (Exception e) {
+                Log.error("Error starting fleet mode agents: " + e.getMessage(), e);
+                return;
+            }
+        }
+        
+        // Optional embedded HTTP intake (-Dcvrp.intake.port): requests bypass the Python backend
+        int intakePort = Integer.getInteger("cvrp.intake.port", 0);
+        if (intakePort > 0) {
+            intakeServer = new EmbeddedIntakeServer(System.getProperty("cvrp.intake.host", "127.0.0.1"), intakePort,
+                                                    requestScheduler::offer);
+            try {
+                intakeServer.start();
+            } catch (java.io.IOException e) {
+                Log.error("Error starting embedded intake on port " + intakePort + ": " + e.getMessage());
+                intakeServer = null;
+            }
+        }
+        
+        // Compression and cleanup of old logs and results run on the janitor thread, off the request path
+        LogRetention.startJanitor();
+        
+        requestWorkers = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, runnable -> {
+            Thread thread = new Thread(runnable, "request-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS; i++) {
+            requestWorkers.execute(Main::runRequestWorker);
+        }
+        
         // Add shutdown hook
         java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("\nShutting down...");
+            Log.info("\nShutting down...");
             running = false;
+            requestWorkers.shutdownNow();
+            LogRetention.stopJanitor();
+            if (intakeServer != null) {
+                intakeServer.stop();
+            }
             try {
+                if (deliveryAgentPool != null) {
+                    deliveryAgentPool.shutdown();
+                }
                 if (mainContainer != null) {
                     mainContainer.kill();
                 }
             } catch (Exception e) {
-                System.err.println("Error shutting down: " + e.getMessage());
+                Log.error("Error shutting down: " + e.getMessage());
             }
         }));
         
         // Main polling loop
         while (running) {
             try {
-                // Poll backend for requests
-                BackendRequest request = BackendClient.pollForRequest();
+                // Admission control: leave requests in the backend while the local queue is full
+                if (!requestScheduler.awaitCapacity(BackendClient.getPollInterval())) {
+                    continue;
+                }
                 
-                if (request != null) {
-                    System.out.println("\n=== New CVRP Request Received ===");
-                    System.out.println("Request ID: " + request.requestId);
-                    
-                    // Process the request
-                    processBackendRequest(request);
-                } else {
-                    // No pending requests, wait before next poll
+                // Long-poll the backend: returns as soon as a request is enqueued, with up to
+                // as many pending requests as the local queue has room for
+                List<BackendRequest> requests = BackendClient.waitForRequests(requestScheduler.remainingCapacity());
+                
+                if (!requests.isEmpty()) {
+                    for (BackendRequest request : requests) {
+                        Log.info("New CVRP request received: " + request.requestId);
+                        
+                        // Queue it and poll again right away: whatever is pending in the backend is
+                        // drained into the scheduler, which orders it by priority and deadline
+                        requestScheduler.offerClaimed(request);
+                    }
+                    Log.debug(() -> "Scheduler: " + requestScheduler.getStatistics());
+                } else if (!BackendClient.isLongPollActive()) {
+                    // Backend unreachable or without long-poll support: fall back to interval polling
                     Thread.sleep(BackendClient.getPollInterval());
                 }
             } catch (InterruptedException e) {
-                System.out.println("Polling interrupted");
+                Log.info("Polling interrupted");
                 break;
             } catch (Exception e) {
-                System.err.println("Error in polling loop: " + e.getMessage());
-                e.printStackTrace();
+                Log.error("Error in polling loop: " + e.getMessage(), e);
                 try {
                     Thread.sleep(BackendClient.getPollInterval());
                 } catch (InterruptedException ie) {
@@ -93,74 +198,90 @@ public class Main {
             }
         }
         
-        System.out.println("Backend main loop stopped");
+        Log.info("Backend main loop stopped");
+    }
+    
+    /**
+     * Worker loop: processes the most urgent scheduled request, one at a time
+     */
+    private static void runRequestWorker() {
+        while (running) {
+            ScheduledRequest scheduled;
+            try {
+                scheduled = requestScheduler.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Log.info("Dispatching request " + scheduled.request.requestId + " - priority " + scheduled.priority +
+                     ", queued for " + scheduled.getQueueWaitMs() + " ms, solver tier: " + scheduled.tier);
+            try {
+                processBackendRequest(scheduled.request, scheduled.tier);
+            } finally {
+                requestScheduler.complete(scheduled);
+                Log.info(() -> "Scheduler: " + requestScheduler.getStatistics());
+            }
+        }
     }
     
     /**
      * Processes a CVRP request from the backend
      */
-    private static void processBackendRequest(BackendRequest request) {
+    private static void processBackendRequest(BackendRequest request, SolverTier solverTier) {
+        long requestStart = System.currentTimeMillis();
+        // One answer per request: a failure submitted on timeout and the MRA's late solution race
+        request.solutionSink = SolutionSink.once(request.solutionSink);
         try {
-            // Reset log folder for this new request/conversation
-            // This ensures each request gets its own timestamped folder
-            AgentLogger.resetLogFolder();
-            
-            // DEBUG: Print raw backend request
-            System.out.println("\n=== DEBUG: Raw Backend Request ===");
-            System.out.println("Request ID: " + request.requestId);
-            System.out.println("Request Data (JSON):");
-            // Pretty print the JSON data
-            com.google.gson.Gson gson = new com.google.gson.GsonBuilder().setPrettyPrinting().create();
-            System.out.println(gson.toJson(request.data));
-            System.out.println("=====================================\n");
+            // Each request gets its own timestamped log folder, passed to all of its agents
+            // (the shared current folder would mix concurrent requests)
+            String logFolder = AgentLogger.newRequestLogFolder(request.requestId);
             
-            // Convert backend request to CVRPConfig
-            CVRPConfig config = BackendClient.convertBackendRequestToConfig(request.data);
+            // The request was parsed into a problem instance at intake (no JSON tree to print)
+            ProblemInstance problem = request.problem;
+            Log.debug(() -> describeRequest(request.requestId, problem));
             
-            System.out.println("Problem: " + config.customers.size() + " customers, " + 
-                             config.vehicles.size() + " vehicles");
-            
-            // Debug: Print vehicle names from API
-            System.out.println("\n=== Vehicles from API ===");
-            for (int i = 0; i < config.vehicles.size(); i++) {
-                JsonConfigReader.VehicleConfig v = config.vehicles.get(i);
-                System.out.println("  Vehicle " + (i + 1) + ": name='" + v.name + 
-                                 "', capacity=" + v.capacity + ", maxDistance=" + v.maxDistance);
+            if (FLEET_MODE) {
+                processWithFleet(request, problem, requestStart, logFolder, solverTier);
+                return;
             }
-            System.out.println("==========================\n");
             
             // Create a latch to wait for solution
             CountDownLatch solutionLatch = new CountDownLatch(1);
             SolutionHolder solutionHolder = new SolutionHolder();
             
             // Create MRA with callback for solution
-            Object[] mraArgs = new Object[]{config, request.requestId, solutionLatch, solutionHolder};
+            String mraName = "mra-" + request.requestId;
+            Object[] mraArgs = new Object[]{problem, request.requestId, solutionLatch, solutionHolder, logFolder, solverTier,
+                                            request.solutionSink};
             AgentController mraController = mainContainer.createNewAgent(
-                "mra-" + request.requestId,
+                mraName,
                 "project.Agent.MasterRoutingAgent",
                 mraArgs
             );
             mraController.start();
-            System.out.println("✓ Master Routing Agent started");
+            Log.debug("✓ Master Routing Agent started");
             
-            // Wait for MRA to initialize
-            Thread.sleep(1000);
+            // No start-up delay needed: each DA announces DA_READY to the MRA once registered,
+            // and messages queue in the MRA's mailbox until its behaviours run
             
             // Create Delivery Agents
-            System.out.println("=== Creating Delivery Agents ===");
-            for (JsonConfigReader.VehicleConfig vehicleConfig : config.vehicles) {
+            Log.debug("=== Creating Delivery Agents ===");
+            for (JsonConfigReader.VehicleConfig vehicleConfig : problem.vehicles) {
                 String daName = vehicleConfig.name + "-" + request.requestId;
                 Object[] daArgs = new Object[]{
                     daName,
                     vehicleConfig.capacity,
-                    vehicleConfig.maxDistance
+                    vehicleConfig.maxDistance,
+                    mraName,
+                    logFolder
                 };
                 
-                System.out.println("Creating DA: name='" + daName + 
-                                 "' (from API: '" + vehicleConfig.name + 
-                                 "', requestId: '" + request.requestId + "')" +
-                                 ", capacity=" + vehicleConfig.capacity + 
-                                 ", maxDistance=" + vehicleConfig.maxDistance);
+                if (Log.isDebugEnabled()) {
+                    Log.debug("Creating DA: name='" + daName + 
+                              "' (from API: '" + vehicleConfig.name + 
+                              "', requestId: '" + request.requestId + "')" +
+                              ", capacity=" + vehicleConfig.capacity + 
+                              ", maxDistance=" + vehicleConfig.maxDistance);
+                }
                 
                 AgentController daController = mainContainer.createNewAgent(
                     daName,
@@ -168,80 +289,162 @@ public class Main {
                     daArgs
                 );
                 daController.start();
-                System.out.println("  ✓ DA '" + daName + "' started");
+                Log.trace(() -> "  ✓ DA '" + daName + "' started");
             }
-            System.out.println("================================\n");
-            
-            System.out.println("✓ All agents started, waiting for solution...");
+            Log.debug("✓ All agents started, waiting for solution...");
             
             // Wait for solution (with timeout)
-            boolean completed = solutionLatch.await(60, TimeUnit.SECONDS);
+            // The MRA signals once every route assignment has been acknowledged (or its deadline passed)
+            boolean completed = solutionLatch.await(MasterRoutingAgent.requestDeadlineMs(), TimeUnit.MILLISECONDS);
+            long solutionReadyMs = System.currentTimeMillis() - requestStart;
             
-            if (completed && solutionHolder.solution != null) {
-                // Solution is already submitted to backend by MRA
-                // Routes have also been assigned to vehicles by MRA (before signaling completion)
-                System.out.println("\n=== Solution Ready ===");
-                System.out.println("✓ Solution received from MRA");
-                System.out.println("  Routes: " + solutionHolder.solution.routes.size());
-                System.out.println("  Items Delivered: " + solutionHolder.solution.itemsDelivered + "/" + solutionHolder.solution.itemsTotal);
-                System.out.println("  Total Distance: " + String.format("%.2f", solutionHolder.solution.totalDistance));
-                System.out.println("  Unserved Customers: " + solutionHolder.solution.unservedCustomers.size());
-                System.out.println("✓ Solution submitted to backend");
-                System.out.println("✓ Routes assigned to vehicles");
-                System.out.println("  (Route assignment communication logged in timestamped log folder)");
-            } else {
-                System.err.println("✗ Solution timeout or error for request " + request.requestId);
-                // Solution should have been submitted by MRA even on error, but log it
-                if (solutionHolder.solution == null) {
-                    // Submit empty solution to indicate failure
-                    SolutionResult errorResult = new SolutionResult();
-                    errorResult.itemsTotal = config.customers.stream().mapToInt(c -> c.demand).sum();
-                    BackendClient.submitSolution(request.requestId, errorResult, request.requestId);
-                }
-            }
+            reportOutcome(request, problem, completed, solutionHolder);
             
-            // Wait a bit before cleanup to allow route assignment responses to be fully logged
-            // Route assignments have already been sent by MRA before signaling completion
-            // This ensures all route assignment messages and responses are logged
-            System.out.println("\n=== Waiting for Route Assignment Responses to be Logged ===");
-            System.out.println("Waiting 3 seconds for route assignment responses to complete logging...");
-            try {
-                Thread.sleep(3000); // Wait 3 seconds for final route assignment responses to be logged
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            System.out.println("✓ Route assignment communication logging completed");
+            // No cleanup delay: the latch is only released after the route assignment
+            // responses have been received and logged by the MRA
             
             // Clean up agents after route assignment has completed
-            System.out.println("\n=== Cleaning Up Agents ===");
+            Log.debug("=== Cleaning Up Agents ===");
             try {
-                System.out.println("Terminating MRA...");
                 mraController.kill();
-                System.out.println("✓ MRA terminated");
+                Log.debug("✓ MRA terminated");
                 
-                for (JsonConfigReader.VehicleConfig vehicleConfig : config.vehicles) {
+                for (JsonConfigReader.VehicleConfig vehicleConfig : problem.vehicles) {
                     try {
                         String daName = vehicleConfig.name + "-" + request.requestId;
-                        System.out.println("Terminating DA: " + daName);
                         mainContainer.getAgent(daName).kill();
-                        System.out.println("  ✓ DA " + daName + " terminated");
+                        Log.trace(() -> "  ✓ DA " + daName + " terminated");
                     } catch (Exception e) {
-                        System.err.println("  ✗ Failed to terminate DA " + vehicleConfig.name + "-" + request.requestId + ": " + e.getMessage());
+                        Log.warn("  ✗ Failed to terminate DA " + vehicleConfig.name + "-" + request.requestId + ": " + e.getMessage());
                         // Ignore cleanup errors
                     }
                 }
-                System.out.println("✓ All agents terminated");
+                Log.debug("✓ All agents terminated");
             } catch (Exception e) {
-                System.err.println("Error terminating agents: " + e.getMessage());
-                e.printStackTrace();
+                Log.error("Error terminating agents: " + e.getMessage(), e);
             }
             
-            System.out.println("Request processing complete\n");
+            Log.info("Request " + request.requestId + " complete - end-to-end latency: " +
+                     (System.currentTimeMillis() - requestStart) + " ms" +
+                     " (solution ready and acknowledged after " + solutionReadyMs + " ms)");
             
         } catch (Exception e) {
-            System.err.println("Error processing request: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error processing request: " + e.getMessage(), e);
+            // Answer anyway, so neither the backend nor a local caller waits on the request forever
+            submitFailure(request);
+        }
+    }
+    
+    /**
+     * Reports the outcome of a request and submits an empty solution if the MRA produced none
+     */
+    private static void reportOutcome(BackendRequest request, ProblemInstance problem, boolean completed,
+                                      SolutionHolder solutionHolder) {
+        if (completed && solutionHolder.solution != null) {
+            // Solution is already submitted to backend by MRA
+            // Routes have also been assigned to vehicles by MRA (before signaling completion)
+            SolutionResult solution = solutionHolder.solution;
+            Log.info("✓ Solution for request " + request.requestId + " submitted and assigned - routes " +
+                     solution.routes.size() + ", items delivered " + solution.itemsDelivered + "/" + solution.itemsTotal +
+                     ", distance " + String.format("%.2f", solution.totalDistance) +
+                     ", unserved " + solution.unservedCustomers.size());
+        } else {
+            Log.error("✗ Solution timeout or error for request " + request.requestId);
+            // Solution should have been submitted by MRA even on error, but log it
+            if (solutionHolder.solution == null) {
+                submitFailure(request);
+            }
+        }
+    }
+    
+    /**
+     * Submits an empty solution to indicate failure
+     */
+    private static void submitFailure(BackendRequest request) {
+        SolutionResult errorResult = new SolutionResult();
+        errorResult.itemsTotal = request.problem.getTotalDemand();
+        request.solutionSink.submit(request.requestId, errorResult);
+    }
+    
+    /**
+     * Processes a request with the resident MRA and pooled DAs (fleet mode)
+     */
+    private static void processWithFleet(BackendRequest request, ProblemInstance problem, long requestStart,
+                                         String logFolder, SolverTier solverTier) throws Exception {
+        CountDownLatch solutionLatch = new CountDownLatch(1);
+        SolutionHolder solutionHolder = new SolutionHolder();
+        
+        // Lease one resident DA per vehicle; DAs are only created when no idle one is left
+        List<String> daNames = deliveryAgentPool.lease(problem.vehicles);
+        Log.debug(() -> "Leased DAs: " + String.join(", ", daNames) +
+                        " (resident: " + deliveryAgentPool.size() + ")");
+        
+        boolean completed = false;
+        try {
+            RoutingRequest routingRequest = new RoutingRequest(problem, request.requestId, solutionLatch,
+                                                               solutionHolder, daNames, logFolder);
+            routingRequest.solverTier = solverTier;
+            routingRequest.solutionSink = request.solutionSink;
+            fleetMra.putO2AObject(routingRequest, AgentController.ASYNC);
+            Log.debug("✓ Request handed to resident MRA, waiting for solution...");
+            
+            // The MRA signals once every route assignment has been acknowledged (or its deadline passed)
+            completed = solutionLatch.await(MasterRoutingAgent.requestDeadlineMs(), TimeUnit.MILLISECONDS);
+            long solutionReadyMs = System.currentTimeMillis() - requestStart;
+            reportOutcome(request, problem, completed, solutionHolder);
+            Log.info("Request " + request.requestId + " complete - end-to-end latency: " +
+                     (System.currentTimeMillis() - requestStart) + " ms" +
+                     " (solution ready and acknowledged after " + solutionReadyMs + " ms)");
+        } finally {
+            // An unfinished request still owns its DAs in the MRA (its solve may be running, its
+            // route assignments pending): they go back to the pool only once it is cancelled
+            if (completed || cancelFleetRequest(request.requestId)) {
+                deliveryAgentPool.release(daNames);
+            } else {
+                Log.warn("MRA did not acknowledge the cancellation of request " + request.requestId +
+                         " - retiring its DAs");
+                deliveryAgentPool.retire(daNames);
+            }
+        }
+    }
+    
+    /**
+     * Cancels a request in the resident MRA and waits until the MRA has stopped working on it
+     *
+     * @return true if the MRA acknowledged the cancellation in time
+     */
+    private static boolean cancelFleetRequest(String requestId) {
+        RequestCancellation cancellation = new RequestCancellation(requestId, "Main stopped waiting");
+        try {
+            fleetMra.putO2AObject(cancellation, AgentController.ASYNC);
+            return cancellation.awaitAcknowledgement(CANCEL_ACK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (StaleProxyException e) {
+            Log.error("Cannot cancel request " + requestId + " in the MRA: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Request details for the DEBUG log: depot, problem size and the vehicles from the API
+     */
+    private static String describeRequest(String requestId, ProblemInstance problem) {
+        StringBuilder out = new StringBuilder(256);
+        out.append("=== Backend Request ").append(requestId).append(" ===\n");
+        out.append("Depot: ").append(problem.depotName).append(" at (").append(problem.getDepotX())
+           .append(", ").append(problem.getDepotY()).append(")\n");
+        out.append("Problem: ").append(problem.customerCount).append(" customers, ")
+           .append(problem.vehicles.size()).append(" vehicles, total demand ").append(problem.getTotalDemand())
+           .append(problem.hasTimeWindows() ? " (with time windows)" : "").append('\n');
+        out.append("Vehicles from API:");
+        for (int i = 0; i < problem.vehicles.size(); i++) {
+            JsonConfigReader.VehicleConfig v = problem.vehicles.get(i);
+            out.append("\n  Vehicle ").append(i + 1).append(": name='").append(v.name)
+               .append("', capacity=").append(v.capacity).append(", maxDistance=").append(v.maxDistance);
         }
+        return out.toString();
     }
     
     /**
@@ -0,0 +1,326 @@
+package project.Solver;
+
+import project.General.CustomerInfo;
+import project.General.RouteInfo;
+import project.General.SolutionResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Customer preselection for heavy capacity-shortfall instances (total demand far above
+ * total fleet capacity).
+ *
+ * Instead of letting the routing search decide which customers to drop through disjunction
+ * penalties, a multiple-knapsack relaxation picks the subset that fills the fleet with the
+ * most items (ties broken towards customers close to the depot). Only that subset is routed.
+ * A swap-in / swap-out repair then tries to insert or exchange left-out customers into the
+ * solved routes, or to open a route on a vehicle the solver left idle, to recover items the
+ * relaxation missed.
+ *
+ * All arrays are node-indexed: index 0 is the depot, index i is customer node i.
+ * Distances use the same rounded Euclidean metric as the solver's distance matrix.
+ */
+public class CapacityShortfallSelector {
+
+    // Preselection is used when total demand exceeds total capacity by this factor
+    public static final double TRIGGER_RATIO = 1.5;
+
+    // Extra capacity share (beyond total fleet capacity) selected as fallback candidates
+    private static final double SELECTION_MARGIN = 0.1;
+
+    // Above this many DP cells per vehicle the knapsack falls back to a greedy fill
+    private static final long MAX_DP_CELLS = 20_000_000L;
+
+    private final double[] x;
+    private final double[] y;
+    private final int[] demand;
+    private final int[] vehicleCapacities;
+    private final double[] vehicleMaxDistances;
+
+    public CapacityShortfallSelector(double[] x, double[] y, int[] demand,
+                                     int[] vehicleCapacities, double[] vehicleMaxDistances) {
+        this.x = x;
+        this.y = y;
+        this.demand = demand;
+        this.vehicleCapacities = vehicleCapacities;
+        this.vehicleMaxDistances = vehicleMaxDistances;
+    }
+
+    /**
+     * Checks whether the demand of the given customer nodes exceeds fleet capacity
+     * by at least {@link #TRIGGER_RATIO}.
+     */
+    public boolean isHeavyShortfall(List<Integer> candidates) {
+        long totalDemand = 0;
+        for (int node : candidates) {
+            totalDemand += demand[node];
+        }
+        long totalCapacity = 0;
+        for (int capacity : vehicleCapacities) {
+            totalCapacity += capacity;
+        }
+        return totalCapacity > 0 && totalDemand > TRIGGER_RATIO * totalCapacity;
+    }
+
+    /**
+     * Chooses a promising customer subset by solving one 0/1 knapsack per vehicle
+     * (largest vehicle first) over the customers that vehicle can reach.
+     *
+     * @param candidates customer node indices to choose from
+     * @return selected node indices in ascending order
+     */
+    public List<Integer> select(List<Integer> candidates) {
+        List<Integer> remaining = new ArrayList<>(candidates);
+        List<Integer> selected = new ArrayList<>();
+
+        // Secondary objective: prefer customers close to the depot
+        long radialTotal = 1;
+        for (int node : candidates) {
+            radialTotal += dist(0, node);
+        }
+
+        Integer[] vehicleOrder = new Integer[vehicleCapacities.length];
+        for (int v = 0; v < vehicleOrder.length; v++) {
+            vehicleOrder[v] = v;
+        }
+        Arrays.sort(vehicleOrder, (a, b) -> Integer.compare(vehicleCapacities[b], vehicleCapacities[a]));
+
+        for (int v : vehicleOrder) {
+            List<Integer> eligible = new ArrayList<>();
+            for (int node : remaining) {
+                if (demand[node] <= vehicleCapacities[v]
+                        && 2L * dist(0, node) <= Math.round(vehicleMaxDistances[v])) {
+                    eligible.add(node);
+                }
+            }
+            List<Integer> packed = knapsack(eligible, vehicleCapacities[v], radialTotal);
+            selected.addAll(packed);
+            remaining.removeAll(new HashSet<>(packed));
+        }
+
+        // Add a few of the closest left-over customers so the routing search has alternatives
+        long totalCapacity = 0;
+        for (int capacity : vehicleCapacities) {
+            totalCapacity += capacity;
+        }
+        long marginBudget = Math.round(totalCapacity * SELECTION_MARGIN);
+        remaining.sort(Comparator.comparingLong(node -> dist(0, node)));
+        for (int node : remaining) {
+            if (marginBudget <= 0) {
+                break;
+            }
+            if (demand[node] <= marginBudget) {
+                selected.add(node);
+                marginBudget -= demand[node];
+            }
+        }
+
+        selected.sort(null);
+        return selected;
+    }
+
+    /**
+     * 0/1 knapsack maximizing items packed, ties broken by smaller depot distance.
+     * Value of a customer is demand * radialTotal - depotDistance, which keeps the
+     * item count strictly dominant over the distance tie-break.
+     */
+    private List<Integer> knapsack(List<Integer> eligible, int capacity, long radialTotal) {
+        int n = eligible.size();
+        List<Integer> packed = new ArrayList<>();
+        if (n == 0 || capacity <= 0) {
+            return packed;
+        }
+
+        if ((long) n * (capacity + 1) > MAX_DP_CELLS) {
+            // Greedy fill: largest demand first, closer customers first on ties
+            List<Integer> order = new ArrayList<>(eligible);
+            order.sort((a, b) -> demand[a] != demand[b]
+                ? Integer.compare(demand[b], demand[a])
+                : Long.compare(dist(0, a), dist(0, b)));
+            int load = 0;
+            for (int node : order) {
+                if (load + demand[node] <= capacity) {
+                    packed.add(node);
+                    load += demand[node];
+                }
+            }
+            return packed;
+        }
+
+        long[] best = new long[capacity + 1];
+        boolean[][] take = new boolean[n][capacity + 1];
+        for (int i = 0; i < n; i++) {
+            int node = eligible.get(i);
+            int weight = demand[node];
+            long value = weight * radialTotal - dist(0, node);
+            for (int c = capacity; c >= weight; c--) {
+                long candidate = best[c - weight] + value;
+                if (candidate > best[c]) {
+                    best[c] = candidate;
+                    take[i][c] = true;
+                }
+            }
+        }
+
+        int c = capacity;
+        for (int i = n - 1; i >= 0 && c > 0; i--) {
+            if (take[i][c]) {
+                int node = eligible.get(i);
+                packed.add(node);
+                c -= demand[node];
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Swap-in / swap-out repair on a solved result. Unserved customers (largest demand first)
+     * are inserted at the cheapest feasible position of any route; if no insertion fits, a new
+     * route is opened on the smallest idle vehicle that can carry the customer on a round trip;
+     * otherwise the customer replaces a served customer with smaller demand when capacity and
+     * the vehicle's maximum distance still hold. Route totals and result totals are updated in place.
+     *
+     * @return number of additional items delivered after repair
+     */
+    public int repair(SolutionResult result) {
+        List<RouteInfo> routes = result.routes;
+        int gained = 0;
+
+        List<CustomerInfo> unserved = new ArrayList<>(result.unservedCustomers);
+        unserved.sort((a, b) -> Integer.compare(demand[b.id], demand[a.id]));
+
+        for (CustomerInfo candidate : unserved) {
+            if (candidate.unservedReason != null) {
+                continue;  // Pruned as unservable - never worth trying
+            }
+            int node = candidate.id;
+
+            if (tryInsert(routes, node) || tryOpenRoute(routes, node)) {
+                result.unservedCustomers.remove(candidate);
+                gained += demand[node];
+                continue;
+            }
+
+            CustomerInfo removed = trySwap(routes, node);
+            if (removed != null) {
+                result.unservedCustomers.remove(candidate);
+                result.unservedCustomers.add(removed);
+                gained += demand[node] - demand[removed.id];
+            }
+        }
+
+        if (gained > 0) {
+            result.itemsDelivered = 0;
+            result.totalDistance = 0.0;
+            for (RouteInfo route : routes) {
+                result.itemsDelivered += route.totalDemand;
+                result.totalDistance += route.totalDistance;
+            }
+        }
+        return gained;
+    }
+
+    private boolean tryInsert(List<RouteInfo> routes, int node) {
+        RouteInfo bestRoute = null;
+        int bestPosition = -1;
+        long bestDelta = Long.MAX_VALUE;
+
+        for (RouteInfo route : routes) {
+            int v = route.vehicleId - 1;
+            if (route.totalDemand + demand[node] > vehicleCapacities[v]) {
+                continue;
+            }
+            long routeDistance = routeDistance(route.customers);
+            long limit = Math.round(vehicleMaxDistances[v]);
+            for (int pos = 0; pos <= route.customers.size(); pos++) {
+                int prev = pos == 0 ? 0 : route.customers.get(pos - 1).id;
+                int next = pos == route.customers.size() ? 0 : route.customers.get(pos).id;
+                long delta = dist(prev, node) + dist(node, next) - dist(prev, next);
+                if (routeDistance + delta <= limit && delta < bestDelta) {
+                    bestDelta = delta;
+                    bestRoute = route;
+                    bestPosition = pos;
+                }
+            }
+        }
+
+        if (bestRoute == null) {
+            return false;
+        }
+        bestRoute.customers.add(bestPosition, new CustomerInfo(node, 0, 0, demand[node]));
+        bestRoute.totalDemand += demand[node];
+        bestRoute.totalDistance = routeDistance(bestRoute.customers);
+        return true;
+    }
+
+    /**
+     * Opens a single-customer route on the smallest vehicle without a route that fits
+     */
+    private boolean tryOpenRoute(List<RouteInfo> routes, int node) {
+        boolean[] busy = new boolean[vehicleCapacities.length];
+        for (RouteInfo route : routes) {
+            busy[route.vehicleId - 1] = true;
+        }
+        int best = -1;
+        for (int v = 0; v < vehicleCapacities.length; v++) {
+            if (!busy[v] && demand[node] <= vehicleCapacities[v]
+                    && 2L * dist(0, node) <= Math.round(vehicleMaxDistances[v])
+                    && (best < 0 || vehicleCapacities[v] < vehicleCapacities[best])) {
+                best = v;
+            }
+        }
+        if (best < 0) {
+            return false;
+        }
+        RouteInfo route = new RouteInfo(best + 1);
+        route.customers.add(new CustomerInfo(node, 0, 0, demand[node]));
+        route.totalDemand = demand[node];
+        route.totalDistance = routeDistance(route.customers);
+        routes.add(route);
+        return true;
+    }
+
+    private CustomerInfo trySwap(List<RouteInfo> routes, int node) {
+        for (RouteInfo route : routes) {
+            int v = route.vehicleId - 1;
+            long limit = Math.round(vehicleMaxDistances[v]);
+            long routeDistance = routeDistance(route.customers);
+            for (int pos = 0; pos < route.customers.size(); pos++) {
+                int served = route.customers.get(pos).id;
+                if (demand[served] >= demand[node]
+                        || route.totalDemand - demand[served] + demand[node] > vehicleCapacities[v]) {
+                    continue;
+                }
+                int prev = pos == 0 ? 0 : route.customers.get(pos - 1).id;
+                int next = pos == route.customers.size() - 1 ? 0 : route.customers.get(pos + 1).id;
+                long delta = dist(prev, node) + dist(node, next) - dist(prev, served) - dist(served, next);
+                if (routeDistance + delta > limit) {
+                    continue;
+                }
+                CustomerInfo removed = route.customers.set(pos, new CustomerInfo(node, 0, 0, demand[node]));
+                route.totalDemand += demand[node] - demand[served];
+                route.totalDistance = routeDistance(route.customers);
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    private long routeDistance(List<CustomerInfo> customers) {
+        long total = 0;
+        int prev = 0;
+        for (CustomerInfo customer : customers) {
+            total += dist(prev, customer.id);
+            prev = customer.id;
+        }
+        return total + dist(prev, 0);
+    }
+
+    private long dist(int from, int to) {
+        return Math.round(Math.hypot(x[from] - x[to], y[from] - y[to]));
+    }
+}
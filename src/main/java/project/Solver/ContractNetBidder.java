@@ -0,0 +1,77 @@
+package project.Solver;
+
+import project.General.RouteMessages;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bidding side of the Contract-Net assignment mode, run by each Delivery Agent on its own
+ * thread: prices every customer of an announced batch by its marginal insertion cost
+ * against the agent's tentative route ({@link InsertionRoute}), and inserts the customers it
+ * is awarded. Customers that no longer fit when awarded (another award of the same round
+ * took the room) are reported back as failed.
+ */
+public class ContractNetBidder {
+    private final int capacity;
+    private final double maxDistance;
+
+    private InsertionRoute route;
+    // Customers of the current batch by ID: x, y, demand
+    private final Map<Integer, double[]> announced = new HashMap<>();
+
+    public ContractNetBidder(int capacity, double maxDistance) {
+        this.capacity = capacity;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Bids on a batch: one cost per customer that fits the tentative route
+     */
+    public RouteMessages.Bids bid(RouteMessages.CustomerBatch batch) {
+        if (route == null || route.depotX != batch.depotX || route.depotY != batch.depotY) {
+            route = new InsertionRoute(batch.depotX, batch.depotY, capacity, maxDistance);
+        }
+        announced.clear();
+        int[] ids = new int[batch.size()];
+        double[] costs = new double[batch.size()];
+        int count = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            announced.put(batch.customerIds[i], new double[]{batch.x[i], batch.y[i], batch.demand[i]});
+            if (route.bestPosition(batch.x[i], batch.y[i], batch.demand[i]) >= 0) {
+                ids[count] = batch.customerIds[i];
+                costs[count] = route.getLastCost();
+                count++;
+            }
+        }
+        RouteMessages.Bids bids = new RouteMessages.Bids();
+        bids.round = batch.round;
+        bids.customerIds = Arrays.copyOf(ids, count);
+        bids.costs = Arrays.copyOf(costs, count);
+        return bids;
+    }
+
+    /**
+     * Inserts the awarded customers in order
+     *
+     * @return the tentative route after insertion and the customers that did not fit
+     */
+    public RouteMessages.AwardResult award(RouteMessages.Award award) {
+        int[] failed = new int[award.customerIds.length];
+        int failedCount = 0;
+        for (int id : award.customerIds) {
+            double[] customer = announced.get(id);
+            if (route == null || customer == null || !route.insert(id, customer[0], customer[1], (int) customer[2])) {
+                failed[failedCount++] = id;
+            }
+        }
+        RouteMessages.AwardResult result = new RouteMessages.AwardResult();
+        result.round = award.round;
+        result.route = route != null ? route.getCustomerIds() : new int[0];
+        result.failed = Arrays.copyOf(failed, failedCount);
+        result.load = route != null ? route.getLoad() : 0;
+        result.distance = route != null ? route.getDistance() : 0;
+        return result;
+    }
+}
@@ -0,0 +1,537 @@
+package project.Solver;
+
+import project.Agent.DepotProblemAssembler;
+import project.General.CustomerInfo;
+import project.General.ProblemInstance;
+import project.General.RouteInfo;
+import project.General.RouteMessages;
+import project.General.SolutionResult;
+import project.General.VehicleInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Auctioneer side of the Contract-Net assignment mode (CVRP without time windows): instead of
+ * one central solve, the customers are announced to the Delivery Agents in batches, each DA
+ * bids its marginal insertion cost against its own tentative route ({@link ContractNetBidder}),
+ * and every customer is awarded to a cheapest bidder. A central improvement pass then
+ * polishes the assembled routes.
+ *
+ * Customers are announced farthest from the depot first (the usual insertion order). Awards
+ * of a round are made in order of regret (second-cheapest minus cheapest bid, a customer
+ * with a single bid first), each to the cheapest bidder with capacity left this round.
+ * Customers without bids are dropped (routes only grow, so no later bid can appear); awarded
+ * customers a DA can no longer insert go back to the front of the queue, up to
+ * {@link #MAX_ATTEMPTS} times. Customers no vehicle can ever serve are pruned up front with
+ * the reason codes of {@link DepotProblemAssembler}; on heavy capacity-shortfall instances only
+ * the knapsack-preselected customers are announced, as in the central solve
+ * ({@link CapacityShortfallSelector}).
+ *
+ * The improvement pass ({@link #finish(long)}) alternates 2-opt within routes, relocation of
+ * customers between routes and insertion of dropped customers, keeping capacity and maximum
+ * distance, until nothing improves or the time budget is spent, followed by the selector's
+ * swap-in / swap-out repair on shortfall instances. Distances are Euclidean,
+ * rounded per leg like the central solve's distance matrix.
+ *
+ * Vehicles are indexed in the order given (route vehicle ID = index + 1); customer IDs are
+ * node indices of the problem instance. Not thread-safe: the MRA drives it from its agent
+ * thread and runs {@link #finish(long)} once all rounds are over.
+ */
+public class ContractNetPlanner {
+    public static final int DEFAULT_BATCH_SIZE = 10;
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final ProblemInstance problem;
+    private final List<VehicleInfo> vehicles;
+    private final int batchSize;
+    private final long startTime = System.currentTimeMillis();
+
+    private final Deque<Integer> pending = new ArrayDeque<>();
+    private final int[] attempts;
+    private final List<CustomerInfo> pruned = new ArrayList<>();
+    private final List<Integer> dropped = new ArrayList<>();
+    private final CapacityShortfallSelector shortfallSelector;  // null unless heavy shortfall
+
+    // Tentative routes and loads as last reported by each vehicle
+    private final int[][] routes;
+    private final int[] loads;
+    private final int[][] unconfirmed;  // Awards of the current round not yet reported back
+    private final boolean[] withdrawn;  // Vehicles that stopped answering (no further awards)
+
+    // Current round: announced customers and their bids (customer -> {vehicle, cost} pairs)
+    private int round;
+    private int[] batch = new int[0];
+    private final Map<Integer, List<double[]>> bids = new HashMap<>();
+
+    private long bidCount;
+    private long awardCount;
+    private long failedAwards;
+
+    public ContractNetPlanner(ProblemInstance problem, List<VehicleInfo> vehicles, int batchSize) {
+        this.problem = problem;
+        this.vehicles = vehicles;
+        this.batchSize = Math.max(1, batchSize);
+        this.attempts = new int[problem.customerCount + 1];
+        this.routes = new int[vehicles.size()][0];
+        this.loads = new int[vehicles.size()];
+        this.unconfirmed = new int[vehicles.size()][];
+        this.withdrawn = new boolean[vehicles.size()];
+
+        List<Integer> kept = new ArrayList<>();
+        for (int node = 1; node <= problem.customerCount; node++) {
+            String reason = pruneReason(node);
+            if (reason == null) {
+                kept.add(node);
+            } else {
+                CustomerInfo customer = problem.toCustomerInfo(node);
+                customer.unservedReason = reason;
+                pruned.add(customer);
+            }
+        }
+
+        int[] capacities = new int[vehicles.size()];
+        double[] maxDistances = new double[vehicles.size()];
+        for (int v = 0; v < capacities.length; v++) {
+            capacities[v] = vehicles.get(v).capacity;
+            maxDistances[v] = vehicles.get(v).maxDistance;
+        }
+        CapacityShortfallSelector selector = new CapacityShortfallSelector(problem.x, problem.y, problem.demand,
+                                                                           capacities, maxDistances);
+        if (selector.isHeavyShortfall(kept)) {
+            List<Integer> selected = selector.select(kept);
+            Set<Integer> selectedSet = new HashSet<>(selected);
+            for (int node : kept) {
+                if (!selectedSet.contains(node)) {
+                    dropped.add(node);
+                }
+            }
+            kept = new ArrayList<>(selected);
+            shortfallSelector = selector;
+        } else {
+            shortfallSelector = null;
+        }
+        kept.sort((a, b) -> Long.compare(dist(0, b), dist(0, a)));
+        pending.addAll(kept);
+    }
+
+    /**
+     * Same criteria as the central pre-solve reduction (no time windows)
+     */
+    private String pruneReason(int node) {
+        int demand = problem.demand[node];
+        long depotDistance = dist(0, node);
+        boolean capacityOk = false;
+        boolean rangeOk = false;
+        boolean vehicleOk = false;
+        for (VehicleInfo vehicle : vehicles) {
+            boolean fits = demand <= vehicle.capacity;
+            boolean reaches = 2 * depotDistance <= Math.round(vehicle.maxDistance);
+            capacityOk |= fits;
+            rangeOk |= reaches;
+            vehicleOk |= fits && reaches;
+        }
+        if (!capacityOk) {
+            return DepotProblemAssembler.REASON_DEMAND_EXCEEDS_CAPACITY;
+        } else if (!rangeOk) {
+            return DepotProblemAssembler.REASON_OUT_OF_RANGE;
+        } else if (!vehicleOk) {
+            return DepotProblemAssembler.REASON_NO_SUITABLE_VEHICLE;
+        }
+        return null;
+    }
+
+    private long dist(int a, int b) {
+        return InsertionRoute.leg(problem.x[a], problem.y[a], problem.x[b], problem.y[b]);
+    }
+
+    /**
+     * True once every customer has been awarded, dropped or pruned
+     */
+    public boolean isDone() {
+        return pending.isEmpty();
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Starts the next round: takes up to batchSize queued customers
+     *
+     * @return the call for proposals to send to every DA
+     */
+    public RouteMessages.CustomerBatch nextBatch() {
+        round++;
+        bids.clear();
+        batch = new int[Math.min(batchSize, pending.size())];
+        RouteMessages.CustomerBatch announcement = new RouteMessages.CustomerBatch();
+        announcement.round = round;
+        announcement.depotX = problem.getDepotX();
+        announcement.depotY = problem.getDepotY();
+        announcement.setCustomerCount(batch.length);
+        for (int i = 0; i < batch.length; i++) {
+            int node = pending.poll();
+            batch[i] = node;
+            announcement.customerIds[i] = node;
+            announcement.x[i] = problem.x[node];
+            announcement.y[i] = problem.y[node];
+            announcement.demand[i] = problem.demand[node];
+            bids.put(node, new ArrayList<>());
+        }
+        return announcement;
+    }
+
+    /**
+     * Records a vehicle's bids; bids of an earlier round or for customers not announced are ignored
+     */
+    public void addBids(int vehicle, RouteMessages.Bids proposal) {
+        if (proposal.round != round || withdrawn[vehicle]) {
+            return;
+        }
+        for (int i = 0; i < proposal.size(); i++) {
+            int node = proposal.customerIds[i];
+            List<double[]> nodeBids = bids.get(node);
+            if (nodeBids != null) {
+                nodeBids.add(new double[]{vehicle, proposal.costs[i]});
+                bidCount++;
+            }
+        }
+    }
+
+    /**
+     * Awards the current round's customers (regret order, cheapest bidder with capacity left)
+     *
+     * @return awarded customers per vehicle index, null for vehicles awarded nothing
+     */
+    public int[][] award() {
+        List<Integer> order = new ArrayList<>();
+        Map<Integer, Double> regret = new HashMap<>();
+        for (int node : batch) {
+            List<double[]> nodeBids = bids.get(node);
+            if (nodeBids.isEmpty()) {
+                dropped.add(node);
+                continue;
+            }
+            nodeBids.sort((a, b) -> Double.compare(a[1], b[1]));
+            regret.put(node, nodeBids.size() > 1 ? nodeBids.get(1)[1] - nodeBids.get(0)[1] : Double.MAX_VALUE);
+            order.add(node);
+        }
+        order.sort((a, b) -> Double.compare(regret.get(b), regret.get(a)));
+
+        int[] room = new int[vehicles.size()];
+        for (int v = 0; v < room.length; v++) {
+            room[v] = vehicles.get(v).capacity - loads[v];
+        }
+        List<List<Integer>> awarded = new ArrayList<>();
+        for (int v = 0; v < room.length; v++) {
+            awarded.add(new ArrayList<>());
+        }
+        for (int node : order) {
+            int winner = -1;
+            for (double[] bid : bids.get(node)) {
+                int v = (int) bid[0];
+                if (room[v] >= problem.demand[node]) {
+                    winner = v;
+                    break;
+                }
+            }
+            if (winner < 0) {
+                requeue(node);
+                continue;
+            }
+            room[winner] -= problem.demand[node];
+            awarded.get(winner).add(node);
+            awardCount++;
+        }
+
+        int[][] awards = new int[vehicles.size()][];
+        for (int v = 0; v < awards.length; v++) {
+            List<Integer> nodes = awarded.get(v);
+            if (!nodes.isEmpty()) {
+                awards[v] = new int[nodes.size()];
+                for (int i = 0; i < nodes.size(); i++) {
+                    awards[v][i] = nodes.get(i);
+                }
+            }
+            unconfirmed[v] = awards[v];
+        }
+        return awards;
+    }
+
+    /**
+     * Records a vehicle's tentative route after its award; failed customers are queued again.
+     * Results of an earlier round or of a withdrawn vehicle are ignored.
+     */
+    public void onAwardResult(int vehicle, RouteMessages.AwardResult result) {
+        if (result.round != round || withdrawn[vehicle] || unconfirmed[vehicle] == null) {
+            return;
+        }
+        unconfirmed[vehicle] = null;
+        routes[vehicle] = result.route;
+        loads[vehicle] = result.load;
+        for (int node : result.failed) {
+            failedAwards++;
+            requeue(node);
+        }
+    }
+
+    private void requeue(int node) {
+        if (++attempts[node] < MAX_ATTEMPTS) {
+            pending.addFirst(node);
+        } else {
+            dropped.add(node);
+        }
+    }
+
+    /**
+     * Takes a vehicle out of the auction (it did not report its award in time): its route stays
+     * as last reported and its unreported awards are queued again
+     */
+    public void withdraw(int vehicle) {
+        if (withdrawn[vehicle]) {
+            return;
+        }
+        withdrawn[vehicle] = true;
+        if (unconfirmed[vehicle] != null) {
+            for (int node : unconfirmed[vehicle]) {
+                requeue(node);
+            }
+            unconfirmed[vehicle] = null;
+        }
+    }
+
+    public boolean isWithdrawn(int vehicle) {
+        return withdrawn[vehicle];
+    }
+
+    /**
+     * Drops every customer still queued (the auction ran out of time)
+     */
+    public void abandonPending() {
+        for (int v = 0; v < vehicles.size(); v++) {
+            withdraw(v);
+        }
+        dropped.addAll(pending);
+        pending.clear();
+    }
+
+    /**
+     * One-line summary: rounds, bids, awards and failed awards so far
+     */
+    public String getStatistics() {
+        return "rounds=" + round + ", bids=" + bidCount + ", awards=" + awardCount +
+               ", failedAwards=" + failedAwards + ", dropped=" + dropped.size() + ", pruned=" + pruned.size();
+    }
+
+    // ---------------------------------------------------------------- improvement pass
+
+    /**
+     * Central improvement pass over the awarded routes, then the result
+     *
+     * @param budgetMs time budget of the improvement pass (0 = none)
+     */
+    public SolutionResult finish(long budgetMs) {
+        long deadline = System.currentTimeMillis() + budgetMs;
+        int count = vehicles.size();
+        List<List<Integer>> tours = new ArrayList<>(count);
+        long[] distances = new long[count];
+        for (int v = 0; v < count; v++) {
+            List<Integer> tour = new ArrayList<>(routes[v].length);
+            for (int node : routes[v]) {
+                tour.add(node);
+            }
+            tours.add(tour);
+            loads[v] = 0;
+            for (int node : tour) {
+                loads[v] += problem.demand[node];
+            }
+            distances[v] = tourDistance(tour);
+        }
+
+        boolean improved = budgetMs > 0;
+        while (improved && System.currentTimeMillis() < deadline) {
+            improved = false;
+            for (int v = 0; v < count; v++) {
+                improved |= twoOpt(tours.get(v));
+                distances[v] = tourDistance(tours.get(v));
+            }
+            improved |= relocate(tours, distances, deadline);
+            improved |= insertDropped(tours, distances);
+        }
+
+        SolutionResult result = new SolutionResult();
+        for (int v = 0; v < count; v++) {
+            List<Integer> tour = tours.get(v);
+            if (tour.isEmpty()) {
+                continue;
+            }
+            RouteInfo route = new RouteInfo(v + 1, vehicles.get(v).name);
+            for (int node : tour) {
+                route.customers.add(problem.toCustomerInfo(node));
+                route.totalDemand += problem.demand[node];
+            }
+            route.totalDistance = distances[v];
+            result.routes.add(route);
+            result.totalDistance += route.totalDistance;
+            result.itemsDelivered += route.totalDemand;
+        }
+        for (int node : dropped) {
+            result.unservedCustomers.add(problem.toCustomerInfo(node));
+        }
+        result.unservedCustomers.addAll(pruned);
+        result.itemsTotal = problem.getTotalDemand();
+        if (shortfallSelector != null) {
+            shortfallSelector.repair(result);
+        }
+        result.solveTimeMs = System.currentTimeMillis() - startTime;
+        return result;
+    }
+
+    private long tourDistance(List<Integer> tour) {
+        long total = 0;
+        int previous = 0;
+        for (int node : tour) {
+            total += dist(previous, node);
+            previous = node;
+        }
+        return total + dist(previous, 0);
+    }
+
+    private int at(List<Integer> tour, int position) {
+        return position < 0 || position >= tour.size() ? 0 : tour.get(position);
+    }
+
+    /**
+     * First-improvement 2-opt until no reversal shortens the tour
+     */
+    private boolean twoOpt(List<Integer> tour) {
+        boolean changed = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < tour.size() - 1; i++) {
+                for (int j = i + 1; j < tour.size(); j++) {
+                    int before = at(tour, i - 1);
+                    int after = at(tour, j + 1);
+                    long delta = dist(before, tour.get(j)) + dist(tour.get(i), after)
+                               - dist(before, tour.get(i)) - dist(tour.get(j), after);
+                    if (delta < 0) {
+                        Collections.reverse(tour.subList(i, j + 1));
+                        improved = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Cheapest feasible insertion of a node into a tour
+     *
+     * @return {position, cost}, or null if capacity or maximum distance forbid it
+     */
+    private long[] cheapestInsertion(List<Integer> tour, int vehicle, long distance, int node) {
+        VehicleInfo info = vehicles.get(vehicle);
+        if (loads[vehicle] + problem.demand[node] > info.capacity) {
+            return null;
+        }
+        long best = Long.MAX_VALUE;
+        int bestPosition = -1;
+        for (int position = 0; position <= tour.size(); position++) {
+            int before = at(tour, position - 1);
+            int after = at(tour, position);
+            long cost = dist(before, node) + dist(node, after) - dist(before, after);
+            if (cost < best) {
+                best = cost;
+                bestPosition = position;
+            }
+        }
+        if (distance + best > Math.round(info.maxDistance)) {
+            return null;
+        }
+        return new long[]{bestPosition, best};
+    }
+
+    /**
+     * Moves single customers to another tour where that shortens the total distance
+     */
+    private boolean relocate(List<List<Integer>> tours, long[] distances, long deadline) {
+        boolean changed = false;
+        for (int from = 0; from < tours.size(); from++) {
+            List<Integer> source = tours.get(from);
+            for (int position = 0; position < source.size(); position++) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return changed;
+                }
+                int node = source.get(position);
+                int before = at(source, position - 1);
+                int after = at(source, position + 1);
+                long gain = dist(before, node) + dist(node, after) - dist(before, after);
+                int bestTarget = -1;
+                long[] bestInsertion = null;
+                for (int to = 0; to < tours.size(); to++) {
+                    if (to == from) {
+                        continue;
+                    }
+                    long[] insertion = cheapestInsertion(tours.get(to), to, distances[to], node);
+                    if (insertion != null && insertion[1] < gain &&
+                        (bestInsertion == null || insertion[1] < bestInsertion[1])) {
+                        bestTarget = to;
+                        bestInsertion = insertion;
+                    }
+                }
+                if (bestTarget >= 0) {
+                    source.remove(position);
+                    tours.get(bestTarget).add((int) bestInsertion[0], node);
+                    loads[from] -= problem.demand[node];
+                    loads[bestTarget] += problem.demand[node];
+                    distances[from] -= gain;
+                    distances[bestTarget] += bestInsertion[1];
+                    position--;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Inserts dropped customers (largest demand first) where they now fit
+     */
+    private boolean insertDropped(List<List<Integer>> tours, long[] distances) {
+        if (dropped.isEmpty()) {
+            return false;
+        }
+        dropped.sort((a, b) -> Integer.compare(problem.demand[b], problem.demand[a]));
+        boolean changed = false;
+        for (int i = 0; i < dropped.size(); i++) {
+            int node = dropped.get(i);
+            int bestTarget = -1;
+            long[] bestInsertion = null;
+            for (int v = 0; v < tours.size(); v++) {
+                long[] insertion = cheapestInsertion(tours.get(v), v, distances[v], node);
+                if (insertion != null && (bestInsertion == null || insertion[1] < bestInsertion[1])) {
+                    bestTarget = v;
+                    bestInsertion = insertion;
+                }
+            }
+            if (bestTarget >= 0) {
+                tours.get(bestTarget).add((int) bestInsertion[0], node);
+                loads[bestTarget] += problem.demand[node];
+                distances[bestTarget] += bestInsertion[1];
+                dropped.remove(i--);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
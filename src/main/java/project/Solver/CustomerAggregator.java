@@ -0,0 +1,131 @@
+package project.Solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges co-located customers (apartment blocks, business parks) into super-nodes so the
+ * distance matrix and routing model only contain one node per location.
+ *
+ * A customer joins an existing group when it lies within epsilon of the group's first
+ * member, the combined demand stays within the demand bound of every member, and its time
+ * window overlaps the group's window. The super-node window is the intersection of the
+ * member windows. A super-node is always served by one vehicle, so the caller chooses the
+ * bounds small enough that no group would be better split across vehicles.
+ *
+ * All arrays are node-indexed: index 0 is the depot, index i is customer node i.
+ * Time windows may be null (CVRP) or contain null entries for customers without a window.
+ */
+public class CustomerAggregator {
+
+    private final double epsilon;
+    private final int[] demandBound;
+
+    /**
+     * @param epsilon maximum distance between a customer and its group's first member
+     *                (0 merges only identical coordinates)
+     * @param demandBound node-indexed maximum combined demand of a group containing the node
+     */
+    public CustomerAggregator(double epsilon, int[] demandBound) {
+        this.epsilon = epsilon;
+        this.demandBound = demandBound;
+    }
+
+    /**
+     * Groups the given customer nodes. Groups keep the order of their first member, and
+     * members keep their input order, so results are deterministic.
+     *
+     * @return one array of member nodes per super-node
+     */
+    public List<int[]> aggregate(List<Integer> nodes, double[] x, double[] y, int[] demand,
+                                 long[][] timeWindows) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> groupDemand = new ArrayList<>();
+        List<Integer> groupBound = new ArrayList<>();
+        List<long[]> groupWindow = new ArrayList<>();
+
+        // Spatial hash of group leaders; cell size epsilon so neighbours are in adjacent cells
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        double cellSize = epsilon > 0 ? epsilon : 1.0;
+
+        for (int node : nodes) {
+            long cellX = (long) Math.floor(x[node] / cellSize);
+            long cellY = (long) Math.floor(y[node] / cellSize);
+            long[] window = windowOf(timeWindows, node);
+
+            int joined = -1;
+            for (long dx = -1; dx <= 1 && joined < 0; dx++) {
+                for (long dy = -1; dy <= 1 && joined < 0; dy++) {
+                    List<Integer> candidates = cells.get(cellKey(cellX + dx, cellY + dy));
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (int g : candidates) {
+                        int leader = groups.get(g).get(0);
+                        int combined = groupDemand.get(g) + demand[node];
+                        if (Math.hypot(x[node] - x[leader], y[node] - y[leader]) > epsilon
+                                || combined > groupBound.get(g) || combined > demandBound[node]) {
+                            continue;
+                        }
+                        long[] merged = intersect(groupWindow.get(g), window);
+                        if (merged != null && merged[0] > merged[1]) {
+                            continue;  // Windows do not overlap
+                        }
+                        groups.get(g).add(node);
+                        groupDemand.set(g, combined);
+                        groupBound.set(g, Math.min(groupBound.get(g), demandBound[node]));
+                        groupWindow.set(g, merged);
+                        joined = g;
+                        break;
+                    }
+                }
+            }
+
+            if (joined < 0) {
+                List<Integer> group = new ArrayList<>();
+                group.add(node);
+                groups.add(group);
+                groupDemand.add(demand[node]);
+                groupBound.add(demandBound[node]);
+                groupWindow.add(window);
+                cells.computeIfAbsent(cellKey(cellX, cellY), k -> new ArrayList<>()).add(groups.size() - 1);
+            }
+        }
+
+        List<int[]> result = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups) {
+            int[] members = new int[group.size()];
+            for (int i = 0; i < members.length; i++) {
+                members[i] = group.get(i);
+            }
+            result.add(members);
+        }
+        return result;
+    }
+
+    /**
+     * Intersection of two windows; null stands for "no window".
+     */
+    public static long[] intersect(long[] a, long[] b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return new long[]{Math.max(a[0], b[0]), Math.min(a[1], b[1])};
+    }
+
+    private static long[] windowOf(long[][] timeWindows, int node) {
+        if (timeWindows == null || timeWindows[node] == null || timeWindows[node].length < 2) {
+            return null;
+        }
+        return new long[]{timeWindows[node][0], timeWindows[node][1]};
+    }
+
+    private static long cellKey(long cellX, long cellY) {
+        return cellX * 0x9E3779B97F4A7C15L + cellY;
+    }
+}
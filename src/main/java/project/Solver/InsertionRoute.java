@@ -0,0 +1,136 @@
+package project.Solver;
+
+import java.util.Arrays;
+
+/**
+ * Tentative route of one vehicle built by cheapest insertion, used for Contract-Net bidding:
+ * a Delivery Agent prices each announced customer by its marginal insertion cost against its
+ * own route, and inserts the customers it is awarded.
+ *
+ * Distances are Euclidean, rounded per leg like the solver's distance matrix, so route
+ * distances and the maximum distance check match the central solve.
+ */
+public class InsertionRoute {
+    public final double depotX;
+    public final double depotY;
+    public final int capacity;
+    public final double maxDistance;
+
+    private int[] ids = new int[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private int[] demands = new int[16];
+    private int size;
+    private int load;
+    private long distance;
+
+    // Result of the last bestPosition call
+    private long lastCost;
+
+    public InsertionRoute(double depotX, double depotY, int capacity, double maxDistance) {
+        this.depotX = depotX;
+        this.depotY = depotY;
+        this.capacity = capacity;
+        this.maxDistance = maxDistance;
+    }
+
+    static long leg(double x1, double y1, double x2, double y2) {
+        return Math.round(Math.hypot(x1 - x2, y1 - y2));
+    }
+
+    private double x(int position) {
+        return position < 0 || position >= size ? depotX : xs[position];
+    }
+
+    private double y(int position) {
+        return position < 0 || position >= size ? depotY : ys[position];
+    }
+
+    /**
+     * Cheapest feasible position for a customer (it goes before the customer now at that
+     * position; size = at the end), with its marginal cost available from {@link #getLastCost()}
+     *
+     * @return the position, or -1 if the customer does not fit (capacity or maximum distance)
+     */
+    public int bestPosition(double x, double y, int demand) {
+        if (load + demand > capacity) {
+            return -1;
+        }
+        long best = Long.MAX_VALUE;
+        int bestPosition = -1;
+        for (int position = 0; position <= size; position++) {
+            double px = x(position - 1);
+            double py = y(position - 1);
+            double nx = x(position);
+            double ny = y(position);
+            long cost = leg(px, py, x, y) + leg(x, y, nx, ny) - leg(px, py, nx, ny);
+            if (cost < best) {
+                best = cost;
+                bestPosition = position;
+            }
+        }
+        if (distance + best > Math.round(maxDistance)) {
+            return -1;
+        }
+        lastCost = best;
+        return bestPosition;
+    }
+
+    /**
+     * Marginal cost found by the last successful {@link #bestPosition} call
+     */
+    public long getLastCost() {
+        return lastCost;
+    }
+
+    /**
+     * Inserts a customer at its cheapest feasible position
+     *
+     * @return false if it does not fit
+     */
+    public boolean insert(int id, double x, double y, int demand) {
+        int position = bestPosition(x, y, demand);
+        if (position < 0) {
+            return false;
+        }
+        if (size == ids.length) {
+            int grown = size * 2;
+            ids = Arrays.copyOf(ids, grown);
+            xs = Arrays.copyOf(xs, grown);
+            ys = Arrays.copyOf(ys, grown);
+            demands = Arrays.copyOf(demands, grown);
+        }
+        int tail = size - position;
+        System.arraycopy(ids, position, ids, position + 1, tail);
+        System.arraycopy(xs, position, xs, position + 1, tail);
+        System.arraycopy(ys, position, ys, position + 1, tail);
+        System.arraycopy(demands, position, demands, position + 1, tail);
+        ids[position] = id;
+        xs[position] = x;
+        ys[position] = y;
+        demands[position] = demand;
+        size++;
+        load += demand;
+        distance += lastCost;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public long getDistance() {
+        return distance;
+    }
+
+    /**
+     * Customer IDs in visiting order
+     */
+    public int[] getCustomerIds() {
+        return Arrays.copyOf(ids, size);
+    }
+}
@@ -11,234 +11,240 @@ import com.google.ortools.constraintsolver.main;
 import project.General.CustomerInfo;
 import project.General.RouteInfo;
 import project.General.SolutionResult;
+import project.Utils.Log;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * OR-Tools implementation of VRPSolver with capacity and maximum distance constraints.
- * 
+ *
  * Basic Requirement 1: Prioritizes number of items delivered over total travel distance.
  *   - Uses penalty for unvisited nodes to maximize items delivered
  *   - Minimizes distance as secondary objective
- * 
+ *
  * Basic Requirement 2: Enforces maximum distance constraint per vehicle.
  *   - Adds distance dimension with vehicle-specific maximum distances
+ *
+ * Optional two-phase (lexicographic) mode:
+ *   - Phase 1 maximizes items delivered using demand-proportional drop penalties that are
+ *     scaled from the distance matrix, so one delivered item always outweighs any detour
+ *   - Phase 2 fixes the served set from phase 1 (every served node becomes mandatory, the
+ *     rest are removed) and spends the remaining time budget purely on distance
+ *
+ * The search can be stopped early from another thread with {@link #cancel()}.
+ *
+ * Time windows are preprocessed by {@link TimeWindowPreprocessor} (tightened windows,
+ * data-derived horizon and waiting slack, time-incompatible arcs removed) unless disabled.
  */
 public class ORToolsSolver implements VRPSolver {
-    
+
     // Large penalty for unvisited nodes to prioritize items delivered over distance
     // This ensures maximizing items delivered is the primary objective
     private static final long UNVISITED_NODE_PENALTY = 1000000L;
-    
+
+    // Default search time limit per solve
+    public static final int DEFAULT_TIME_LIMIT_SECONDS = 30;
+
+    // Share of the time budget given to phase 1 in two-phase mode
+    private static final double PHASE_ONE_BUDGET_SHARE = 0.5;
+
+    private final boolean twoPhase;
+    private final long timeLimitMs;
+    private final boolean timeWindowPreprocessing;
+
+    // Solutions found during the last solve: {elapsed ms since solve start, objective value, phase}
+    private final List<long[]> convergenceTrace = new ArrayList<>();
+
+    // Set by cancel() from another thread; polled by a search limit, so the search also stops between solutions
+    private volatile boolean cancelled;
+
+    public ORToolsSolver() {
+        this(false, DEFAULT_TIME_LIMIT_SECONDS);
+    }
+
+    public ORToolsSolver(boolean twoPhase) {
+        this(twoPhase, DEFAULT_TIME_LIMIT_SECONDS);
+    }
+
+    public ORToolsSolver(boolean twoPhase, int timeLimitSeconds) {
+        this(twoPhase, timeLimitSeconds, true);
+    }
+
+    public ORToolsSolver(boolean twoPhase, int timeLimitSeconds, boolean timeWindowPreprocessing) {
+        this.twoPhase = twoPhase;
+        this.timeLimitMs = timeLimitSeconds * 1000L;
+        this.timeWindowPreprocessing = timeWindowPreprocessing;
+    }
+
+    /**
+     * Returns the solutions found during the last solve as {elapsedMs, objective, phase} entries.
+     * Used by SolverBenchmark (test sources) to compare convergence speed between modes.
+     */
+    public List<long[]> getConvergenceTrace() {
+        return new ArrayList<>(convergenceTrace);
+    }
+
+    /**
+     * Stops the current search at its next limit check (keeping the best solution so far, if any)
+     * and skips phase 2. A cancelled solver stays cancelled.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
     @Override
     public SolutionResult solve(int numNodes, int numCustomers, int numVehicles,
                                int[] vehicleCapacities, double[] vehicleMaxDistances,
                                int[] demand, int[][] distance, long[][] timeWindows) {
         long startTime = System.currentTimeMillis();
-        
+        convergenceTrace.clear();
+
         // Load OR-Tools native library
         Loader.loadNativeLibraries();
-        
+
         boolean hasTimeWindows = (timeWindows != null && timeWindows.length > 0);
         String problemType = hasTimeWindows ? "TWVRP" : "CVRP";
-        
-        System.out.println("=== OR-Tools " + problemType + " Solver (Basic Requirements 1 & 2) ===");
-        System.out.println("Nodes: " + numNodes + " (including depot)");
-        System.out.println("Customers: " + numCustomers);
-        System.out.println("Vehicles: " + numVehicles);
-        if (hasTimeWindows) {
-            System.out.println("Time Windows: Enabled");
-        }
-        
+
+        Log.debug(() -> "=== OR-Tools " + problemType + " Solver (Basic Requirements 1 & 2) ===\n" +
+                        "Nodes: " + numNodes + " (including depot)\n" +
+                        "Customers: " + numCustomers + "\n" +
+                        "Vehicles: " + numVehicles +
+                        (hasTimeWindows ? "\nTime Windows: Enabled" : "") +
+                        (twoPhase ? "\nMode: Two-phase (items first, then distance with fixed service set)" : ""));
+
         // Calculate total items requested
         int totalItems = 0;
         for (int i = 1; i < numNodes; i++) {
             totalItems += demand[i];
         }
-        
+
         SolutionResult result = new SolutionResult();
         result.itemsTotal = totalItems;
-        
+
         try {
-            // Create Routing Index Manager
-            RoutingIndexManager manager = new RoutingIndexManager(numNodes, numVehicles, 0);
-            
-            // Create Routing Model
-            RoutingModel routing = new RoutingModel(manager);
-            
-            // Create distance callback
-            final int transitCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
-                int fromNode = manager.indexToNode(fromIndex);
-                int toNode = manager.indexToNode(toIndex);
-                return distance[fromNode][toNode];
-            });
-            
-            // Set arc cost (distance) - this is the secondary objective
-            routing.setArcCostEvaluatorOfAllVehicles(transitCallbackIndex);
-            
-            // BASIC REQUIREMENT 1: Prioritize items delivered over distance
-            // Add penalty for unvisited nodes (disallow or heavily penalize)
-            // By setting a large penalty, we prioritize visiting as many nodes as possible
-            // This ensures that maximizing items delivered takes precedence over minimizing distance
-            for (int node = 1; node < numNodes; node++) {
-                long index = manager.nodeToIndex(node);
-                // Add disjunction with large penalty - solver will try to visit all nodes first
-                // before considering distance minimization
-                routing.addDisjunction(new long[]{index}, UNVISITED_NODE_PENALTY);
+            // Every node takes part in the first (or only) phase
+            int[] allNodes = new int[numNodes];
+            for (int node = 0; node < numNodes; node++) {
+                allNodes[node] = node;
             }
-            
-            // Add capacity constraint
-            final int demandCallbackIndex = routing.registerUnaryTransitCallback((long fromIndex) -> {
-                int fromNode = manager.indexToNode(fromIndex);
-                return demand[fromNode];
-            });
-            
-            // Convert vehicle capacities to long array
-            long[] vehicleCapacitiesLong = new long[numVehicles];
-            for (int i = 0; i < numVehicles; i++) {
-                vehicleCapacitiesLong[i] = vehicleCapacities[i];
+
+            long[] penalties = new long[numNodes];
+            if (twoPhase) {
+                // Demand-proportional penalty, scaled so one item outweighs the largest possible
+                // detour (removing a node saves at most two arcs)
+                long maxArc = 0;
+                for (int i = 0; i < numNodes; i++) {
+                    for (int j = 0; j < numNodes; j++) {
+                        maxArc = Math.max(maxArc, distance[i][j]);
+                    }
+                }
+                long itemPenalty = 2 * maxArc + 1;
+                for (int node = 1; node < numNodes; node++) {
+                    penalties[node] = Math.max(1, demand[node]) * itemPenalty;
+                }
+            } else {
+                for (int node = 1; node < numNodes; node++) {
+                    penalties[node] = UNVISITED_NODE_PENALTY;
+                }
             }
-            
-            routing.addDimensionWithVehicleCapacity(
-                demandCallbackIndex,
-                0,  // null capacity slack
-                vehicleCapacitiesLong,  // vehicle capacities
-                true,  // start cumul to zero
-                "Capacity"
-            );
-            
-            // BASIC REQUIREMENT 2: Add maximum distance constraint per vehicle
-            final int distanceCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
-                int fromNode = manager.indexToNode(fromIndex);
-                int toNode = manager.indexToNode(toIndex);
-                return distance[fromNode][toNode];
-            });
-            
-            // Convert vehicle max distances to long array (round to nearest integer)
-            long[] vehicleMaxDistancesLong = new long[numVehicles];
-            for (int i = 0; i < numVehicles; i++) {
-                vehicleMaxDistancesLong[i] = Math.round(vehicleMaxDistances[i]);
+
+            TimeWindowPreprocessor twPreprocessor = null;
+            if (hasTimeWindows && timeWindowPreprocessing) {
+                twPreprocessor = new TimeWindowPreprocessor(distance, timeWindows, vehicleMaxDistances);
+                TimeWindowPreprocessor preprocessor = twPreprocessor;
+                Log.debug(() -> "Time window preprocessing: horizon " + preprocessor.getHorizon() +
+                    ", max slack " + preprocessor.getMaxSlack() +
+                    ", " + preprocessor.getRemovedArcCount() + " incompatible arcs removed" +
+                    (preprocessor.getEmptyWindowCount() > 0
+                        ? ", " + preprocessor.getEmptyWindowCount() + " unreachable windows" : ""));
             }
-            
-            routing.addDimensionWithVehicleCapacity(
-                distanceCallbackIndex,
-                0,  // null distance slack
-                vehicleMaxDistancesLong,  // vehicle maximum distances
-                true,  // start cumul to zero
-                "Distance"
-            );
-            
-            // Add time window constraints if provided (TWVRP)
-            com.google.ortools.constraintsolver.RoutingDimension timeDimension = null;
+
+            RoutingProblem phaseOne = buildModel(allNodes, penalties, numVehicles, vehicleCapacities,
+                                                 vehicleMaxDistances, demand, distance, timeWindows,
+                                                 twPreprocessor);
             if (hasTimeWindows) {
-                // Default vehicle speed: 10 units per unit time
-                // Transit time = distance / speed = distance / 10
-                // Note: Service time at nodes is assumed to be 0 (no unloading time)
-                final double DEFAULT_SPEED = 10.0; // units per unit time
-                final int timeCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
-                    int fromNode = manager.indexToNode(fromIndex);
-                    int toNode = manager.indexToNode(toIndex);
-                    // Transit time = distance / speed
-                    // Round to nearest integer for time units
-                    return Math.round(distance[fromNode][toNode] / DEFAULT_SPEED);
-                });
-                
-                // Find maximum time window end to set as capacity
-                long maxTime = 0;
-                if (timeWindows[0] != null && timeWindows[0].length >= 2) {
-                    maxTime = timeWindows[0][1];
+                Log.debug(() -> "Time window constraints added for " + numCustomers + " customers");
+            }
+
+            long phaseOneLimitMs = twoPhase ? Math.round(timeLimitMs * PHASE_ONE_BUDGET_SHARE) : timeLimitMs;
+
+            Log.debug(() -> "Solving " + problemType + " with capacity and maximum distance constraints...\n" +
+                            "Objective: Maximize items delivered (primary), minimize distance (secondary)");
+
+            // Solve
+            Assignment solution = solveWithTrace(phaseOne, searchParameters(phaseOneLimitMs), null, startTime, 1);
+            RoutingProblem solvedProblem = phaseOne;
+
+            if (cancelled) {
+                Log.info("Search cancelled - returning best solution found so far");
+            }
+
+            if (solution != null && twoPhase && !cancelled) {
+                Log.debug("Phase 1 objective value: " + solution.objectiveValue());
+
+                // Phase 2: lock the served set and minimize distance only
+                List<List<Integer>> phaseOneRoutes = extractRoutes(phaseOne, solution, numVehicles);
+                List<Integer> servedNodes = new ArrayList<>();
+                servedNodes.add(0);
+                for (List<Integer> route : phaseOneRoutes) {
+                    servedNodes.addAll(route);
                 }
-                for (int node = 1; node < numNodes; node++) {
-                    if (timeWindows[node] != null && timeWindows[node].length >= 2) {
-                        maxTime = Math.max(maxTime, timeWindows[node][1]);
-                    }
+                int[] fixedNodes = new int[servedNodes.size()];
+                for (int i = 0; i < fixedNodes.length; i++) {
+                    fixedNodes[i] = servedNodes.get(i);
                 }
-                // Add buffer for travel time
-                maxTime += 10000; // Large buffer to accommodate travel time
-                
-                // Add time dimension
-                // Parameters: transit callback, slack max, capacity, fix_start_cumul_to_zero, name
-                routing.addDimension(
-                    timeCallbackIndex,
-                    (long) 30,  // Allow 30 units of waiting time (slack max)
-                    maxTime,    // Maximum time per vehicle
-                    false,      // Don't force start cumul to zero (allows vehicles to start at different times)
-                    "Time"
-                );
-                
-                timeDimension = routing.getDimensionOrDie("Time");
-                
-                // Set time windows for each node
-                for (int node = 0; node < numNodes; node++) {
-                    if (timeWindows[node] != null && timeWindows[node].length >= 2) {
-                        long earliest = timeWindows[node][0];
-                        long latest = timeWindows[node][1];
-                        long index = manager.nodeToIndex(node);
-                        timeDimension.cumulVar(index).setRange(earliest, latest);
+
+                long remainingMs = timeLimitMs - (System.currentTimeMillis() - startTime);
+                if (fixedNodes.length > 1 && remainingMs > 0) {
+                    RoutingProblem phaseTwo = buildModel(fixedNodes, null, numVehicles, vehicleCapacities,
+                                                         vehicleMaxDistances, demand, distance, timeWindows,
+                                                         twPreprocessor);
+                    Assignment initial = phaseTwo.routing.readAssignmentFromRoutes(
+                        phaseTwo.toIndexRoutes(phaseOneRoutes), true);
+                    Assignment improved = solveWithTrace(phaseTwo, searchParameters(remainingMs),
+                                                         initial, startTime, 2);
+                    if (improved != null) {
+                        Log.debug("Phase 2 objective value (distance): " + improved.objectiveValue());
+                        solution = improved;
+                        solvedProblem = phaseTwo;
+                    } else {
+                        Log.debug("Phase 2 found no solution - keeping phase 1 routes");
                     }
                 }
-                
-                System.out.println("Time window constraints added for " + numCustomers + " customers");
             }
-            
-            // Set search parameters
-            RoutingSearchParameters searchParameters = main.defaultRoutingSearchParameters()
-                .toBuilder()
-                .setFirstSolutionStrategy(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC)
-                .setLocalSearchMetaheuristic(LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH)
-                .setTimeLimit(com.google.protobuf.Duration.newBuilder().setSeconds(30).build())
-                .build();
-            
-            System.out.println("Solving " + problemType + " with capacity and maximum distance constraints...");
-            System.out.println("Objective: Maximize items delivered (primary), minimize distance (secondary)");
-            
-            // Solve
-            Assignment solution = routing.solveWithParameters(searchParameters);
-            
+
             if (solution != null) {
                 long endTime = System.currentTimeMillis();
                 result.solveTimeMs = endTime - startTime;
-                
-                System.out.println("Solution found in " + result.solveTimeMs + " ms!");
-                System.out.println("Objective value: " + solution.objectiveValue());
-                
+
+                Log.debug("Solution found in " + result.solveTimeMs + " ms! Objective value: " + solution.objectiveValue());
+
                 // Extract routes and track served nodes
                 int totalItemsDelivered = 0;
                 double totalDist = 0.0;
                 boolean[] servedNodes = new boolean[numNodes]; // Track which nodes are served
                 servedNodes[0] = true; // Depot is always "served"
-                
-                // Get distance dimension to extract route distances
-                com.google.ortools.constraintsolver.RoutingDimension distanceDimension = 
-                    routing.getDimensionOrDie("Distance");
-                
+
+                List<List<Integer>> routes = extractRoutes(solvedProblem, solution, numVehicles);
                 for (int vehicleId = 0; vehicleId < numVehicles; vehicleId++) {
-                    long index = routing.start(vehicleId);
                     RouteInfo routeInfo = new RouteInfo(vehicleId + 1);
+                    List<Integer> route = routes.get(vehicleId);
                     int routeLoad = 0;
-                    List<Integer> route = new ArrayList<>();
-                    List<Integer> nodeSequence = new ArrayList<>();
-                    
-                    // Extract route sequence
-                    while (!routing.isEnd(index)) {
-                        int nodeIndex = manager.indexToNode(index);
-                        nodeSequence.add(nodeIndex);
-                        if (nodeIndex != 0) {  // Skip depot
-                            route.add(nodeIndex);
-                            routeLoad += demand[nodeIndex];
-                            servedNodes[nodeIndex] = true; // Mark as served
-                        }
-                        index = solution.value(routing.nextVar(index));
+                    for (int nodeIndex : route) {
+                        routeLoad += demand[nodeIndex];
+                        servedNodes[nodeIndex] = true; // Mark as served
                     }
-                    
+
                     // Calculate route distance from distance dimension
                     // The distance dimension tracks cumulative distance at each node
                     long routeDistanceLong = solution.value(
-                        distanceDimension.cumulVar(routing.end(vehicleId))
+                        solvedProblem.routing.getDimensionOrDie("Distance")
+                            .cumulVar(solvedProblem.routing.end(vehicleId))
                     );
                     double routeDistance = (double) routeDistanceLong;
-                    
+
                     // Add customers to route
                     if (!route.isEmpty()) {
                         for (int nodeIndex : route) {
@@ -248,17 +254,19 @@ public class ORToolsSolver implements VRPSolver {
                         routeInfo.totalDemand = routeLoad;
                         routeInfo.totalDistance = routeDistance;
                         result.routes.add(routeInfo);
-                        
+
                         totalItemsDelivered += routeLoad;
                         totalDist += routeDistance;
-                        
-                        System.out.println("Vehicle " + (vehicleId + 1) + ": " + route + 
-                            " | Items: " + routeLoad + "/" + vehicleCapacities[vehicleId] + 
-                            " | Distance: " + String.format("%.2f", routeDistance) + 
-                            "/" + String.format("%.2f", vehicleMaxDistances[vehicleId]));
+
+                        if (Log.isTraceEnabled()) {
+                            Log.trace(() -> "Vehicle " + (routeInfo.vehicleId) + ": " + route +
+                                " | Items: " + routeInfo.totalDemand + "/" + vehicleCapacities[routeInfo.vehicleId - 1] +
+                                " | Distance: " + String.format("%.2f", routeInfo.totalDistance) +
+                                "/" + String.format("%.2f", vehicleMaxDistances[routeInfo.vehicleId - 1]));
+                        }
                     }
                 }
-                
+
                 // Track unserved customers (nodes that were not visited)
                 for (int node = 1; node < numNodes; node++) {
                     if (!servedNodes[node]) {
@@ -268,51 +276,298 @@ public class ORToolsSolver implements VRPSolver {
                         result.unservedCustomers.add(unserved);
                     }
                 }
-                
+
                 result.totalDistance = totalDist;
                 result.itemsDelivered = totalItemsDelivered;
-                
-                System.out.println("\n=== Solution Summary ===");
-                System.out.println("Total items delivered: " + result.itemsDelivered + "/" + result.itemsTotal);
-                System.out.println("Total distance: " + String.format("%.2f", result.totalDistance));
-                System.out.println("Number of routes: " + result.routes.size());
-                System.out.println("Unserved customers: " + result.unservedCustomers.size());
+
+                Log.info("Solver: " + problemType + " solved in " + result.solveTimeMs + " ms - items delivered " +
+                         result.itemsDelivered + "/" + result.itemsTotal +
+                         ", distance " + String.format("%.2f", result.totalDistance) +
+                         ", routes " + result.routes.size() +
+                         ", unserved " + result.unservedCustomers.size());
                 if (result.unservedCustomers.size() > 0) {
-                    System.out.print("Unserved node indices: ");
-                    for (CustomerInfo unserved : result.unservedCustomers) {
-                        System.out.print(unserved.id + " (demand: " + unserved.demand + ") ");
-                    }
-                    System.out.println();
+                    Log.trace(() -> {
+                        StringBuilder out = new StringBuilder("Unserved node indices: ");
+                        for (CustomerInfo unserved : result.unservedCustomers) {
+                            out.append(unserved.id).append(" (demand: ").append(unserved.demand).append(") ");
+                        }
+                        return out.toString();
+                    });
                 }
-                
+
             } else {
                 long endTime = System.currentTimeMillis();
                 result.solveTimeMs = endTime - startTime;
-                System.out.println("No solution found within time limit.");
+                Log.warn("No solution found within time limit.");
                 result.totalDistance = 0.0;
                 result.itemsDelivered = 0;
-                
+
                 // If no solution found, all customers are unserved
                 for (int node = 1; node < numNodes; node++) {
                     CustomerInfo unserved = new CustomerInfo(node, 0, 0, demand[node]);
                     result.unservedCustomers.add(unserved);
                 }
             }
-            
+
         } catch (Exception e) {
-            System.err.println("Error during OR-Tools solving: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error during OR-Tools solving: " + e.getMessage(), e);
             result.totalDistance = 0.0;
             result.itemsDelivered = 0;
-            
+
             // On error, mark all customers as unserved
             for (int node = 1; node < numNodes; node++) {
                 CustomerInfo unserved = new CustomerInfo(node, 0, 0, demand[node]);
                 result.unservedCustomers.add(unserved);
             }
         }
-        
-        System.out.println("=== Solving Complete ===\n");
+
+        Log.debug("=== Solving Complete ===\n");
         return result;
     }
+
+    /**
+     * Builds a routing model over a subset of nodes.
+     *
+     * @param nodes model node -> problem node mapping (nodes[0] must be the depot 0)
+     * @param penalties drop penalty per problem node; null makes every node mandatory
+     * @param twPreprocessor tightened time windows and arc filter; null uses the raw windows
+     */
+    private RoutingProblem buildModel(int[] nodes, long[] penalties, int numVehicles,
+                                      int[] vehicleCapacities, double[] vehicleMaxDistances,
+                                      int[] demand, int[][] distance, long[][] timeWindows,
+                                      TimeWindowPreprocessor twPreprocessor) {
+        // Create Routing Index Manager
+        RoutingIndexManager manager = new RoutingIndexManager(nodes.length, numVehicles, 0);
+
+        // Create Routing Model
+        RoutingModel routing = new RoutingModel(manager);
+
+        // Create distance callback
+        final int transitCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
+            int fromNode = nodes[manager.indexToNode(fromIndex)];
+            int toNode = nodes[manager.indexToNode(toIndex)];
+            return distance[fromNode][toNode];
+        });
+
+        // Set arc cost (distance) - this is the secondary objective
+        routing.setArcCostEvaluatorOfAllVehicles(transitCallbackIndex);
+
+        // BASIC REQUIREMENT 1: Prioritize items delivered over distance
+        // Add penalty for unvisited nodes (disallow or heavily penalize)
+        // By setting a large penalty, we prioritize visiting as many nodes as possible
+        // This ensures that maximizing items delivered takes precedence over minimizing distance
+        if (penalties != null) {
+            for (int modelNode = 1; modelNode < nodes.length; modelNode++) {
+                long index = manager.nodeToIndex(modelNode);
+                // Add disjunction with large penalty - solver will try to visit all nodes first
+                // before considering distance minimization
+                routing.addDisjunction(new long[]{index}, penalties[nodes[modelNode]]);
+            }
+        }
+
+        // Add capacity constraint
+        final int demandCallbackIndex = routing.registerUnaryTransitCallback((long fromIndex) -> {
+            int fromNode = nodes[manager.indexToNode(fromIndex)];
+            return demand[fromNode];
+        });
+
+        // Convert vehicle capacities to long array
+        long[] vehicleCapacitiesLong = new long[numVehicles];
+        for (int i = 0; i < numVehicles; i++) {
+            vehicleCapacitiesLong[i] = vehicleCapacities[i];
+        }
+
+        routing.addDimensionWithVehicleCapacity(
+            demandCallbackIndex,
+            0,  // null capacity slack
+            vehicleCapacitiesLong,  // vehicle capacities
+            true,  // start cumul to zero
+            "Capacity"
+        );
+
+        // BASIC REQUIREMENT 2: Add maximum distance constraint per vehicle
+        final int distanceCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
+            int fromNode = nodes[manager.indexToNode(fromIndex)];
+            int toNode = nodes[manager.indexToNode(toIndex)];
+            return distance[fromNode][toNode];
+        });
+
+        // Convert vehicle max distances to long array (round to nearest integer)
+        long[] vehicleMaxDistancesLong = new long[numVehicles];
+        for (int i = 0; i < numVehicles; i++) {
+            vehicleMaxDistancesLong[i] = Math.round(vehicleMaxDistances[i]);
+        }
+
+        routing.addDimensionWithVehicleCapacity(
+            distanceCallbackIndex,
+            0,  // null distance slack
+            vehicleMaxDistancesLong,  // vehicle maximum distances
+            true,  // start cumul to zero
+            "Distance"
+        );
+
+        // Add time window constraints if provided (TWVRP)
+        if (timeWindows != null && timeWindows.length > 0) {
+            // Default vehicle speed: TRAVEL_SPEED (10) units per unit time
+            // Transit time = distance / speed = distance / 10
+            // Note: Service time at nodes is assumed to be 0 (no unloading time)
+            final int timeCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
+                int fromNode = nodes[manager.indexToNode(fromIndex)];
+                int toNode = nodes[manager.indexToNode(toIndex)];
+                // Transit time = distance / speed
+                // Round to nearest integer for time units
+                return Math.round(distance[fromNode][toNode] / TRAVEL_SPEED);
+            });
+
+            long maxTime;
+            long maxSlack;
+            if (twPreprocessor != null) {
+                // Horizon and waiting slack derived from the data
+                maxTime = twPreprocessor.getHorizon();
+                maxSlack = twPreprocessor.getMaxSlack();
+            } else {
+                // Find maximum time window end to set as capacity
+                maxTime = 0;
+                if (timeWindows[0] != null && timeWindows[0].length >= 2) {
+                    maxTime = timeWindows[0][1];
+                }
+                for (int node = 1; node < timeWindows.length; node++) {
+                    if (timeWindows[node] != null && timeWindows[node].length >= 2) {
+                        maxTime = Math.max(maxTime, timeWindows[node][1]);
+                    }
+                }
+                // Add buffer for travel time
+                maxTime += 10000; // Large buffer to accommodate travel time
+                maxSlack = 30;    // Allow 30 units of waiting time
+            }
+
+            // Add time dimension
+            // Parameters: transit callback, slack max, capacity, fix_start_cumul_to_zero, name
+            routing.addDimension(
+                timeCallbackIndex,
+                maxSlack,   // Maximum waiting time at a node (slack max)
+                maxTime,    // Maximum time per vehicle
+                false,      // Don't force start cumul to zero (allows vehicles to start at different times)
+                "Time"
+            );
+
+            com.google.ortools.constraintsolver.RoutingDimension timeDimension = routing.getDimensionOrDie("Time");
+
+            // Set time windows for each node
+            for (int modelNode = 0; modelNode < nodes.length; modelNode++) {
+                long[] window = twPreprocessor != null
+                    ? twPreprocessor.getWindow(nodes[modelNode])
+                    : timeWindows[nodes[modelNode]];
+                if (window != null && window.length >= 2) {
+                    long index = manager.nodeToIndex(modelNode);
+                    timeDimension.cumulVar(index).setRange(window[0], window[1]);
+                }
+            }
+
+            // Remove customer-to-customer arcs that can never meet the destination's window
+            if (twPreprocessor != null) {
+                for (int from = 1; from < nodes.length; from++) {
+                    long fromIndex = manager.nodeToIndex(from);
+                    for (int to = 1; to < nodes.length; to++) {
+                        if (from != to && !twPreprocessor.isArcFeasible(nodes[from], nodes[to])) {
+                            routing.nextVar(fromIndex).removeValue(manager.nodeToIndex(to));
+                        }
+                    }
+                }
+            }
+        }
+
+        return new RoutingProblem(manager, routing, nodes);
+    }
+
+    /**
+     * Runs the search and records every solution found into the convergence trace. A custom
+     * limit polls the cancelled flag, so cancellation also stops a search that finds no new
+     * solution (or none at all yet).
+     */
+    private Assignment solveWithTrace(RoutingProblem problem, RoutingSearchParameters parameters,
+                                      Assignment initial, long startTime, int phase) {
+        RoutingModel routing = problem.routing;
+        routing.addAtSolutionCallback(() -> {
+            convergenceTrace.add(new long[]{
+                System.currentTimeMillis() - startTime, routing.costVar().value(), phase
+            });
+        });
+        routing.addSearchMonitor(routing.solver().makeCustomLimit(() -> cancelled));
+        if (initial != null) {
+            return routing.solveFromAssignmentWithParameters(initial, parameters);
+        }
+        return routing.solveWithParameters(parameters);
+    }
+
+    private static RoutingSearchParameters searchParameters(long timeLimitMs) {
+        // Set search parameters
+        return main.defaultRoutingSearchParameters()
+            .toBuilder()
+            .setFirstSolutionStrategy(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC)
+            .setLocalSearchMetaheuristic(LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH)
+            .setTimeLimit(com.google.protobuf.Duration.newBuilder()
+                .setSeconds(timeLimitMs / 1000)
+                .setNanos((int) ((timeLimitMs % 1000) * 1_000_000))
+                .build())
+            .build();
+    }
+
+    /**
+     * Extracts the visited problem nodes (depot excluded) of every vehicle, in visiting order.
+     */
+    private static List<List<Integer>> extractRoutes(RoutingProblem problem, Assignment solution, int numVehicles) {
+        List<List<Integer>> routes = new ArrayList<>();
+        for (int vehicleId = 0; vehicleId < numVehicles; vehicleId++) {
+            List<Integer> route = new ArrayList<>();
+            long index = problem.routing.start(vehicleId);
+            while (!problem.routing.isEnd(index)) {
+                int node = problem.nodes[problem.manager.indexToNode(index)];
+                if (node != 0) {  // Skip depot
+                    route.add(node);
+                }
+                index = solution.value(problem.routing.nextVar(index));
+            }
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    /**
+     * Routing model built over a node subset, with the mapping back to problem nodes.
+     */
+    private static class RoutingProblem {
+        final RoutingIndexManager manager;
+        final RoutingModel routing;
+        final int[] nodes;
+
+        RoutingProblem(RoutingIndexManager manager, RoutingModel routing, int[] nodes) {
+            this.manager = manager;
+            this.routing = routing;
+            this.nodes = nodes;
+        }
+
+        /**
+         * Converts routes of problem nodes into routes of this model's variable indices.
+         */
+        long[][] toIndexRoutes(List<List<Integer>> routes) {
+            int maxNode = 0;
+            for (int node : nodes) {
+                maxNode = Math.max(maxNode, node);
+            }
+            int[] modelNodeOf = new int[maxNode + 1];
+            for (int modelNode = 0; modelNode < nodes.length; modelNode++) {
+                modelNodeOf[nodes[modelNode]] = modelNode;
+            }
+            long[][] indexRoutes = new long[routes.size()][];
+            for (int v = 0; v < routes.size(); v++) {
+                List<Integer> route = routes.get(v);
+                indexRoutes[v] = new long[route.size()];
+                for (int i = 0; i < route.size(); i++) {
+                    indexRoutes[v][i] = manager.nodeToIndex(modelNodeOf[route.get(i)]);
+                }
+            }
+            return indexRoutes;
+        }
+    }
 }
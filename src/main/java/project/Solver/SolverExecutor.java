@@ -0,0 +1,72 @@
+package project.Solver;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pool that runs solves off the agents' threads.
+ *
+ * Agents submit a solve and get the outcome back asynchronously (the MRA posts it to itself
+ * via O2A), so their behaviours keep processing messages during a 30-second search.
+ * Pool size and queue length are bounded; a full queue rejects the submission with a
+ * RejectedExecutionException instead of piling up work.
+ *
+ * Configuration: -Dcvrp.solver.threads (default: available processors),
+ *                -Dcvrp.solver.queue (default: 16 waiting solves)
+ */
+public class SolverExecutor {
+
+    private static SolverExecutor shared;
+
+    private final ThreadPoolExecutor executor;
+
+    public SolverExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "solver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);  // Never keeps the JVM alive on shutdown
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    /**
+     * Process-wide executor shared by all agents in this JVM
+     */
+    public static synchronized SolverExecutor getShared() {
+        if (shared == null) {
+            int threads = Integer.getInteger("cvrp.solver.threads",
+                                             Runtime.getRuntime().availableProcessors());
+            int queueCapacity = Integer.getInteger("cvrp.solver.queue", 16);
+            shared = new SolverExecutor(Math.max(1, threads), Math.max(1, queueCapacity));
+        }
+        return shared;
+    }
+
+    /**
+     * Queues a solve task.
+     *
+     * @return future that can cancel the task while it is still queued
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     */
+    public Future<?> submit(Runnable solveTask) {
+        return executor.submit(solveTask);
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
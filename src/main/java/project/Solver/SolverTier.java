@@ -0,0 +1,34 @@
+package project.Solver;
+
+/**
+ * Solver configurations a request can be solved with.
+ * The request scheduler picks DEGRADED when it is overloaded (deep queue, requests that
+ * waited too long, or too little time left until the deadline) so latency stays bounded
+ * at the cost of solution quality.
+ */
+public enum SolverTier {
+    // Configured solver: full time budget, two-phase when -Dcvrp.solver.twoPhase=true
+    STANDARD,
+    // Single-phase search with a short budget (-Dcvrp.scheduler.degradedTimeLimitSeconds, default 3)
+    DEGRADED;
+
+    public static final int DEGRADED_TIME_LIMIT_SECONDS =
+        Math.max(1, Integer.getInteger("cvrp.scheduler.degradedTimeLimitSeconds", 3));
+
+    /**
+     * Creates a new solver instance for one request
+     */
+    public VRPSolver createSolver() {
+        if (this == DEGRADED) {
+            return new ORToolsSolver(false, DEGRADED_TIME_LIMIT_SECONDS);
+        }
+        return new ORToolsSolver(Boolean.getBoolean("cvrp.solver.twoPhase"));
+    }
+
+    /**
+     * Search time budget of this tier in milliseconds
+     */
+    public long getTimeBudgetMs() {
+        return (this == DEGRADED ? DEGRADED_TIME_LIMIT_SECONDS : ORToolsSolver.DEFAULT_TIME_LIMIT_SECONDS) * 1000L;
+    }
+}
@@ -0,0 +1,161 @@
+package project.Solver;
+
+import java.util.Arrays;
+
+/**
+ * Time-window propagation for TWVRP instances, run before the routing model is built.
+ *
+ * - Earliest/latest times are tightened from depot reachability: a customer cannot be
+ *   reached before the direct trip from the depot, and must be left early enough to
+ *   return to the depot before the horizon.
+ * - The horizon is derived from the data instead of a flat buffer: the latest window end
+ *   plus the return trip, or, when some customers have no window, plus the longest route
+ *   a vehicle may drive.
+ * - The waiting slack is the largest wait any feasible arc can require.
+ * - Arcs i -> j whose earliest arrival already misses j's latest time are marked infeasible.
+ *
+ * All arrays are node-indexed: index 0 is the depot, index i is customer node i.
+ * Transit time uses the same rounding as the solver's Time dimension and is computed from the
+ * distance matrix on demand; removed arcs are kept per origin node, so no n x n matrix is allocated.
+ */
+public class TimeWindowPreprocessor {
+
+    // Windows ending at or above this value are treated as "no window"
+    private static final long OPEN_WINDOW_END = Long.MAX_VALUE / 4;
+    private static final int[] NO_ARCS = new int[0];
+
+    private final int numNodes;
+    private final int[][] distance;
+    private final long[] earliest;
+    private final long[] latest;
+    // Sorted destinations of the removed arcs leaving each node
+    private final int[][] removedTargets;
+    private long horizon;
+    private long maxSlack;
+    private int removedArcs;
+    private int emptyWindows;
+
+    /**
+     * @param distance rounded distance matrix used by the solver
+     * @param timeWindows original windows per node (null entries mean no window)
+     * @param vehicleMaxDistances per-vehicle maximum route distance
+     */
+    public TimeWindowPreprocessor(int[][] distance, long[][] timeWindows, double[] vehicleMaxDistances) {
+        this.numNodes = distance.length;
+        this.distance = distance;
+        this.earliest = new long[numNodes];
+        this.latest = new long[numNodes];
+        this.removedTargets = new int[numNodes][];
+
+        computeHorizon(timeWindows, vehicleMaxDistances);
+        tightenWindows(timeWindows);
+        eliminateArcs();
+    }
+
+    private long transit(int from, int to) {
+        return Math.round(distance[from][to] / VRPSolver.TRAVEL_SPEED);
+    }
+
+    private void computeHorizon(long[][] timeWindows, double[] vehicleMaxDistances) {
+        long windowBound = 0;     // Latest window end plus return trip
+        long maxWindowEnd = 0;
+        boolean hasOpenCustomer = false;
+        for (int node = 1; node < numNodes; node++) {
+            long[] window = timeWindows[node];
+            if (window == null || window.length < 2 || window[1] >= OPEN_WINDOW_END) {
+                hasOpenCustomer = true;
+            } else {
+                windowBound = Math.max(windowBound, window[1] + transit(node, 0));
+                maxWindowEnd = Math.max(maxWindowEnd, window[1]);
+            }
+        }
+
+        horizon = windowBound;
+        if (hasOpenCustomer) {
+            // After its last windowed stop a vehicle never needs to wait, so it is back by the
+            // latest window end plus its longest drive (each rounded transit adds at most 0.5)
+            double maxDistance = 0;
+            for (double vehicleMax : vehicleMaxDistances) {
+                maxDistance = Math.max(maxDistance, vehicleMax);
+            }
+            long maxRouteTime = (long) Math.ceil(Math.min(maxDistance, (double) OPEN_WINDOW_END)
+                                                 / VRPSolver.TRAVEL_SPEED) + (numNodes + 1) / 2;
+            horizon = Math.max(horizon, maxWindowEnd + maxRouteTime);
+        }
+
+        long[] depotWindow = timeWindows[0];
+        if (depotWindow != null && depotWindow.length >= 2 && depotWindow[1] < OPEN_WINDOW_END) {
+            horizon = Math.min(horizon, depotWindow[1]);
+        }
+    }
+
+    private void tightenWindows(long[][] timeWindows) {
+        earliest[0] = 0;
+        latest[0] = horizon;
+        for (int node = 1; node < numNodes; node++) {
+            long[] window = timeWindows[node];
+            boolean hasWindow = window != null && window.length >= 2;
+            long start = hasWindow ? window[0] : 0;
+            long end = hasWindow ? window[1] : horizon;
+            earliest[node] = Math.max(start, earliest[0] + transit(0, node));
+            latest[node] = Math.min(end, horizon - transit(node, 0));
+            if (earliest[node] > latest[node]) {
+                // Unreachable within the horizon; keep a valid domain and let the solver drop it
+                emptyWindows++;
+                earliest[node] = Math.min(Math.max(start, 0), horizon);
+                latest[node] = earliest[node];
+            }
+        }
+    }
+
+    private void eliminateArcs() {
+        maxSlack = 0;
+        int[] removed = new int[16];
+        for (int i = 0; i < numNodes; i++) {
+            int count = 0;
+            for (int j = 1; j < numNodes; j++) {
+                if (i == j) {
+                    continue;
+                }
+                long arrival = earliest[i] + transit(i, j);
+                if (arrival > latest[j]) {
+                    if (count == removed.length) {
+                        removed = Arrays.copyOf(removed, count * 2);
+                    }
+                    removed[count++] = j;
+                    continue;
+                }
+                maxSlack = Math.max(maxSlack, earliest[j] - arrival);
+            }
+            removedTargets[i] = count == 0 ? NO_ARCS : Arrays.copyOf(removed, count);
+            removedArcs += count;
+        }
+    }
+
+    public long getHorizon() {
+        return horizon;
+    }
+
+    public long getMaxSlack() {
+        return maxSlack;
+    }
+
+    /**
+     * Tightened window {earliest, latest} of a node.
+     */
+    public long[] getWindow(int node) {
+        return new long[]{earliest[node], latest[node]};
+    }
+
+    public boolean isArcFeasible(int from, int to) {
+        return from != to && Arrays.binarySearch(removedTargets[from], to) < 0;
+    }
+
+    public int getRemovedArcCount() {
+        return removedArcs;
+    }
+
+    public int getEmptyWindowCount() {
+        return emptyWindows;
+    }
+}
@@ -10,6 +10,12 @@ import project.General.SolutionResult;
  * Enforces maximum distance constraint per vehicle (Basic Requirement 2).
  */
 public interface VRPSolver {
+    /**
+     * Default vehicle speed (distance units per time unit) used to convert distances
+     * into travel times when time windows are enforced.
+     */
+    double TRAVEL_SPEED = 10.0;
+
     /**
      * Solves a CVRP problem with capacity and maximum distance constraints.
      * Optionally supports time windows (TWVRP).
@@ -31,5 +37,12 @@ public interface VRPSolver {
     SolutionResult solve(int numNodes, int numCustomers, int numVehicles, 
                        int[] vehicleCapacities, double[] vehicleMaxDistances,
                        int[] demand, int[][] distance, long[][] timeWindows);
+
+    /**
+     * Asks a running (or not yet started) solve to stop early and return the best solution
+     * found so far. May be called from any thread. Default: no-op (solve runs to completion).
+     */
+    default void cancel() {
+    }
 }
 
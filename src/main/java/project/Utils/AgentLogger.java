@@ -3,26 +3,51 @@ package project.Utils;
 import jade.lang.acl.ACLMessage;
 import jade.core.AID;
 import jade.core.Agent;
-import java.io.FileWriter;
+import project.General.RouteMessages;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Iterator;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class for logging agent conversations to files
  * Logs all ACL messages (sent and received) with full details
  * All logs for a single conversation/run are stored in a timestamped folder
+ * 
+ * With several requests in flight each request gets its own folder
+ * (see {@link #newRequestLogFolder(String)}) that is passed explicitly to its agents'
+ * loggers instead of relying on the shared current folder.
+ * 
+ * Entries are written asynchronously by the shared {@link AsyncLogWriter} (a message is
+ * queued as one multi-line entry); run with -Dcvrp.log.async=false to write and flush
+ * every entry on the calling thread instead.
+ * 
+ * Messages and events are also recorded in the folder's structured event log
+ * (events.jsonl, see {@link ConversationEventLog}) for replay and queries with
+ * {@link ConversationEventReader}.
+ * 
+ * Folders with no open logger are compressed and eventually deleted by {@link LogRetention}.
  */
 public class AgentLogger {
-    private PrintWriter writer;
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("cvrp.log.async", "true"));
+    static final String LOG_BASE_DIR = "logs";
+    
+    // Open loggers by folder, so retention never archives a folder that is still written
+    private static final Map<String, Integer> OPEN_FOLDERS = new HashMap<>();
+    
+    private volatile AsyncLogWriter.LogFile writer;
+    private volatile ConversationEventLog.EventFile events;  // null = event log disabled
+    private final AsyncLogWriter asyncWriter;  // null = synchronous
     private String agentName;
+    private final String folder;
+    private boolean folderOpen;
     private AID agentAID;  // Store agent AID for proper logging
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-    private static final SimpleDateFormat folderDateFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
+    private static final DateTimeFormatter folderDateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
     
     // Static variable to track the current log folder (shared across all agents in a run)
     private static String currentLogFolder = null;
@@ -36,12 +61,29 @@ public class AgentLogger {
         synchronized (folderLock) {
             if (currentLogFolder == null) {
                 // Create new timestamped folder
-                currentLogFolder = folderDateFormat.format(new Date());
+                currentLogFolder = LocalDateTime.now().format(folderDateFormat);
             }
             return currentLogFolder;
         }
     }
     
+    /**
+     * Creates a log folder name scoped to one request: timestamp plus request ID, so
+     * concurrent requests started within the same second never share a folder
+     */
+    public static String newRequestLogFolder(String requestId) {
+        return LocalDateTime.now().format(folderDateFormat) + "_" + requestId.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+    
+    /**
+     * Whether a logger is still open in a folder under logs/
+     */
+    public static boolean isFolderOpen(String timestampFolder) {
+        synchronized (OPEN_FOLDERS) {
+            return OPEN_FOLDERS.containsKey(timestampFolder);
+        }
+    }
+    
     /**
      * Resets the log folder (useful for starting a new conversation/run)
      */
@@ -52,14 +94,32 @@ public class AgentLogger {
     }
     
     public AgentLogger(String agentName) {
+        this(agentName, getCurrentLogFolder());
+    }
+    
+    /**
+     * Creates a logger writing into the given folder under logs/ (e.g. a request-scoped folder)
+     */
+    public AgentLogger(String agentName, String timestampFolder) {
+        this(agentName, timestampFolder, ASYNC ? AsyncLogWriter.getShared() : null);
+    }
+    
+    /**
+     * @param asyncWriter writer for queued entries, or null to write synchronously
+     */
+    AgentLogger(String agentName, String timestampFolder, AsyncLogWriter asyncWriter) {
         this.agentName = agentName;
+        this.asyncWriter = asyncWriter;
         this.agentAID = null;
+        this.folder = timestampFolder;
+        synchronized (OPEN_FOLDERS) {
+            OPEN_FOLDERS.merge(timestampFolder, 1, Integer::sum);
+            folderOpen = true;
+        }
         try {
-            // Get the current timestamped log folder
-            String timestampFolder = getCurrentLogFolder();
             
             // Create log directory structure: logs/YYYY-MM-DD_HH-MM-SS/
-            String logBaseDir = "logs";
+            String logBaseDir = LOG_BASE_DIR;
             String logDir = logBaseDir + "/" + timestampFolder;
             java.io.File baseDir = new java.io.File(logBaseDir);
             if (!baseDir.exists()) {
@@ -71,12 +131,15 @@ public class AgentLogger {
             }
             
             String fileName = logDir + "/" + agentName + "_conversations.log";
-            writer = new PrintWriter(new FileWriter(fileName, true)); // Append mode
+            writer = new AsyncLogWriter.LogFile(fileName);
+            if (ConversationEventLog.ENABLED) {
+                events = ConversationEventLog.acquire(logDir);
+            }
             
-            log("=== Agent Logger Initialized ===");
-            log("Agent: " + agentName);
-            log("Log folder: " + logDir);
-            log("Log file: " + fileName);
+            log("=== Agent Logger Initialized ===\n" +
+                "Agent: " + agentName + "\n" +
+                "Log folder: " + logDir + "\n" +
+                "Log file: " + fileName);
             
         } catch (IOException e) {
             System.err.println("Failed to create log file for " + agentName + ": " + e.getMessage());
@@ -108,8 +171,7 @@ public class AgentLogger {
      */
     public void logSent(ACLMessage msg) {
         if (writer != null) {
-            log(">>> SENT MESSAGE");
-            logMessage(msg, true);
+            logMessage(">>> SENT MESSAGE", msg, true);
         }
     }
     
@@ -118,17 +180,17 @@ public class AgentLogger {
      */
     public void logReceived(ACLMessage msg) {
         if (writer != null) {
-            log("<<< RECEIVED MESSAGE");
-            logMessage(msg, false);
+            logMessage("<<< RECEIVED MESSAGE", msg, false);
         }
     }
     
     /**
-     * Logs message details
+     * Logs message details as one multi-line entry
+     * @param header First line of the entry
      * @param msg The ACL message to log
      * @param isSent true if this is a sent message, false if received
      */
-    private void logMessage(ACLMessage msg, boolean isSent) {
+    private void logMessage(String header, ACLMessage msg, boolean isSent) {
         if (writer == null) return;
         
         // Get all receivers
@@ -160,36 +222,68 @@ public class AgentLogger {
             toName = (agentAID != null ? agentAID.getName() : agentName);
         }
         
-        log("  From: " + fromName);
+        StringBuilder entry = new StringBuilder(512);
+        entry.append(header).append('\n');
+        entry.append("  From: ").append(fromName).append('\n');
         if (isSent && receiverNames.size() > 1) {
             // Log each receiver separately for sent messages with multiple receivers
-            log("  To: " + receiverNames.size() + " receivers");
+            entry.append("  To: ").append(receiverNames.size()).append(" receivers\n");
             for (int i = 0; i < receiverNames.size(); i++) {
-                log("    Receiver " + (i + 1) + ": " + receiverNames.get(i));
+                entry.append("    Receiver ").append(i + 1).append(": ").append(receiverNames.get(i)).append('\n');
             }
         } else {
-            log("  To: " + toName);
+            entry.append("  To: ").append(toName).append('\n');
         }
         
-        log("  Performative: " + ACLMessage.getPerformative(msg.getPerformative()));
-        log("  Protocol: " + (msg.getProtocol() != null ? msg.getProtocol() : "N/A"));
-        log("  Conversation ID: " + (msg.getConversationId() != null ? msg.getConversationId() : "N/A"));
-        log("  Reply With: " + (msg.getReplyWith() != null ? msg.getReplyWith() : "N/A"));
-        log("  In Reply To: " + (msg.getInReplyTo() != null ? msg.getInReplyTo() : "N/A"));
-        log("  Content: " + (msg.getContent() != null ? msg.getContent() : "(empty)"));
-        log("  Language: " + (msg.getLanguage() != null ? msg.getLanguage() : "N/A"));
-        log("  Ontology: " + (msg.getOntology() != null ? msg.getOntology() : "N/A"));
-        log("---");
+        entry.append("  Performative: ").append(ACLMessage.getPerformative(msg.getPerformative())).append('\n');
+        entry.append("  Protocol: ").append(msg.getProtocol() != null ? msg.getProtocol() : "N/A").append('\n');
+        entry.append("  Conversation ID: ").append(msg.getConversationId() != null ? msg.getConversationId() : "N/A").append('\n');
+        entry.append("  Reply With: ").append(msg.getReplyWith() != null ? msg.getReplyWith() : "N/A").append('\n');
+        entry.append("  In Reply To: ").append(msg.getInReplyTo() != null ? msg.getInReplyTo() : "N/A").append('\n');
+        String content = RouteMessages.describe(msg);  // Binary content is rendered as JSON
+        entry.append("  Content: ").append(content != null ? content : "(empty)").append('\n');
+        entry.append("  Language: ").append(msg.getLanguage() != null ? msg.getLanguage() : "N/A").append('\n');
+        entry.append("  Ontology: ").append(msg.getOntology() != null ? msg.getOntology() : "N/A").append('\n');
+        entry.append("---");
+        log(entry.toString());
+        
+        ConversationEventLog.EventFile eventFile = events;
+        if (eventFile != null) {
+            List<String> to = isSent ? receiverNames : Collections.singletonList(toName);
+            write(eventFile, ConversationEventLog.encodeMessage(
+                isSent ? ConversationEvent.Kind.SENT : ConversationEvent.Kind.RECEIVED,
+                getLoggedName(), ACLMessage.getPerformative(msg.getPerformative()), msg.getProtocol(),
+                msg.getOntology(), msg.getConversationId(), fromName, to,
+                msg.getReplyWith(), msg.getInReplyTo(), content));
+        }
+    }
+    
+    private String getLoggedName() {
+        return agentAID != null ? agentAID.getName() : agentName;
     }
     
     /**
-     * Logs a general message
+     * Logs a general message (every line of a multi-line message gets the timestamp)
      */
     public void log(String message) {
-        if (writer != null) {
-            String timestamp = dateFormat.format(new Date());
-            writer.println("[" + timestamp + "] " + message);
-            writer.flush();
+        write(writer, message);
+    }
+    
+    private void write(AsyncLogWriter.LogFile file, String message) {
+        if (file == null) {
+            return;
+        }
+        if (asyncWriter != null) {
+            asyncWriter.append(file, message);
+            return;
+        }
+        synchronized (file) {
+            try {
+                file.write(System.currentTimeMillis(), message);
+                file.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to write log entry for " + agentName + ": " + e.getMessage());
+            }
         }
     }
     
@@ -198,31 +292,68 @@ public class AgentLogger {
      */
     public void logEvent(String event) {
         log("*** EVENT: " + event);
+        recordEvent(ConversationEvent.Kind.EVENT, null, event);
     }
     
     /**
      * Logs a conversation start (useful for tracking conversation flows)
      */
     public void logConversationStart(String conversationId, String description) {
-        log("=== CONVERSATION START: " + conversationId + " ===");
-        log("  Description: " + description);
+        log("=== CONVERSATION START: " + conversationId + " ===\n  Description: " + description);
+        recordEvent(ConversationEvent.Kind.CONVERSATION_START, conversationId, description);
     }
     
     /**
      * Logs a conversation end
      */
     public void logConversationEnd(String conversationId, String result) {
-        log("=== CONVERSATION END: " + conversationId + " ===");
-        log("  Result: " + result);
+        log("=== CONVERSATION END: " + conversationId + " ===\n  Result: " + result);
+        recordEvent(ConversationEvent.Kind.CONVERSATION_END, conversationId, result);
+    }
+    
+    private void recordEvent(ConversationEvent.Kind kind, String conversationId, String text) {
+        ConversationEventLog.EventFile eventFile = events;
+        if (eventFile != null) {
+            write(eventFile, ConversationEventLog.encodeEvent(kind, getLoggedName(), conversationId, text));
+        }
     }
     
     /**
      * Closes the log file
      */
     public void close() {
-        if (writer != null) {
+        AsyncLogWriter.LogFile file = writer;
+        if (file != null) {
             log("=== Agent Logger Closed ===");
-            writer.close();
+            writer = null;
+            closeFile(file);
+        }
+        ConversationEventLog.EventFile eventFile = events;
+        if (eventFile != null) {
+            events = null;
+            if (ConversationEventLog.release(eventFile)) {
+                closeFile(eventFile);  // Last logger of the folder: also saves the index
+            }
+        }
+        synchronized (OPEN_FOLDERS) {
+            if (folderOpen) {
+                folderOpen = false;
+                OPEN_FOLDERS.computeIfPresent(folder, (name, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+    
+    private void closeFile(AsyncLogWriter.LogFile file) {
+        if (asyncWriter != null) {
+            asyncWriter.close(file);  // After the entries queued before it
+        } else {
+            synchronized (file) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close log file for " + agentName + ": " + e.getMessage());
+                }
+            }
         }
     }
 }
@@ -0,0 +1,392 @@
+package project.Utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous writer behind {@link AgentLogger}: agents append log entries to a bounded
+ * lock-free ring buffer (multi-producer, single consumer) and one daemon thread formats and
+ * writes them in batches, so agent threads never block on file I/O.
+ *
+ * Flush policy (-Dcvrp.log.flush):
+ *   batch    - flush the files written by each drained batch (default)
+ *   interval - flush at most every -Dcvrp.log.flushIntervalMs (default 1000)
+ *   line     - flush after every entry (previous behaviour, slowest)
+ *
+ * The buffer holds -Dcvrp.log.bufferSize entries (rounded up to a power of two, default 65536).
+ * When it is full, producers wait for the writer instead of dropping entries. On JVM shutdown
+ * the remaining entries are written and all files are flushed.
+ *
+ * Text log files are rotated by the writer once they reach -Dcvrp.log.rotateBytes (default
+ * 32 MiB) or have been open for -Dcvrp.log.rotateMinutes (default 60, 0 = never): the file is
+ * renamed to "&lt;name&gt;.&lt;timestamp&gt;" and reopened, and {@link LogRetention} compresses the segment.
+ */
+public class AsyncLogWriter {
+
+    public enum FlushPolicy { LINE, BATCH, INTERVAL }
+
+    // Entries written per batch at most, so files are flushed regularly under sustained load
+    private static final int MAX_BATCH = 4096;
+
+    private static final DateTimeFormatter SECOND_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter SEGMENT_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss").withZone(ZoneId.systemDefault());
+
+    // Rotation of long-lived text logs (e.g. the resident MRA's)
+    private static final long ROTATE_BYTES = Long.getLong("cvrp.log.rotateBytes", 32L << 20);
+    private static final long ROTATE_MILLIS = Long.getLong("cvrp.log.rotateMinutes", 60) * 60_000L;
+
+    private static final AsyncLogWriter SHARED = new AsyncLogWriter(
+        Integer.getInteger("cvrp.log.bufferSize", 65536),
+        FlushPolicy.valueOf(System.getProperty("cvrp.log.flush", "batch").toUpperCase()),
+        Long.getLong("cvrp.log.flushIntervalMs", 1000));
+
+    /**
+     * An open log file. Formats lines with a timestamp prefix cached per second; only one
+     * thread writes to it at a time (the writer thread, or the caller under the file's lock
+     * for synchronous loggers).
+     */
+    static class LogFile {
+        final String fileName;
+        private final boolean rotate;
+        Writer out;
+        private long size;      // Approximate bytes in the current segment (chars written)
+        private long openedAt;
+        private long cachedSecond = -1;
+        private String cachedPrefix;
+        boolean closed;  // Late entries of a closed logger are dropped
+        boolean dirty;
+
+        LogFile(String fileName) throws IOException {
+            this(fileName, true);
+        }
+
+        /**
+         * @param rotate whether the file is rotated by size and age (not for indexed files)
+         */
+        LogFile(String fileName, boolean rotate) throws IOException {
+            this.fileName = fileName;
+            this.rotate = rotate;
+            open();
+        }
+
+        private void open() throws IOException {
+            out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(fileName, true), StandardCharsets.UTF_8), 16384);  // Append mode
+            size = new File(fileName).length();
+            openedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Writes an entry; every line of a multi-line entry gets the timestamp prefix
+         */
+        void write(long timeMillis, String message) throws IOException {
+            if (closed) {
+                return;
+            }
+            int start = 0;
+            int lines = 1;
+            while (true) {
+                writeTimestamp(timeMillis);
+                int end = message.indexOf('\n', start);
+                if (end < 0) {
+                    out.write(message, start, message.length() - start);
+                    out.write('\n');
+                    break;
+                }
+                out.write(message, start, end - start + 1);
+                start = end + 1;
+                lines++;
+            }
+            dirty = true;
+            size += message.length() + 1 + 27L * lines;  // Timestamp prefix per line
+            if (rotate && (size >= ROTATE_BYTES || (ROTATE_MILLIS > 0 && timeMillis - openedAt >= ROTATE_MILLIS))) {
+                rotate(timeMillis);
+            }
+        }
+
+        /**
+         * Renames the current segment to "&lt;name&gt;.&lt;timestamp&gt;" and continues in a new file
+         */
+        private void rotate(long timeMillis) throws IOException {
+            out.close();
+            File current = new File(fileName);
+            String segmentName = fileName + "." + SEGMENT_FORMAT.format(Instant.ofEpochMilli(timeMillis));
+            File segment = new File(segmentName);
+            for (int i = 1; segment.exists() || new File(segment.getPath() + LogRetention.GZIP_SUFFIX).exists(); i++) {
+                segment = new File(segmentName + "-" + i);
+            }
+            if (!current.renameTo(segment)) {
+                System.err.println("AgentLogger: Failed to rotate " + fileName);
+            }
+            open();
+        }
+
+        private void writeTimestamp(long timeMillis) throws IOException {
+            long second = timeMillis / 1000;
+            if (second != cachedSecond) {
+                cachedPrefix = "[" + SECOND_FORMAT.format(Instant.ofEpochMilli(second * 1000)) + ".";
+                cachedSecond = second;
+            }
+            int millis = (int) (timeMillis % 1000);
+            out.write(cachedPrefix);
+            out.write('0' + millis / 100);
+            out.write('0' + millis / 10 % 10);
+            out.write('0' + millis % 10);
+            out.write("] ");
+        }
+
+        void flush() throws IOException {
+            out.flush();
+            dirty = false;
+        }
+
+        void close() throws IOException {
+            closed = true;
+            out.close();
+            dirty = false;
+        }
+    }
+
+    // Ring buffer: slot i holds an entry when sequences[i] == position + 1 (Vyukov bounded queue)
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final LogFile[] files;
+    private final long[] times;
+    private final String[] messages;  // null = close the file
+    private final AtomicLong tail = new AtomicLong();
+    private long head;  // Writer thread only
+
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalMs;
+    private final Thread writerThread;
+    private volatile boolean writerWaiting;
+    private volatile boolean running = true;
+
+    // Files written since the last flush (writer thread only)
+    private LogFile[] dirtyFiles = new LogFile[64];
+    private int dirtyCount;
+    private long lastFlush = System.currentTimeMillis();
+
+    // Statistics
+    private final AtomicLong bufferFullWaits = new AtomicLong();
+    private volatile long entriesWritten;
+    private volatile long entriesFlushed;
+    private volatile long batchesWritten;
+
+    AsyncLogWriter(int bufferSize, FlushPolicy flushPolicy, long flushIntervalMs) {
+        int size = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.files = new LogFile[size];
+        this.times = new long[size];
+        this.messages = new String[size];
+        this.flushPolicy = flushPolicy;
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+
+        writerThread = new Thread(this::runWriter, "agent-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "agent-log-shutdown"));
+    }
+
+    public static AsyncLogWriter getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Queues an entry for a file (waits while the buffer is full)
+     */
+    void append(LogFile file, String message) {
+        long time = System.currentTimeMillis();
+        while (!offer(file, time, message)) {
+            if (!running) {
+                return;  // Writer stopped (JVM shutting down)
+            }
+            bufferFullWaits.incrementAndGet();
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(50_000);
+        }
+        if (writerWaiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Queues closing a file after its pending entries
+     */
+    void close(LogFile file) {
+        append(file, null);
+    }
+
+    private boolean offer(LogFile file, long time, String message) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    files[index] = file;
+                    times[index] = time;
+                    messages[index] = message;
+                    sequences.set(index, position + 1);  // Publish
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;  // Full
+            } else {
+                position = tail.get();  // Another producer took this slot
+            }
+        }
+    }
+
+    private void runWriter() {
+        while (running || !isEmpty()) {
+            int written = drain();
+            long now = System.currentTimeMillis();
+            if (written > 0) {
+                if (flushPolicy != FlushPolicy.INTERVAL || now - lastFlush >= flushIntervalMs) {
+                    flushDirty(now);
+                }
+                continue;
+            }
+            if (dirtyCount > 0 && now - lastFlush >= flushIntervalMs) {
+                flushDirty(now);
+            }
+            writerWaiting = true;
+            if (isEmpty() && running) {
+                LockSupport.parkNanos(flushIntervalMs * 1_000_000L);
+            }
+            writerWaiting = false;
+        }
+        flushDirty(System.currentTimeMillis());
+    }
+
+    /**
+     * Writes all published entries (writer thread)
+     *
+     * @return number of entries written
+     */
+    private int drain() {
+        int count = 0;
+        while (count < MAX_BATCH) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            LogFile file = files[index];
+            long time = times[index];
+            String message = messages[index];
+            files[index] = null;
+            messages[index] = null;
+            sequences.set(index, head + capacity);  // Free the slot
+            head++;
+            count++;
+
+            try {
+                if (message == null) {
+                    file.close();
+                    continue;
+                }
+                boolean wasDirty = file.dirty;
+                file.write(time, message);
+                if (flushPolicy == FlushPolicy.LINE) {
+                    file.flush();
+                } else if (!wasDirty) {
+                    markDirty(file);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("AgentLogger: Failed to write log entry: " + e.getMessage());
+            }
+        }
+        if (count > 0) {
+            entriesWritten += count;
+            batchesWritten++;
+        }
+        return count;
+    }
+
+    private void markDirty(LogFile file) {
+        if (dirtyCount == dirtyFiles.length) {
+            dirtyFiles = Arrays.copyOf(dirtyFiles, dirtyCount * 2);
+        }
+        dirtyFiles[dirtyCount++] = file;
+    }
+
+    private void flushDirty(long now) {
+        for (int i = 0; i < dirtyCount; i++) {
+            LogFile file = dirtyFiles[i];
+            dirtyFiles[i] = null;
+            if (file.dirty) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    System.err.println("AgentLogger: Failed to flush log file: " + e.getMessage());
+                }
+            }
+        }
+        dirtyCount = 0;
+        lastFlush = now;
+        entriesFlushed = entriesWritten;
+    }
+
+    private boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Writes everything queued so far and stops the writer thread
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every entry queued before this call has been written and flushed
+     */
+    public void awaitWritten(long timeoutMs) throws InterruptedException {
+        long target = tail.get();
+        long end = System.currentTimeMillis() + timeoutMs;
+        while (entriesFlushed < target && System.currentTimeMillis() < end) {
+            LockSupport.unpark(writerThread);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * One-line summary of the writer counters
+     */
+    public String getStatistics() {
+        long batches = batchesWritten;
+        return "entries=" + entriesWritten +
+               ", batches=" + batches +
+               ", meanBatch=" + (batches > 0 ? entriesWritten / batches : 0) +
+               ", bufferFullWaits=" + bufferFullWaits.get() +
+               ", flush=" + flushPolicy;
+    }
+}
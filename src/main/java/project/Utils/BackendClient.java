@@ -1,260 +1,370 @@
 package project.Utils;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonArray;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import project.General.SolutionResult;
-import project.General.RouteInfo;
-import project.General.CustomerInfo;
-import project.Utils.JsonConfigReader.CVRPConfig;
-import project.Utils.JsonConfigReader.DepotConfig;
-import project.Utils.JsonConfigReader.CustomerConfig;
-import project.Utils.JsonConfigReader.VehicleConfig;
+import project.General.ProblemInstance;
+import project.General.SolutionSink;
 
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Client for communicating with Python Flask backend server
  * Handles polling for requests and submitting solutions
+ * 
+ * Requests are taken by long-polling: the backend holds the poll open until a request is
+ * enqueued (or the wait expires), so the solver wakes up immediately instead of after the
+ * next poll interval. Only when the backend is unreachable or does not support long-polling
+ * does the caller fall back to sleeping the poll interval between polls.
+ * 
+ * Transport: one pooled keep-alive HTTP client is shared by all calls. A poll fetches up to
+ * a batch of pending requests per round trip, request bodies above a size threshold are sent
+ * gzip-compressed, and gzip responses are decompressed transparently.
+ * 
+ * Polled requests are parsed straight from the response stream into a columnar
+ * {@link ProblemInstance} (see {@link ProblemInstanceReader}); no JSON tree is built.
  */
 public class BackendClient {
     public static final String BACKEND_URL = "http://localhost:8000";
-    private static final int POLL_INTERVAL_MS = 2000; // Poll every 2 seconds
-    private static final Gson gson = new Gson();
+    private static final int POLL_INTERVAL_MS = 2000; // Poll every 2 seconds (fallback)
+    // Long-poll wait per request (-Dcvrp.backend.longPollSeconds, 0 disables long-polling)
+    private static final int LONG_POLL_SECONDS = Integer.getInteger("cvrp.backend.longPollSeconds", 25);
+    // Maximum number of requests fetched per poll (-Dcvrp.backend.pollBatchSize)
+    public static final int POLL_BATCH_SIZE = Math.max(1, Integer.getInteger("cvrp.backend.pollBatchSize", 8));
+    // Request bodies of at least this many bytes are gzip-compressed (-Dcvrp.backend.gzipMinBytes)
+    private static final int GZIP_MIN_BYTES = Integer.getInteger("cvrp.backend.gzipMinBytes", 1024);
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int RESPONSE_TIMEOUT_MS = 5000;
+    // Whether the last poll was a long-poll honoured by the backend
+    private static volatile boolean longPollActive = false;
+    
+    // Sink submitting solutions to the backend (the request ID doubles as config name)
+    public static final SolutionSink BACKEND_SINK = new SolutionSink() {
+        @Override
+        public boolean submit(String requestId, SolutionResult solution) {
+            return submitSolution(requestId, solution, requestId);
+        }
+        
+        @Override
+        public boolean submit(String requestId, SolutionResult solution, byte[] encodedJson) {
+            return submitEncodedSolution(encodedJson);
+        }
+    };
+    
+    // Pooled keep-alive connections shared by polling and solution submission
+    private static final CloseableHttpClient httpClient = createHttpClient(
+        Integer.getInteger("cvrp.backend.maxConnections", 8));
+    
+    // Transport statistics (round trips and request body bytes before/after compression)
+    private static final AtomicLong roundTrips = new AtomicLong();
+    private static final AtomicLong transportNanos = new AtomicLong();
+    private static final AtomicLong bodyBytesRaw = new AtomicLong();
+    private static final AtomicLong bodyBytesSent = new AtomicLong();
+    
+    /**
+     * Creates a pooled HTTP client (keep-alive; gzip responses are decompressed automatically)
+     */
+    static CloseableHttpClient createHttpClient(int maxConnections) {
+        return HttpClients.custom()
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.ofMilliseconds(CONNECT_TIMEOUT_MS))
+                    .build())
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(RESPONSE_TIMEOUT_MS))
+                .build())
+            .build();
+    }
+    
+    /**
+     * Status, body and long-poll header of a completed HTTP exchange
+     */
+    static class HttpResult {
+        final int code;
+        final String body;
+        final String longPollWait;
+        
+        HttpResult(int code, String body, String longPollWait) {
+            this.code = code;
+            this.body = body;
+            this.longPollWait = longPollWait;
+        }
+    }
+    
+    // Reads the whole response (so the connection goes back to the pool)
+    private static final HttpClientResponseHandler<HttpResult> RESULT_HANDLER = response -> {
+        HttpEntity entity = response.getEntity();
+        String body = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : null;
+        Header longPollHeader = response.getFirstHeader("X-Long-Poll-Wait");
+        return new HttpResult(response.getCode(), body, longPollHeader != null ? longPollHeader.getValue() : null);
+    };
+    
+    /**
+     * Executes a request on the given client and reads the whole response
+     */
+    static HttpResult execute(CloseableHttpClient client, HttpUriRequestBase request) throws IOException {
+        return client.execute(request, RESULT_HANDLER);
+    }
+    
+    /**
+     * Executes a request on the shared client and records its round-trip time
+     */
+    private static HttpResult execute(HttpUriRequestBase request) throws IOException {
+        return execute(request, RESULT_HANDLER);
+    }
+    
+    /**
+     * Executes a request on the shared client with the given response handler and records its
+     * round-trip time
+     */
+    private static <T> T execute(HttpUriRequestBase request, HttpClientResponseHandler<T> handler) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return httpClient.execute(request, handler);
+        } finally {
+            roundTrips.incrementAndGet();
+            transportNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Builds a JSON POST body, gzip-compressed when it is large enough
+     */
+    static ByteArrayEntity jsonEntity(String json, int gzipMinBytes) throws IOException {
+        return jsonEntity(json.getBytes(StandardCharsets.UTF_8), gzipMinBytes);
+    }
+    
+    static ByteArrayEntity jsonEntity(byte[] raw, int gzipMinBytes) throws IOException {
+        if (raw.length < gzipMinBytes) {
+            return new ByteArrayEntity(raw, ContentType.APPLICATION_JSON);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(raw);
+        }
+        return new ByteArrayEntity(compressed.toByteArray(), ContentType.APPLICATION_JSON, "gzip");
+    }
     
     /**
      * Polls the backend for pending CVRP requests
      * @return Request data with request_id, or null if no pending requests
      */
     public static BackendRequest pollForRequest() {
+        List<BackendRequest> requests = pollForRequests(1, 0);
+        return requests.isEmpty() ? null : requests.get(0);
+    }
+    
+    /**
+     * Waits for pending CVRP requests with a long-poll and takes up to maxRequests of them
+     * in one round trip.
+     * If this returns an empty list, check {@link #isLongPollActive()}: when true the wait
+     * simply expired and the caller can poll again right away, otherwise it should sleep the
+     * poll interval first (backend down or without long-poll support).
+     * @return Requests taken (empty if none arrived)
+     */
+    public static List<BackendRequest> waitForRequests(int maxRequests) {
+        return pollForRequests(Math.max(1, Math.min(maxRequests, POLL_BATCH_SIZE)), LONG_POLL_SECONDS);
+    }
+    
+    public static boolean isLongPollActive() {
+        return longPollActive;
+    }
+    
+    private static List<BackendRequest> pollForRequests(int maxRequests, int waitSeconds) {
+        List<BackendRequest> requests = new ArrayList<>();
         try {
-            URL url = new URL(BACKEND_URL + "/api/solve-cvrp?action=poll");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            
-            int responseCode = conn.getResponseCode();
+            HttpGet get = new HttpGet(BACKEND_URL + "/api/solve-cvrp?action=poll&max=" + maxRequests +
+                                      (waitSeconds > 0 ? "&wait=" + waitSeconds : ""));
+            get.setHeader("Accept", "application/json");
+            get.setConfig(RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(waitSeconds * 1000L + RESPONSE_TIMEOUT_MS))
+                .build());
             
-            if (responseCode == 204) {
-                // No Content - no pending requests
-                return null;
-            } else if (responseCode == 200) {
-                // Request available
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
+            int code = execute(get, response -> {
+                Header longPollHeader = response.getFirstHeader("X-Long-Poll-Wait");
+                // Backends without long-poll support answer at once and without this header
+                longPollActive = waitSeconds > 0 && longPollHeader != null;
+                HttpEntity entity = response.getEntity();
+                if (response.getCode() == 200 && entity != null) {
+                    // Parse the requests while the body streams in
+                    try (JsonReader in = new JsonReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8))) {
+                        readPollResponse(in, requests);
                     }
-                    
-                    JsonObject jsonResponse = gson.fromJson(response.toString(), JsonObject.class);
-                    String requestId = jsonResponse.get("request_id").getAsString();
-                    JsonObject requestData = jsonResponse.getAsJsonObject("data");
-                    
-                    return new BackendRequest(requestId, requestData);
+                } else {
+                    EntityUtils.consume(entity);
                 }
-            } else {
-                System.err.println("Backend polling error: HTTP " + responseCode);
-                return null;
+                return response.getCode();
+            });
+            
+            if (code != 200 && code != 204) {
+                // 204 No Content - no pending requests
+                Log.warn("Backend polling error: HTTP " + code);
             }
+            return requests;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            // Malformed body: keep the requests parsed before the error
+            Log.warn("Backend polling: Could not parse response: " + e.getMessage());
+            return requests;
         } catch (Exception e) {
-            // Silently return null on error (backend might not be running)
-            return null;
+            // Silently return no more requests on error (backend might not be running)
+            longPollActive = false;
+            return requests;
         }
     }
     
     /**
-     * Converts backend request format (new config format) to CVRPConfig
+     * Reads a poll response: the batch format {"requests": [...]} or, from older backends,
+     * a single {"request_id", "data"} object. Requests whose data is invalid are skipped.
      */
-    public static CVRPConfig convertBackendRequestToConfig(JsonObject backendRequest) {
-        CVRPConfig config = new CVRPConfig();
-        
-        // Read depot
-        JsonObject depotObj = backendRequest.getAsJsonObject("depot");
-        config.depot = new DepotConfig();
-        config.depot.name = depotObj.get("name").getAsString();
-        config.depot.x = depotObj.get("x").getAsDouble();
-        config.depot.y = depotObj.get("y").getAsDouble();
-        
-        // Read vehicles
-        config.vehicles = new ArrayList<>();
-        JsonArray vehiclesArray = backendRequest.getAsJsonArray("vehicles");
-        if (vehiclesArray == null) {
-            throw new IllegalArgumentException("Backend request missing 'vehicles' array");
-        }
-        
-        System.out.println("BackendClient: Reading " + vehiclesArray.size() + " vehicles from API");
-        for (int i = 0; i < vehiclesArray.size(); i++) {
-            JsonObject vehicleObj = vehiclesArray.get(i).getAsJsonObject();
-            VehicleConfig vehicle = new VehicleConfig();
-            
-            // Read vehicle name (required field)
-            if (!vehicleObj.has("name")) {
-                throw new IllegalArgumentException("Vehicle " + (i + 1) + " missing 'name' field");
-            }
-            vehicle.name = vehicleObj.get("name").getAsString();
-            
-            // Read capacity (required field)
-            if (!vehicleObj.has("capacity")) {
-                throw new IllegalArgumentException("Vehicle " + (i + 1) + " ('" + vehicle.name + "') missing 'capacity' field");
-            }
-            vehicle.capacity = vehicleObj.get("capacity").getAsInt();
-            
-            // Read maxDistance (required field)
-            if (!vehicleObj.has("maxDistance")) {
-                throw new IllegalArgumentException("Vehicle " + (i + 1) + " ('" + vehicle.name + "') missing 'maxDistance' field");
+    static void readPollResponse(JsonReader in, List<BackendRequest> requests) throws IOException {
+        readRequestEnvelope(in, new ProblemInstanceReader(), requests);
+    }
+    
+    private static void readRequestEnvelope(JsonReader in, ProblemInstanceReader problemReader,
+                                            List<BackendRequest> requests) throws IOException {
+        String requestId = null;
+        ProblemInstance problem = null;
+        String invalidReason = null;
+        Integer priority = null;
+        Long deadlineMs = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "requests":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                            readRequestEnvelope(in, problemReader, requests);
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endArray();
+                    break;
+                case "request_id":
+                    if (in.peek() == JsonToken.STRING || in.peek() == JsonToken.NUMBER) {
+                        requestId = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                case "data":
+                    try {
+                        problem = problemReader.read(in);
+                        priority = problemReader.getPriority();
+                        deadlineMs = problemReader.getDeadlineMs();
+                    } catch (IllegalArgumentException e) {
+                        invalidReason = e.getMessage();
+                    }
+                    break;
+                default:
+                    in.skipValue();
             }
-            vehicle.maxDistance = vehicleObj.get("maxDistance").getAsDouble();
-            
-            System.out.println("BackendClient: Vehicle " + (i + 1) + " - name='" + vehicle.name + 
-                             "', capacity=" + vehicle.capacity + ", maxDistance=" + vehicle.maxDistance);
-            config.vehicles.add(vehicle);
         }
+        in.endObject();
         
-        // Read customers
-        config.customers = new ArrayList<>();
-        JsonArray customersArray = backendRequest.getAsJsonArray("customers");
-        for (int i = 0; i < customersArray.size(); i++) {
-            JsonObject customerObj = customersArray.get(i).getAsJsonObject();
-            CustomerConfig customer = new CustomerConfig();
-            customer.id = customerObj.get("id").getAsString();
-            customer.x = customerObj.get("x").getAsDouble();
-            customer.y = customerObj.get("y").getAsDouble();
-            customer.demand = customerObj.get("demand").getAsInt();
-            
-            // Read optional time window
-            if (customerObj.has("timeWindow")) {
-                JsonArray timeWindowArray = customerObj.getAsJsonArray("timeWindow");
-                if (timeWindowArray.size() >= 2) {
-                    customer.timeWindow = new long[2];
-                    customer.timeWindow[0] = timeWindowArray.get(0).getAsLong();
-                    customer.timeWindow[1] = timeWindowArray.get(1).getAsLong();
-                }
-            }
-            
-            config.customers.add(customer);
+        if (requestId == null) {
+            return;  // Batch wrapper
         }
-        
-        return config;
+        if (problem == null) {
+            Log.warn("Backend polling: Skipping invalid request " + requestId + ": " +
+                     (invalidReason != null ? invalidReason : "no data"));
+            return;
+        }
+        BackendRequest request = new BackendRequest(requestId, problem);
+        request.priority = priority;
+        request.deadlineMs = deadlineMs;
+        requests.add(request);
     }
     
     /**
      * Submits solution to backend in the new result format
      */
     public static boolean submitSolution(String requestId, SolutionResult solution, String configName) {
+        return submitEncodedSolution(SolutionJsonWriter.encode(requestId, solution, configName));
+    }
+    
+    /**
+     * Submits a solution already encoded by {@link SolutionJsonWriter} (including its request_id)
+     */
+    public static boolean submitEncodedSolution(byte[] body) {
         try {
-            // Convert SolutionResult to backend format (matches JSON result format)
-            JsonObject solutionJson = new JsonObject();
-            solutionJson.addProperty("request_id", requestId);
-            solutionJson.addProperty("timestamp", new java.util.Date().toString());
-            solutionJson.addProperty("configName", configName != null ? configName : "backend_request");
-            solutionJson.addProperty("solveTimeMs", solution.solveTimeMs);
-            
-            // Summary
-            JsonObject summary = new JsonObject();
-            summary.addProperty("totalItemsRequested", solution.itemsTotal);
-            summary.addProperty("totalItemsDelivered", solution.itemsDelivered);
-            summary.addProperty("totalDistance", solution.totalDistance);
-            summary.addProperty("numberOfRoutes", solution.routes.size());
-            summary.addProperty("deliveryRate", solution.itemsTotal > 0 ? 
-                (double) solution.itemsDelivered / solution.itemsTotal : 0.0);
-            summary.addProperty("unservedCustomers", solution.unservedCustomers.size());
-            solutionJson.add("summary", summary);
-            
-            // Routes
-            JsonArray routesArray = new JsonArray();
-            for (RouteInfo route : solution.routes) {
-                JsonObject routeJson = new JsonObject();
-                routeJson.addProperty("routeId", route.vehicleId);
-                routeJson.addProperty("vehicleName", route.vehicleName != null ? route.vehicleName : "unknown");
-                routeJson.addProperty("totalDemand", route.totalDemand);
-                routeJson.addProperty("totalDistance", route.totalDistance);
-                
-                JsonArray customersArray = new JsonArray();
-                for (CustomerInfo customer : route.customers) {
-                    JsonObject customerJson = new JsonObject();
-                    customerJson.addProperty("id", customer.id);
-                    customerJson.addProperty("name", customer.name != null ? customer.name : "C" + customer.id);
-                    customerJson.addProperty("x", customer.x);
-                    customerJson.addProperty("y", customer.y);
-                    customerJson.addProperty("demand", customer.demand);
-                    customersArray.add(customerJson);
-                }
-                routeJson.add("customers", customersArray);
-                routesArray.add(routeJson);
-            }
-            solutionJson.add("routes", routesArray);
+            HttpPost post = new HttpPost(BACKEND_URL + "/api/solve-cvrp?action=response");
+            post.setHeader("Accept", "application/json");
+            ByteArrayEntity entity = jsonEntity(body, GZIP_MIN_BYTES);
+            post.setEntity(entity);
+            bodyBytesRaw.addAndGet(body.length);
+            bodyBytesSent.addAndGet(entity.getContentLength());
             
-            // Unserved customers
-            JsonArray unservedArray = new JsonArray();
-            for (CustomerInfo customer : solution.unservedCustomers) {
-                JsonObject customerJson = new JsonObject();
-                customerJson.addProperty("id", customer.id);
-                customerJson.addProperty("name", customer.name != null ? customer.name : "C" + customer.id);
-                customerJson.addProperty("x", customer.x);
-                customerJson.addProperty("y", customer.y);
-                customerJson.addProperty("demand", customer.demand);
-                unservedArray.add(customerJson);
-            }
-            solutionJson.add("unservedCustomers", unservedArray);
-            
-            URL url = new URL(BACKEND_URL + "/api/solve-cvrp?action=response");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            
-            // Write request body
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = gson.toJson(solutionJson).getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int responseCode = conn.getResponseCode();
+            HttpResult result = execute(post);
             
-            if (responseCode == 200) {
-                System.out.println("✓ Solution submitted successfully to backend");
+            if (result.code == 200) {
+                Log.debug(() -> "✓ Solution submitted successfully to backend (" + getTransportStatistics() + ")");
                 return true;
             } else {
-                System.err.println("Backend submission error: HTTP " + responseCode);
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder error = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        error.append(line);
-                    }
-                    System.err.println("Error response: " + error.toString());
-                }
+                Log.error("Backend submission error: HTTP " + result.code + "\nError response: " + result.body);
                 return false;
             }
         } catch (Exception e) {
-            System.err.println("Error submitting solution to backend: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error submitting solution to backend: " + e.getMessage(), e);
             return false;
         }
     }
     
+    /**
+     * Summary of the transport counters: round trips, mean round-trip time and the
+     * compression ratio of submitted bodies
+     */
+    public static String getTransportStatistics() {
+        long trips = roundTrips.get();
+        long raw = bodyBytesRaw.get();
+        return "round trips: " + trips +
+               ", mean round trip: " + (trips > 0 ? String.format("%.2f", transportNanos.get() / 1e6 / trips) : "0") + " ms" +
+               ", bodies sent: " + bodyBytesSent.get() + "/" + raw + " bytes";
+    }
+    
     /**
      * Wrapper class for backend request
      */
     public static class BackendRequest {
         public final String requestId;
-        public final JsonObject data;
+        public final ProblemInstance problem;
+        // Optional scheduling hints from the request data (null = scheduler default)
+        public Integer priority;
+        public Long deadlineMs;
+        // Where the solution goes (the backend, unless accepted by the embedded intake server)
+        public SolutionSink solutionSink = BACKEND_SINK;
         
-        public BackendRequest(String requestId, JsonObject data) {
+        public BackendRequest(String requestId, ProblemInstance problem) {
             this.requestId = requestId;
-            this.data = data;
+            this.problem = problem;
         }
     }
     
@@ -0,0 +1,53 @@
+package project.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One record of the structured conversation event log (see {@link ConversationEventLog}):
+ * a sent or received ACL message, or an agent event. Fields that do not apply are null.
+ */
+public class ConversationEvent {
+
+    public enum Kind { SENT, RECEIVED, EVENT, CONVERSATION_START, CONVERSATION_END }
+
+    public long timeMillis;    // Wall clock
+    public long nanoTime;      // System.nanoTime() of the logging JVM, for intervals
+    public String agent;       // Agent that logged the record
+    public Kind kind;
+    public String conversationId;
+    public String performative;
+    public String protocol;
+    public String ontology;
+    public String sender;
+    public List<String> receivers = new ArrayList<>();
+    public String replyWith;
+    public String inReplyTo;
+    public String content;
+    public String text;        // Event description / conversation start or end result
+
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(128);
+        line.append(timeMillis).append(' ').append(kind).append(' ').append(agent);
+        if (performative != null) {
+            line.append(' ').append(performative);
+        }
+        if (sender != null) {
+            line.append(" from=").append(sender);
+        }
+        if (!receivers.isEmpty()) {
+            line.append(" to=").append(receivers.size() == 1 ? receivers.get(0) : receivers.toString());
+        }
+        if (conversationId != null) {
+            line.append(" conv=").append(conversationId);
+        }
+        if (content != null) {
+            line.append(" content=").append(content);
+        }
+        if (text != null) {
+            line.append(" ").append(text);
+        }
+        return line.toString();
+    }
+}
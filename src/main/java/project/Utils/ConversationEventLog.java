@@ -0,0 +1,453 @@
+package project.Utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structured conversation event log written next to the free-text agent logs.
+ *
+ * Every agent logging into a log folder appends to one shared file, logs/&lt;folder&gt;/events.jsonl:
+ * one compact JSON record per sent message, received message or event (see
+ * {@link ConversationEvent}). Records are queued on the {@link AsyncLogWriter} like the text
+ * entries. The writer keeps the byte offsets of each conversation's records and saves them to
+ * events.idx when the last logger of the folder closes, so {@link ConversationEventReader} can
+ * seek straight to a conversation; records appended after the saved index are found by
+ * scanning only the tail of the file.
+ *
+ * Record keys: t (epoch ms), ns (nanoTime), agent, kind, conv, perf, proto, onto, from, to,
+ * rw (reply-with), irt (in-reply-to), content, text.
+ *
+ * Disable with -Dcvrp.log.events=false.
+ */
+public class ConversationEventLog {
+    public static final String EVENTS_FILE = "events.jsonl";
+    public static final String INDEX_FILE = "events.idx";
+
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("cvrp.log.events", "true"));
+
+    // Open event files by log directory; an entry stays until the file is actually closed
+    private static final Map<String, EventFile> OPEN = new HashMap<>();
+
+    /**
+     * Byte offsets of one conversation's records
+     */
+    static class Offsets {
+        long[] values = new long[4];
+        int size;
+
+        void add(long offset) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = offset;
+        }
+    }
+
+    /**
+     * Conversation index of an events file: offsets of every record with a conversation ID,
+     * covering the first {@code bytes} bytes of the file
+     */
+    static class Index {
+        long bytes;
+        long records;
+        final Map<String, Offsets> conversations = new LinkedHashMap<>();
+
+        void add(String conversationId, long offset) {
+            Offsets offsets = conversations.get(conversationId);
+            if (offsets == null) {
+                offsets = new Offsets();
+                conversations.put(conversationId, offsets);
+            }
+            offsets.add(offset);
+        }
+    }
+
+    /**
+     * The shared events file of a log directory. Entries are framed as
+     * "&lt;key length&gt;:&lt;conversation ID&gt;&lt;JSON record&gt;" so the writer can index a record
+     * without parsing it.
+     */
+    static class EventFile extends AsyncLogWriter.LogFile {
+        final String logDir;
+        int references;  // Guarded by OPEN
+        private final Index index;
+
+        EventFile(String logDir) throws IOException {
+            super(logDir + "/" + EVENTS_FILE, false);  // Offsets in the index: never rotated
+            this.logDir = logDir;
+            // Reopened folder: continue the existing index
+            index = new File(logDir, EVENTS_FILE).length() > 0 ? loadIndex(new File(logDir)) : new Index();
+        }
+
+        @Override
+        void write(long timeMillis, String frame) throws IOException {
+            if (closed) {
+                return;
+            }
+            int colon = frame.indexOf(':');
+            int keyLength = 0;
+            for (int i = 0; i < colon; i++) {
+                keyLength = keyLength * 10 + (frame.charAt(i) - '0');
+            }
+            int recordStart = colon + 1 + keyLength;
+            if (keyLength > 0) {
+                index.add(frame.substring(colon + 1, recordStart), index.bytes);
+            }
+            out.write(frame, recordStart, frame.length() - recordStart);
+            out.write('\n');
+            index.bytes += utf8Length(frame, recordStart) + 1;
+            index.records++;
+            dirty = true;
+        }
+
+        /**
+         * Closes the file and saves its index, unless a logger reopened the folder meanwhile.
+         * Flush and index are written before the entry leaves OPEN (under its lock), so a logger
+         * reopening the folder always starts from the complete file and its current index.
+         */
+        @Override
+        void close() throws IOException {
+            synchronized (OPEN) {
+                if (closed || references > 0) {
+                    return;
+                }
+                try {
+                    super.close();
+                    writeIndex(new File(logDir), index);
+                } finally {
+                    OPEN.remove(logDir);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens (or shares) the events file of a log directory
+     */
+    static EventFile acquire(String logDir) throws IOException {
+        synchronized (OPEN) {
+            EventFile file = OPEN.get(logDir);
+            if (file == null) {
+                file = new EventFile(logDir);
+                OPEN.put(logDir, file);
+            }
+            file.references++;
+            return file;
+        }
+    }
+
+    /**
+     * Releases a logger's reference to an events file
+     *
+     * @return true if it was the last one and the caller should close the file
+     */
+    static boolean release(EventFile file) {
+        synchronized (OPEN) {
+            return --file.references == 0;
+        }
+    }
+
+    /**
+     * Encodes a message record as a writer frame
+     */
+    static String encodeMessage(ConversationEvent.Kind kind, String agent, String performative, String protocol,
+                                String ontology, String conversationId, String sender, List<String> receivers,
+                                String replyWith, String inReplyTo, String content) {
+        StringWriter record = new StringWriter(256 + (content != null ? content.length() : 0));
+        try (JsonWriter out = new JsonWriter(record)) {
+            beginRecord(out, kind, agent, conversationId);
+            writeOptional(out, "perf", performative);
+            writeOptional(out, "proto", protocol);
+            writeOptional(out, "onto", ontology);
+            writeOptional(out, "from", sender);
+            out.name("to").beginArray();
+            for (String receiver : receivers) {
+                out.value(receiver);
+            }
+            out.endArray();
+            writeOptional(out, "rw", replyWith);
+            writeOptional(out, "irt", inReplyTo);
+            writeOptional(out, "content", content);
+            out.endObject();
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return frame(conversationId, record);
+    }
+
+    /**
+     * Encodes an event record (conversationId may be null) as a writer frame
+     */
+    static String encodeEvent(ConversationEvent.Kind kind, String agent, String conversationId, String text) {
+        StringWriter record = new StringWriter(128 + (text != null ? text.length() : 0));
+        try (JsonWriter out = new JsonWriter(record)) {
+            beginRecord(out, kind, agent, conversationId);
+            writeOptional(out, "text", text);
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frame(conversationId, record);
+    }
+
+    private static void beginRecord(JsonWriter out, ConversationEvent.Kind kind, String agent,
+                                    String conversationId) throws IOException {
+        out.beginObject();
+        out.name("t").value(System.currentTimeMillis());
+        out.name("ns").value(System.nanoTime());
+        out.name("agent").value(agent);
+        out.name("kind").value(kind.name());
+        writeOptional(out, "conv", conversationId);
+    }
+
+    private static void writeOptional(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static String frame(String conversationId, StringWriter record) {
+        String key = conversationId != null ? conversationId : "";
+        StringBuilder frame = new StringBuilder(key.length() + record.getBuffer().length() + 8);
+        frame.append(key.length()).append(':').append(key).append(record.getBuffer());
+        return frame.toString();
+    }
+
+    /**
+     * Parses one record line
+     */
+    static ConversationEvent parse(String line) throws IOException {
+        try (JsonReader in = new JsonReader(new StringReader(line))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads the record at the current position of a reader
+     */
+    static ConversationEvent read(JsonReader in) throws IOException {
+        ConversationEvent event = new ConversationEvent();
+        try {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "t": event.timeMillis = in.nextLong(); break;
+                    case "ns": event.nanoTime = in.nextLong(); break;
+                    case "agent": event.agent = in.nextString(); break;
+                    case "kind": event.kind = ConversationEvent.Kind.valueOf(in.nextString()); break;
+                    case "conv": event.conversationId = in.nextString(); break;
+                    case "perf": event.performative = in.nextString(); break;
+                    case "proto": event.protocol = in.nextString(); break;
+                    case "onto": event.ontology = in.nextString(); break;
+                    case "from": event.sender = in.nextString(); break;
+                    case "to":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            event.receivers.add(in.nextString());
+                        }
+                        in.endArray();
+                        break;
+                    case "rw": event.replyWith = in.nextString(); break;
+                    case "irt": event.inReplyTo = in.nextString(); break;
+                    case "content": event.content = in.nextString(); break;
+                    case "text": event.text = in.nextString(); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("Malformed event record: " + e.getMessage(), e);
+        }
+        return event;
+    }
+
+    /**
+     * Receives the complete lines of an events file
+     */
+    interface LineHandler {
+        void line(long offset, byte[] buffer, int start, int length) throws IOException;
+    }
+
+    /**
+     * Reads the complete ('\n'-terminated) lines of a file from an offset; a partly written
+     * last line is left out
+     *
+     * @return offset just past the last complete line
+     */
+    static long forEachLine(File file, long fromOffset, LineHandler handler) throws IOException {
+        long lineOffset = fromOffset;
+        byte[] buffer = new byte[65536];
+        int filled = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 65536)) {
+            long skipped = 0;
+            while (skipped < fromOffset) {
+                long n = in.skip(fromOffset - skipped);
+                if (n <= 0) {
+                    return fromOffset;
+                }
+                skipped += n;
+            }
+            int read;
+            while ((read = in.read(buffer, filled, buffer.length - filled)) > 0) {
+                int scanFrom = filled;
+                filled += read;
+                int lineStart = 0;
+                for (int i = scanFrom; i < filled; i++) {
+                    if (buffer[i] == '\n') {
+                        handler.line(lineOffset, buffer, lineStart, i - lineStart);
+                        lineOffset += i - lineStart + 1;
+                        lineStart = i + 1;
+                    }
+                }
+                // Keep the incomplete line at the front of the buffer
+                filled -= lineStart;
+                System.arraycopy(buffer, lineStart, buffer, 0, filled);
+                if (filled == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+        }
+        return lineOffset;
+    }
+
+    /**
+     * Loads the saved index of a log directory and extends it over records appended after it
+     */
+    static Index loadIndex(File dir) throws IOException {
+        Index index = readIndexFile(new File(dir, INDEX_FILE));
+        File events = new File(dir, EVENTS_FILE);
+        if (index == null || index.bytes > events.length()) {
+            index = new Index();  // Missing or stale: rebuild from the whole file
+        }
+        Index target = index;
+        index.bytes = forEachLine(events, index.bytes, (offset, buffer, start, length) -> {
+            try {
+                ConversationEvent event = parse(new String(buffer, start, length, StandardCharsets.UTF_8));
+                if (event.conversationId != null && !event.conversationId.isEmpty()) {
+                    target.add(event.conversationId, offset);
+                }
+                target.records++;
+            } catch (IOException e) {
+                System.err.println("ConversationEventLog: Skipping malformed record at offset " + offset +
+                                 " in " + events + ": " + e.getMessage());
+            }
+        });
+        return index;
+    }
+
+    private static Index readIndexFile(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Index index = new Index();
+        try (JsonReader in = new JsonReader(new java.io.InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals("bytes")) {
+                    index.bytes = in.nextLong();
+                } else if (name.equals("records")) {
+                    index.records = in.nextLong();
+                } else if (name.equals("conversations")) {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String conversationId = in.nextName();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            index.add(conversationId, in.nextLong());
+                        }
+                        in.endArray();
+                    }
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return index;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            System.err.println("ConversationEventLog: Ignoring unreadable index " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves an index (written to a temporary file, then renamed over the old one)
+     */
+    static void writeIndex(File dir, Index index) {
+        File target = new File(dir, INDEX_FILE);
+        File temp = new File(dir, INDEX_FILE + ".tmp");
+        try {
+            try (JsonWriter out = new JsonWriter(new OutputStreamWriter(
+                    new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+                out.beginObject();
+                out.name("bytes").value(index.bytes);
+                out.name("records").value(index.records);
+                out.name("conversations").beginObject();
+                for (Map.Entry<String, Offsets> entry : index.conversations.entrySet()) {
+                    out.name(entry.getKey()).beginArray();
+                    Offsets offsets = entry.getValue();
+                    for (int i = 0; i < offsets.size; i++) {
+                        out.value(offsets.values[i]);
+                    }
+                    out.endArray();
+                }
+                out.endObject();
+                out.endObject();
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("ConversationEventLog: Failed to write index " + target + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * UTF-8 length of a string from an index
+     */
+    private static long utf8Length(String s, int from) {
+        long length = 0;
+        for (int i = from; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;  // Unpaired surrogate, encoded as '?'
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,263 @@
+package project.Utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads the structured event log of a log folder (see {@link ConversationEventLog}) for replay
+ * and aggregation: the records of one conversation are read by seeking to the offsets in the
+ * conversation index, whole-folder queries stream the file once.
+ *
+ * Usage: java project.Utils.ConversationEventReader &lt;logFolder&gt; [conversationId]
+ *   Without a conversation ID prints the conversations and the response times per responder;
+ *   with one, replays that conversation. The folder may be given with or without "logs/".
+ */
+public class ConversationEventReader {
+    private final File eventsFile;
+    private final ConversationEventLog.Index index;
+
+    /**
+     * Time between a sent message and the first reply from one of its receivers
+     */
+    public static class ResponseTime {
+        public String conversationId;
+        public String requester;
+        public String responder;
+        public String requestPerformative;
+        public String replyPerformative;
+        public double millis;
+    }
+
+    /**
+     * Opens the event log of a folder (loads the saved index, then indexes any newer records)
+     */
+    public ConversationEventReader(String logFolder) throws IOException {
+        File dir = new File(logFolder);
+        this.eventsFile = new File(dir, ConversationEventLog.EVENTS_FILE);
+        if (!eventsFile.isFile()) {
+            throw new FileNotFoundException("No event log in " + dir);
+        }
+        this.index = ConversationEventLog.loadIndex(dir);
+    }
+
+    public Set<String> getConversationIds() {
+        return Collections.unmodifiableSet(index.conversations.keySet());
+    }
+
+    public long getRecordCount() {
+        return index.records;
+    }
+
+    /**
+     * Records of one conversation in the order they were logged (empty if unknown)
+     */
+    public List<ConversationEvent> readConversation(String conversationId) throws IOException {
+        ConversationEventLog.Offsets offsets = index.conversations.get(conversationId);
+        List<ConversationEvent> events = new ArrayList<>();
+        if (offsets == null) {
+            return events;
+        }
+        byte[] buffer = new byte[8192];
+        ByteArrayOutputStream longLine = new ByteArrayOutputStream();
+        try (RandomAccessFile file = new RandomAccessFile(eventsFile, "r")) {
+            for (int i = 0; i < offsets.size; i++) {
+                events.add(ConversationEventLog.parse(readLineAt(file, offsets.values[i], buffer, longLine)));
+            }
+        }
+        return events;
+    }
+
+    private static String readLineAt(RandomAccessFile file, long offset, byte[] buffer,
+                                     ByteArrayOutputStream longLine) throws IOException {
+        file.seek(offset);
+        longLine.reset();
+        while (true) {
+            int read = file.read(buffer);
+            if (read <= 0) {
+                throw new IOException("Event record at offset " + offset + " is truncated");
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    if (longLine.size() == 0) {
+                        return new String(buffer, 0, i, StandardCharsets.UTF_8);
+                    }
+                    longLine.write(buffer, 0, i);
+                    return new String(longLine.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+            longLine.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Streams every complete record of the folder in file order, as one JSON stream over the
+     * indexed part of the file
+     */
+    public void forEach(Consumer<ConversationEvent> handler) throws IOException {
+        InputStream bounded = new BoundedInputStream(new FileInputStream(eventsFile), index.bytes);
+        try (JsonReader in = new JsonReader(new InputStreamReader(bounded, StandardCharsets.UTF_8))) {
+            in.setLenient(true);  // One top-level object per line
+            while (in.peek() != JsonToken.END_DOCUMENT) {
+                handler.accept(ConversationEventLog.read(in));
+            }
+        }
+    }
+
+    /**
+     * Stops reading after a number of bytes
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
+    public List<ConversationEvent> readAll() throws IOException {
+        List<ConversationEvent> events = new ArrayList<>();
+        forEach(events::add);
+        return events;
+    }
+
+    /**
+     * Response times of every request/reply pair in the folder: a message sent by an agent is
+     * answered by the next message that agent receives in the same conversation from one of
+     * its receivers (each receiver of a multicast answers separately)
+     */
+    public List<ResponseTime> getResponseTimes() throws IOException {
+        List<ResponseTime> responseTimes = new ArrayList<>();
+        // Pending sends by conversation, then by "requester\0receiver"
+        Map<String, Map<String, ConversationEvent>> pending = new HashMap<>();
+        forEach(event -> {
+            if (event.conversationId == null) {
+                return;
+            }
+            if (event.kind == ConversationEvent.Kind.SENT) {
+                Map<String, ConversationEvent> sends = pending.computeIfAbsent(event.conversationId, k -> new HashMap<>());
+                for (String receiver : event.receivers) {
+                    sends.put(event.agent + '\0' + receiver, event);
+                }
+            } else if (event.kind == ConversationEvent.Kind.RECEIVED && event.sender != null) {
+                Map<String, ConversationEvent> sends = pending.get(event.conversationId);
+                ConversationEvent request = sends != null ? sends.remove(event.agent + '\0' + event.sender) : null;
+                if (request != null) {
+                    ResponseTime responseTime = new ResponseTime();
+                    responseTime.conversationId = event.conversationId;
+                    responseTime.requester = request.agent;
+                    responseTime.responder = event.sender;
+                    responseTime.requestPerformative = request.performative;
+                    responseTime.replyPerformative = event.performative;
+                    responseTime.millis = request.nanoTime != 0 && event.nanoTime != 0
+                        ? (event.nanoTime - request.nanoTime) / 1e6
+                        : event.timeMillis - request.timeMillis;
+                    responseTimes.add(responseTime);
+                }
+            }
+        });
+        return responseTimes;
+    }
+
+    /**
+     * Mean response time per responder in milliseconds
+     */
+    public Map<String, Double> getAverageResponseTimes() throws IOException {
+        return averageByResponder(getResponseTimes());
+    }
+
+    public static Map<String, Double> averageByResponder(List<ResponseTime> responseTimes) {
+        Map<String, double[]> sums = new LinkedHashMap<>();  // {total, count}
+        for (ResponseTime responseTime : responseTimes) {
+            double[] sum = sums.computeIfAbsent(responseTime.responder, k -> new double[2]);
+            sum[0] += responseTime.millis;
+            sum[1]++;
+        }
+        Map<String, Double> averages = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> entry : sums.entrySet()) {
+            averages.put(entry.getKey(), entry.getValue()[0] / entry.getValue()[1]);
+        }
+        return averages;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java project.Utils.ConversationEventReader <logFolder> [conversationId]");
+            return;
+        }
+        String folder = args[0];
+        if (!new File(folder).isDirectory() && new File("logs", folder).isDirectory()) {
+            folder = "logs/" + folder;
+        }
+
+        long start = System.nanoTime();
+        ConversationEventReader reader = new ConversationEventReader(folder);
+        if (args.length > 1) {
+            List<ConversationEvent> events = reader.readConversation(args[1]);
+            for (ConversationEvent event : events) {
+                System.out.println(event);
+            }
+            System.out.println(String.format("%d records of conversation %s read in %.1f ms",
+                events.size(), args[1], (System.nanoTime() - start) / 1e6));
+            return;
+        }
+
+        System.out.println("=== Event log " + folder + ": " + reader.getRecordCount() + " records, " +
+                         reader.getConversationIds().size() + " conversations ===");
+        for (String conversationId : reader.getConversationIds()) {
+            System.out.println("  " + conversationId + " (" +
+                             reader.index.conversations.get(conversationId).size + " records)");
+        }
+        List<ResponseTime> responseTimes = reader.getResponseTimes();
+        Map<String, Double> averages = averageByResponder(responseTimes);
+        System.out.println("\nResponse times (" + responseTimes.size() + " replies):");
+        System.out.println(String.format("  %-40s %10s", "Responder", "MeanMs"));
+        for (Map.Entry<String, Double> entry : averages.entrySet()) {
+            System.out.println(String.format("  %-40s %10.2f", entry.getKey(), entry.getValue()));
+        }
+        System.out.println(String.format("Read in %.1f ms", (System.nanoTime() - start) / 1e6));
+    }
+}
@@ -0,0 +1,285 @@
+package project.Utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import project.General.ProblemInstance;
+import project.General.SolutionResult;
+import project.General.SolutionSink;
+import project.Utils.BackendClient.BackendRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Optional HTTP intake inside the Java process (JDK built-in HTTP server), so latency-sensitive
+ * callers can skip the Python backend hop and its polling delay.
+ *
+ * Endpoints (same request and solution JSON as the Python backend):
+ *   POST /api/solve-cvrp              - submit a CVRPRequest; 202 with {"request_id", "status"}
+ *   POST /api/solve-cvrp?wait=N       - submit and wait up to N seconds; 200 with the solution,
+ *                                       or 202 if it is not ready in time
+ *   GET  /api/solution/{request_id}   - status of a request, with the solution once completed
+ *
+ * Accepted requests go through the same scheduler as polled ones; their solution is delivered
+ * to this server instead of the Python backend. Finished requests are kept for
+ * RESULT_RETENTION_MS so they can still be fetched; requests that never complete are dropped
+ * (and their waiters answered with an error) after MAX_PENDING_MS.
+ *
+ * Enabled with -Dcvrp.intake.port=PORT. There is no authentication, so the server binds to
+ * the loopback interface unless -Dcvrp.intake.host names another address, and sends no CORS
+ * header unless -Dcvrp.intake.allowOrigin names the origin allowed to call it.
+ */
+public class EmbeddedIntakeServer {
+
+    private static final long RESULT_RETENTION_MS = 10 * 60 * 1000L;
+    private static final long MAX_PENDING_MS = 60 * 60 * 1000L;
+    private static final String ALLOW_ORIGIN = System.getProperty("cvrp.intake.allowOrigin");
+    private static final int MAX_WAIT_SECONDS = 120;
+
+    private final Gson gson = new Gson();
+    private final String host;
+    private final int port;
+    private final Predicate<BackendRequest> intake;
+    private final Map<String, LocalRequest> requests = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * A request accepted by this server and its (future) solution, encoded by SolutionJsonWriter
+     */
+    private static class LocalRequest {
+        final CompletableFuture<byte[]> solution = new CompletableFuture<>();
+        final long acceptedAt = System.currentTimeMillis();
+        volatile long completedAt;
+    }
+
+    /**
+     * @param host address to bind to (e.g. 127.0.0.1 for local callers only)
+     * @param port TCP port to listen on
+     * @param intake admits a request for processing (false if it cannot be queued)
+     */
+    public EmbeddedIntakeServer(String host, int port, Predicate<BackendRequest> intake) {
+        this.host = host;
+        this.port = port;
+        this.intake = intake;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        // Synchronous submissions hold a thread while waiting for their solution
+        executor = Executors.newFixedThreadPool(Integer.getInteger("cvrp.intake.threads", 16), runnable -> {
+            Thread thread = new Thread(runnable, "intake-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/api/solve-cvrp", this::handleSubmit);
+        server.createContext("/api/solution/", this::handleSolution);
+        server.start();
+        Log.info("✓ Embedded intake listening on " + host + ":" + port);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only POST is supported");
+                return;
+            }
+            evictExpired();
+
+            // Parsed while the body streams in, with the same validation as polled requests
+            ProblemInstanceReader problemReader = new ProblemInstanceReader();
+            ProblemInstance problem;
+            try (JsonReader in = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                problem = problemReader.read(in);
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                sendError(exchange, 400, "Invalid CVRP request: " + e.getMessage());
+                return;
+            }
+
+            String requestId = "local-" + UUID.randomUUID();
+            LocalRequest local = new LocalRequest();
+            requests.put(requestId, local);
+            BackendRequest request = new BackendRequest(requestId, problem);
+            request.priority = problemReader.getPriority();
+            request.deadlineMs = problemReader.getDeadlineMs();
+            request.solutionSink = sinkFor(local);
+            if (!intake.test(request)) {
+                requests.remove(requestId);
+                sendError(exchange, 503, "Request queue is full");
+                return;
+            }
+            Log.debug("Intake: Accepted request " + requestId);
+
+            int waitSeconds = Math.min(parseWaitSeconds(exchange.getRequestURI()), MAX_WAIT_SECONDS);
+            if (waitSeconds > 0) {
+                try {
+                    byte[] solution = local.solution.get(waitSeconds, TimeUnit.SECONDS);
+                    sendBytes(exchange, 200, completedResponse(requestId, solution));
+                    return;
+                } catch (TimeoutException e) {
+                    // Not ready in time: answer like an asynchronous submission
+                } catch (Exception e) {
+                    sendError(exchange, 500, "Solving failed: " + e.getMessage());
+                    return;
+                }
+            }
+
+            JsonObject accepted = new JsonObject();
+            accepted.addProperty("request_id", requestId);
+            accepted.addProperty("status", "submitted");
+            accepted.addProperty("message", "Request submitted successfully. Use /api/solution/" +
+                                 requestId + " to check for the solution.");
+            sendJson(exchange, 202, accepted);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSolution(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            evictExpired();
+            String path = exchange.getRequestURI().getPath();
+            String requestId = path.substring(path.lastIndexOf('/') + 1);
+            LocalRequest local = requests.get(requestId);
+            if (local == null) {
+                sendError(exchange, 404, "Request not found");
+                return;
+            }
+            byte[] solution = local.solution.getNow(null);
+            if (solution != null) {
+                sendBytes(exchange, 200, completedResponse(requestId, solution));
+            } else {
+                JsonObject pending = new JsonObject();
+                pending.addProperty("request_id", requestId);
+                pending.addProperty("status", "processing");
+                sendJson(exchange, 200, pending);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sink completing a local request (called by the MRA once the solution is ready)
+     */
+    private static SolutionSink sinkFor(LocalRequest local) {
+        return new SolutionSink() {
+            @Override
+            public boolean submit(String requestId, SolutionResult solution) {
+                return submit(requestId, solution, SolutionJsonWriter.encode(requestId, solution, requestId));
+            }
+
+            @Override
+            public boolean submit(String requestId, SolutionResult solution, byte[] encodedJson) {
+                local.completedAt = System.currentTimeMillis();
+                local.solution.complete(encodedJson);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Completed response around the encoded solution (embedded as is, not parsed again)
+     */
+    private static byte[] completedResponse(String requestId, byte[] solution) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(solution.length + 128);
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            out.beginObject();
+            out.name("request_id").value(requestId);
+            out.name("status").value("completed");
+            out.name("solution").jsonValue(new String(solution, StandardCharsets.UTF_8));
+            out.endObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, LocalRequest>> it = requests.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, LocalRequest> entry = it.next();
+            LocalRequest local = entry.getValue();
+            if (local.completedAt > 0 && now - local.completedAt > RESULT_RETENTION_MS) {
+                it.remove();
+            } else if (local.completedAt == 0 && now - local.acceptedAt > MAX_PENDING_MS) {
+                local.solution.completeExceptionally(new TimeoutException("No solution after " +
+                                                                          MAX_PENDING_MS / 1000 + " s"));
+                it.remove();
+                Log.warn("Intake: Dropped request " + entry.getKey() + " - no solution after " +
+                         MAX_PENDING_MS / 1000 + " s");
+            }
+        }
+    }
+
+    private static int parseWaitSeconds(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return 0;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("wait=")) {
+                try {
+                    return Math.max(0, Integer.parseInt(param.substring("wait=".length())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        sendJson(exchange, status, error);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonObject json) throws IOException {
+        sendBytes(exchange, status, gson.toJson(json).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendBytes(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (ALLOW_ORIGIN != null) {
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", ALLOW_ORIGIN);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
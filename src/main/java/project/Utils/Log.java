@@ -0,0 +1,124 @@
+package project.Utils;
+
+import java.util.function.Supplier;
+
+/**
+ * Leveled console logging for Main, the agents and the solver.
+ *
+ * Messages below the current level are dropped before they are built: pass a Supplier (or
+ * check {@link #isDebugEnabled()} / {@link #isTraceEnabled()} around a loop) for anything
+ * more than a constant, so per-customer and per-message output costs nothing when disabled.
+ * TRACE, DEBUG and INFO go to stdout, WARN and ERROR to stderr; a multi-line block is printed
+ * with a single println.
+ *
+ * Levels:
+ *   TRACE - per-customer / per-node dumps
+ *   DEBUG - per-message and per-vehicle progress
+ *   INFO  - request lifecycle summaries and metrics
+ *   WARN, ERROR
+ *
+ * Profiles (-Dcvrp.log.profile):
+ *   development - DEBUG (default)
+ *   production  - INFO: only summaries and metrics
+ * -Dcvrp.log.level=TRACE|DEBUG|INFO|WARN|ERROR|OFF overrides the profile's level.
+ */
+public final class Log {
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static volatile Level level = initialLevel();
+
+    private Log() {
+    }
+
+    private static Level initialLevel() {
+        String configured = System.getProperty("cvrp.log.level");
+        if (configured != null) {
+            try {
+                return Level.valueOf(configured.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Log: Unknown level '" + configured + "', using the profile's level");
+            }
+        }
+        String profile = System.getProperty("cvrp.log.profile", "development");
+        return profile.equalsIgnoreCase("production") ? Level.INFO : Level.DEBUG;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel.ordinal() >= level.ordinal() && messageLevel != Level.OFF;
+    }
+
+    public static boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public static void trace(Supplier<String> message) {
+        if (isEnabled(Level.TRACE)) {
+            System.out.println(message.get());
+        }
+    }
+
+    public static void debug(String message) {
+        if (isEnabled(Level.DEBUG)) {
+            System.out.println(message);
+        }
+    }
+
+    public static void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            System.out.println(message.get());
+        }
+    }
+
+    public static void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            System.out.println(message);
+        }
+    }
+
+    public static void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            System.out.println(message.get());
+        }
+    }
+
+    public static void warn(String message) {
+        if (isEnabled(Level.WARN)) {
+            System.err.println(message);
+        }
+    }
+
+    public static void warn(Supplier<String> message) {
+        if (isEnabled(Level.WARN)) {
+            System.err.println(message.get());
+        }
+    }
+
+    public static void error(String message) {
+        if (isEnabled(Level.ERROR)) {
+            System.err.println(message);
+        }
+    }
+
+    /**
+     * Logs an error with the exception's stack trace
+     */
+    public static void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            System.err.println(message);
+            error.printStackTrace();
+        }
+    }
+}
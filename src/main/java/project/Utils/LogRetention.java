@@ -0,0 +1,462 @@
+package project.Utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bounded retention for logs/ and results/, enforced by a background janitor thread so
+ * request threads never compress or delete anything.
+ *
+ * Every pass (-Dcvrp.retention.intervalSeconds, default 60):
+ *   1. Request log folders with no open logger (see {@link AgentLogger#isFolderOpen(String)})
+ *      and idle for -Dcvrp.retention.idleSeconds (default 120) are packed into one
+ *      logs/&lt;folder&gt;.zip, so logs/ holds one entry per request instead of a folder of files.
+ *      Rotated segments of open logs (see {@link AsyncLogWriter}) are gzipped in place.
+ *   2. Idle results/*.json files (from before the {@link ResultArchive}) are gzipped.
+ *   3. Archived entries older than -Dcvrp.retention.maxAgeDays (default 30, 0 = no limit) are
+ *      deleted, then the oldest are deleted until logs/ and results/ together fit in
+ *      -Dcvrp.retention.maxBytes (default 1 GiB, 0 = no limit).
+ *   4. Result archive segments (archive-YYYY-MM.jsonl / .idx) are exempt from steps 2 and 3, so
+ *      trend queries can span years; past months older than
+ *      -Dcvrp.retention.archiveMaxAgeDays (default 0 = kept forever) are deleted, data file and
+ *      index together.
+ *
+ * Disable the janitor with -Dcvrp.retention.enabled=false. Run a single pass with
+ * java project.Utils.LogRetention.
+ */
+public class LogRetention {
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final String ZIP_SUFFIX = ".zip";
+
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("cvrp.retention.enabled", "true"));
+    private static final long INTERVAL_MS = Long.getLong("cvrp.retention.intervalSeconds", 60) * 1000L;
+
+    private static LogRetention janitor;
+    private static Thread janitorThread;
+
+    private final File logsDir;
+    private final File resultsDir;
+    private final long idleMs;
+    private final long maxAgeMs;
+    private final long maxBytes;
+    private final long archiveMaxAgeMs;
+
+    // Counters (janitor thread writes, readers only print them)
+    private volatile long passes;
+    private volatile long foldersArchived;
+    private volatile long filesCompressed;
+    private volatile long entriesDeleted;
+    private volatile long bytesSaved;
+    private volatile long bytesDeleted;
+    private volatile long lastTotalBytes;
+    private volatile long lastArchiveBytes;
+    private volatile long segmentsDeleted;
+
+    /**
+     * An archivable entry of logs/ or results/ with its size on disk
+     */
+    private static class Entry {
+        final File file;
+        final long size;
+        final long lastModified;
+
+        Entry(File file, long size, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public LogRetention(File logsDir, File resultsDir, long idleMs, long maxAgeMs, long maxBytes) {
+        this(logsDir, resultsDir, idleMs, maxAgeMs, maxBytes, 0);
+    }
+
+    public LogRetention(File logsDir, File resultsDir, long idleMs, long maxAgeMs, long maxBytes,
+                        long archiveMaxAgeMs) {
+        this.logsDir = logsDir;
+        this.resultsDir = resultsDir;
+        this.idleMs = idleMs;
+        this.maxAgeMs = maxAgeMs;
+        this.maxBytes = maxBytes;
+        this.archiveMaxAgeMs = archiveMaxAgeMs;
+    }
+
+    /**
+     * Retention over the default logs/ and results/ directories, configured by system properties
+     */
+    public static LogRetention fromSystemProperties() {
+        return new LogRetention(new File(AgentLogger.LOG_BASE_DIR), new File(JsonResultLogger.OUTPUT_DIR),
+            Long.getLong("cvrp.retention.idleSeconds", 120) * 1000L,
+            Long.getLong("cvrp.retention.maxAgeDays", 30) * 24L * 3600_000L,
+            Long.getLong("cvrp.retention.maxBytes", 1L << 30),
+            Long.getLong("cvrp.retention.archiveMaxAgeDays", 0) * 24L * 3600_000L);
+    }
+
+    /**
+     * Starts the shared janitor thread (once; no-op when retention is disabled)
+     */
+    public static synchronized void startJanitor() {
+        if (!ENABLED || janitorThread != null) {
+            return;
+        }
+        janitor = fromSystemProperties();
+        janitorThread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    janitor.runOnce();
+                    Thread.sleep(INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    Log.error("LogRetention: Janitor pass failed: " + e.getMessage(), e);
+                }
+            }
+        }, "log-janitor");
+        janitorThread.setDaemon(true);
+        janitorThread.setPriority(Thread.MIN_PRIORITY);
+        janitorThread.start();
+        Log.info("LogRetention: Janitor started (" + janitor.describeLimits() + ")");
+    }
+
+    public static synchronized void stopJanitor() {
+        if (janitorThread != null) {
+            janitorThread.interrupt();
+            janitorThread = null;
+        }
+    }
+
+    /**
+     * One retention pass: compress, then enforce the age limit and the disk budget
+     */
+    public void runOnce() {
+        long now = System.currentTimeMillis();
+        long archivedBefore = foldersArchived;
+        long compressedBefore = filesCompressed;
+        long deletedBefore = entriesDeleted;
+        long segmentsBefore = segmentsDeleted;
+
+        List<Entry> archivable = new ArrayList<>();
+        List<File> archiveSegments = new ArrayList<>();
+        long total = 0;
+        total += compressLogs(now, archivable);
+        total += compressResults(now, archivable, archiveSegments);
+        total -= enforceLimits(now, archivable, total);
+        lastTotalBytes = total;
+        lastArchiveBytes = pruneArchive(now, archiveSegments);
+        passes++;
+
+        if (foldersArchived != archivedBefore || filesCompressed != compressedBefore
+                || entriesDeleted != deletedBefore || segmentsDeleted != segmentsBefore) {
+            Log.info("LogRetention: " + getStatistics());
+        }
+    }
+
+    /**
+     * Archives closed request folders and gzips rotated segments of open ones
+     *
+     * @return bytes in logs/ after compression
+     */
+    private long compressLogs(long now, List<Entry> archivable) {
+        File[] children = logsDir.listFiles();
+        if (children == null) {
+            return 0;
+        }
+        long total = 0;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                long[] sizeAndModified = sizeAndLastModified(child);
+                boolean idle = now - sizeAndModified[1] >= idleMs;
+                if (AgentLogger.isFolderOpen(child.getName()) || !idle) {
+                    total += compressSegments(child, now);
+                    continue;
+                }
+                File zip = new File(logsDir, child.getName() + ZIP_SUFFIX);
+                try {
+                    zipFolder(child, zip);
+                    deleteRecursively(child);
+                    foldersArchived++;
+                    bytesSaved += Math.max(0, sizeAndModified[0] - zip.length());
+                    zip.setLastModified(sizeAndModified[1]);  // Age of the request, not of the archive
+                    total += zip.length();
+                    archivable.add(new Entry(zip, zip.length(), sizeAndModified[1]));
+                } catch (IOException e) {
+                    Log.warn("LogRetention: Failed to archive " + child + ": " + e.getMessage());
+                    total += sizeAndModified[0];
+                    archivable.add(new Entry(child, sizeAndModified[0], sizeAndModified[1]));
+                }
+            } else {
+                total += child.length();
+                if (now - child.lastModified() >= idleMs) {
+                    archivable.add(new Entry(child, child.length(), child.lastModified()));
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gzips the rotated segments ("&lt;name&gt;.log.&lt;timestamp&gt;") of a folder that is still open
+     *
+     * @return bytes in the folder after compression
+     */
+    private long compressSegments(File folder, long now) {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long total = 0;
+        for (File file : files) {
+            if (isRotatedSegment(file.getName()) && now - file.lastModified() >= idleMs) {
+                total += gzip(file);
+            } else {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    static boolean isRotatedSegment(String name) {
+        int marker = name.indexOf(".log.");
+        return marker > 0 && !name.endsWith(GZIP_SUFFIX);
+    }
+
+    /**
+     * Gzips idle result files. Result archive segments are collected separately: they have
+     * their own retention and do not count against the disk budget.
+     *
+     * @return bytes in results/ after compression, without the archive segments
+     */
+    private long compressResults(long now, List<Entry> archivable, List<File> archiveSegments) {
+        File[] files = resultsDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long total = 0;
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            if (file.getName().startsWith(ResultArchive.SEGMENT_PREFIX)) {
+                archiveSegments.add(file);
+                continue;
+            }
+            long lastModified = file.lastModified();
+            if (now - lastModified < idleMs) {
+                total += file.length();
+                continue;
+            }
+            File archived = file;
+            if (file.getName().endsWith(".json")) {
+                gzip(file);
+                File compressed = new File(file.getPath() + GZIP_SUFFIX);
+                if (!file.exists()) {
+                    archived = compressed;  // Otherwise compression failed and the original is kept
+                }
+            }
+            total += archived.length();
+            archivable.add(new Entry(archived, archived.length(), lastModified));
+        }
+        return total;
+    }
+
+    /**
+     * Replaces a file by "&lt;file&gt;.gz" (written to a temporary file first)
+     *
+     * @return bytes on disk afterwards
+     */
+    private long gzip(File file) {
+        File target = new File(file.getPath() + GZIP_SUFFIX);
+        File tmp = new File(file.getPath() + GZIP_SUFFIX + ".tmp");
+        long originalSize = file.length();
+        long lastModified = file.lastModified();
+        try {
+            try (InputStream in = new FileInputStream(file);
+                 OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), 65536)) {
+                copy(in, out);
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            target.setLastModified(lastModified);
+            Files.delete(file.toPath());
+            filesCompressed++;
+            bytesSaved += Math.max(0, originalSize - target.length());
+            return target.length();
+        } catch (IOException e) {
+            Log.warn("LogRetention: Failed to compress " + file + ": " + e.getMessage());
+            tmp.delete();
+            return originalSize;
+        }
+    }
+
+    private static void zipFolder(File folder, File zip) throws IOException {
+        File tmp = new File(zip.getPath() + ".tmp");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tmp))) {
+            addToZip(folder, folder.getName() + "/", out);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), zip.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void addToZip(File folder, String prefix, ZipOutputStream out) throws IOException {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addToZip(file, prefix + file.getName() + "/", out);
+                continue;
+            }
+            ZipEntry entry = new ZipEntry(prefix + file.getName());
+            entry.setTime(file.lastModified());
+            out.putNextEntry(entry);
+            try (InputStream in = new FileInputStream(file)) {
+                copy(in, out);
+            }
+            out.closeEntry();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Deletes archived entries past the age limit, then the oldest until the budget is met
+     *
+     * @return bytes deleted
+     */
+    private long enforceLimits(long now, List<Entry> archivable, long total) {
+        archivable.sort((a, b) -> Long.compare(a.lastModified, b.lastModified));
+        long deleted = 0;
+        for (Entry entry : archivable) {
+            boolean expired = maxAgeMs > 0 && now - entry.lastModified >= maxAgeMs;
+            boolean overBudget = maxBytes > 0 && total - deleted > maxBytes;
+            if (!expired && !overBudget) {
+                break;  // Sorted oldest first: every later entry is newer and within budget
+            }
+            if (deleteRecursively(entry.file)) {
+                deleted += entry.size;
+                entriesDeleted++;
+                bytesDeleted += entry.size;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes archive segments of past months whose last append is older than the archive age
+     * limit. The data file goes first and its index right after; an index left without its
+     * data file (a failed delete) is not listed by the archive and is removed on a later pass.
+     *
+     * @return bytes of the archive segments kept
+     */
+    private long pruneArchive(long now, List<File> segments) {
+        for (File file : segments) {
+            String name = file.getName();
+            if (ResultArchive.isActiveSegment(name) || !name.endsWith(ResultArchive.DATA_SUFFIX)
+                    || archiveMaxAgeMs <= 0 || now - file.lastModified() < archiveMaxAgeMs) {
+                continue;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                File index = siblingSegment(file, ResultArchive.DATA_SUFFIX, ResultArchive.INDEX_SUFFIX);
+                size += index.length();
+                index.delete();
+                segmentsDeleted++;
+                bytesDeleted += size;
+            }
+        }
+        long kept = 0;
+        for (File file : segments) {
+            if (file.getName().endsWith(ResultArchive.INDEX_SUFFIX) && !ResultArchive.isActiveSegment(file.getName())
+                    && !siblingSegment(file, ResultArchive.INDEX_SUFFIX, ResultArchive.DATA_SUFFIX).exists()) {
+                file.delete();  // Orphaned index
+            }
+            kept += file.length();  // 0 once deleted
+        }
+        return kept;
+    }
+
+    private static File siblingSegment(File file, String suffix, String siblingSuffix) {
+        String path = file.getPath();
+        return new File(path.substring(0, path.length() - suffix.length()) + siblingSuffix);
+    }
+
+    /**
+     * Total size and newest modification time of the files under a folder
+     */
+    private static long[] sizeAndLastModified(File folder) {
+        long[] result = {0, folder.lastModified()};
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    long[] nested = sizeAndLastModified(file);
+                    result[0] += nested[0];
+                    result[1] = Math.max(result[1], nested[1]);
+                } else {
+                    result[0] += file.length();
+                    result[1] = Math.max(result[1], file.lastModified());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean deleteRecursively(File file) {
+        File[] children = file.isDirectory() ? file.listFiles() : null;
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        return file.delete();
+    }
+
+    private String describeLimits() {
+        return "interval " + INTERVAL_MS / 1000 + " s, idle " + idleMs / 1000 + " s, max age " +
+               (maxAgeMs > 0 ? maxAgeMs / (24L * 3600_000L) + " days" : "none") + ", budget " +
+               (maxBytes > 0 ? (maxBytes >> 20) + " MiB" : "none") + ", archive max age " +
+               (archiveMaxAgeMs > 0 ? archiveMaxAgeMs / (24L * 3600_000L) + " days" : "none");
+    }
+
+    /**
+     * One-line summary of the retention counters
+     */
+    public String getStatistics() {
+        return "passes=" + passes +
+               ", foldersArchived=" + foldersArchived +
+               ", filesCompressed=" + filesCompressed +
+               ", deleted=" + entriesDeleted +
+               ", archiveSegmentsDeleted=" + segmentsDeleted +
+               ", savedMiB=" + (bytesSaved >> 20) +
+               ", deletedMiB=" + (bytesDeleted >> 20) +
+               ", diskMiB=" + (lastTotalBytes >> 20) +
+               ", archiveMiB=" + (lastArchiveBytes >> 20);
+    }
+
+    public static void main(String[] args) {
+        LogRetention retention = fromSystemProperties();
+        long start = System.nanoTime();
+        retention.runOnce();
+        Log.info(String.format("LogRetention: %s (%s) in %.1f ms", retention.getStatistics(),
+            retention.describeLimits(), (System.nanoTime() - start) / 1e6));
+    }
+}
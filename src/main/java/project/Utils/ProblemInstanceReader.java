@@ -0,0 +1,359 @@
+package project.Utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import project.General.ProblemInstance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming parser for the CVRPRequest JSON (depot, vehicles, customers) that fills a
+ * {@link ProblemInstance} directly, without building a JSON tree or per-customer objects.
+ *
+ * Unknown fields are skipped. The optional scheduling hints "priority" and "deadlineMs" are
+ * picked up on the way and available from the getters after {@link #read(JsonReader)}.
+ * Missing required fields and values of the wrong type (e.g. a fractional demand) raise an
+ * IllegalArgumentException naming the first problem. A value of the wrong type is skipped
+ * rather than aborting the parse, so the exception is thrown only once the whole request
+ * object has been consumed and a caller reading a batch can skip an invalid request and carry
+ * on with the next one. Only malformed JSON (a syntax error) ends the stream.
+ */
+public class ProblemInstanceReader {
+
+    private Integer priority;
+    private Long deadlineMs;
+    private String error;  // First validation error of the current request
+
+    // Node-indexed column buffers, grown by doubling while customers are read
+    private int nodes;
+    private String[] ids;
+    private double[] x;
+    private double[] y;
+    private int[] demand;
+    private long[] windowStart;
+    private long[] windowEnd;
+
+    /**
+     * Reads one request object from the current position of the reader
+     */
+    public ProblemInstance read(JsonReader in) throws IOException {
+        priority = null;
+        deadlineMs = null;
+        error = null;
+        reset(16);
+        boolean hasDepot = false;
+        boolean hasVehicles = false;
+        boolean hasCustomers = false;
+        List<JsonConfigReader.VehicleConfig> vehicles = new ArrayList<>();
+
+        if (!expect(in, JsonToken.BEGIN_OBJECT, "Backend request data must be an object")) {
+            throw new IllegalArgumentException(error);
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            switch (field) {
+                case "depot":
+                    readDepot(in);
+                    hasDepot = true;
+                    break;
+                case "vehicles":
+                    if (in.peek() == JsonToken.NULL) {
+                        in.skipValue();
+                        break;
+                    }
+                    readVehicles(in, vehicles);
+                    hasVehicles = true;
+                    break;
+                case "customers":
+                    readCustomers(in);
+                    hasCustomers = true;
+                    break;
+                case "priority":
+                    priority = nextInt(in, "'priority'");
+                    break;
+                case "deadlineMs":
+                    deadlineMs = (long) nextDouble(in, "'deadlineMs'");
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (!hasDepot) {
+            fail("Backend request missing 'depot' object");
+        }
+        if (!hasVehicles) {
+            fail("Backend request missing 'vehicles' array");
+        }
+        if (!hasCustomers) {
+            fail("Backend request missing 'customers' array");
+        }
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        ProblemInstance problem = new ProblemInstance(
+            Arrays.copyOf(ids, nodes), Arrays.copyOf(x, nodes), Arrays.copyOf(y, nodes),
+            Arrays.copyOf(demand, nodes), Arrays.copyOf(windowStart, nodes), Arrays.copyOf(windowEnd, nodes));
+        problem.vehicles = vehicles;
+        return problem;
+    }
+
+    /**
+     * Priority hint of the last request read (null if absent)
+     */
+    public Integer getPriority() {
+        return priority;
+    }
+
+    /**
+     * Deadline hint (ms) of the last request read (null if absent)
+     */
+    public Long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    private void fail(String message) {
+        if (error == null) {
+            error = message;
+        }
+    }
+
+    /**
+     * True if the next value is of the given kind; otherwise records the error and skips it
+     */
+    private boolean expect(JsonReader in, JsonToken token, String message) throws IOException {
+        if (in.peek() == token) {
+            return true;
+        }
+        fail(message);
+        in.skipValue();
+        return false;
+    }
+
+    // Typed value readers: a value of the wrong type is recorded as an error and skipped
+    // (a failed nextInt / nextDouble leaves the value unconsumed), so parsing carries on
+
+    private int nextInt(JsonReader in, String what) throws IOException {
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException | IllegalStateException e) {
+            fail(what + " must be an integer");
+            in.skipValue();
+            return 0;
+        }
+    }
+
+    private long nextLong(JsonReader in, String what) throws IOException {
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException | IllegalStateException e) {
+            fail(what + " must be an integer");
+            in.skipValue();
+            return 0;
+        }
+    }
+
+    private double nextDouble(JsonReader in, String what) throws IOException {
+        try {
+            return in.nextDouble();
+        } catch (NumberFormatException | IllegalStateException e) {
+            fail(what + " must be a number");
+            in.skipValue();
+            return 0;
+        }
+    }
+
+    private String nextString(JsonReader in, String what) throws IOException {
+        try {
+            return in.nextString();
+        } catch (IllegalStateException e) {
+            fail(what + " must be a string");
+            in.skipValue();
+            return null;
+        }
+    }
+
+    private void readDepot(JsonReader in) throws IOException {
+        boolean hasName = false;
+        boolean hasX = false;
+        boolean hasY = false;
+        if (!expect(in, JsonToken.BEGIN_OBJECT, "Backend request 'depot' must be an object")) {
+            return;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    ids[0] = nextString(in, "Depot 'name'");
+                    hasName = true;
+                    break;
+                case "x":
+                    x[0] = nextDouble(in, "Depot 'x'");
+                    hasX = true;
+                    break;
+                case "y":
+                    y[0] = nextDouble(in, "Depot 'y'");
+                    hasY = true;
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (!hasName || !hasX || !hasY) {
+            fail("Depot must have: name, x, y");
+        }
+    }
+
+    private void readVehicles(JsonReader in, List<JsonConfigReader.VehicleConfig> vehicles) throws IOException {
+        if (!expect(in, JsonToken.BEGIN_ARRAY, "Backend request 'vehicles' must be an array")) {
+            return;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            int number = vehicles.size() + 1;
+            if (!expect(in, JsonToken.BEGIN_OBJECT, "Vehicle " + number + " must be an object")) {
+                continue;
+            }
+            JsonConfigReader.VehicleConfig vehicle = new JsonConfigReader.VehicleConfig();
+            boolean hasCapacity = false;
+            boolean hasMaxDistance = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name":
+                        vehicle.name = nextString(in, "Vehicle " + number + " 'name'");
+                        break;
+                    case "capacity":
+                        vehicle.capacity = nextInt(in, "Vehicle " + number + " 'capacity'");
+                        hasCapacity = true;
+                        break;
+                    case "maxDistance":
+                        vehicle.maxDistance = nextDouble(in, "Vehicle " + number + " 'maxDistance'");
+                        hasMaxDistance = true;
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (vehicle.name == null) {
+                fail("Vehicle " + number + " missing 'name' field");
+            }
+            if (!hasCapacity) {
+                fail("Vehicle " + number + " ('" + vehicle.name + "') missing 'capacity' field");
+            }
+            if (!hasMaxDistance) {
+                fail("Vehicle " + number + " ('" + vehicle.name + "') missing 'maxDistance' field");
+            }
+            vehicles.add(vehicle);
+        }
+        in.endArray();
+    }
+
+    private void readCustomers(JsonReader in) throws IOException {
+        if (!expect(in, JsonToken.BEGIN_ARRAY, "Backend request 'customers' must be an array")) {
+            return;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            if (nodes == x.length) {
+                grow(nodes * 2);
+            }
+            int node = nodes;
+            if (!expect(in, JsonToken.BEGIN_OBJECT, "Customer " + node + " must be an object")) {
+                nodes++;
+                continue;
+            }
+            int seen = 0;  // Bit set of the required fields id, x, y, demand
+            windowStart[node] = ProblemInstance.NO_WINDOW;
+            windowEnd[node] = ProblemInstance.NO_WINDOW;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        ids[node] = nextString(in, "Customer " + node + " 'id'");
+                        seen |= 1;
+                        break;
+                    case "x":
+                        x[node] = nextDouble(in, "Customer " + node + " 'x'");
+                        seen |= 2;
+                        break;
+                    case "y":
+                        y[node] = nextDouble(in, "Customer " + node + " 'y'");
+                        seen |= 4;
+                        break;
+                    case "demand":
+                        demand[node] = nextInt(in, "Customer " + node + " 'demand'");
+                        seen |= 8;
+                        break;
+                    case "timeWindow":
+                        readTimeWindow(in, node);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (seen != 15) {
+                fail("Customer " + node + " must have: id, demand, x, y");
+            }
+            nodes++;
+        }
+        in.endArray();
+    }
+
+    private void readTimeWindow(JsonReader in, int node) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.skipValue();
+            return;
+        }
+        if (!expect(in, JsonToken.BEGIN_ARRAY, "Customer " + node + " 'timeWindow' must be an array")) {
+            return;
+        }
+        long[] values = new long[2];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            long value = nextLong(in, "Customer " + node + " 'timeWindow'");
+            if (count < 2) {
+                values[count] = value;
+            }
+            count++;
+        }
+        in.endArray();
+        // Windows with fewer than two entries are ignored, as in the tree-based reader
+        if (count >= 2) {
+            windowStart[node] = values[0];
+            windowEnd[node] = values[1];
+        }
+    }
+
+    private void reset(int capacity) {
+        nodes = 1;  // Node 0 is the depot
+        ids = new String[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        demand = new int[capacity];
+        windowStart = new long[capacity];
+        windowEnd = new long[capacity];
+        windowStart[0] = ProblemInstance.NO_WINDOW;
+        windowEnd[0] = ProblemInstance.NO_WINDOW;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        demand = Arrays.copyOf(demand, capacity);
+        windowStart = Arrays.copyOf(windowStart, capacity);
+        windowEnd = Arrays.copyOf(windowEnd, capacity);
+    }
+}
@@ -0,0 +1,199 @@
+package project.Utils;
+
+import project.Solver.SolverTier;
+import project.Utils.BackendClient.BackendRequest;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Java-side queue of backend requests waiting for a processing slot.
+ *
+ * Requests are ordered by priority (higher first), then earliest deadline first (EDF), then
+ * arrival order. Both values are optional request fields:
+ * - "priority": integer, default 0
+ * - "deadlineMs": milliseconds after arrival by which the solution is wanted,
+ *   default -Dcvrp.scheduler.defaultDeadlineMs (60000)
+ *
+ * Admission control: the queue holds at most -Dcvrp.scheduler.queueCapacity requests; while
+ * it is full the poller stops taking requests from the backend, and the number of requests in
+ * flight is bounded by the number of workers calling {@link #take()}.
+ *
+ * Graceful degradation: a request is dispatched with {@link SolverTier#DEGRADED} when, at
+ * dispatch time, the queue behind it is at least -Dcvrp.scheduler.degradeDepth deep, it has
+ * waited -Dcvrp.scheduler.degradeAgeMs or longer, or its remaining time to the deadline is
+ * shorter than the standard solve budget.
+ */
+public class RequestScheduler {
+
+    public static final long DEFAULT_DEADLINE_MS = Long.getLong("cvrp.scheduler.defaultDeadlineMs", 60000);
+
+    /**
+     * A queued request with its scheduling attributes
+     */
+    public static class ScheduledRequest {
+        public final BackendRequest request;
+        public final int priority;
+        public final long deadline;      // Absolute deadline (epoch ms)
+        public final long enqueuedAt;
+        public long dispatchedAt;
+        public SolverTier tier = SolverTier.STANDARD;
+        final long sequence;
+
+        ScheduledRequest(BackendRequest request, int priority, long deadline, long enqueuedAt, long sequence) {
+            this.request = request;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.enqueuedAt = enqueuedAt;
+            this.sequence = sequence;
+        }
+
+        public long getQueueWaitMs() {
+            return dispatchedAt - enqueuedAt;
+        }
+    }
+
+    private final PriorityQueue<ScheduledRequest> queue = new PriorityQueue<>(
+        Comparator.comparingInt((ScheduledRequest r) -> r.priority).reversed()
+            .thenComparingLong(r -> r.deadline)
+            .thenComparingLong(r -> r.sequence));
+    private final int queueCapacity;
+    private final int degradeDepth;
+    private final long degradeAgeMs;
+    private long nextSequence;
+
+    // Statistics
+    private long admittedCount;
+    private long degradedCount;
+    private long completedCount;
+    private long deadlineMissCount;
+
+    /**
+     * @param queueCapacity maximum number of queued (not yet dispatched) requests
+     * @param degradeDepth queue depth at which dispatched requests switch to the degraded tier
+     * @param degradeAgeMs queue wait at which a dispatched request switches to the degraded tier
+     */
+    public RequestScheduler(int queueCapacity, int degradeDepth, long degradeAgeMs) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.degradeDepth = Math.max(1, degradeDepth);
+        this.degradeAgeMs = degradeAgeMs;
+    }
+
+    /**
+     * Creates a scheduler sized for the given number of concurrent workers
+     * (-Dcvrp.scheduler.queueCapacity, default 4x workers; -Dcvrp.scheduler.degradeDepth,
+     * default 2x workers; -Dcvrp.scheduler.degradeAgeMs, default 10000)
+     */
+    public static RequestScheduler forWorkers(int workers) {
+        return new RequestScheduler(
+            Integer.getInteger("cvrp.scheduler.queueCapacity", 4 * workers),
+            Integer.getInteger("cvrp.scheduler.degradeDepth", 2 * workers),
+            Long.getLong("cvrp.scheduler.degradeAgeMs", 10000));
+    }
+
+    /**
+     * Queues a request polled from the backend.
+     *
+     * @return false if the queue is full (the request is not queued)
+     */
+    public synchronized boolean offer(BackendRequest request) {
+        if (queue.size() >= queueCapacity) {
+            return false;
+        }
+        enqueue(request);
+        return true;
+    }
+
+    /**
+     * Queues a request already claimed from the backend. It cannot be handed back, so it is
+     * queued even if other intakes filled the queue in the meantime.
+     */
+    public synchronized void offerClaimed(BackendRequest request) {
+        enqueue(request);
+    }
+
+    private void enqueue(BackendRequest request) {
+        long now = System.currentTimeMillis();
+        int priority = request.priority != null ? request.priority : 0;
+        long deadlineMs = request.deadlineMs != null ? request.deadlineMs : DEFAULT_DEADLINE_MS;
+        queue.add(new ScheduledRequest(request, priority, now + deadlineMs, now, nextSequence++));
+        admittedCount++;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the queue has room for another request.
+     *
+     * @return true if there is room, false if the timeout passed first
+     */
+    public synchronized boolean awaitCapacity(long timeoutMs) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeoutMs;
+        while (queue.size() >= queueCapacity) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Takes the most urgent request, waiting until one is queued, and decides its solver tier
+     */
+    public synchronized ScheduledRequest take() throws InterruptedException {
+        while (queue.isEmpty()) {
+            wait();
+        }
+        ScheduledRequest next = queue.poll();
+        notifyAll();  // Room for the poller again
+
+        next.dispatchedAt = System.currentTimeMillis();
+        boolean deepQueue = queue.size() >= degradeDepth;
+        boolean waitedTooLong = next.getQueueWaitMs() >= degradeAgeMs;
+        boolean deadlineTight = next.deadline - next.dispatchedAt < SolverTier.STANDARD.getTimeBudgetMs();
+        if (deepQueue || waitedTooLong || deadlineTight) {
+            next.tier = SolverTier.DEGRADED;
+            degradedCount++;
+            Log.info("Scheduler: Request " + next.request.requestId + " degraded to " + next.tier +
+                     " (queue depth " + queue.size() + ", waited " + next.getQueueWaitMs() + " ms, " +
+                     (next.deadline - next.dispatchedAt) + " ms to deadline)");
+        }
+        return next;
+    }
+
+    /**
+     * Records the end of a dispatched request (for deadline statistics)
+     */
+    public synchronized void complete(ScheduledRequest scheduled) {
+        completedCount++;
+        long now = System.currentTimeMillis();
+        if (now > scheduled.deadline) {
+            deadlineMissCount++;
+            Log.warn("Scheduler: Request " + scheduled.request.requestId + " missed its deadline by " +
+                     (now - scheduled.deadline) + " ms");
+        }
+    }
+
+    /**
+     * Number of requests that can still be queued
+     */
+    public synchronized int remainingCapacity() {
+        return Math.max(0, queueCapacity - queue.size());
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * One-line summary of the scheduler counters
+     */
+    public synchronized String getStatistics() {
+        return "queued=" + queue.size() + "/" + queueCapacity +
+               ", admitted=" + admittedCount +
+               ", degraded=" + degradedCount +
+               ", completed=" + completedCount +
+               ", deadlineMisses=" + deadlineMissCount;
+    }
+}
@@ -0,0 +1,582 @@
+package project.Utils;
+
+import com.google.gson.stream.JsonReader;
+import project.General.SolutionResult;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Append-only result store replacing one JSON file per solve in results/.
+ *
+ * Results are kept in monthly segments:
+ *   archive-YYYY-MM.jsonl - the solutions as encoded by {@link SolutionJsonWriter}, one per line
+ *   archive-YYYY-MM.idx   - one fixed-size 64-byte record per solution (little-endian):
+ *                           time, data offset, data length, items delivered, items total,
+ *                           routes, unserved customers, solve time, distance, and 64-bit hashes
+ *                           of the request ID and config name
+ *
+ * Records are appended in time order, so a time range is found by binary search over the
+ * memory-mapped index; metric filters and request ID lookups scan the index without touching
+ * the solutions. Only a match is read from the data file. The data line is written before its
+ * index record, so a crash never leaves an index record without its solution.
+ *
+ * Usage: java project.Utils.ResultArchive &lt;command&gt; [options]
+ *   find &lt;requestId&gt;            prints the archived solution JSON
+ *   query [filters]               lists matching results
+ *   trend [filters]               per-day count, delivery rate, distance and solve time
+ *   export &lt;dir&gt; [filters]       writes the summary fields as one binary column file each
+ * Filters: --from yyyy-MM-dd, --to yyyy-MM-dd (inclusive), --config name, --minRate 0.95,
+ *          --maxRate 0.5, --minDistance d, --maxDistance d, --minSolveMs ms, --limit n
+ * The directory is results/ unless -Dcvrp.results.dir is set.
+ */
+public class ResultArchive {
+    public static final int INDEX_RECORD_BYTES = 64;
+    static final String SEGMENT_PREFIX = "archive-";
+    static final String DATA_SUFFIX = ".jsonl";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final byte[] NEWLINE = {'\n'};
+
+    private static ResultArchive shared;
+
+    private final File dir;
+
+    // Open segment (appends are serialized on this archive)
+    private String currentMonth;
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private long dataSize;
+    private long lastTime;
+    private final ByteBuffer indexRecord = ByteBuffer.allocate(INDEX_RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Summary metrics of one archived solution, as stored in the index
+     */
+    public static class Summary {
+        public long timeMillis;
+        public int itemsDelivered;
+        public int itemsTotal;
+        public int routes;
+        public int unservedCustomers;
+        public long solveTimeMs;
+        public double totalDistance;
+        public long requestIdHash;
+        public long configNameHash;
+        public File dataFile;
+        public long dataOffset;
+        public int dataLength;
+
+        public double getDeliveryRate() {
+            return itemsTotal > 0 ? (double) itemsDelivered / itemsTotal : 0.0;
+        }
+    }
+
+    /**
+     * Time range and metric filters of a query (null fields and zero limits do not filter)
+     */
+    public static class Query {
+        public long fromMillis = Long.MIN_VALUE;
+        public long toMillis = Long.MAX_VALUE;   // Exclusive
+        public String configName;
+        public Double minDeliveryRate;
+        public Double maxDeliveryRate;
+        public Double minDistance;
+        public Double maxDistance;
+        public Long minSolveTimeMs;
+        public int limit;
+
+        boolean matches(Summary summary, long configNameHash) {
+            return (configName == null || summary.configNameHash == configNameHash) &&
+                   (minDeliveryRate == null || summary.getDeliveryRate() >= minDeliveryRate) &&
+                   (maxDeliveryRate == null || summary.getDeliveryRate() <= maxDeliveryRate) &&
+                   (minDistance == null || summary.totalDistance >= minDistance) &&
+                   (maxDistance == null || summary.totalDistance <= maxDistance) &&
+                   (minSolveTimeMs == null || summary.solveTimeMs >= minSolveTimeMs);
+        }
+    }
+
+    public ResultArchive(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Archive in results/ (or -Dcvrp.results.dir) shared by all requests of this process
+     */
+    public static synchronized ResultArchive getShared() {
+        if (shared == null) {
+            shared = new ResultArchive(new File(System.getProperty("cvrp.results.dir", JsonResultLogger.OUTPUT_DIR)));
+        }
+        return shared;
+    }
+
+    /**
+     * Whether a file is a segment of the current month (still appended to, so not for retention)
+     */
+    static boolean isActiveSegment(String fileName) {
+        return fileName.startsWith(SEGMENT_PREFIX + YearMonth.now(ZONE).format(MONTH_FORMAT) + ".");
+    }
+
+    /**
+     * Appends an encoded solution and its index record
+     *
+     * @return the data file the solution was written to
+     */
+    public File append(String requestId, String configName, SolutionResult result,
+                       byte[] encodedJson) throws IOException {
+        return append(System.currentTimeMillis(), requestId, configName, result, encodedJson);
+    }
+
+    synchronized File append(long timeMillis, String requestId, String configName, SolutionResult result,
+                             byte[] encodedJson) throws IOException {
+        // Clamp so the index stays sorted even if the wall clock steps back
+        long time = Math.max(timeMillis, lastTime);
+        String month = YearMonth.from(Instant.ofEpochMilli(time).atZone(ZONE)).format(MONTH_FORMAT);
+        if (!month.equals(currentMonth)) {
+            openSegment(month);
+        }
+        long offset = dataSize;
+        ByteBuffer[] line = {ByteBuffer.wrap(encodedJson), ByteBuffer.wrap(NEWLINE)};
+        while (line[1].hasRemaining()) {
+            dataChannel.write(line);
+        }
+        dataSize += encodedJson.length + 1;
+
+        indexRecord.clear();
+        indexRecord.putLong(time);
+        indexRecord.putLong(offset);
+        indexRecord.putInt(encodedJson.length);
+        indexRecord.putInt(result.itemsDelivered);
+        indexRecord.putInt(result.itemsTotal);
+        indexRecord.putInt(result.routes.size());
+        indexRecord.putInt(result.unservedCustomers.size());
+        indexRecord.putInt((int) Math.min(Integer.MAX_VALUE, result.solveTimeMs));
+        indexRecord.putDouble(result.totalDistance);
+        indexRecord.putLong(hash(requestId));
+        indexRecord.putLong(hash(configName));
+        indexRecord.flip();
+        while (indexRecord.hasRemaining()) {
+            indexChannel.write(indexRecord);
+        }
+        lastTime = time;
+        return segmentFile(month, DATA_SUFFIX);
+    }
+
+    private void openSegment(String month) throws IOException {
+        close();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        dataChannel = FileChannel.open(segmentFile(month, DATA_SUFFIX).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(segmentFile(month, INDEX_SUFFIX).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Drop a partial index record left by a crash, then append after the last complete one
+        long records = indexChannel.size() / INDEX_RECORD_BYTES;
+        indexChannel.truncate(records * INDEX_RECORD_BYTES);
+        indexChannel.position(records * INDEX_RECORD_BYTES);
+        dataSize = dataChannel.size();
+        dataChannel.position(dataSize);
+        currentMonth = month;
+    }
+
+    public synchronized void close() throws IOException {
+        if (dataChannel != null) {
+            dataChannel.close();
+            indexChannel.close();
+            dataChannel = null;
+            indexChannel = null;
+            currentMonth = null;
+        }
+    }
+
+    private File segmentFile(String month, String suffix) {
+        return new File(dir, SEGMENT_PREFIX + month + suffix);
+    }
+
+    /**
+     * Months with an index and a data file, oldest first
+     */
+    private List<String> segmentMonths() {
+        List<String> months = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return months;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(INDEX_SUFFIX)) {
+                String month = name.substring(SEGMENT_PREFIX.length(), name.length() - INDEX_SUFFIX.length());
+                if (segmentFile(month, DATA_SUFFIX).isFile()) {
+                    months.add(month);
+                }
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Calls the handler for every result in the query's time range that matches its filters,
+     * oldest first (stops after the query's limit)
+     */
+    public void forEach(Query query, Consumer<Summary> handler) throws IOException {
+        int matched = 0;
+        long configNameHash = hash(query.configName);
+        for (String month : segmentMonths()) {
+            YearMonth yearMonth = YearMonth.parse(month, MONTH_FORMAT);
+            long monthStart = yearMonth.atDay(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+            long monthEnd = yearMonth.plusMonths(1).atDay(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+            if (monthEnd <= query.fromMillis || monthStart >= query.toMillis) {
+                continue;
+            }
+            File dataFile = segmentFile(month, DATA_SUFFIX);
+            ByteBuffer index = mapIndex(month);
+            int records = index.capacity() / INDEX_RECORD_BYTES;
+            for (int i = firstAtOrAfter(index, records, query.fromMillis); i < records; i++) {
+                int base = i * INDEX_RECORD_BYTES;
+                if (index.getLong(base) >= query.toMillis) {
+                    break;
+                }
+                Summary summary = readSummary(index, base, dataFile);
+                if (query.matches(summary, configNameHash)) {
+                    handler.accept(summary);
+                    if (query.limit > 0 && ++matched >= query.limit) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    public List<Summary> query(Query query) throws IOException {
+        List<Summary> results = new ArrayList<>();
+        forEach(query, results::add);
+        return results;
+    }
+
+    /**
+     * Latest archived solution of a request, or null
+     */
+    public byte[] find(String requestId) throws IOException {
+        long requestHash = hash(requestId);
+        List<String> months = segmentMonths();
+        for (int m = months.size() - 1; m >= 0; m--) {
+            File dataFile = segmentFile(months.get(m), DATA_SUFFIX);
+            ByteBuffer index = mapIndex(months.get(m));
+            for (int base = index.capacity() - INDEX_RECORD_BYTES; base >= 0; base -= INDEX_RECORD_BYTES) {
+                if (index.getLong(base + 48) == requestHash) {
+                    Summary summary = readSummary(index, base, dataFile);
+                    if (requestId.equals(readRequestId(summary))) {  // Not a hash collision
+                        return read(summary);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The archived solution JSON of a summary
+     */
+    public byte[] read(Summary summary) throws IOException {
+        try (FileChannel data = FileChannel.open(summary.dataFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate(summary.dataLength);
+            while (bytes.hasRemaining() && data.read(bytes, summary.dataOffset + bytes.position()) > 0) {
+                // Positional reads until complete
+            }
+            return bytes.array();
+        }
+    }
+
+    /**
+     * Request ID of an archived solution (its first JSON field; only the head of the line is read)
+     */
+    public String readRequestId(Summary summary) throws IOException {
+        try (FileChannel data = FileChannel.open(summary.dataFile.toPath(), StandardOpenOption.READ)) {
+            return readRequestId(data, summary);
+        }
+    }
+
+    private static String readRequestId(FileChannel data, Summary summary) throws IOException {
+        byte[] head = new byte[Math.min(summary.dataLength, 256)];
+        data.read(ByteBuffer.wrap(head), summary.dataOffset);
+        try (JsonReader in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(head), StandardCharsets.UTF_8))) {
+            in.beginObject();
+            return in.hasNext() && in.nextName().equals("request_id") ? in.nextString() : null;
+        } catch (IOException | IllegalStateException e) {
+            return null;  // Head cut inside a very long request ID
+        }
+    }
+
+    private ByteBuffer mapIndex(String month) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(month, INDEX_SUFFIX).toPath(), StandardOpenOption.READ)) {
+            long complete = channel.size() / INDEX_RECORD_BYTES * INDEX_RECORD_BYTES;
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, complete);
+            index.order(ByteOrder.LITTLE_ENDIAN);
+            return index;  // The mapping stays valid after the channel is closed
+        }
+    }
+
+    /**
+     * First record with a time at or after the given time (binary search)
+     */
+    private static int firstAtOrAfter(ByteBuffer index, int records, long time) {
+        int low = 0;
+        int high = records;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index.getLong(middle * INDEX_RECORD_BYTES) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static Summary readSummary(ByteBuffer index, int base, File dataFile) {
+        Summary summary = new Summary();
+        summary.timeMillis = index.getLong(base);
+        summary.dataOffset = index.getLong(base + 8);
+        summary.dataLength = index.getInt(base + 16);
+        summary.itemsDelivered = index.getInt(base + 20);
+        summary.itemsTotal = index.getInt(base + 24);
+        summary.routes = index.getInt(base + 28);
+        summary.unservedCustomers = index.getInt(base + 32);
+        summary.solveTimeMs = index.getInt(base + 36);
+        summary.totalDistance = index.getDouble(base + 40);
+        summary.requestIdHash = index.getLong(base + 48);
+        summary.configNameHash = index.getLong(base + 56);
+        summary.dataFile = dataFile;
+        return summary;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string's characters (0 for null)
+     */
+    static long hash(String value) {
+        if (value == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the summary fields of the matching results column by column: one little-endian
+     * binary file per field (time.i64, items_delivered.i32, ..., distance.f64), request_id.txt
+     * with one ID per line, and columns.txt listing the columns, their types and the row count
+     *
+     * @return number of rows written
+     */
+    public int exportColumns(File outDir, Query query) throws IOException {
+        List<Summary> rows = query(query);
+        outDir.mkdirs();
+        writeColumn(outDir, "time.i64", rows, (summary, out) -> out.putLong(summary.timeMillis));
+        writeColumn(outDir, "items_delivered.i32", rows, (summary, out) -> out.putInt(summary.itemsDelivered));
+        writeColumn(outDir, "items_total.i32", rows, (summary, out) -> out.putInt(summary.itemsTotal));
+        writeColumn(outDir, "routes.i32", rows, (summary, out) -> out.putInt(summary.routes));
+        writeColumn(outDir, "unserved.i32", rows, (summary, out) -> out.putInt(summary.unservedCustomers));
+        writeColumn(outDir, "solve_time_ms.i64", rows, (summary, out) -> out.putLong(summary.solveTimeMs));
+        writeColumn(outDir, "distance.f64", rows, (summary, out) -> out.putDouble(summary.totalDistance));
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(outDir, "request_id.txt")), StandardCharsets.UTF_8))) {
+            File openFile = null;
+            FileChannel data = null;
+            try {
+                for (Summary summary : rows) {
+                    if (!summary.dataFile.equals(openFile)) {  // Rows are ordered by segment
+                        if (data != null) {
+                            data.close();
+                        }
+                        openFile = summary.dataFile;
+                        data = FileChannel.open(openFile.toPath(), StandardOpenOption.READ);
+                    }
+                    String requestId = readRequestId(data, summary);
+                    out.write(requestId != null ? requestId : "");
+                    out.write('\n');
+                }
+            } finally {
+                if (data != null) {
+                    data.close();
+                }
+            }
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(outDir, "columns.txt")), StandardCharsets.UTF_8)) {
+            out.write("rows " + rows.size() + "\n" +
+                      "time.i64 int64 epoch milliseconds\n" +
+                      "items_delivered.i32 int32\n" +
+                      "items_total.i32 int32\n" +
+                      "routes.i32 int32\n" +
+                      "unserved.i32 int32\n" +
+                      "solve_time_ms.i64 int64\n" +
+                      "distance.f64 float64\n" +
+                      "request_id.txt utf-8 lines\n" +
+                      "byte order little-endian\n");
+        }
+        return rows.size();
+    }
+
+    private interface ColumnWriter {
+        void write(Summary summary, ByteBuffer out);
+    }
+
+    private static void writeColumn(File outDir, String name, List<Summary> rows, ColumnWriter writer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel out = FileChannel.open(new File(outDir, name).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Summary summary : rows) {
+                if (buffer.remaining() < 8) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                writer.write(summary, buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Per-day trend of the matching results: count, mean delivery rate, distance and solve time
+     */
+    public Map<LocalDate, double[]> dailyTrend(Query query) throws IOException {
+        Map<LocalDate, double[]> days = new LinkedHashMap<>();  // {count, rate, distance, solveMs} sums
+        forEach(query, summary -> {
+            LocalDate day = Instant.ofEpochMilli(summary.timeMillis).atZone(ZONE).toLocalDate();
+            double[] sums = days.computeIfAbsent(day, k -> new double[4]);
+            sums[0]++;
+            sums[1] += summary.getDeliveryRate();
+            sums[2] += summary.totalDistance;
+            sums[3] += summary.solveTimeMs;
+        });
+        for (double[] sums : days.values()) {
+            for (int i = 1; i < sums.length; i++) {
+                sums[i] /= sums[0];
+            }
+        }
+        return days;
+    }
+
+    private static Query parseQuery(String[] args, int start) {
+        Query query = new Query();
+        for (int i = start; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--from":
+                    query.fromMillis = LocalDate.parse(value).atStartOfDay(ZONE).toInstant().toEpochMilli();
+                    break;
+                case "--to":
+                    query.toMillis = LocalDate.parse(value).plusDays(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+                    break;
+                case "--config":
+                    query.configName = value;
+                    break;
+                case "--minRate":
+                    query.minDeliveryRate = Double.parseDouble(value);
+                    break;
+                case "--maxRate":
+                    query.maxDeliveryRate = Double.parseDouble(value);
+                    break;
+                case "--minDistance":
+                    query.minDistance = Double.parseDouble(value);
+                    break;
+                case "--maxDistance":
+                    query.maxDistance = Double.parseDouble(value);
+                    break;
+                case "--minSolveMs":
+                    query.minSolveTimeMs = Long.parseLong(value);
+                    break;
+                case "--limit":
+                    query.limit = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return query;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java project.Utils.ResultArchive find <requestId> | query [filters] | " +
+                             "trend [filters] | export <dir> [filters]");
+            return;
+        }
+        ResultArchive archive = getShared();
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "find": {
+                byte[] json = archive.find(args[1]);
+                System.out.println(json != null ? new String(json, StandardCharsets.UTF_8) : "Not found: " + args[1]);
+                break;
+            }
+            case "query": {
+                List<Summary> results = archive.query(parseQuery(args, 1));
+                System.out.println(String.format("%-23s %-38s %9s %12s %7s %9s %10s",
+                    "Time", "Request", "Items", "Distance", "Routes", "Unserved", "SolveMs"));
+                for (Summary summary : results) {
+                    System.out.println(String.format("%-23s %-38s %9s %12.2f %7d %9d %10d",
+                        Instant.ofEpochMilli(summary.timeMillis).atZone(ZONE).toLocalDateTime(),
+                        archive.readRequestId(summary), summary.itemsDelivered + "/" + summary.itemsTotal,
+                        summary.totalDistance, summary.routes, summary.unservedCustomers, summary.solveTimeMs));
+                }
+                System.out.println(results.size() + " results");
+                break;
+            }
+            case "trend": {
+                Map<LocalDate, double[]> days = archive.dailyTrend(parseQuery(args, 1));
+                System.out.println(String.format("%-10s %8s %9s %12s %10s", "Day", "Results", "MeanRate", "MeanDist", "MeanSolve"));
+                for (Map.Entry<LocalDate, double[]> day : days.entrySet()) {
+                    double[] values = day.getValue();
+                    System.out.println(String.format("%-10s %8d %9.3f %12.2f %10.1f",
+                        day.getKey(), (long) values[0], values[1], values[2], values[3]));
+                }
+                break;
+            }
+            case "export": {
+                int rows = archive.exportColumns(new File(args[1]), parseQuery(args, 2));
+                System.out.println(rows + " rows exported to " + args[1]);
+                break;
+            }
+            default:
+                System.out.println("Unknown command " + args[0]);
+                return;
+        }
+        System.out.println(String.format("(%.1f ms)", (System.nanoTime() - start) / 1e6));
+    }
+}
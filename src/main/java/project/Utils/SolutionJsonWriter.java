@@ -0,0 +1,108 @@
+package project.Utils;
+
+import com.google.gson.stream.JsonWriter;
+import project.General.CustomerInfo;
+import project.General.RouteInfo;
+import project.General.SolutionResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Streaming serializer for solutions in the result JSON format (shared by the result archive,
+ * the backend submission and the embedded intake).
+ *
+ * A solution is encoded once, straight from the SolutionResult into UTF-8 bytes with a
+ * JsonWriter (no JSON tree); the same bytes are then written to the archive file and sent as
+ * the HTTP body.
+ */
+public class SolutionJsonWriter {
+
+    /**
+     * Encodes a solution as compact UTF-8 JSON
+     *
+     * @param requestId request ID (omitted from the output if null)
+     */
+    public static byte[] encode(String requestId, SolutionResult solution, String configName) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024 + 128 * countCustomers(solution));
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            write(out, requestId, solution, configName);
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a solution object at the current position of the writer
+     */
+    public static void write(JsonWriter out, String requestId, SolutionResult solution,
+                             String configName) throws IOException {
+        out.beginObject();
+        if (requestId != null) {
+            out.name("request_id").value(requestId);
+        }
+        out.name("timestamp").value(new Date().toString());
+        out.name("configName").value(configName != null ? configName : "backend_request");
+        out.name("solveTimeMs").value(solution.solveTimeMs);
+
+        out.name("summary").beginObject();
+        out.name("totalItemsRequested").value(solution.itemsTotal);
+        out.name("totalItemsDelivered").value(solution.itemsDelivered);
+        out.name("totalDistance").value(solution.totalDistance);
+        out.name("numberOfRoutes").value(solution.routes.size());
+        out.name("deliveryRate").value(solution.itemsTotal > 0 ?
+            (double) solution.itemsDelivered / solution.itemsTotal : 0.0);
+        out.name("unservedCustomers").value(solution.unservedCustomers.size());
+        out.endObject();
+
+        out.name("routes").beginArray();
+        for (RouteInfo route : solution.routes) {
+            out.beginObject();
+            out.name("routeId").value(route.vehicleId);
+            out.name("vehicleName").value(route.vehicleName != null ? route.vehicleName : "unknown");
+            out.name("totalDemand").value(route.totalDemand);
+            out.name("totalDistance").value(route.totalDistance);
+            out.name("customers").beginArray();
+            for (CustomerInfo customer : route.customers) {
+                writeCustomer(out, customer, false);
+            }
+            out.endArray();
+            out.endObject();
+        }
+        out.endArray();
+
+        out.name("unservedCustomers").beginArray();
+        for (CustomerInfo customer : solution.unservedCustomers) {
+            writeCustomer(out, customer, true);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static void writeCustomer(JsonWriter out, CustomerInfo customer, boolean withReason) throws IOException {
+        out.beginObject();
+        out.name("id").value(customer.id);
+        out.name("name").value(customer.name != null ? customer.name : "C" + customer.id);
+        out.name("x").value(customer.x);
+        out.name("y").value(customer.y);
+        out.name("demand").value(customer.demand);
+        if (withReason && customer.unservedReason != null) {
+            out.name("reason").value(customer.unservedReason);
+        }
+        out.endObject();
+    }
+
+    private static int countCustomers(SolutionResult solution) {
+        int count = solution.unservedCustomers.size();
+        for (RouteInfo route : solution.routes) {
+            count += route.customers.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,208 @@
+package project.Solver;
+
+import project.General.ProblemInstance;
+import project.General.RouteMessages;
+import project.General.SolutionResult;
+import project.General.VehicleInfo;
+import project.Utils.JsonConfigReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline comparison of the two assignment modes on CVRP cases: the central OR-Tools solve
+ * against the Contract-Net auction, in which every Delivery Agent is simulated by a
+ * {@link ContractNetBidder} on its own thread (as each DA bids on its own agent thread).
+ *
+ * For every case it reports items delivered, total distance and wall time of both modes; for
+ * Contract-Net also the number of rounds and the distance before the central improvement pass.
+ * Time-window cases are skipped (Contract-Net mode is CVRP only). Besides the config files,
+ * two seeded random instances show how both modes scale.
+ *
+ * Usage: java project.Solver.ContractNetBenchmark [timeLimitSeconds] [batch=N] [improveMs=N] [config.json ...]
+ * Without config arguments every case_*.json in frontend/src/config is used.
+ */
+public class ContractNetBenchmark {
+
+    private static final String DEFAULT_CONFIG_DIR = "frontend/src/config";
+
+    public static void main(String[] args) throws Exception {
+        int timeLimitSeconds = 10;
+        int batchSize = ContractNetPlanner.DEFAULT_BATCH_SIZE;
+        long improveMs = 1000;
+        List<String> configFiles = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.matches("\\d+")) {
+                timeLimitSeconds = Integer.parseInt(arg);
+            } else if (arg.startsWith("batch=")) {
+                batchSize = Integer.parseInt(arg.substring("batch=".length()));
+            } else if (arg.startsWith("improveMs=")) {
+                improveMs = Long.parseLong(arg.substring("improveMs=".length()));
+            } else {
+                configFiles.add(arg);
+            }
+        }
+        if (configFiles.isEmpty()) {
+            File[] files = new File(DEFAULT_CONFIG_DIR).listFiles((dir, name) ->
+                name.startsWith("case_") && name.endsWith(".json"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    configFiles.add(file.getPath());
+                }
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        List<ProblemInstance> problems = new ArrayList<>();
+        List<List<VehicleInfo>> fleets = new ArrayList<>();
+        for (String configFile : configFiles) {
+            JsonConfigReader.CVRPConfig config = JsonConfigReader.readConfig(configFile);
+            ProblemInstance problem = ProblemInstance.fromConfig(config);
+            if (problem.hasTimeWindows()) {
+                continue;
+            }
+            List<VehicleInfo> vehicles = new ArrayList<>();
+            for (JsonConfigReader.VehicleConfig vehicle : config.vehicles) {
+                vehicles.add(new VehicleInfo(vehicle.name, vehicle.capacity, vehicle.maxDistance));
+            }
+            names.add(new File(configFile).getName().replace(".json", ""));
+            problems.add(problem);
+            fleets.add(vehicles);
+        }
+        for (int[] size : new int[][]{{200, 10}, {1000, 40}}) {
+            List<VehicleInfo> vehicles = new ArrayList<>();
+            names.add("random-" + size[0] + "x" + size[1]);
+            problems.add(randomProblem(size[0], size[1], vehicles));
+            fleets.add(vehicles);
+        }
+
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < problems.size(); i++) {
+            ProblemInstance problem = problems.get(i);
+            List<VehicleInfo> vehicles = fleets.get(i);
+            rows.add(row(names.get(i), "central", central(problem, vehicles, timeLimitSeconds), ""));
+            long[] auction = new long[2];
+            SolutionResult result = contractNet(problem, vehicles, batchSize, improveMs, auction);
+            rows.add(row(names.get(i), "cnet", result,
+                String.format("%6d %12d", auction[0], auction[1])));
+        }
+
+        System.out.println("\n=== Contract-Net Benchmark (central time limit " + timeLimitSeconds + " s, batch " +
+                         batchSize + ", improvement " + improveMs + " ms) ===");
+        System.out.println(String.format("%-28s %-8s %9s %10s %9s %6s %12s",
+            "Case", "Mode", "Items", "Distance", "TimeMs", "Rounds", "AuctionDist"));
+        for (String row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    private static String row(String name, String mode, SolutionResult result, String extra) {
+        if (result == null || (result.routes.isEmpty() && result.itemsTotal > 0)) {
+            return String.format("%-28s %-8s %9s", name, mode, "no solution");
+        }
+        return String.format("%-28s %-8s %9s %10.0f %9d %s", name, mode,
+            result.itemsDelivered + "/" + result.itemsTotal, result.totalDistance, result.solveTimeMs, extra);
+    }
+
+    /**
+     * Central solve as the MRA runs it; null if OR-Tools cannot run here
+     */
+    private static SolutionResult central(ProblemInstance problem, List<VehicleInfo> vehicles, int timeLimitSeconds) {
+        try {
+            long start = System.currentTimeMillis();
+            SolutionResult result = new project.Agent.DepotProblemAssembler(new ORToolsSolver(true, timeLimitSeconds, true), null)
+                .assembleAndSolve(problem, vehicles);
+            if (result != null) {
+                result.solveTimeMs = System.currentTimeMillis() - start;
+            }
+            return result;
+        } catch (Throwable e) {
+            System.err.println("Central solve unavailable: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Auction with one bidder thread per vehicle, then the central improvement pass
+     *
+     * @param auction output: rounds and total distance before the improvement pass
+     */
+    static SolutionResult contractNet(ProblemInstance problem, List<VehicleInfo> vehicles, int batchSize,
+                                      long improveMs, long[] auction) throws Exception {
+        ExecutorService bidderThreads = Executors.newFixedThreadPool(vehicles.size());
+        try {
+            ContractNetPlanner planner = new ContractNetPlanner(problem, vehicles, batchSize);
+            List<ContractNetBidder> bidders = new ArrayList<>();
+            for (VehicleInfo vehicle : vehicles) {
+                bidders.add(new ContractNetBidder(vehicle.capacity, vehicle.maxDistance));
+            }
+            double[] routeDistances = new double[vehicles.size()];
+            while (!planner.isDone()) {
+                RouteMessages.CustomerBatch batch = planner.nextBatch();
+                List<Future<RouteMessages.Bids>> proposals = new ArrayList<>();
+                for (ContractNetBidder bidder : bidders) {
+                    proposals.add(bidderThreads.submit(() -> bidder.bid(batch)));
+                }
+                for (int v = 0; v < bidders.size(); v++) {
+                    planner.addBids(v, proposals.get(v).get());
+                }
+                int[][] awards = planner.award();
+                List<Future<RouteMessages.AwardResult>> results = new ArrayList<>();
+                for (int v = 0; v < bidders.size(); v++) {
+                    if (awards[v] == null) {
+                        results.add(null);
+                        continue;
+                    }
+                    RouteMessages.Award award = new RouteMessages.Award();
+                    award.round = batch.round;
+                    award.customerIds = awards[v];
+                    ContractNetBidder bidder = bidders.get(v);
+                    results.add(bidderThreads.submit(() -> bidder.award(award)));
+                }
+                for (int v = 0; v < bidders.size(); v++) {
+                    if (results.get(v) != null) {
+                        RouteMessages.AwardResult result = results.get(v).get();
+                        planner.onAwardResult(v, result);
+                        routeDistances[v] = result.distance;
+                    }
+                }
+            }
+            auction[0] = planner.getRound();
+            auction[1] = Math.round(Arrays.stream(routeDistances).sum());
+            return planner.finish(improveMs);
+        } finally {
+            bidderThreads.shutdown();
+        }
+    }
+
+    /**
+     * Seeded random CVRP instance on a 1000 x 1000 grid with the depot in the middle and
+     * roughly 80% of the demand coverable by the fleet
+     */
+    private static ProblemInstance randomProblem(int customers, int vehicleCount, List<VehicleInfo> vehicles) {
+        Random random = new Random(customers * 31L + vehicleCount);
+        ProblemInstance problem = new ProblemInstance(customers);
+        problem.depotName = "depot";
+        problem.customerIds[0] = "depot";
+        problem.x[0] = 500;
+        problem.y[0] = 500;
+        for (int node = 1; node <= customers; node++) {
+            problem.customerIds[node] = "C" + node;
+            problem.x[node] = random.nextDouble() * 1000;
+            problem.y[node] = random.nextDouble() * 1000;
+            problem.demand[node] = 1 + random.nextInt(9);
+        }
+        int capacity = (int) Math.ceil(problem.getTotalDemand() * 0.8 / vehicleCount);
+        for (int v = 1; v <= vehicleCount; v++) {
+            vehicles.add(new VehicleInfo("vehicle-" + v, capacity, 6000));
+        }
+        return problem;
+    }
+}
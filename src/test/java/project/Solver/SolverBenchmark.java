@@ -0,0 +1,100 @@
+package project.Solver;
+
+import project.Agent.DepotProblemAssembler;
+import project.General.ProblemInstance;
+import project.General.SolutionResult;
+import project.General.VehicleInfo;
+import project.Utils.JsonConfigReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offline benchmark comparing the single-objective penalty solve with the two-phase
+ * lexicographic solve on the bundled test cases. Time-window cases are additionally solved
+ * with time-window preprocessing disabled ("raw-tw") to measure its effect.
+ *
+ * For every case and mode it reports items delivered, total distance, total solve time,
+ * the number of solutions found and the time at which the final (best) solution was found,
+ * which is the convergence speed of that mode.
+ *
+ * Usage: java project.Solver.SolverBenchmark [timeLimitSeconds] [config.json ...]
+ * Without config arguments every case_*.json in frontend/src/config is used.
+ */
+public class SolverBenchmark {
+
+    private static final String DEFAULT_CONFIG_DIR = "frontend/src/config";
+
+    public static void main(String[] args) throws Exception {
+        int timeLimitSeconds = 10;
+        List<String> configFiles = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.matches("\\d+")) {
+                timeLimitSeconds = Integer.parseInt(arg);
+            } else {
+                configFiles.add(arg);
+            }
+        }
+        if (configFiles.isEmpty()) {
+            File[] files = new File(DEFAULT_CONFIG_DIR).listFiles((dir, name) ->
+                name.startsWith("case_") && name.endsWith(".json"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    configFiles.add(file.getPath());
+                }
+            }
+        }
+
+        List<String> rows = new ArrayList<>();
+        for (String configFile : configFiles) {
+            JsonConfigReader.CVRPConfig config = JsonConfigReader.readConfig(configFile);
+            String caseName = new File(configFile).getName().replace(".json", "");
+            List<String> modes = new ArrayList<>(Arrays.asList("penalty", "two-phase"));
+            if (hasTimeWindows(config)) {
+                modes.add("raw-tw");
+            }
+            for (String mode : modes) {
+                ORToolsSolver solver = new ORToolsSolver(mode.equals("two-phase"), timeLimitSeconds,
+                                                         !mode.equals("raw-tw"));
+                SolutionResult result = solve(config, solver);
+                List<long[]> trace = solver.getConvergenceTrace();
+                long timeToBest = trace.isEmpty() ? -1 : trace.get(trace.size() - 1)[0];
+                rows.add(String.format("%-36s %-10s %7s %10.2f %9d %9d %11d",
+                    caseName, mode,
+                    result.itemsDelivered + "/" + result.itemsTotal,
+                    result.totalDistance, result.solveTimeMs, trace.size(), timeToBest));
+            }
+        }
+
+        System.out.println("\n=== Solver Benchmark (time limit " + timeLimitSeconds + " s) ===");
+        System.out.println(String.format("%-36s %-10s %7s %10s %9s %9s %11s",
+            "Case", "Mode", "Items", "Distance", "SolveMs", "Solutions", "TimeToBest"));
+        for (String row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    private static boolean hasTimeWindows(JsonConfigReader.CVRPConfig config) {
+        for (JsonConfigReader.CustomerConfig customer : config.customers) {
+            if (customer.timeWindow != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solves a config the same way the MRA does (problem instance, vehicles from config).
+     */
+    static SolutionResult solve(JsonConfigReader.CVRPConfig config, VRPSolver solver) {
+        List<VehicleInfo> vehicles = new ArrayList<>();
+        for (JsonConfigReader.VehicleConfig vehicle : config.vehicles) {
+            vehicles.add(new VehicleInfo(vehicle.name, vehicle.capacity, vehicle.maxDistance));
+        }
+        DepotProblemAssembler assembler = new DepotProblemAssembler(solver, null);
+        return assembler.assembleAndSolve(ProblemInstance.fromConfig(config), vehicles);
+    }
+}
@@ -0,0 +1,173 @@
+package project.Utils;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import project.General.CustomerInfo;
+import project.General.RouteInfo;
+import project.General.SolutionResult;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the per-request transport overhead of the backend client against a running
+ * backend_server.py: the previous path (a new HttpURLConnection per call, uncompressed
+ * bodies) versus the pooled keep-alive client (gzip for large bodies).
+ *
+ * Two calls are timed per transport:
+ * - an empty poll (no pending requests, no long-poll wait): pure round-trip cost
+ * - a solution submission of a synthetic solution to an unknown request ID (the backend
+ *   parses the body and rejects it), so nothing is stored
+ *
+ * Usage: java project.Utils.BackendTransportBenchmark [iterations] [customers]
+ */
+public class BackendTransportBenchmark {
+
+    private static final String POLL_URL = BackendClient.BACKEND_URL + "/api/solve-cvrp?action=poll";
+    private static final String SUBMIT_URL = BackendClient.BACKEND_URL + "/api/solve-cvrp?action=response";
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int customers = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        byte[] raw = SolutionJsonWriter.encode("benchmark-unknown-request", syntheticSolution(customers), "benchmark");
+        ByteArrayEntity pooledEntity = BackendClient.jsonEntity(raw, 1024);
+
+        CloseableHttpClient client = BackendClient.createHttpClient(2);
+        try {
+            // Warm-up (JIT, backend, first connection)
+            for (int i = 0; i < 20; i++) {
+                pollWithUrlConnection();
+                pollWithPooledClient(client);
+            }
+
+            long[] pollUrl = new long[iterations];
+            long[] pollPooled = new long[iterations];
+            long[] submitUrl = new long[iterations];
+            long[] submitPooled = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                pollWithUrlConnection();
+                pollUrl[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                pollWithPooledClient(client);
+                pollPooled[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                submitWithUrlConnection(raw);
+                submitUrl[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                HttpPost post = new HttpPost(SUBMIT_URL);
+                post.setEntity(BackendClient.jsonEntity(raw, 1024));
+                BackendClient.execute(client, post);
+                submitPooled[i] = System.nanoTime() - start;
+            }
+
+            System.out.println("\n=== Backend Transport Benchmark (" + iterations + " iterations, " +
+                             customers + " customers per solution) ===");
+            System.out.println(String.format("%-16s %-12s %10s %10s %10s %12s",
+                "Call", "Transport", "MeanMs", "P50Ms", "P95Ms", "BodyBytes"));
+            printRow("poll (empty)", "url-conn", pollUrl, 0);
+            printRow("poll (empty)", "pooled", pollPooled, 0);
+            printRow("submit", "url-conn", submitUrl, raw.length);
+            printRow("submit", "pooled", submitPooled, pooledEntity.getContentLength());
+        } finally {
+            client.close();
+        }
+    }
+
+    private static void printRow(String call, String transport, long[] nanos, long bodyBytes) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1e6;
+        System.out.println(String.format("%-16s %-12s %10.3f %10.3f %10.3f %12d",
+            call, transport, mean,
+            sorted[sorted.length / 2] / 1e6,
+            sorted[(int) Math.min(sorted.length - 1, Math.round(sorted.length * 0.95))] / 1e6,
+            bodyBytes));
+    }
+
+    /**
+     * The previous poll path: a new HttpURLConnection per call
+     */
+    private static void pollWithUrlConnection() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(POLL_URL).openConnection();
+        conn.setRequestMethod("GET");
+        conn.setRequestProperty("Accept", "application/json");
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        conn.getResponseCode();
+        drain(conn);
+    }
+
+    private static void pollWithPooledClient(CloseableHttpClient client) throws Exception {
+        HttpGet get = new HttpGet(POLL_URL + "&max=" + BackendClient.POLL_BATCH_SIZE);
+        get.setHeader("Accept", "application/json");
+        BackendClient.execute(client, get);
+    }
+
+    /**
+     * The previous submission path: a new HttpURLConnection with an uncompressed body
+     */
+    private static void submitWithUrlConnection(byte[] body) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(SUBMIT_URL).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("Accept", "application/json");
+        conn.setDoOutput(true);
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(5000);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body);
+        }
+        conn.getResponseCode();
+        drain(conn);
+    }
+
+    private static void drain(HttpURLConnection conn) throws Exception {
+        InputStream in = conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8192];
+                while (stream.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+        }
+    }
+
+    /**
+     * Solution with the given number of customers spread over routes of 20 stops
+     */
+    private static SolutionResult syntheticSolution(int customers) {
+        SolutionResult solution = new SolutionResult();
+        List<RouteInfo> routes = new ArrayList<>();
+        RouteInfo route = null;
+        for (int i = 1; i <= customers; i++) {
+            if (route == null || route.customers.size() >= 20) {
+                route = new RouteInfo(routes.size() + 1, "Vehicle-" + (routes.size() + 1));
+                routes.add(route);
+            }
+            CustomerInfo customer = new CustomerInfo(i, (i * 37) % 1000 / 10.0, (i * 91) % 1000 / 10.0, 1 + i % 5);
+            route.customers.add(customer);
+            route.totalDemand += customer.demand;
+            route.totalDistance += 12.5;
+        }
+        solution.routes = routes;
+        solution.itemsTotal = customers * 3;
+        solution.itemsDelivered = solution.itemsTotal;
+        for (RouteInfo r : routes) {
+            solution.totalDistance += r.totalDistance;
+        }
+        return solution;
+    }
+}
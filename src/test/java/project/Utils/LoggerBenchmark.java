@@ -0,0 +1,160 @@
+package project.Utils;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures AgentLogger throughput with many agents logging ACL messages at the same time:
+ * the previous logger (shared SimpleDateFormat, println and flush per line, ~12 lines per
+ * message) versus the current logger in synchronous mode and with the asynchronous ring-buffer
+ * writer under each flush policy.
+ *
+ * Every agent thread has its own log file, as in a run with many DAs. A run ends once every
+ * entry is written and flushed. Log files go to logs/benchmark_* and are deleted afterwards.
+ *
+ * Usage: java project.Utils.LoggerBenchmark [agents] [messagesPerAgent]
+ */
+public class LoggerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int agents = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        // Warm-up
+        run("previous", agents, messages / 10, null);
+        run("async-batch", agents, messages / 10, AsyncLogWriter.FlushPolicy.BATCH);
+
+        List<String> rows = new ArrayList<>();
+        rows.add(run("previous", agents, messages, null));
+        rows.add(run("sync", agents, messages, null));
+        for (AsyncLogWriter.FlushPolicy policy : AsyncLogWriter.FlushPolicy.values()) {
+            rows.add(run("async-" + policy.name().toLowerCase(), agents, messages, policy));
+        }
+
+        System.out.println("\n=== Logger Benchmark (" + agents + " agents x " + messages + " messages) ===");
+        System.out.println(String.format("%-16s %10s %14s", "Logger", "TotalMs", "Messages/s"));
+        for (String row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    private static String run(String mode, int agents, int messages, AsyncLogWriter.FlushPolicy policy)
+            throws Exception {
+        String folder = "benchmark_" + mode + "_" + System.nanoTime();
+        AsyncLogWriter asyncWriter = policy != null ? new AsyncLogWriter(65536, policy, 1000) : null;
+        CountDownLatch done = new CountDownLatch(agents);
+
+        long start = System.nanoTime();
+        for (int a = 0; a < agents; a++) {
+            String agentName = "DA-" + a;
+            new Thread(() -> {
+                try {
+                    ACLMessage msg = sampleMessage(agentName);
+                    if (mode.equals("previous")) {
+                        PreviousLogger logger = new PreviousLogger(agentName, folder);
+                        for (int i = 0; i < messages; i++) {
+                            logger.logSent(msg, agentName);
+                        }
+                        logger.close();
+                    } else {
+                        AgentLogger logger = new AgentLogger(agentName, folder, asyncWriter);
+                        for (int i = 0; i < messages; i++) {
+                            logger.logSent(msg);
+                        }
+                        logger.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        if (asyncWriter != null) {
+            asyncWriter.awaitWritten(60000);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        if (asyncWriter != null) {
+            System.out.println(mode + ": " + asyncWriter.getStatistics());
+            asyncWriter.shutdown();
+        }
+        deleteFolder(new File("logs/" + folder));
+
+        return String.format("%-16s %10.1f %14.0f", mode, elapsedNanos / 1e6,
+                             agents * (double) messages / (elapsedNanos / 1e9));
+    }
+
+    private static ACLMessage sampleMessage(String agentName) {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(new AID("mra", AID.ISLOCALNAME));
+        msg.setProtocol("vehicle-info");
+        msg.setConversationId("vehicle-info-" + agentName + "-request-1");
+        msg.setOntology("vehicle-info");
+        msg.setContent("CAPACITY:50|MAX_DISTANCE:1000.0|NAME:" + agentName + "|X:0.00|Y:0.00");
+        return msg;
+    }
+
+    private static void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    /**
+     * The previous logger's write path: a shared SimpleDateFormat and one flushed println per line
+     */
+    private static class PreviousLogger {
+        private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        private final PrintWriter writer;
+
+        PreviousLogger(String agentName, String folder) throws IOException {
+            File dir = new File("logs/" + folder);
+            dir.mkdirs();
+            writer = new PrintWriter(new FileWriter(new File(dir, agentName + "_conversations.log"), true));
+        }
+
+        void logSent(ACLMessage msg, String agentName) {
+            log(">>> SENT MESSAGE");
+            log("  From: " + agentName);
+            log("  To: mra");
+            log("  Performative: " + ACLMessage.getPerformative(msg.getPerformative()));
+            log("  Protocol: " + msg.getProtocol());
+            log("  Conversation ID: " + msg.getConversationId());
+            log("  Reply With: N/A");
+            log("  In Reply To: N/A");
+            log("  Content: " + msg.getContent());
+            log("  Language: N/A");
+            log("  Ontology: " + msg.getOntology());
+            log("---");
+        }
+
+        void log(String message) {
+            String timestamp;
+            // Synchronized here only so the shared format's thread-safety bug cannot break the run
+            synchronized (dateFormat) {
+                timestamp = dateFormat.format(new Date());
+            }
+            writer.println("[" + timestamp + "] " + message);
+            writer.flush();
+        }
+
+        void close() {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package project.Utils;
+
+import project.General.RouteMessages;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the encodings of {@link RouteMessages} on a synthetic route assignment: the
+ * original "KEY:value|..." string path against the binary and JSON encodings.
+ *
+ * Each encoding is timed for encode, decode and a full round trip (what one assignment costs
+ * the MRA and the DA together), after a warm-up; reported per operation are mean time,
+ * allocated bytes (HotSpot thread allocation counter) and the message size.
+ *
+ * Usage: java project.Utils.MessageCodecBenchmark [stops] [iterations]
+ */
+public class MessageCodecBenchmark {
+
+    // Consumed results, so the JIT cannot drop the work
+    private static long sink;
+
+    public static void main(String[] args) {
+        int stops = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        RouteMessages.RouteAssignment route = syntheticRoute(stops);
+        String text = RouteMessages.encodeText(route);
+        String json = RouteMessages.encodeJson(route);
+        byte[] binary = RouteMessages.encodeBinary(route);
+
+        System.out.println("\n=== Message Codec Benchmark (route assignment, " + stops + " stops, " +
+                         iterations + " iterations) ===");
+        System.out.println(String.format("%-8s %-10s %12s %14s %12s", "Encoding", "Operation", "MeanUs", "AllocBytes/op", "Size"));
+        run("text", "encode", iterations, text.length(), () -> RouteMessages.encodeText(route).length());
+        run("text", "decode", iterations, text.length(), () -> RouteMessages.decodeRouteAssignmentText(text).size());
+        run("text", "roundtrip", iterations, text.length(),
+            () -> RouteMessages.decodeRouteAssignmentText(RouteMessages.encodeText(route)).size());
+        run("json", "encode", iterations, json.length(), () -> RouteMessages.encodeJson(route).length());
+        run("json", "decode", iterations, json.length(),
+            () -> ((RouteMessages.RouteAssignment) RouteMessages.decodeJson(json)).size());
+        run("json", "roundtrip", iterations, json.length(),
+            () -> ((RouteMessages.RouteAssignment) RouteMessages.decodeJson(RouteMessages.encodeJson(route))).size());
+        run("binary", "encode", iterations, binary.length, () -> RouteMessages.encodeBinary(route).length);
+        run("binary", "decode", iterations, binary.length, () -> RouteMessages.decodeRouteAssignment(binary).size());
+        run("binary", "roundtrip", iterations, binary.length,
+            () -> RouteMessages.decodeRouteAssignment(RouteMessages.encodeBinary(route)).size());
+        System.out.println("(size: characters for text/json, bytes for binary)");
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void run(String encoding, String operation, int iterations, int size, Supplier<Integer> op) {
+        // Warm-up
+        for (int i = 0; i < Math.max(1000, iterations / 4); i++) {
+            sink += op.get();
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += op.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        System.out.println(String.format("%-8s %-10s %12.1f %14s %12d", encoding, operation,
+            elapsed / 1e3 / iterations, allocated >= 0 ? String.valueOf(allocated / iterations) : "n/a", size));
+    }
+
+    /**
+     * Bytes allocated by this thread so far, -1 if the JVM does not count them
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static RouteMessages.RouteAssignment syntheticRoute(int stops) {
+        Random random = new Random(42);
+        RouteMessages.RouteAssignment route = new RouteMessages.RouteAssignment();
+        route.routeId = "1";
+        route.vehicleId = 1;
+        route.vehicleName = "vehicle-1-request-20240101-120000";
+        route.depotX = 500.0;
+        route.depotY = 500.0;
+        route.setCustomerCount(stops);
+        double distance = 0;
+        double lastX = route.depotX;
+        double lastY = route.depotY;
+        for (int i = 0; i < stops; i++) {
+            route.customerIds[i] = i + 1;
+            route.customerNames[i] = "C" + (i + 1);
+            route.x[i] = random.nextDouble() * 1000;
+            route.y[i] = random.nextDouble() * 1000;
+            distance += Math.hypot(route.x[i] - lastX, route.y[i] - lastY);
+            lastX = route.x[i];
+            lastY = route.y[i];
+            route.demand += 1 + random.nextInt(5);
+        }
+        route.distance = distance + Math.hypot(lastX - route.depotX, lastY - route.depotY);
+        return route;
+    }
+}
@@ -0,0 +1,67 @@
+package project.Utils;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that an invalid request in a polled batch is skipped without dropping its
+ * neighbours: the backend marks every request of a batch as processing, so a request lost
+ * in parsing would never be answered. Covers missing fields and values of the wrong type,
+ * which must not abort the parse mid-object.
+ *
+ * Usage: java project.Utils.PollResponseCheck (exits with status 1 on failure)
+ */
+public class PollResponseCheck {
+
+    private static final String VALID =
+        "{\"depot\":{\"name\":\"D\",\"x\":0,\"y\":0}," +
+        "\"vehicles\":[{\"name\":\"V\",\"capacity\":10,\"maxDistance\":100}]," +
+        "\"customers\":[{\"id\":\"C1\",\"x\":1,\"y\":2,\"demand\":3,\"timeWindow\":[0,50]}]}";
+
+    public static void main(String[] args) throws IOException {
+        String[] invalid = {
+            VALID.replace("\"demand\":3", "\"demand\":2.5"),
+            VALID.replace("\"capacity\":10", "\"capacity\":\"ten\""),
+            VALID.replace("\"x\":1", "\"x\":{\"nested\":[1,2]}"),
+            VALID.replace("[0,50]", "[0,\"late\"]"),
+            VALID.replace("\"name\":\"V\"", "\"name\":null"),
+            VALID.replace("{\"name\":\"D\",\"x\":0,\"y\":0}", "[0,0]"),
+            VALID.replace(",\"customers\":[{\"id\":\"C1\",\"x\":1,\"y\":2,\"demand\":3,\"timeWindow\":[0,50]}]", ""),
+            "\"not an object\""
+        };
+        int failures = 0;
+        for (String bad : invalid) {
+            String batch = "{\"requests\":[" +
+                "{\"request_id\":\"r1\",\"data\":" + VALID + "}," +
+                "{\"request_id\":\"r2\",\"data\":" + bad + ",\"priority\":1}," +
+                "{\"request_id\":\"r3\",\"data\":" + VALID + "}]}";
+            List<BackendClient.BackendRequest> requests = new ArrayList<>();
+            try (JsonReader in = new JsonReader(new StringReader(batch))) {
+                BackendClient.readPollResponse(in, requests);
+            } catch (RuntimeException e) {
+                System.out.println("FAIL " + bad + ": " + e);
+                failures++;
+                continue;
+            }
+            List<String> ids = new ArrayList<>();
+            for (BackendClient.BackendRequest request : requests) {
+                ids.add(request.requestId);
+            }
+            boolean ok = ids.size() == 2 && ids.contains("r1") && ids.contains("r3")
+                && requests.get(1).problem.customerCount == 1;
+            System.out.println((ok ? "ok   " : "FAIL ") + ids + " <- " + bad);
+            if (!ok) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All " + invalid.length + " checks passed");
+    }
+}
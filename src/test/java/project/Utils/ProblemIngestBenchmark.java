@@ -0,0 +1,190 @@
+package project.Utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import project.General.CustomerInfo;
+import project.General.CustomerRequest;
+import project.General.ProblemInstance;
+import project.Utils.JsonConfigReader.CVRPConfig;
+import project.Utils.JsonConfigReader.CustomerConfig;
+import project.Utils.JsonConfigReader.DepotConfig;
+import project.Utils.JsonConfigReader.VehicleConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures request ingestion on a large synthetic request: the previous path (JSON tree,
+ * CVRPConfig, then CustomerInfo and CustomerRequest objects, then the assembler's node arrays,
+ * reproduced here as a baseline) versus streaming the body straight into a {@link ProblemInstance}.
+ *
+ * Reports wall time and bytes allocated by the ingesting thread per run. Both paths start from
+ * the raw UTF-8 body, as received from the backend.
+ *
+ * Usage: java project.Utils.ProblemIngestBenchmark [customers] [iterations]
+ */
+public class ProblemIngestBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        byte[] body = syntheticRequest(customers).getBytes(StandardCharsets.UTF_8);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm-up (JIT)
+        for (int i = 0; i < 3; i++) {
+            treePath(body);
+            streamingPath(body);
+        }
+
+        long[] treeNanos = new long[iterations];
+        long[] streamNanos = new long[iterations];
+        long treeBytes = 0;
+        long streamBytes = 0;
+        long checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            checksum += treePath(body);
+            treeNanos[i] = System.nanoTime() - start;
+            treeBytes += threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            checksum += streamingPath(body);
+            streamNanos[i] = System.nanoTime() - start;
+            streamBytes += threads.getThreadAllocatedBytes(threadId) - allocated;
+        }
+
+        System.out.println("\n=== Problem Ingest Benchmark (" + customers + " customers, " +
+                         body.length / 1024 + " KB body, " + iterations + " iterations) ===");
+        System.out.println(String.format("%-12s %10s %10s %14s", "Path", "MeanMs", "P50Ms", "AllocMB/run"));
+        printRow("tree", treeNanos, treeBytes / iterations);
+        printRow("streaming", streamNanos, streamBytes / iterations);
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    private static void printRow(String path, long[] nanos, long bytesPerRun) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format("%-12s %10.2f %10.2f %14.1f", path,
+            Arrays.stream(sorted).average().orElse(0) / 1e6,
+            sorted[sorted.length / 2] / 1e6,
+            bytesPerRun / (1024.0 * 1024.0)));
+    }
+
+    /**
+     * The previous path up to the assembler's node arrays
+     */
+    private static long treePath(byte[] body) {
+        JsonObject data = new Gson().fromJson(
+            new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), JsonObject.class);
+        CVRPConfig config = treeConfig(data);
+
+        List<CustomerInfo> customerInfos = new ArrayList<>();
+        for (CustomerConfig customer : config.customers) {
+            customerInfos.add(new CustomerInfo(0, customer.x, customer.y, customer.demand, customer.id));
+        }
+        List<CustomerRequest> requests = new ArrayList<>();
+        for (int i = 0; i < customerInfos.size(); i++) {
+            CustomerInfo customer = customerInfos.get(i);
+            requests.add(new CustomerRequest(customer.name, customer.name, customer.x, customer.y,
+                                             "package", customer.demand, config.customers.get(i).timeWindow));
+        }
+        double[] nodeX = new double[requests.size() + 1];
+        double[] nodeY = new double[requests.size() + 1];
+        int[] nodeDemand = new int[requests.size() + 1];
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRequest req = requests.get(i);
+            nodeX[i + 1] = req.x;
+            nodeY[i + 1] = req.y;
+            nodeDemand[i + 1] = req.quantity;
+        }
+        return nodeDemand.length;
+    }
+
+    /**
+     * Tree-to-config conversion of the previous backend client (without its validation)
+     */
+    private static CVRPConfig treeConfig(JsonObject request) {
+        CVRPConfig config = new CVRPConfig();
+        JsonObject depot = request.getAsJsonObject("depot");
+        config.depot = new DepotConfig();
+        config.depot.name = depot.get("name").getAsString();
+        config.depot.x = depot.get("x").getAsDouble();
+        config.depot.y = depot.get("y").getAsDouble();
+
+        config.vehicles = new ArrayList<>();
+        for (JsonElement element : request.getAsJsonArray("vehicles")) {
+            JsonObject vehicleObject = element.getAsJsonObject();
+            VehicleConfig vehicle = new VehicleConfig();
+            vehicle.name = vehicleObject.get("name").getAsString();
+            vehicle.capacity = vehicleObject.get("capacity").getAsInt();
+            vehicle.maxDistance = vehicleObject.get("maxDistance").getAsDouble();
+            config.vehicles.add(vehicle);
+        }
+
+        config.customers = new ArrayList<>();
+        for (JsonElement element : request.getAsJsonArray("customers")) {
+            JsonObject customerObject = element.getAsJsonObject();
+            CustomerConfig customer = new CustomerConfig();
+            customer.id = customerObject.get("id").getAsString();
+            customer.x = customerObject.get("x").getAsDouble();
+            customer.y = customerObject.get("y").getAsDouble();
+            customer.demand = customerObject.get("demand").getAsInt();
+            if (customerObject.has("timeWindow")) {
+                JsonArray window = customerObject.getAsJsonArray("timeWindow");
+                if (window.size() >= 2) {
+                    customer.timeWindow = new long[]{window.get(0).getAsLong(), window.get(1).getAsLong()};
+                }
+            }
+            config.customers.add(customer);
+        }
+        return config;
+    }
+
+    private static long streamingPath(byte[] body) throws Exception {
+        try (JsonReader in = new JsonReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            ProblemInstance problem = new ProblemInstanceReader().read(in);
+            return problem.demand.length;
+        }
+    }
+
+    /**
+     * Request JSON in the backend format with the given number of customers
+     */
+    private static String syntheticRequest(int customers) {
+        StringBuilder json = new StringBuilder(customers * 64);
+        json.append("{\"depot\":{\"name\":\"Depot\",\"x\":500.0,\"y\":500.0},\"vehicles\":[");
+        for (int v = 1; v <= 20; v++) {
+            if (v > 1) json.append(',');
+            json.append("{\"name\":\"Vehicle-").append(v).append("\",\"capacity\":500,\"maxDistance\":5000.0}");
+        }
+        json.append("],\"customers\":[");
+        for (int i = 1; i <= customers; i++) {
+            if (i > 1) json.append(',');
+            json.append("{\"id\":\"C").append(i)
+                .append("\",\"x\":").append((i * 37) % 1000 + 0.5)
+                .append(",\"y\":").append((i * 91) % 1000 + 0.25)
+                .append(",\"demand\":").append(1 + i % 9);
+            if (i % 4 == 0) {
+                json.append(",\"timeWindow\":[").append(i % 480).append(',').append(i % 480 + 120).append(']');
+            }
+            json.append('}');
+        }
+        json.append("],\"priority\":1}");
+        return json.toString();
+    }
+}